@@ -0,0 +1,93 @@
+/**
+ * Reports how long loading a view takes for the user to the server, where the
+ * times are aggregated by route (see PageLoadMetrics).
+ *
+ * The times of the milestones are counted from the last click or key press
+ * before the view was created, which is what started the navigation, or from
+ * the start of the page load for the first view.
+ */
+
+// Views that do not report all their milestones in time report what they have
+const TIMEOUT = 60000;
+
+let start = 0;
+const onInput = () => {
+  start = performance.now();
+};
+window.addEventListener('click', onInput, true);
+window.addEventListener('keydown', (e) => e.key === 'Enter' && onInput(), true);
+window.addEventListener('popstate', onInput);
+
+/**
+ * Starts measuring the page load of the given view.
+ *
+ * The page load is reported with a `page-load` event from the view once all
+ * the given milestones are marked, with the path of the view when the beacon
+ * was created and the milliseconds by milestone.
+ *
+ * @param {HTMLElement} view the element of the view
+ * @param {string[]} milestones the names of the milestones of the view
+ * @return {{mark: function(string)}} the beacon to mark the milestones with
+ */
+export const pageLoadBeacon = (view, milestones) => {
+  const viewStart = start;
+  // Relative to the application, like the routes on the server
+  const path = location.pathname.substring(new URL(document.baseURI).pathname.length);
+  const times = {};
+  let sent = false;
+
+  const send = () => {
+    if (sent || Object.keys(times).length === 0) {
+      return;
+    }
+    sent = true;
+    view.dispatchEvent(
+      new CustomEvent('page-load', { detail: { path, milestones: times }, bubbles: true, composed: true })
+    );
+  };
+  setTimeout(send, TIMEOUT);
+
+  return {
+    mark(milestone) {
+      if (sent || milestone in times) {
+        return;
+      }
+      times[milestone] = performance.now() - viewStart;
+      if (milestones.every((m) => m in times)) {
+        // Used by the end-to-end tests to wait for the view
+        window.performance.mark && window.performance.mark('bakery-page-loaded');
+        send();
+      }
+    }
+  };
+};
+
+/**
+ * Calls the given callback once the grid has shown its first data.
+ */
+export const whenGridLoaded = (grid, callback) => {
+  const listener = () => {
+    if (!grid.loading) {
+      grid.removeEventListener('loading-changed', listener);
+      callback();
+    }
+  };
+  grid.addEventListener('loading-changed', listener);
+};
+
+/**
+ * Marks the first render and the first data of the grid of a view that is
+ * built on the server, e.g.
+ * `element.executeJs('window.Vaadin.Bakery.measurePageLoad(this, $0)', grid)`.
+ */
+const measurePageLoad = (view, grid) => {
+  const beacon = pageLoadBeacon(view, grid ? ['firstRender', 'gridData'] : ['firstRender']);
+  requestAnimationFrame(() => beacon.mark('firstRender'));
+  if (grid) {
+    whenGridLoaded(grid, () => beacon.mark('gridData'));
+  }
+};
+
+window.Vaadin = window.Vaadin || {};
+window.Vaadin.Bakery = window.Vaadin.Bakery || {};
+window.Vaadin.Bakery.measurePageLoad = measurePageLoad;
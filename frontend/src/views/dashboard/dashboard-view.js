@@ -6,6 +6,7 @@ import '@vaadin/grid';
 import '../storefront/order-card.js';
 import './dashboard-counter-label.js';
 import { sharedStyles } from '../../../styles/shared-styles.js';
+import { pageLoadBeacon, whenGridLoaded } from '../../page-load-beacon.js';
 
 class DashboardView extends LitElement {
   static get styles() {
@@ -61,6 +62,7 @@ class DashboardView extends LitElement {
         <vaadin-board-row>
           <dashboard-counter-label id="todayCount" class="green">
             <vaadin-chart
+              @chart-load=${this._chartLoaded}
               id="todayCountChart"
               class="counter"
               theme="classic"
@@ -82,6 +84,7 @@ class DashboardView extends LitElement {
         <vaadin-board-row>
           <div class="vaadin-board-cell">
             <vaadin-chart
+              @chart-load=${this._chartLoaded}
               id="deliveriesThisMonth"
               class="column-chart"
               theme="classic"
@@ -89,6 +92,7 @@ class DashboardView extends LitElement {
           </div>
           <div class="vaadin-board-cell">
             <vaadin-chart
+              @chart-load=${this._chartLoaded}
               id="deliveriesThisYear"
               class="column-chart"
               theme="classic"
@@ -97,6 +101,7 @@ class DashboardView extends LitElement {
         </vaadin-board-row>
         <vaadin-board-row>
           <vaadin-chart
+            @chart-load=${this._chartLoaded}
             id="yearlySalesGraph"
             class="yearly-sales"
             theme="classic"
@@ -105,6 +110,7 @@ class DashboardView extends LitElement {
         <vaadin-board-row class="custom-board-row">
           <div class="vaadin-board-cell">
             <vaadin-chart
+              @chart-load=${this._chartLoaded}
               id="monthlyProductSplit"
               class="product-split-donut"
               theme="classic"
@@ -122,31 +128,25 @@ class DashboardView extends LitElement {
     return 'dashboard-view';
   }
 
-  // This method is overridden to measure the page load performance and can be safely removed
-  // if there is no need for that.
+  // Reports the page load to the server, which aggregates it with PageLoadMetrics
+  constructor() {
+    super();
+    this._beacon = pageLoadBeacon(this, ['firstRender', 'gridData', 'chartsLoaded']);
+    this._loadedCharts = new Set();
+  }
+
   firstUpdated() {
     super.firstUpdated();
-    this._chartsLoaded = new Promise((resolve, reject) => {
-      // save the 'resolve' callback to trigger it later from the server
-      this._chartsLoadedResolve = () => {
-        resolve();
-      };
-    });
-
-    this._gridLoaded = new Promise((resolve, reject) => {
-      const ordersGrid = this.shadowRoot.querySelector('#ordersGrid');
-      const listener = () => {
-        if (!ordersGrid.loading) {
-          ordersGrid.removeEventListener('loading-changed', listener);
-          resolve();
-        }
-      };
-      ordersGrid.addEventListener('loading-changed', listener);
-    });
+    requestAnimationFrame(() => this._beacon.mark('firstRender'));
+    whenGridLoaded(this.shadowRoot.querySelector('#ordersGrid'), () => this._beacon.mark('gridData'));
+  }
 
-    Promise.all([this._chartsLoaded, this._gridLoaded]).then(() => {
-      window.performance.mark && window.performance.mark('bakery-page-loaded');
-    });
+  // Bound in the template, so that no chart can load before it is listened to
+  _chartLoaded(e) {
+    this._loadedCharts.add(e.target);
+    if (this._loadedCharts.size === this.shadowRoot.querySelectorAll('vaadin-chart').length) {
+      this._beacon.mark('chartsLoaded');
+    }
   }
 }
 
@@ -234,7 +234,10 @@ class OrderDetails extends ScrollShadowMixin(LitElement) {
               )}
             </vaadin-form-item>
 
-            <vaadin-form-item id="comment" .hidden="${this.review}">
+            <vaadin-form-item
+              id="comment"
+              .hidden="${this.review || (this.item && this.item.archived)}"
+            >
               <vaadin-text-field
                 id="commentField"
                 placeholder="Add comment"
@@ -278,7 +281,7 @@ class OrderDetails extends ScrollShadowMixin(LitElement) {
           slot="right"
           id="edit"
           theme="primary"
-          .hidden="${this.review}"
+          .hidden="${this.review || (this.item && this.item.archived)}"
         >
           Edit order
           <vaadin-icon icon="vaadin:edit" slot="suffix"></vaadin-icon>
@@ -1,9 +1,12 @@
 import { html, css, LitElement } from 'lit';
 import '@vaadin/grid';
 import '@vaadin/dialog';
+import '@vaadin/combo-box';
+import '@vaadin/number-field';
 import '../../components/search-bar.js';
 import './order-card.js';
 import { sharedStyles } from '../../../styles/shared-styles.js';
+import { pageLoadBeacon, whenGridLoaded } from '../../page-load-beacon.js';
 
 class StorefrontView extends LitElement {
   static get styles() {
@@ -15,6 +18,22 @@ class StorefrontView extends LitElement {
           flex-direction: column;
           height: 100%;
         }
+
+        .filters {
+          display: flex;
+          flex-wrap: wrap;
+          align-items: baseline;
+          gap: var(--lumo-space-s);
+          width: 100%;
+          max-width: 964px;
+          margin: 0 auto;
+          padding: 0 var(--lumo-space-s);
+          box-sizing: border-box;
+        }
+
+        .filters vaadin-number-field {
+          width: 8em;
+        }
       `,
     ];
   }
@@ -23,6 +42,16 @@ class StorefrontView extends LitElement {
     return html`
       <search-bar id="search" show-checkbox=""></search-bar>
 
+      <div class="filters">
+        <vaadin-number-field id="minTotal" placeholder="Min total" clear-button-visible>
+          <div slot="prefix">$</div>
+        </vaadin-number-field>
+        <vaadin-number-field id="maxTotal" placeholder="Max total" clear-button-visible>
+          <div slot="prefix">$</div>
+        </vaadin-number-field>
+        <vaadin-combo-box id="sort" label="Sort by"></vaadin-combo-box>
+      </div>
+
       <vaadin-grid id="grid" theme="orders no-row-borders"></vaadin-grid>
 
       <vaadin-dialog id="dialog" theme="orders"></vaadin-dialog>
@@ -36,16 +65,9 @@ class StorefrontView extends LitElement {
   ready() {
     super.ready();
 
-    // This code is needed to measure the page load performance and can be safely removed
-    // if there is no need for that.
-    const grid = this.$.grid;
-    const listener = () => {
-      if (!grid.loading && window.performance.mark) {
-        window.performance.mark('bakery-page-loaded');
-        grid.removeEventListener('loading-changed', listener);
-      }
-    };
-    grid.addEventListener('loading-changed', listener);
+    const beacon = pageLoadBeacon(this, ['firstRender', 'gridData']);
+    requestAnimationFrame(() => beacon.mark('firstRender'));
+    whenGridLoaded(this.$.grid, () => beacon.mark('gridData'));
   }
 }
 
@@ -0,0 +1,130 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.flow.spring.SpringBootAutoConfiguration;
+import com.vaadin.flow.spring.SpringSecurityAutoConfiguration;
+import com.vaadin.starter.bakery.app.DataGenerator;
+import com.vaadin.starter.bakery.app.DataSnapshot;
+import com.vaadin.starter.bakery.app.metrics.SlowQueryLog;
+import com.vaadin.starter.bakery.app.security.CurrentUserCache;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+import com.vaadin.starter.bakery.backend.service.UserService;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+
+/**
+ * The services and repositories of the application, without the UI, on an H2
+ * database with generated demo data of the size given by the {@code years} and
+ * {@code ordersPerDay} parameters, e.g.
+ * {@code -Djmh.args="OrderService -p years=5 -p ordersPerDay=100"}.
+ * <p>
+ * The data is generated once for each size and then restored from a snapshot
+ * in {@code target/bakery-benchmark-data}, so that only the first fork of a new
+ * size waits for the generation.
+ */
+@State(Scope.Benchmark)
+public class BackendState {
+
+	private static final String BAKER = "baker@vaadin.com";
+
+	@Param("2")
+	public int years;
+
+	@Param("10")
+	public int ordersPerDay;
+
+	ConfigurableApplicationContext context;
+	OrderService orderService;
+	User baker;
+	// Orders that are not archived, to change and to load
+	List<Long> upcomingOrderIds;
+	private TransactionTemplate readOnlyTransaction;
+
+	@SpringBootApplication(scanBasePackageClasses = UserService.class, exclude = {
+			SpringBootAutoConfiguration.class, SpringSecurityAutoConfiguration.class })
+	@EnableJpaRepositories(basePackageClasses = UserRepository.class)
+	@EntityScan(basePackageClasses = User.class)
+	@Import({ DataGenerator.class, DataSnapshot.class, CurrentUserCache.class, SlowQueryLog.class })
+	static class Backend {
+
+		@Bean
+		@SuppressWarnings("deprecation")
+		PasswordEncoder passwordEncoder() {
+			return NoOpPasswordEncoder.getInstance();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void startBackend() {
+		SpringApplication application = new SpringApplication(Backend.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		context = application.run("--bakery.data.years=" + years, "--bakery.data.orders-per-day=" + ordersPerDay,
+				"--bakery.data.snapshot-dir=target/bakery-benchmark-data",
+				"--bakery.slow-query.threshold=0", "--spring.main.banner-mode=off", "--logging.level.root=WARN");
+		orderService = context.getBean(OrderService.class);
+		baker = context.getBean(UserRepository.class).findByEmailIgnoreCase(BAKER);
+		readOnlyTransaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		readOnlyTransaction.setReadOnly(true);
+		upcomingOrderIds = orderService
+				.findAnyMatchingAfterDueDate(Optional.empty(), Optional.of(LocalDate.now().minusDays(1)),
+						PageRequest.of(0, 100, Sort.by(BakeryConst.ORDER_SORT_FIELDS)))
+				.map(Order::getId).getContent();
+		if (upcomingOrderIds.isEmpty()) {
+			throw new IllegalStateException("No upcoming orders were generated for " + years + " years and "
+					+ ordersPerDay + " orders per day");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void stopBackend() {
+		context.close();
+	}
+
+	/**
+	 * Runs the action in a read-only transaction, like the open session of a
+	 * request.
+	 */
+	<T> T inReadOnlyTransaction(Supplier<T> action) {
+		return readOnlyTransaction.execute(status -> action.get());
+	}
+
+	/**
+	 * Loads an order with everything the order editor shows, so that it can be
+	 * used detached.
+	 */
+	Order loadWithGraph(long id) {
+		return inReadOnlyTransaction(() -> {
+			Order order = orderService.load(id);
+			order.getItems().forEach(item -> item.getProduct().getName());
+			order.getHistory().forEach(item -> item.getCreatedBy().getFirstName());
+			return order;
+		});
+	}
+}
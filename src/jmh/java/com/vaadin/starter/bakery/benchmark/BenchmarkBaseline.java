@@ -0,0 +1,196 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH result file in the JSON format with a baseline and fails if a
+ * benchmark got slower by more than the tolerance, beyond the error of both
+ * scores. With the GC profiler the bytes allocated per operation are compared
+ * the same way, with "alloc" after the name of the benchmark:
+ *
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="Order -rf json -rff target/jmh-baseline.json"
+ * (make the change)
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="Order -rf json -rff target/jmh-result.json"
+ * mvn -Pbenchmark exec:exec@compare-baseline
+ * </pre>
+ *
+ * The numbers depend on the machine, so the baseline is a result file of a run
+ * without the change on the same machine, and is not stored in the
+ * repository.
+ * <p>
+ * The comparison also fails if a benchmark of the baseline was not run, or if
+ * the error of a score is more than half of the tolerance, as a regression by
+ * the tolerance could then not be told apart from noise. Such benchmarks need
+ * more forks or iterations.
+ */
+public final class BenchmarkBaseline {
+
+	private static final String PACKAGE = BenchmarkBaseline.class.getPackage().getName() + ".";
+	private static final String ALLOCATION = "gc.alloc.rate.norm";
+
+	private BenchmarkBaseline() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2 || args.length > 3) {
+			System.err.println("Usage: BenchmarkBaseline <baseline.json> <result.json> [tolerance %, default 10]");
+			System.exit(2);
+		}
+		double tolerance = args.length == 3 ? Double.parseDouble(args[2]) / 100 : 0.1;
+		for (String file : new String[] { args[0], args[1] }) {
+			if (!new File(file).isFile()) {
+				System.err.println("No JMH result in " + file + ", run the benchmarks with -rf json -rff " + file);
+				System.exit(2);
+			}
+		}
+		Map<String, Score> baseline = read(new File(args[0]));
+		Map<String, Score> result = read(new File(args[1]));
+		Failures failures = compare(baseline, result, tolerance);
+		if (failures.regressed > 0) {
+			System.err.println(failures.regressed + " benchmarks regressed by more than "
+					+ Math.round(tolerance * 100) + "% against " + args[0]);
+		}
+		if (failures.notRun > 0) {
+			System.err.println(failures.notRun + " benchmarks of " + args[0] + " were not run");
+		}
+		if (failures.noisy > 0) {
+			System.err.println(failures.noisy + " benchmarks have an error of more than "
+					+ Math.round(tolerance * 50) + "% of their score, run them with more forks or iterations");
+		}
+		if (failures.regressed + failures.notRun + failures.noisy > 0) {
+			System.exit(1);
+		}
+	}
+
+	private static Failures compare(Map<String, Score> baseline, Map<String, Score> result, double tolerance) {
+		Map<String, Score> all = new TreeMap<>(baseline);
+		all.putAll(result);
+		int width = all.keySet().stream().mapToInt(String::length).max().orElse(0);
+		String format = "%-" + width + "s %20s %20s %-6s %8s  %s%n";
+		System.out.printf(format, "Benchmark", "Baseline", "Result", "Unit", "Change", "");
+		Failures failures = new Failures();
+		for (String name : all.keySet()) {
+			Score before = baseline.get(name);
+			Score after = result.get(name);
+			if (before == null || after == null) {
+				if (after == null) {
+					failures.notRun++;
+				}
+				System.out.printf(format, name, before == null ? "" : before, after == null ? "" : after,
+						all.get(name).unit, "", before == null ? "new" : "NOT RUN");
+				continue;
+			}
+			if (!before.unit.equals(after.unit) || !before.mode.equals(after.mode)) {
+				System.out.printf(format, name, before, after, after.unit, "", "other mode or unit");
+				continue;
+			}
+			double change = (after.score - before.score) / before.score;
+			// Throughput is better when higher, the other modes when lower
+			double worse = after.mode.equals("thrpt") ? -change : change;
+			boolean significant = after.score - after.error > before.score + before.error
+					|| after.score + after.error < before.score - before.error;
+			String verdict = "";
+			if (before.isNoisy(tolerance) || after.isNoisy(tolerance)) {
+				verdict = "TOO NOISY";
+				failures.noisy++;
+			} else if (significant && worse > tolerance) {
+				verdict = "REGRESSED";
+				failures.regressed++;
+			} else if (significant && worse < -tolerance) {
+				verdict = "improved";
+			}
+			System.out.printf(format, name, before, after, after.unit, String.format("%+.1f%%", change * 100),
+					verdict);
+		}
+		return failures;
+	}
+
+	private static final class Failures {
+
+		int regressed;
+		int notRun;
+		int noisy;
+	}
+
+	/**
+	 * Reads the scores of a JMH result file by benchmark and parameters, e.g.
+	 * {@code OrderSearchBenchmark.countAnyMatchingAfterDueDate(filter=name)}.
+	 */
+	private static Map<String, Score> read(File file) throws IOException {
+		Map<String, Score> scores = new LinkedHashMap<>();
+		for (JsonNode run : new ObjectMapper().readTree(file)) {
+			String name = name(run);
+			scores.put(name, score(run.get("mode").asText(), run.get("primaryMetric")));
+			// The bytes allocated per operation, with -prof gc
+			JsonNode secondary = run.get("secondaryMetrics");
+			if (secondary != null) {
+				secondary.fields().forEachRemaining(metric -> {
+					if (metric.getKey().endsWith(ALLOCATION)) {
+						scores.put(name + " alloc", score("avgt", metric.getValue()));
+					}
+				});
+			}
+		}
+		return scores;
+	}
+
+	private static String name(JsonNode run) {
+		String name = run.get("benchmark").asText();
+		if (name.startsWith(PACKAGE)) {
+			name = name.substring(PACKAGE.length());
+		}
+		JsonNode params = run.get("params");
+		if (params != null && params.size() > 0) {
+			Map<String, String> sorted = new TreeMap<>();
+			params.fields().forEachRemaining(param -> sorted.put(param.getKey(), param.getValue().asText()));
+			StringJoiner described = new StringJoiner(",", "(", ")");
+			sorted.forEach((key, value) -> described.add(key + "=" + value));
+			name += described;
+		}
+		return name;
+	}
+
+	private static Score score(String mode, JsonNode metric) {
+		double error = metric.get("scoreError").asDouble();
+		return new Score(mode, metric.get("score").asDouble(), Double.isNaN(error) ? 0 : error,
+				metric.get("scoreUnit").asText());
+	}
+
+	private static final class Score {
+
+		final String mode;
+		final double score;
+		// Half of the 99.9% confidence interval
+		final double error;
+		final String unit;
+
+		Score(String mode, double score, double error, String unit) {
+			this.mode = mode;
+			this.score = score;
+			this.error = error;
+			this.unit = unit;
+		}
+
+		/**
+		 * Whether the error is too large to tell a change by the tolerance
+		 * from noise.
+		 */
+		boolean isNoisy(double tolerance) {
+			return error > Math.abs(score) * tolerance / 2;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%.3f +- %.3f", score, error);
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import com.vaadin.starter.bakery.app.security.LoginAuthenticationProvider;
+import com.vaadin.starter.bakery.app.security.LoginThrottle;
+import com.vaadin.starter.bakery.app.security.RehashingPasswordEncoder;
+
+/**
+ * Measures the login path of {@link LoginAuthenticationProvider}.
+ * <p>
+ * The {@code burst} groups run eight threads logging in next to two threads
+ * doing a fixed amount of other work, standing for the requests of users who
+ * are already logged in. Compare the time of {@code otherWork} in the
+ * {@code burst} group, where the passwords are checked on the login threads,
+ * with the {@code unboundedBurst} group, where each thread checks passwords
+ * itself.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginBenchmark {
+
+	private static final String USERNAME = "baker@vaadin.com";
+	private static final String PASSWORD = "baker";
+
+	@Param("10")
+	public int strength;
+
+	@Param("0")
+	public int loginThreads;
+
+	private RehashingPasswordEncoder passwordEncoder;
+	private String passwordHash;
+	private LoginAuthenticationProvider provider;
+
+	@Setup
+	public void setUp() {
+		passwordEncoder = new RehashingPasswordEncoder(strength);
+		passwordHash = passwordEncoder.encode(PASSWORD);
+		InMemoryUserDetailsManager users = new InMemoryUserDetailsManager(
+				User.withUsername(USERNAME).password(passwordHash).roles("baker").build());
+		// Not throttled, as all logins come from the same user
+		LoginThrottle throttle = new LoginThrottle(Integer.MAX_VALUE, Duration.ofNanos(1), Integer.MAX_VALUE,
+				Duration.ofNanos(1));
+		provider = new LoginAuthenticationProvider(users, passwordEncoder, throttle, loginThreads, 1000,
+				Duration.ofMinutes(1));
+	}
+
+	@TearDown
+	public void tearDown() {
+		provider.destroy();
+	}
+
+	@Benchmark
+	public boolean passwordCheck() {
+		return passwordEncoder.matches(PASSWORD, passwordHash);
+	}
+
+	@Benchmark
+	public Authentication login() {
+		return provider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, PASSWORD));
+	}
+
+	@Benchmark
+	public Object failedLogin() {
+		try {
+			return provider.authenticate(new UsernamePasswordAuthenticationToken(USERNAME, "wrong"));
+		} catch (BadCredentialsException e) {
+			return e;
+		}
+	}
+
+	@Benchmark
+	@Group("burst")
+	@GroupThreads(8)
+	public Authentication burstLogin() {
+		return login();
+	}
+
+	@Benchmark
+	@Group("burst")
+	@GroupThreads(2)
+	public void otherWork() {
+		Blackhole.consumeCPU(100_000);
+	}
+
+	@Benchmark
+	@Group("unboundedBurst")
+	@GroupThreads(8)
+	public boolean unboundedLogin() {
+		return passwordCheck();
+	}
+
+	@Benchmark
+	@Group("unboundedBurst")
+	@GroupThreads(2)
+	public void unboundedOtherWork() {
+		Blackhole.consumeCPU(100_000);
+	}
+}
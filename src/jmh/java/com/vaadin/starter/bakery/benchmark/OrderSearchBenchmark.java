@@ -0,0 +1,83 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+
+/**
+ * Measures the order searches of the storefront grid, a page and the count,
+ * for each combination of its criteria. The {@code filter} parameter names the
+ * given criteria like the
+ * {@link com.vaadin.starter.bakery.app.metrics.OperationEvent}s of the order
+ * searches do.
+ * <p>
+ * Without {@code dueDate} the search includes the archived orders, as when
+ * showing the previous orders.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class OrderSearchBenchmark {
+
+	// Matches many of the generated customers, e.g. Amanda and Castro
+	private static final String NAME = "an";
+	// In cents
+	private static final int MIN_TOTAL = 50_00;
+	private static final int MAX_TOTAL = 200_00;
+
+	@Param({ "none", "name", "dueDate", "total", "name+dueDate", "name+total", "dueDate+total",
+			"name+dueDate+total" })
+	public String filter;
+
+	private Optional<String> name;
+	private Optional<LocalDate> dueDate;
+	private Optional<Integer> minTotal;
+	private Optional<Integer> maxTotal;
+	// As the storefront grid fetches it
+	private final Pageable firstPage = PageRequest.of(0, 50,
+			Sort.by(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS));
+
+	@Setup
+	public void setUp() {
+		boolean total = filter.contains("total");
+		name = filter.contains("name") ? Optional.of(NAME) : Optional.of("");
+		dueDate = filter.contains("dueDate") ? Optional.of(LocalDate.now().minusDays(1)) : Optional.empty();
+		minTotal = total ? Optional.of(MIN_TOTAL) : Optional.empty();
+		maxTotal = total ? Optional.of(MAX_TOTAL) : Optional.empty();
+		if (!filter.matches("none|name(\\+dueDate)?(\\+total)?|dueDate(\\+total)?|total")) {
+			throw new IllegalArgumentException("Unknown filter " + filter + ", use e.g. name+dueDate");
+		}
+	}
+
+	@Benchmark
+	public Page<Order> findAnyMatchingAfterDueDate(BackendState backend) {
+		return backend.orderService.findAnyMatchingAfterDueDate(name, dueDate, minTotal, maxTotal, firstPage);
+	}
+
+	@Benchmark
+	public long countAnyMatchingAfterDueDate(BackendState backend) {
+		return backend.orderService.countAnyMatchingAfterDueDate(name, dueDate, minTotal, maxTotal);
+	}
+}
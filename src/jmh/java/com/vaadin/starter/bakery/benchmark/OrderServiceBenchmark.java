@@ -0,0 +1,85 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vaadin.starter.bakery.backend.data.DashboardData;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+
+/**
+ * Measures the {@link OrderService} calls of the dashboard and of the order
+ * editor. The changing calls go round the upcoming orders, so that no single
+ * order gets a long history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class OrderServiceBenchmark {
+
+	private int next;
+	// Detached like the order of an open editor
+	private List<Order> editedOrders;
+
+	@Setup(Level.Iteration)
+	public void loadEditedOrders(BackendState backend) {
+		editedOrders = new ArrayList<>();
+		for (Long id : backend.upcomingOrderIds) {
+			editedOrders.add(backend.loadWithGraph(id));
+		}
+	}
+
+	@Benchmark
+	public DashboardData getDashboardData(BackendState backend) {
+		LocalDate today = LocalDate.now();
+		return backend.orderService.getDashboardData(today.getMonthValue(), today.getYear());
+	}
+
+	/**
+	 * Loads an order with everything the order editor shows.
+	 */
+	@Benchmark
+	public Order load(BackendState backend) {
+		return backend.loadWithGraph(nextOrderId(backend));
+	}
+
+	/**
+	 * Changes the quantity of the first item of an order, as saving the order
+	 * editor does.
+	 */
+	@Benchmark
+	public Order saveOrder(BackendState backend) {
+		return backend.orderService.saveOrder(backend.baker, nextOrderId(backend), (user, order) -> {
+			OrderItem item = order.getItems().get(0);
+			item.setQuantity(item.getQuantity() % 10 + 1);
+		});
+	}
+
+	@Benchmark
+	public Order addComment(BackendState backend) {
+		Order order = editedOrders.get(next++ % editedOrders.size());
+		return backend.orderService.addComment(backend.baker, order, "Benchmark comment");
+	}
+
+	private long nextOrderId(BackendState backend) {
+		return backend.upcomingOrderIds.get(next++ % backend.upcomingOrderIds.size());
+	}
+}
@@ -0,0 +1,155 @@
+package com.vaadin.starter.bakery.benchmark;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.flow.internal.JsonSerializer;
+import com.vaadin.starter.bakery.backend.data.DeliveryStats;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+import com.vaadin.starter.bakery.ui.utils.FormattingUtils;
+import com.vaadin.starter.bakery.ui.utils.converters.CurrencyFormatter;
+import com.vaadin.starter.bakery.ui.utils.converters.LocalDateTimeConverter;
+import com.vaadin.starter.bakery.ui.utils.converters.LocalTimeConverter;
+import com.vaadin.starter.bakery.ui.views.dashboard.DashboardUtils;
+import com.vaadin.starter.bakery.ui.views.storefront.OrderCard;
+import com.vaadin.starter.bakery.ui.views.storefront.OrderCardHeaderGenerator;
+
+/**
+ * Measures the UI code that runs for each row of the order grids, for each
+ * order shown in the editor and for each refresh of the dashboard. Each
+ * operation handles a page of 50 orders as the grids fetch them, or the orders
+ * of the dashboard, loaded from the generated demo data of
+ * {@link BackendState}.
+ * <p>
+ * Run it with the GC profiler to also see the bytes allocated per operation,
+ * which {@link BenchmarkBaseline} compares as well:
+ * {@code -Djmh.args="UiRendering -prof gc -rf json -rff target/jmh-result.json"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(3)
+public class UiRenderingBenchmark {
+
+	private static final int PAGE_SIZE = 50;
+	private static final Sort ORDER_SORT = Sort.by(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
+
+	private final LocalTimeConverter timeConverter = new LocalTimeConverter();
+	private final LocalDateTimeConverter dateTimeConverter = new LocalDateTimeConverter();
+	private final CurrencyFormatter currencyFormatter = new CurrencyFormatter();
+
+	// The first page of the storefront
+	private List<Order> upcomingOrders;
+	// The page of the storefront with the past orders from the last week on
+	private List<Order> recentOrders;
+	private List<OrderSummary> dashboardOrders;
+	private DeliveryStats deliveryStats;
+	private Order lastOrder;
+
+	@Setup
+	public void loadOrders(BackendState backend) {
+		LocalDate today = LocalDate.now();
+		upcomingOrders = loadPage(backend, today.minusDays(1));
+		recentOrders = loadPage(backend, today.minusWeeks(1));
+		dashboardOrders = backend.inReadOnlyTransaction(backend.orderService::findAnyMatchingStartingToday);
+		deliveryStats = backend.orderService.getDashboardData(today.getMonthValue(), today.getYear())
+				.getDeliveryStats();
+		lastOrder = backend.loadWithGraph(dashboardOrders.get(dashboardOrders.size() - 1).getId());
+	}
+
+	private static List<Order> loadPage(BackendState backend, LocalDate dueDate) {
+		List<Order> page = new ArrayList<>();
+		backend.orderService.findAnyMatchingAfterDueDate(Optional.of(""), Optional.of(dueDate),
+				PageRequest.of(0, PAGE_SIZE, ORDER_SORT)).forEach(order -> page.add(backend.loadWithGraph(order.getId())));
+		return page;
+	}
+
+	/**
+	 * The order cards of a page, serialized as the renderer of the storefront
+	 * and dashboard grids sends them.
+	 */
+	@Benchmark
+	public void orderCards(Blackhole blackhole) {
+		for (Order order : upcomingOrders) {
+			blackhole.consume(JsonSerializer.toJson(OrderCard.create(order)));
+		}
+	}
+
+	@Benchmark
+	public void orderCardHeaders(Blackhole blackhole) {
+		headers(upcomingOrders, false, blackhole);
+	}
+
+	@Benchmark
+	public void orderCardHeadersWithPrevious(Blackhole blackhole) {
+		headers(recentOrders, true, blackhole);
+	}
+
+	private static void headers(List<Order> orders, boolean showPrevious, Blackhole blackhole) {
+		OrderCardHeaderGenerator generator = new OrderCardHeaderGenerator();
+		generator.resetHeaderChain(showPrevious);
+		generator.ordersRead(orders);
+		for (Order order : orders) {
+			blackhole.consume(generator.get(order.getId()));
+		}
+	}
+
+	/**
+	 * The counters at the top of the dashboard.
+	 */
+	@Benchmark
+	public void dashboardCounts(Blackhole blackhole) {
+		blackhole.consume(DashboardUtils.getTodaysOrdersCountData(deliveryStats, dashboardOrders.iterator()));
+		blackhole.consume(DashboardUtils.getNotAvailableOrdersCountData(deliveryStats));
+		blackhole.consume(DashboardUtils.getNewOrdersCountData(deliveryStats, lastOrder));
+		blackhole.consume(DashboardUtils.getTomorrowOrdersCountData(deliveryStats, dashboardOrders.iterator()));
+	}
+
+	@Benchmark
+	public void formatAsCurrency(Blackhole blackhole) {
+		for (Order order : upcomingOrders) {
+			blackhole.consume(FormattingUtils.formatAsCurrency(order.getTotalPrice()));
+		}
+	}
+
+	/**
+	 * The values the order details format for each order of a page.
+	 */
+	@Benchmark
+	public void orderDetailsConverters(Blackhole blackhole) {
+		for (Order order : upcomingOrders) {
+			blackhole.consume(timeConverter.encode(order.getDueTime()));
+			blackhole.consume(currencyFormatter.encode(order.getTotalPrice()));
+			for (OrderItem item : order.getItems()) {
+				blackhole.consume(currencyFormatter.encode(
+						item.getUnitPrice() != null ? item.getUnitPrice() : item.getProduct().getPrice()));
+			}
+			for (HistoryItem item : order.getHistory()) {
+				blackhole.consume(dateTimeConverter.encode(item.getTimestamp()));
+			}
+		}
+	}
+}
@@ -1,20 +1,29 @@
-```java
 package com.vaadin.starter.bakery.app;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.time.YearMonth;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
-import java.util.function.Supplier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.starter.bakery.backend.data.OrderState;
@@ -30,10 +39,18 @@ import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
 import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
 import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
 import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.OrderService;
 
 /**
  * DataGenerator is responsible for populating the application database with demo data.
  * It creates users, products, pickup locations, and a realistic set of demo orders for testing purposes.
+ * <p>
+ * The amount of data is configured with the {@code bakery.data.*} properties.
+ * Orders are generated one month at a time, each month in its own thread with
+ * its own random seed, and written in chunks of {@value #CHUNK_SIZE} orders per
+ * transaction, so that even millions of orders can be generated in reasonable
+ * time. The generated data only depends on the configuration, not on the
+ * number of threads, but the order ids do.
  */
 @SpringComponent
 public class DataGenerator implements HasLogger {
@@ -50,13 +67,28 @@ public class DataGenerator implements HasLogger {
 			"Whitney", "Farmer", "Henry", "Chen", "Macias", "Rowland", "Pierce", "Cortez", "Noble", "Howard", "Nixon",
 			"Mcbride", "Leblanc", "Russell", "Carver", "Benton", "Maldonado", "Lyons" };
 
+	private static final int CHUNK_SIZE = 1000;
+
 	private final Random random = new Random(1L);
 
+	@PersistenceContext
+	private EntityManager entityManager;
+
 	private OrderRepository orderRepository;
 	private UserRepository userRepository;
 	private ProductRepository productRepository;
 	private PickupLocationRepository pickupLocationRepository;
 	private PasswordEncoder passwordEncoder;
+	private OrderService orderService;
+	private TransactionTemplate transactionTemplate;
+	private DataSnapshot dataSnapshot;
+
+	private final int years;
+	private final int ordersPerDay;
+	private final int products;
+	private final int customers;
+	private final int pickupLocations;
+	private final int threads;
 
 	/**
 	 * Constructs a new DataGenerator with required repositories and password encoder.
@@ -66,26 +98,59 @@ public class DataGenerator implements HasLogger {
 	 * @param productRepository          the product repository
 	 * @param pickupLocationRepository   the pickup location repository
 	 * @param passwordEncoder            the password encoder
+	 * @param orderService               the order service, used for migrating existing data
+	 * @param transactionManager         the transaction manager, used for writing orders in chunks
+	 * @param dataSnapshot               the snapshot of previously generated data
+	 * @param years                      the number of years before the current one to generate orders for
+	 * @param ordersPerDay               the maximum number of random orders per day, before the trend is added
+	 * @param products                   the number of products used in orders
+	 * @param customers                  the number of distinct customers, or 0 for a new one for each order
+	 * @param pickupLocations            the number of pickup locations
+	 * @param threads                    the number of threads generating orders, or 0 for one per processor
 	 */
 	@Autowired
 	public DataGenerator(OrderRepository orderRepository, UserRepository userRepository,
 			ProductRepository productRepository, PickupLocationRepository pickupLocationRepository,
-			PasswordEncoder passwordEncoder) {
+			PasswordEncoder passwordEncoder, OrderService orderService, PlatformTransactionManager transactionManager,
+			DataSnapshot dataSnapshot, @Value("${bakery.data.years:2}") int years, @Value("${bakery.data.orders-per-day:10}") int ordersPerDay,
+			@Value("${bakery.data.products:8}") int products, @Value("${bakery.data.customers:0}") int customers,
+			@Value("${bakery.data.pickup-locations:2}") int pickupLocations,
+			@Value("${bakery.data.threads:0}") int threads) {
 		this.orderRepository = orderRepository;
 		this.userRepository = userRepository;
 		this.productRepository = productRepository;
 		this.pickupLocationRepository = pickupLocationRepository;
 		this.passwordEncoder = passwordEncoder;
+		this.orderService = orderService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.dataSnapshot = dataSnapshot;
+		this.years = years;
+		this.ordersPerDay = ordersPerDay;
+		this.products = products;
+		this.customers = customers;
+		this.pickupLocations = pickupLocations;
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
 	}
 
 	/**
-	 * Loads demo data into the database if not already populated.
+	 * Loads demo data into the database if not already populated, from the
+	 * snapshot if there is one for the current settings.
 	 * This method is automatically called after dependency injection.
 	 */
 	@PostConstruct
 	public void loadData() {
 		if (userRepository.count() != 0L) {
 			getLogger().info("Using existing database");
+			int backfilled = orderService.backfillPrices();
+			if (backfilled > 0) {
+				getLogger().info("... backfilled unit prices of {} order items", backfilled);
+			}
+			return;
+		}
+
+		String settings = String.format("years=%d,orders-per-day=%d,products=%d,customers=%d,pickup-locations=%d",
+				years, ordersPerDay, products, customers, pickupLocations);
+		if (dataSnapshot.restore(settings)) {
 			return;
 		}
 
@@ -100,30 +165,67 @@ public class DataGenerator implements HasLogger {
 
 		getLogger().info("... generating products");
 		// A set of products that will be used for creating orders.
-		Supplier<Product> productSupplier = createProducts(productRepository, 8);
+		Function<Random, Product> productSupplier = createProducts(productRepository, products);
 		// A set of products without relationships that can be deleted
 		createProducts(productRepository, 4);
 
 		getLogger().info("... generating pickup locations");
-		Supplier<PickupLocation> pickupLocationSupplier = createPickupLocations(pickupLocationRepository);
+		Function<Random, PickupLocation> pickupLocationSupplier = createPickupLocations(pickupLocationRepository);
+
+		Function<Random, Customer> customerSupplier = createCustomers();
 
 		getLogger().info("... generating orders");
-		createOrders(orderRepository, productSupplier, pickupLocationSupplier, barista, baker);
+		long start = System.currentTimeMillis();
+		int orders = createOrders(orderRepository, productSupplier, pickupLocationSupplier, customerSupplier, barista,
+				baker);
+		getLogger().info("... generated {} orders in {} ms", orders, System.currentTimeMillis() - start);
 
 		getLogger().info("Generated demo data");
+		dataSnapshot.save();
+	}
+
+	/**
+	 * Creates the pool of customers if one is configured and returns a
+	 * function filling a new customer, either randomly or from the pool.
+	 *
+	 * @return function returning a new customer filled using the given random generator
+	 */
+	private Function<Random, Customer> createCustomers() {
+		if (customers <= 0) {
+			return r -> {
+				Customer customer = new Customer();
+				fillCustomer(r, customer);
+				return customer;
+			};
+		}
+		List<Customer> pool = new ArrayList<>();
+		for (int i = 0; i < customers; i++) {
+			Customer customer = new Customer();
+			fillCustomer(random, customer);
+			pool.add(customer);
+		}
+		return r -> {
+			Customer template = pool.get(r.nextInt(pool.size()));
+			Customer customer = new Customer();
+			customer.setFullName(template.getFullName());
+			customer.setPhoneNumber(template.getPhoneNumber());
+			customer.setDetails(template.getDetails());
+			return customer;
+		};
 	}
 
 	/**
 	 * Fills the given customer with random full name and phone number.
 	 * Occasionally marks the customer as "Very important".
 	 *
+	 * @param random   the random generator to use
 	 * @param customer the customer to fill
 	 */
-	private void fillCustomer(Customer customer) {
-		String first = getRandom(FIRST_NAME);
-		String last = getRandom(LAST_NAME);
+	private void fillCustomer(Random random, Customer customer) {
+		String first = getRandom(random, FIRST_NAME);
+		String last = getRandom(random, LAST_NAME);
 		customer.setFullName(first + " " + last);
-		customer.setPhoneNumber(getRandomPhone());
+		customer.setPhoneNumber(getRandomPhone(random));
 		if (random.nextInt(10) == 0) {
 			customer.setDetails("Very important customer");
 		}
@@ -132,67 +234,147 @@ public class DataGenerator implements HasLogger {
 	/**
 	 * Generates a random phone number.
 	 *
+	 * @param random the random generator to use
 	 * @return random phone number string
 	 */
-	private String getRandomPhone() {
+	private String getRandomPhone(Random random) {
 		return "+1-555-" + String.format("%04d", random.nextInt(10000));
 	}
 
 	/**
 	 * Creates demo orders for a date range and saves them to the repository.
+	 * Each month is generated in parallel with its own random seed, taken in
+	 * order from the random generator of this instance.
 	 *
 	 * @param orderRepo               the order repository
 	 * @param productSupplier         supplier for random products
 	 * @param pickupLocationSupplier  supplier for random pickup locations
+	 * @param customerSupplier        supplier for random customers
 	 * @param barista                 barista user
 	 * @param baker                   baker user
+	 * @return the number of created orders
 	 */
-	private void createOrders(OrderRepository orderRepo, Supplier<Product> productSupplier,
-			Supplier<PickupLocation> pickupLocationSupplier, User barista, User baker) {
-		int yearsToInclude = 2;
+	private int createOrders(OrderRepository orderRepo, Function<Random, Product> productSupplier,
+			Function<Random, PickupLocation> pickupLocationSupplier, Function<Random, Customer> customerSupplier,
+			User barista, User baker) {
 		LocalDate now = LocalDate.now();
-		LocalDate oldestDate = LocalDate.of(now.getYear() - yearsToInclude, 1, 1);
+		YearMonth oldestMonth = YearMonth.of(now.getYear() - years, 1);
 		LocalDate newestDate = now.plusMonths(1L);
 
 		// Create first today's order
-		Order order = createOrder(productSupplier, pickupLocationSupplier, barista, baker, now);
+		Order order = createOrder(random, productSupplier, pickupLocationSupplier, customerSupplier, barista, baker,
+				now);
 		order.setDueTime(LocalTime.of(8, 0));
 		order.setHistory(order.getHistory().subList(0, 1));
 		order.setItems(order.getItems().subList(0, 1));
 		orderRepo.save(order);
 
-		for (LocalDate dueDate = oldestDate; dueDate.isBefore(newestDate); dueDate = dueDate.plusDays(1)) {
+		AtomicInteger created = new AtomicInteger(1);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> partitions = new ArrayList<>();
+			for (YearMonth month = oldestMonth; month.atDay(1).isBefore(newestDate); month = month.plusMonths(1)) {
+				LocalDate from = month.atDay(1);
+				LocalDate to = month.plusMonths(1).atDay(1).isBefore(newestDate) ? month.plusMonths(1).atDay(1)
+						: newestDate;
+				Random partitionRandom = new Random(random.nextLong());
+				partitions.add(executor.submit(() -> created.addAndGet(createOrders(partitionRandom, productSupplier,
+						pickupLocationSupplier, customerSupplier, barista, baker, from, to))));
+			}
+			for (Future<?> partition : partitions) {
+				partition.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while generating orders", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Unable to generate orders", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+		return created.get();
+	}
+
+	/**
+	 * Creates the orders due between the given dates, persisting them in
+	 * chunks of {@value #CHUNK_SIZE} orders per transaction.
+	 *
+	 * @param random                  the random generator of the partition
+	 * @param productSupplier         supplier for random products
+	 * @param pickupLocationSupplier  supplier for random pickup locations
+	 * @param customerSupplier        supplier for random customers
+	 * @param barista                 barista user
+	 * @param baker                   baker user
+	 * @param from                    the first due date, inclusive
+	 * @param to                      the last due date, exclusive
+	 * @return the number of created orders
+	 */
+	private int createOrders(Random random, Function<Random, Product> productSupplier,
+			Function<Random, PickupLocation> pickupLocationSupplier, Function<Random, Customer> customerSupplier,
+			User barista, User baker, LocalDate from, LocalDate to) {
+		LocalDate now = LocalDate.now();
+		List<Order> chunk = new ArrayList<>();
+		int created = 0;
+		for (LocalDate dueDate = from; dueDate.isBefore(to); dueDate = dueDate.plusDays(1)) {
 			// Create a slightly upwards trend - everybody wants to be
 			// successful
-			int relativeYear = dueDate.getYear() - now.getYear() + yearsToInclude;
+			int relativeYear = dueDate.getYear() - now.getYear() + years;
 			int relativeMonth = relativeYear * 12 + dueDate.getMonthValue();
 			double multiplier = 1.0 + 0.03 * relativeMonth;
-			int ordersThisDay = (int) (random.nextInt(10) + 1 * multiplier);
+			int ordersThisDay = (int) (random.nextInt(ordersPerDay) + 1 * multiplier);
 			for (int i = 0; i < ordersThisDay; i++) {
-				orderRepo.save(createOrder(productSupplier, pickupLocationSupplier, barista, baker, dueDate));
+				chunk.add(createOrder(random, productSupplier, pickupLocationSupplier, customerSupplier, barista, baker,
+						dueDate));
+				if (chunk.size() == CHUNK_SIZE) {
+					created += persist(chunk);
+				}
 			}
 		}
+		return created + persist(chunk);
+	}
+
+	/**
+	 * Persists the given orders in one transaction, letting Hibernate batch the
+	 * inserts, and clears the list.
+	 *
+	 * @param orders the orders to persist
+	 * @return the number of persisted orders
+	 */
+	private int persist(List<Order> orders) {
+		int count = orders.size();
+		if (count > 0) {
+			transactionTemplate.executeWithoutResult(status -> {
+				orders.forEach(entityManager::persist);
+				entityManager.flush();
+				entityManager.clear();
+			});
+			orders.clear();
+		}
+		return count;
 	}
 
 	/**
 	 * Creates a random order for a given date, including items and order history.
 	 *
+	 * @param random                  the random generator to use
 	 * @param productSupplier         supplier for random products
 	 * @param pickupLocationSupplier  supplier for random pickup locations
+	 * @param customerSupplier        supplier for random customers
 	 * @param barista                 barista user
 	 * @param baker                   baker user
 	 * @param dueDate                 due date for the order
 	 * @return newly created order
 	 */
-	private Order createOrder(Supplier<Product> productSupplier, Supplier<PickupLocation> pickupLocationSupplier,
+	private Order createOrder(Random random, Function<Random, Product> productSupplier,
+			Function<Random, PickupLocation> pickupLocationSupplier, Function<Random, Customer> customerSupplier,
 			User barista, User baker, LocalDate dueDate) {
 		Order order = new Order(barista);
 
-		fillCustomer(order.getCustomer());
-		order.setPickupLocation(pickupLocationSupplier.get());
+		order.setCustomer(customerSupplier.apply(random));
+		order.setPickupLocation(pickupLocationSupplier.apply(random));
 		order.setDueDate(dueDate);
-		order.setDueTime(getRandomDueTime());
-		order.changeState(barista, getRandomState(order.getDueDate()));
+		order.setDueTime(getRandomDueTime(random));
+		order.changeState(barista, getRandomState(random, order.getDueDate()));
 
 		int itemCount = random.nextInt(3);
 		List<OrderItem> items = new ArrayList<>();
@@ -200,7 +382,7 @@ public class DataGenerator implements HasLogger {
 			OrderItem item = new OrderItem();
 			Product product;
 			do {
-				product = productSupplier.get();
+				product = productSupplier.apply(random);
 			} while (containsProduct(items, product));
 			item.setProduct(product);
 			item.setQuantity(random.nextInt(10) + 1);
@@ -215,7 +397,7 @@ public class DataGenerator implements HasLogger {
 		}
 		order.setItems(items);
 
-		order.setHistory(createOrderHistory(order, barista, baker));
+		order.setHistory(createOrderHistory(random, order, barista, baker));
 
 		return order;
 	}
@@ -223,12 +405,13 @@ public class DataGenerator implements HasLogger {
 	/**
 	 * Creates the order history for a given order, simulating different order state changes.
 	 *
+	 * @param random   the random generator to use
 	 * @param order    the order
 	 * @param barista  barista user
 	 * @param baker    baker user
 	 * @return list of history items for the order
 	 */
-	private List<HistoryItem> createOrderHistory(Order order, User barista, User baker) {
+	private List<HistoryItem> createOrderHistory(Random random, Order order, User barista, User baker) {
 		ArrayList<HistoryItem> history = new ArrayList<>();
 		HistoryItem item = new HistoryItem(barista, "Order placed");
 		item.setNewState(OrderState.NEW);
@@ -290,9 +473,10 @@ public class DataGenerator implements HasLogger {
 	/**
 	 * Generates a random due time for an order (between 8:00 and 16:00).
 	 *
+	 * @param random the random generator to use
 	 * @return random due time
 	 */
-	private LocalTime getRandomDueTime() {
+	private LocalTime getRandomDueTime(Random random) {
 		int time = 8 + 4 * random.nextInt(3);
 
 		return LocalTime.of(time, 0);
@@ -329,10 +513,11 @@ public class DataGenerator implements HasLogger {
 	/**
 	 * Returns a random order state depending on the due date.
 	 *
+	 * @param random the random generator to use
 	 * @param due the due date
 	 * @return randomly selected order state
 	 */
-	private OrderState getRandomState(LocalDate due) {
+	private OrderState getRandomState(Random random, LocalDate due) {
 		LocalDate today = LocalDate.now();
 		LocalDate tomorrow = today.plusDays(1);
 		LocalDate twoDays = today.plusDays(2);
@@ -375,25 +560,28 @@ public class DataGenerator implements HasLogger {
 	/**
 	 * Returns a random element from the given array.
 	 *
-	 * @param array array to select from
-	 * @param <T>   type of array elements
+	 * @param random the random generator to use
+	 * @param array  array to select from
+	 * @param <T>    type of array elements
 	 * @return random element from array
 	 */
-	private <T> T getRandom(T[] array) {
+	private <T> T getRandom(Random random, T[] array) {
 		return array[random.nextInt(array.length)];
 	}
 
 	/**
-	 * Creates several pickup locations and returns a supplier for random pickup locations.
+	 * Creates the configured number of pickup locations and returns a supplier for random pickup locations.
 	 *
 	 * @param pickupLocationRepository the repository to save pickup locations
 	 * @return supplier for random pickup locations
 	 */
-	private Supplier<PickupLocation> createPickupLocations(PickupLocationRepository pickupLocationRepository) {
-		List<PickupLocation> pickupLocations = Arrays.asList(
-				pickupLocationRepository.save(createPickupLocation("Store")),
-				pickupLocationRepository.save(createPickupLocation("Bakery")));
-		return () -> pickupLocations.get(random.nextInt(pickupLocations.size()));
+	private Function<Random, PickupLocation> createPickupLocations(PickupLocationRepository pickupLocationRepository) {
+		List<PickupLocation> locations = new ArrayList<>();
+		for (int i = 0; i < pickupLocations; i++) {
+			String name = i == 0 ? "Store" : i == 1 ? "Bakery" : "Store " + i;
+			locations.add(pickupLocationRepository.save(createPickupLocation(name)));
+		}
+		return r -> locations.get(r.nextInt(locations.size()));
 	}
 
 	/**
@@ -415,7 +603,7 @@ public class DataGenerator implements HasLogger {
 	 * @param numberOfItems   number of products to create
 	 * @return supplier for random products
 	 */
-	private Supplier<Product> createProducts(ProductRepository productsRepo, int numberOfItems) {
+	private Function<Random, Product> createProducts(ProductRepository productsRepo, int numberOfItems) {
 		List<Product> products  = new ArrayList<>();
 		for (int i = 0; i < numberOfItems; i++) {
 			Product product = new Product();
@@ -424,9 +612,9 @@ public class DataGenerator implements HasLogger {
 			product.setPrice((int) (doublePrice * 100.0));
 			products.add(productsRepo.save(product));
 		}
-		return () -> {
+		return r -> {
 			double cutoff = 2.5;
-			double g = random.nextGaussian();
+			double g = r.nextGaussian();
 			g = Math.min(cutoff, g);
 			g = Math.max(-cutoff, g);
 			g += cutoff;
@@ -441,19 +629,19 @@ public class DataGenerator implements HasLogger {
 	 * @return random product name
 	 */
 	private String getRandomProductName() {
-		String firstFilling = getRandom(FILLING);
+		String firstFilling = getRandom(random, FILLING);
 		String name;
 		if (random.nextBoolean()) {
 			String secondFilling;
 			do {
-				secondFilling = getRandom(FILLING);
+				secondFilling = getRandom(random, FILLING);
 			} while (secondFilling.equals(firstFilling));
 
 			name = firstFilling + " " + secondFilling;
 		} else {
 			name = firstFilling;
 		}
-		name += " " + getRandom(TYPE);
+		name += " " + getRandom(random, TYPE);
 
 		return name;
 	}
@@ -530,5 +718,3 @@ public class DataGenerator implements HasLogger {
 		return user;
 	}
 }
-
-```
@@ -0,0 +1,217 @@
+package com.vaadin.starter.bakery.app;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileOwnerAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Locale;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+
+import com.vaadin.flow.spring.annotation.SpringComponent;
+
+/**
+ * Stores the generated demo data as a compressed H2 script and restores it on
+ * later startups, which is much faster than generating the data again.
+ * <p>
+ * A snapshot is only used for the same database schema and the same data
+ * settings, so changing either generates the data again. The orders in a
+ * snapshot are moved forward by the number of days since the snapshot was
+ * taken, so that they are relative to the current date like freshly
+ * generated ones.
+ * <p>
+ * Restoring a snapshot runs the SQL in it, which can also define functions
+ * that run any Java code. Snapshots are therefore only read from and written
+ * to a directory that belongs to the current user and cannot be written by
+ * anyone else, and only if the snapshot file itself is private in the same way.
+ */
+@SpringComponent
+public class DataSnapshot implements HasLogger {
+
+	private static final String INFO_TABLE = "data_snapshot";
+
+	// Date and time columns relative to the generation date
+	private static final String[][] DATE_COLUMNS = { { "order_info", "due_date" },
+			{ "history_item", "timestamp" }, { "archived_order_info", "due_date" },
+			{ "archived_history_item", "timestamp" } };
+
+	private final JdbcTemplate jdbcTemplate;
+	private final Path directory;
+	private final boolean enabled;
+
+	private Path file;
+
+	@Autowired
+	public DataSnapshot(DataSource dataSource, @Value("${bakery.data.snapshot-dir:}") String directory) {
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.directory = directory.isEmpty() ? null : Paths.get(directory);
+		this.enabled = this.directory != null && isH2(dataSource);
+	}
+
+	private static boolean isH2(DataSource dataSource) {
+		try {
+			return "H2".equals(JdbcUtils.extractDatabaseMetaData(dataSource, "getDatabaseProductName"));
+		} catch (MetaDataAccessException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Restores the snapshot for the given data settings, if there is one.
+	 * Must be called while the database is still empty.
+	 *
+	 * @param settings
+	 *            a description of the settings the data is generated with
+	 * @return {@code true} if a snapshot was restored, {@code false} if the data
+	 *         needs to be generated
+	 */
+	public boolean restore(String settings) {
+		if (!enabled) {
+			return false;
+		}
+		if (Files.exists(directory, LinkOption.NOFOLLOW_LINKS) && !isPrivate(directory)) {
+			getLogger().warn("Not using data snapshots in {}, it must only be writable by the current user",
+					directory);
+			return false;
+		}
+		file = directory.resolve("data-" + fingerprint(settings) + ".zip");
+		if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)) {
+			getLogger().info("No data snapshot in {}", file);
+			return false;
+		}
+		if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || !isPrivate(file)) {
+			getLogger().warn("Not restoring data snapshot {}, it must only be writable by the current user", file);
+			file = null;
+			return false;
+		}
+
+		long start = System.currentTimeMillis();
+		jdbcTemplate.execute("RUNSCRIPT FROM " + quote(file) + " COMPRESSION ZIP");
+		LocalDate created = jdbcTemplate.queryForObject("SELECT created FROM " + INFO_TABLE, LocalDate.class);
+		jdbcTemplate.execute("DROP TABLE " + INFO_TABLE);
+
+		long days = ChronoUnit.DAYS.between(created, LocalDate.now());
+		if (days != 0) {
+			for (String[] column : DATE_COLUMNS) {
+				jdbcTemplate.update("UPDATE " + column[0] + " SET " + column[1] + " = DATEADD(DAY, ?, " + column[1]
+						+ ")", days);
+			}
+		}
+		getLogger().info("Restored data snapshot {} in {} ms, moved {} days forward", file,
+				System.currentTimeMillis() - start, days);
+		return true;
+	}
+
+	/**
+	 * Stores the current contents of the database as the snapshot for the
+	 * settings given to {@link #restore(String)}.
+	 */
+	public void save() {
+		if (file == null) {
+			return;
+		}
+		try {
+			if (!Files.exists(directory, LinkOption.NOFOLLOW_LINKS)) {
+				createPrivateDirectory(directory);
+			}
+			Path temp = Files.createTempFile(directory, "data-", ".tmp");
+			jdbcTemplate.execute("CREATE TABLE " + INFO_TABLE + " AS SELECT CURRENT_DATE AS created");
+			try {
+				jdbcTemplate.execute("SCRIPT DROP TO " + quote(temp) + " COMPRESSION ZIP");
+			} finally {
+				jdbcTemplate.execute("DROP TABLE " + INFO_TABLE);
+			}
+			// Other instances starting at the same time never see a partial file
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			getLogger().info("Saved data snapshot {}", file);
+		} catch (IOException | RuntimeException e) {
+			getLogger().warn("Unable to save data snapshot " + file, e);
+		}
+	}
+
+	/**
+	 * Checks that the given file or directory is not a symbolic link, is owned by
+	 * the current user and, where the file system has POSIX permissions, is not
+	 * writable by the group or others.
+	 */
+	static boolean isPrivate(Path path) {
+		try {
+			if (Files.isSymbolicLink(path)) {
+				return false;
+			}
+			UserPrincipal user = FileSystems.getDefault().getUserPrincipalLookupService()
+					.lookupPrincipalByName(System.getProperty("user.name"));
+			PosixFileAttributeView posix = Files.getFileAttributeView(path, PosixFileAttributeView.class,
+					LinkOption.NOFOLLOW_LINKS);
+			if (posix == null) {
+				return user.equals(Files.getFileAttributeView(path, FileOwnerAttributeView.class,
+						LinkOption.NOFOLLOW_LINKS).getOwner());
+			}
+			PosixFileAttributes attributes = posix.readAttributes();
+			return user.equals(attributes.owner())
+					&& !attributes.permissions().contains(PosixFilePermission.GROUP_WRITE)
+					&& !attributes.permissions().contains(PosixFilePermission.OTHERS_WRITE);
+		} catch (IOException | UnsupportedOperationException e) {
+			return false;
+		}
+	}
+
+	private static void createPrivateDirectory(Path directory) throws IOException {
+		if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+			Files.createDirectories(directory,
+					PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} else {
+			Files.createDirectories(directory);
+		}
+	}
+
+	/**
+	 * Hashes the settings together with the current, still empty schema, so
+	 * that any change to the entities results in a different snapshot.
+	 */
+	private String fingerprint(String settings) {
+		List<String> schema = jdbcTemplate.queryForList("SCRIPT NODATA NOSETTINGS", String.class);
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(settings.getBytes(StandardCharsets.UTF_8));
+			for (String statement : schema) {
+				// The user statement contains a random salt
+				if (!statement.startsWith("CREATE USER")) {
+					digest.update(statement.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			StringBuilder hex = new StringBuilder();
+			for (byte b : digest.digest()) {
+				hex.append(String.format(Locale.ROOT, "%02x", b));
+			}
+			return hex.substring(0, 16);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String quote(Path file) {
+		return "'" + file.toAbsolutePath().toString().replace("'", "''") + "'";
+	}
+}
@@ -0,0 +1,98 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.backend.service.CacheService;
+
+/**
+ * Provides the Hibernate statistics, which are enabled with
+ * {@code hibernate.generate_statistics}, including those of the second-level
+ * cache regions from {@link CacheService}.
+ */
+@Component
+public class HibernateMetrics implements MetricsSource {
+
+	private final Statistics statistics;
+	private final CacheService cacheService;
+
+	@Autowired
+	public HibernateMetrics(EntityManagerFactory entityManagerFactory, CacheService cacheService) {
+		this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		this.cacheService = cacheService;
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		if (!statistics.isStatisticsEnabled()) {
+			return;
+		}
+		counter(writer, "hibernate_sessions_opened_total", "Sessions opened", statistics.getSessionOpenCount());
+		counter(writer, "hibernate_transactions_total", "Transactions completed", statistics.getTransactionCount());
+		counter(writer, "hibernate_flushes_total", "Session flushes", statistics.getFlushCount());
+		counter(writer, "hibernate_statements_prepared_total", "JDBC statements prepared",
+				statistics.getPrepareStatementCount());
+		counter(writer, "hibernate_queries_executed_total", "HQL and native queries executed",
+				statistics.getQueryExecutionCount());
+		writer.metric("hibernate_query_execution_max_seconds", "gauge", "Duration of the slowest query so far");
+		writer.sample("hibernate_query_execution_max_seconds", statistics.getQueryExecutionMaxTime() / 1000.0);
+		counter(writer, "hibernate_optimistic_failures_total", "Optimistic lock failures",
+				statistics.getOptimisticFailureCount());
+		counter(writer, "hibernate_collections_fetched_total",
+				"Collections fetched with a separate query, typically lazy ones", statistics.getCollectionFetchCount());
+		counter(writer, "hibernate_query_cache_hits_total", "Query cache hits", statistics.getQueryCacheHitCount());
+		counter(writer, "hibernate_query_cache_misses_total", "Query cache misses",
+				statistics.getQueryCacheMissCount());
+
+		String[] entities = statistics.getEntityNames().clone();
+		Arrays.sort(entities);
+		entityCounter(writer, entities, "hibernate_entities_loaded_total", "Entities loaded",
+				EntityStatistics::getLoadCount);
+		entityCounter(writer, entities, "hibernate_entities_fetched_total",
+				"Entities fetched with a separate query, typically lazy ones", EntityStatistics::getFetchCount);
+		entityCounter(writer, entities, "hibernate_entities_inserted_total", "Entities inserted",
+				EntityStatistics::getInsertCount);
+		entityCounter(writer, entities, "hibernate_entities_updated_total", "Entities updated",
+				EntityStatistics::getUpdateCount);
+		entityCounter(writer, entities, "hibernate_entities_deleted_total", "Entities deleted",
+				EntityStatistics::getDeleteCount);
+
+		Map<String, CacheRegionStatistics> regions = cacheService.getStatistics();
+		regionCounter(writer, regions, "hibernate_cache_hits_total", "Second-level cache hits",
+				CacheRegionStatistics::getHitCount);
+		regionCounter(writer, regions, "hibernate_cache_misses_total", "Second-level cache misses",
+				CacheRegionStatistics::getMissCount);
+		regionCounter(writer, regions, "hibernate_cache_puts_total", "Second-level cache puts",
+				CacheRegionStatistics::getPutCount);
+	}
+
+	private static void counter(PrometheusWriter writer, String name, String help, long value) {
+		writer.metric(name, "counter", help);
+		writer.sample(name, value);
+	}
+
+	private void entityCounter(PrometheusWriter writer, String[] entities, String name, String help,
+			ToLongFunction<EntityStatistics> value) {
+		writer.metric(name, "counter", help);
+		for (String entity : entities) {
+			writer.sample(name, value.applyAsLong(statistics.getEntityStatistics(entity)), "entity",
+					entity.substring(entity.lastIndexOf('.') + 1));
+		}
+	}
+
+	private static void regionCounter(PrometheusWriter writer, Map<String, CacheRegionStatistics> regions,
+			String name, String help, ToLongFunction<CacheRegionStatistics> value) {
+		writer.metric(name, "counter", help);
+		regions.forEach((region, statistics) -> writer.sample(name, value.applyAsLong(statistics), "region", region));
+	}
+}
@@ -0,0 +1,134 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Summarizes the {@link OperationEvent}s of a Java Flight Recorder file into a
+ * latency table by operation, the one with the most time in total first:
+ *
+ * <pre>
+ * java -cp target/classes com.vaadin.starter.bakery.app.metrics.JfrSummary bakery.jfr [filter|role]
+ * </pre>
+ *
+ * With {@code filter} or {@code role} each operation is split further by the
+ * shape of its filter or by the role of the user.
+ */
+public final class JfrSummary {
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	private JfrSummary() {
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1 || args.length > 2
+				|| args.length == 2 && !args[1].equals("filter") && !args[1].equals("role")) {
+			System.err.println("Usage: JfrSummary <recording.jfr> [filter|role]");
+			System.exit(2);
+		}
+		summarize(Paths.get(args[0]), args.length == 2 ? args[1] : null, System.out);
+	}
+
+	/**
+	 * Prints the table of the operations in the given recording.
+	 *
+	 * @param by
+	 *            the field to split the operations by, {@code filter} or
+	 *            {@code role}, or {@code null} to not split them
+	 */
+	static void summarize(Path file, String by, PrintStream out) throws IOException {
+		Map<String, Operation> operations = new HashMap<>();
+		try (RecordingFile recording = new RecordingFile(file)) {
+			while (recording.hasMoreEvents()) {
+				RecordedEvent event = recording.readEvent();
+				if (!event.getEventType().getName().equals(OperationEvent.NAME)) {
+					continue;
+				}
+				String name = event.getString("operation");
+				String group = by == null ? "" : String.valueOf(event.getString(by));
+				operations.computeIfAbsent(name + '\0' + group, key -> new Operation(name, group)).add(event);
+			}
+		}
+		List<Operation> sorted = new ArrayList<>(operations.values());
+		sorted.sort(Comparator.comparingLong((Operation o) -> o.totalNanos).reversed());
+		print(sorted, by, out);
+	}
+
+	private static void print(List<Operation> operations, String by, PrintStream out) {
+		int nameWidth = "Operation".length();
+		int groupWidth = by == null ? 0 : by.length();
+		for (Operation operation : operations) {
+			nameWidth = Math.max(nameWidth, operation.name.length());
+			groupWidth = Math.max(groupWidth, operation.group.length());
+		}
+		String nameFormat = "%-" + nameWidth + "s";
+		String groupFormat = "  %-" + groupWidth + "s";
+		out.printf(nameFormat, "Operation");
+		if (by != null) {
+			out.printf(groupFormat, Character.toUpperCase(by.charAt(0)) + by.substring(1));
+		}
+		out.printf("  %8s %7s %9s %9s %9s %9s %10s %9s%n", "Count", "Failed", "p50 ms", "p90 ms", "p99 ms", "Max ms",
+				"Total s", "Rows");
+		for (Operation o : operations) {
+			out.printf(nameFormat, o.name);
+			if (by != null) {
+				out.printf(groupFormat, o.group);
+			}
+			out.printf("  %8d %7d %9.1f %9.1f %9.1f %9.1f %10.1f %9s%n", o.count, o.failed,
+					millis(o.histogram.getValueAtQuantile(QUANTILES[0])),
+					millis(o.histogram.getValueAtQuantile(QUANTILES[1])),
+					millis(o.histogram.getValueAtQuantile(QUANTILES[2])), o.maxNanos / 1e6, o.totalNanos / 1e9,
+					o.rowCalls == 0 ? "-" : String.format("%.1f", (double) o.rows / o.rowCalls));
+		}
+	}
+
+	private static double millis(double seconds) {
+		return seconds * 1000;
+	}
+
+	private static final class Operation {
+
+		final String name;
+		final String group;
+		final PercentileHistogram histogram = new PercentileHistogram();
+		long count;
+		long failed;
+		long maxNanos;
+		long totalNanos;
+		// The average of the calls that know their rows
+		long rows;
+		long rowCalls;
+
+		Operation(String name, String group) {
+			this.name = name;
+			this.group = group;
+		}
+
+		void add(RecordedEvent event) {
+			long nanos = event.getDuration().toNanos();
+			histogram.record(nanos);
+			count++;
+			maxNanos = Math.max(maxNanos, nanos);
+			totalNanos += nanos;
+			if (event.getBoolean("failed")) {
+				failed++;
+			}
+			long eventRows = event.getLong("rows");
+			if (eventRows >= 0) {
+				rows += eventRows;
+				rowCalls++;
+			}
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram with fixed buckets from half a millisecond to ten
+ * seconds, in the form of a Prometheus histogram.
+ * <p>
+ * Recording a value only increments a counter and adds to the sum, without
+ * allocating or locking, so histograms can be kept permanently on frequently
+ * called code.
+ */
+public final class LatencyHistogram {
+
+	/** The upper bounds of the buckets, in seconds. */
+	static final double[] BUCKETS = { 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5,
+			10 };
+
+	private static final long[] BUCKET_NANOS = new long[BUCKETS.length];
+	static {
+		for (int i = 0; i < BUCKETS.length; i++) {
+			BUCKET_NANOS[i] = (long) (BUCKETS[i] * 1e9);
+		}
+	}
+
+	// The last one counts the values above the largest bucket
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS.length + 1);
+	private final LongAdder sumNanos = new LongAdder();
+
+	/**
+	 * @param nanos
+	 *            the duration to record, in nanoseconds
+	 */
+	public void record(long nanos) {
+		int bucket = 0;
+		while (bucket < BUCKET_NANOS.length && nanos > BUCKET_NANOS[bucket]) {
+			bucket++;
+		}
+		counts.incrementAndGet(bucket);
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the sum of the recorded values, in seconds
+	 */
+	public double getSum() {
+		return sumNanos.sum() / 1e9;
+	}
+
+	/**
+	 * @return the number of recorded values up to each of the {@link #BUCKETS}
+	 *         and, as the last element, the number of all values
+	 */
+	long[] getCumulativeCounts() {
+		long[] cumulative = new long[counts.length()];
+		long count = 0;
+		for (int i = 0; i < cumulative.length; i++) {
+			count += counts.get(i);
+			cumulative[i] = count;
+		}
+		return cumulative;
+	}
+}
@@ -0,0 +1,68 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+
+/**
+ * Serves the metrics of all {@link MetricsSource} beans at {@value #PATH} in
+ * the Prometheus text format.
+ * <p>
+ * The endpoint bypasses the login and requires {@code bakery.metrics.token} as
+ * a bearer token instead, e.g. with {@code bearer_token} in the Prometheus
+ * scrape configuration. Without a token every request is refused, as the
+ * address of the client cannot tell a local scraper from a request forwarded
+ * by a reverse proxy on the same host.
+ */
+@RestController
+public class MetricsController implements HasLogger {
+
+	/** The path of the endpoint. */
+	public static final String PATH = "/metrics";
+
+	private final List<MetricsSource> sources;
+	private final byte[] token;
+
+	@Autowired
+	public MetricsController(List<MetricsSource> sources, @Value("${bakery.metrics.token:}") String token) {
+		this.sources = sources;
+		this.token = token.isEmpty() ? null : ("Bearer " + token).getBytes(StandardCharsets.UTF_8);
+		if (this.token == null) {
+			getLogger().info("Metrics are not served at {} as bakery.metrics.token is not set", PATH);
+		}
+	}
+
+	@GetMapping(PATH)
+	public void metrics(HttpServletRequest request, HttpServletResponse response) throws IOException {
+		if (!isAllowed(request)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		response.setContentType(PrometheusWriter.CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-store");
+		Writer out = response.getWriter();
+		PrometheusWriter writer = new PrometheusWriter(out);
+		for (MetricsSource source : sources) {
+			source.writeMetrics(writer);
+		}
+		out.flush();
+	}
+
+	private boolean isAllowed(HttpServletRequest request) {
+		String authorization = request.getHeader("Authorization");
+		return token != null && authorization != null
+				&& MessageDigest.isEqual(token, authorization.getBytes(StandardCharsets.UTF_8));
+	}
+}
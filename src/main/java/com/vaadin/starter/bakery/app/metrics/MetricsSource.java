@@ -0,0 +1,12 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+/**
+ * A bean providing metrics for the {@link MetricsController} endpoint.
+ */
+public interface MetricsSource {
+
+	/**
+	 * Writes the current values of the metrics of this source.
+	 */
+	void writeMetrics(PrometheusWriter writer);
+}
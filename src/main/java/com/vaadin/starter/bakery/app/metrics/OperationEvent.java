@@ -0,0 +1,202 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.vaadin.starter.bakery.app.security.SecurityUtils;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A Java Flight Recorder event for a call of an operation on a hot path, such
+ * as saving an order, loading the dashboard, fetching a page of a grid or
+ * logging in.
+ * <p>
+ * The events are in the Bakery category of JDK Mission Control, and
+ * {@link JfrSummary} summarizes them per operation. They are cheap enough for
+ * a continuous recording in production, e.g. with
+ * {@code -XX:StartFlightRecording=disk=true,maxage=1d,dumponexit=true,filename=bakery.jfr},
+ * and without a recording they cost next to nothing.
+ *
+ * <pre>
+ * return OperationEvent.record("OrderService.load", () -&gt; ..., order -&gt; 1);
+ * </pre>
+ */
+@Name(OperationEvent.NAME)
+@Label("Operation")
+@Category("Bakery")
+@Description("A call of an order, dashboard, grid or login operation")
+// The operation tells where the event comes from
+@StackTrace(false)
+public class OperationEvent extends Event {
+
+	static final String NAME = "com.vaadin.starter.bakery.Operation";
+
+	@Label("Operation")
+	private String operation;
+
+	@Label("Filter")
+	@Description("Which search criteria were given, without their values")
+	private String filter;
+
+	@Label("Rows")
+	@Description("The number of rows returned or saved, -1 if not known")
+	private long rows = -1;
+
+	@Label("Role")
+	@Description("The role of the user")
+	private String role;
+
+	@Label("Failed")
+	private boolean failed = true;
+
+	private transient boolean finished;
+
+	private OperationEvent(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * Records a call of an operation.
+	 *
+	 * @param operation
+	 *            the name of the operation, e.g.
+	 *            {@code OrderService.findAnyMatchingAfterDueDate}
+	 * @param call
+	 *            the operation
+	 * @param rows
+	 *            the number of rows returned by the operation, -1 if not known
+	 * @return the result of the operation
+	 */
+	public static <T> T record(String operation, Supplier<T> call, ToLongFunction<? super T> rows) {
+		return record(operation, null, call, (event, result) -> event.succeeded(rows.applyAsLong(result)));
+	}
+
+	/**
+	 * Records a call of an operation that saves in the current transaction,
+	 * including flushing and committing it, see
+	 * {@link #succeededWithTransaction(long)}.
+	 *
+	 * @param rows
+	 *            the number of rows saved by the operation, -1 if not known
+	 * @return the result of the operation
+	 */
+	public static <T> T recordWithTransaction(String operation, Supplier<T> call, ToLongFunction<? super T> rows) {
+		return record(operation, null, call,
+				(event, result) -> event.succeededWithTransaction(rows.applyAsLong(result)));
+	}
+
+	/**
+	 * Records a call of an operation, with anything else known about it.
+	 *
+	 * @param filter
+	 *            describes the shape of the filter of a search, only called if
+	 *            the event is recorded; {@code null} if there is no filter
+	 * @param succeeded
+	 *            marks the event as {@link #succeeded(long) succeeded} with
+	 *            the result of the operation
+	 * @return the result of the operation
+	 */
+	public static <T> T record(String operation, Supplier<String> filter, Supplier<T> call,
+			BiConsumer<OperationEvent, ? super T> succeeded) {
+		OperationEvent event = begin(operation);
+		if (filter != null && event.isEnabled()) {
+			event.filter = filter.get();
+		}
+		try {
+			T result = call.get();
+			succeeded.accept(event, result);
+			return result;
+		} finally {
+			event.finish();
+		}
+	}
+
+	/**
+	 * Starts timing an operation.
+	 */
+	static OperationEvent begin(String operation) {
+		OperationEvent event = new OperationEvent(operation);
+		event.begin();
+		return event;
+	}
+
+	void setFilter(String filter) {
+		this.filter = filter;
+	}
+
+	/**
+	 * Sets the role of the user, when it is not the one of the current user
+	 * as when logging in.
+	 */
+	public void setRole(String role) {
+		this.role = role;
+	}
+
+	/**
+	 * Marks the operation as succeeded. Operations that are finished without
+	 * this are recorded as failed.
+	 *
+	 * @param rows
+	 *            the number of rows returned or saved, -1 if not known
+	 */
+	public void succeeded(long rows) {
+		this.rows = rows;
+		failed = false;
+	}
+
+	/**
+	 * Stops timing the operation and records it, unless it was already
+	 * finished.
+	 */
+	void finish() {
+		if (finished) {
+			return;
+		}
+		finished = true;
+		end();
+		if (shouldCommit()) {
+			if (role == null) {
+				role = SecurityUtils.getRole();
+			}
+			commit();
+		}
+	}
+
+	/**
+	 * Marks the operation as succeeded, but only finishes it when the current
+	 * transaction completes, so that flushing and committing its changes are
+	 * included. The operation is recorded as failed if the transaction is
+	 * rolled back. Later calls of {@link #finish()} are ignored.
+	 *
+	 * @param rows
+	 *            the number of rows saved, -1 if not known
+	 */
+	void succeededWithTransaction(long rows) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			succeeded(rows);
+			finish();
+			return;
+		}
+		finished = true;
+		TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+			@Override
+			public void afterCompletion(int status) {
+				if (status == STATUS_COMMITTED) {
+					succeeded(rows);
+				}
+				finished = false;
+				finish();
+			}
+		});
+	}
+}
@@ -0,0 +1,177 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.router.RouteConfiguration;
+import com.vaadin.flow.server.RouteRegistry;
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+/**
+ * Aggregates the page load times of the views by route, as seen by the users
+ * and by the server.
+ * <p>
+ * The views report their milestones from the browser with
+ * {@code frontend/src/page-load-beacon.js}, which sends them in a
+ * {@code page-load} DOM event once the view is fully loaded, together with the
+ * path of the view. The UI may have navigated elsewhere by then, so the route
+ * is looked up by that path. The times are
+ * counted from the click that started the navigation, or from the start of
+ * the navigation of the browser for the first view. Next to them, the
+ * {@code server} milestone is the time the server takes to navigate to the
+ * view, from the start of the navigation until the view is attached.
+ */
+@Component
+public class PageLoadMetrics implements VaadinServiceInitListener, MetricsSource {
+
+	/** The milestones of loading a view. */
+	public enum Milestone {
+		/** The server navigated to the view. */
+		SERVER(null),
+		/** The browser rendered the view for the first time. */
+		FIRST_RENDER("firstRender"),
+		/** The main grid of the view showed its first data. */
+		GRID_DATA("gridData"),
+		/** All the charts of the view were drawn. */
+		CHARTS_LOADED("chartsLoaded");
+
+		private final String clientName;
+
+		Milestone(String clientName) {
+			this.clientName = clientName;
+		}
+
+		/**
+		 * @return the name in the events from the browser, or {@code null} if
+		 *         the milestone is measured on the server
+		 */
+		public String getClientName() {
+			return clientName;
+		}
+
+		String getLabel() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	static final String EVENT = "page-load";
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+	// Anything longer is not a page load but e.g. a laptop waking up
+	private static final double MAX_MILLIS = TimeUnit.MINUTES.toMillis(10);
+
+	// By route, sorted for the output
+	private final Map<String, Map<Milestone, PercentileHistogram>> metrics = new ConcurrentSkipListMap<>();
+
+	@Override
+	public void serviceInit(ServiceInitEvent event) {
+		event.getSource().addUIInitListener(e -> listen(e.getUI()));
+	}
+
+	private void listen(UI ui) {
+		ui.addBeforeEnterListener(e -> ComponentUtil.setData(ui, NavigationStart.class,
+				new NavigationStart(System.nanoTime())));
+		ui.addAfterNavigationListener(e -> {
+			NavigationStart start = ComponentUtil.getData(ui, NavigationStart.class);
+			if (start != null) {
+				ComponentUtil.setData(ui, NavigationStart.class, null);
+				record(UidlMetrics.getRoute(ui), Milestone.SERVER, System.nanoTime() - start.nanos);
+			}
+		});
+		// The event bubbles up from the view to the element of the UI
+		ui.getElement().addEventListener(EVENT, e -> {
+			JsonObject detail = e.getEventData().getObject("event.detail");
+			if (detail != null && detail.hasKey("path") && detail.get("path").getType() == JsonType.STRING) {
+				String route = getRoute(ui.getInternals().getRouter().getRegistry(), detail.getString("path"));
+				if (route != null && detail.hasKey("milestones")
+						&& detail.get("milestones").getType() == JsonType.OBJECT) {
+					record(route, detail.getObject("milestones"));
+				}
+			}
+		}).addEventData("event.detail");
+	}
+
+	/**
+	 * @param path
+	 *            the path of a view, relative to the application
+	 * @return the route of the view named like in the other metrics, or
+	 *         {@code null} if there is no view with the path
+	 */
+	static String getRoute(RouteRegistry registry, String path) {
+		return RouteConfiguration.forRegistry(registry).getRoute(path).map(Class::getSimpleName).orElse(null);
+	}
+
+	/**
+	 * Records the milestones reported by the browser, ignoring the ones that
+	 * are unknown or out of range.
+	 *
+	 * @param milestones
+	 *            the milliseconds to each milestone by its client name
+	 */
+	void record(String route, JsonObject milestones) {
+		if (milestones == null) {
+			return;
+		}
+		for (Milestone milestone : Milestone.values()) {
+			if (milestone.clientName == null || !milestones.hasKey(milestone.clientName)) {
+				continue;
+			}
+			JsonValue value = milestones.get(milestone.clientName);
+			if (value.getType() != JsonType.NUMBER) {
+				continue;
+			}
+			double millis = value.asNumber();
+			if (millis >= 0 && millis <= MAX_MILLIS) {
+				record(route, milestone, (long) (millis * 1_000_000));
+			}
+		}
+	}
+
+	void record(String route, Milestone milestone, long nanos) {
+		Map<Milestone, PercentileHistogram> histograms = metrics.get(route);
+		if (histograms == null) {
+			histograms = metrics.computeIfAbsent(route, r -> {
+				Map<Milestone, PercentileHistogram> map = new EnumMap<>(Milestone.class);
+				for (Milestone m : Milestone.values()) {
+					map.put(m, new PercentileHistogram());
+				}
+				return map;
+			});
+		}
+		histograms.get(milestone).record(nanos);
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		writer.metric("bakery_page_load_seconds", "summary",
+				"Time to each milestone of loading a view: server, first_render, grid_data and charts_loaded");
+		metrics.forEach((route, histograms) -> histograms.forEach((milestone, histogram) -> {
+			// Not all views have all milestones
+			if (histogram.getCount() > 0) {
+				writer.summary("bakery_page_load_seconds", histogram, QUANTILES, "route", route, "milestone",
+						milestone.getLabel());
+			}
+		}));
+	}
+
+	private static final class NavigationStart {
+
+		final long nanos;
+
+		NavigationStart(long nanos) {
+			this.nanos = nanos;
+		}
+	}
+}
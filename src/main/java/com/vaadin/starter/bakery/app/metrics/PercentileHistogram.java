@@ -0,0 +1,101 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A latency histogram that can tell percentiles, in the manner of HdrHistogram:
+ * values from one microsecond to about two minutes are counted in buckets whose
+ * width grows with the value, so that each bucket is at most an eighth of its
+ * values wide. Percentiles are accurate to about 6%.
+ * <p>
+ * Like {@link LatencyHistogram}, recording a value does not allocate or lock.
+ * The percentiles cover all values recorded since the histogram was created.
+ */
+public final class PercentileHistogram {
+
+	// Values below 2^SUB_BUCKET_BITS microseconds get a bucket each, larger
+	// ones 2^SUB_BUCKET_BITS buckets per power of two
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	// Values up to 2^27 microseconds, larger ones count as the largest
+	private static final int MAX_EXPONENT = 26;
+	private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+	private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sumNanos = new LongAdder();
+
+	/**
+	 * @param nanos
+	 *            the duration to record, in nanoseconds
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(bucket(Math.min(Math.max(nanos, 0) / 1000, MAX_MICROS)));
+		count.increment();
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * @return the number of recorded values
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return the sum of the recorded values, in seconds
+	 */
+	public double getSum() {
+		return sumNanos.sum() / 1e9;
+	}
+
+	/**
+	 * @param quantile
+	 *            the quantile, e.g. 0.99 for the 99th percentile
+	 * @return the value that this share of the recorded values do not exceed,
+	 *         in seconds, or {@code NaN} if no values have been recorded
+	 */
+	public double getValueAtQuantile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0) {
+			return Double.NaN;
+		}
+		long rank = Math.max(1, (long) Math.ceil(quantile * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank) {
+				return middleMicros(i) / 1e6;
+			}
+		}
+		return middleMicros(BUCKETS - 1) / 1e6;
+	}
+
+	static int bucket(long micros) {
+		if (micros < SUB_BUCKETS) {
+			return (int) micros;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(micros);
+		int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @return the middle of the values counted in the bucket, in microseconds
+	 */
+	static double middleMicros(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket + 0.5;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return low + (1L << shift) / 2.0;
+	}
+}
@@ -0,0 +1,142 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.servlet.http.HttpSession;
+
+/**
+ * The lock of a Vaadin session that measures how long threads wait for it and
+ * hold it, for the {@link SessionLockProfiler}. Only the outermost lock and
+ * unlock of a thread count, not reentrant ones.
+ * <p>
+ * The statistics of the session are only updated by the thread holding the
+ * lock, and may be slightly out of date when read by other threads.
+ */
+final class ProfiledSessionLock extends ReentrantLock {
+
+	/** A hold that has been noticed to take longer than the threshold. */
+	static final class SlowHold {
+
+		final long acquiredAt;
+		final String holder;
+
+		SlowHold(long acquiredAt, String holder) {
+			this.acquiredAt = acquiredAt;
+			this.holder = holder;
+		}
+	}
+
+	// Not kept if the session is serialized, the lock then works as usual
+	private final transient SessionLockProfiler profiler;
+	private final transient HttpSession session;
+
+	// When the lock was acquired by the current holder, 0 if not held
+	private transient volatile long acquiredAt;
+	transient volatile SlowHold slowHold;
+
+	long acquisitions;
+	long waitNanos;
+	long maxWaitNanos;
+	long holdNanos;
+	long maxHoldNanos;
+
+	ProfiledSessionLock(SessionLockProfiler profiler, HttpSession session) {
+		this.profiler = profiler;
+		this.session = session;
+	}
+
+	@Override
+	public void lock() {
+		if (profiler == null || isHeldByCurrentThread()) {
+			super.lock();
+			return;
+		}
+		long start = System.nanoTime();
+		super.lock();
+		acquired(start);
+	}
+
+	@Override
+	public void lockInterruptibly() throws InterruptedException {
+		if (profiler == null || isHeldByCurrentThread()) {
+			super.lockInterruptibly();
+			return;
+		}
+		long start = System.nanoTime();
+		super.lockInterruptibly();
+		acquired(start);
+	}
+
+	@Override
+	public boolean tryLock() {
+		if (profiler == null || isHeldByCurrentThread()) {
+			return super.tryLock();
+		}
+		long start = System.nanoTime();
+		if (!super.tryLock()) {
+			return false;
+		}
+		acquired(start);
+		return true;
+	}
+
+	@Override
+	public boolean tryLock(long timeout, TimeUnit unit) throws InterruptedException {
+		if (profiler == null || isHeldByCurrentThread()) {
+			return super.tryLock(timeout, unit);
+		}
+		long start = System.nanoTime();
+		if (!super.tryLock(timeout, unit)) {
+			return false;
+		}
+		acquired(start);
+		return true;
+	}
+
+	@Override
+	public void unlock() {
+		// Not held by the current thread if 0, which super.unlock() reports
+		if (profiler != null && getHoldCount() == 1) {
+			released();
+		}
+		super.unlock();
+	}
+
+	private void acquired(long start) {
+		long now = System.nanoTime();
+		long wait = now - start;
+		acquiredAt = now;
+		acquisitions++;
+		waitNanos += wait;
+		maxWaitNanos = Math.max(maxWaitNanos, wait);
+		profiler.acquired(wait);
+	}
+
+	private void released() {
+		long acquired = acquiredAt;
+		long hold = System.nanoTime() - acquired;
+		acquiredAt = 0;
+		holdNanos += hold;
+		maxHoldNanos = Math.max(maxHoldNanos, hold);
+		SlowHold slow = slowHold;
+		profiler.released(hold, slow != null && slow.acquiredAt == acquired ? slow.holder : null);
+	}
+
+	/**
+	 * @return when the lock was acquired by its current holder, in
+	 *         {@link System#nanoTime()}, or 0 if the lock is not held
+	 */
+	long getAcquiredAt() {
+		return acquiredAt;
+	}
+
+	@Override
+	protected Thread getOwner() {
+		return super.getOwner();
+	}
+
+	HttpSession getSession() {
+		return session;
+	}
+}
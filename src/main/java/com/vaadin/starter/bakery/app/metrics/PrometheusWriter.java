@@ -0,0 +1,134 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+
+/**
+ * Writes metrics in the Prometheus text exposition format, version 0.0.4.
+ * <p>
+ * All samples of a metric must be written right after its
+ * {@link #metric(String, String, String) header}. Labels are given as pairs of
+ * label names and values.
+ */
+public final class PrometheusWriter {
+
+	/** The content type of the written text. */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	// Written as 0.0005 rather than 5.0E-4, which is easier on the eye in queries
+	private static final String[] BUCKET_LABELS = new String[LatencyHistogram.BUCKETS.length + 1];
+
+	static {
+		for (int i = 0; i < LatencyHistogram.BUCKETS.length; i++) {
+			BUCKET_LABELS[i] = BigDecimal.valueOf(LatencyHistogram.BUCKETS[i]).stripTrailingZeros().toPlainString();
+		}
+		BUCKET_LABELS[LatencyHistogram.BUCKETS.length] = "+Inf";
+	}
+
+	private final Writer out;
+
+	PrometheusWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writes the header of a metric.
+	 *
+	 * @param type
+	 *            {@code counter}, {@code gauge} or {@code histogram}
+	 */
+	public void metric(String name, String type, String help) {
+		write("# HELP ", name, " ", help.replace("\\", "\\\\").replace("\n", "\\n"), "\n# TYPE ", name, " ", type,
+				"\n");
+	}
+
+	public void sample(String name, double value, String... labels) {
+		write(name);
+		writeLabels(labels, null, null);
+		write(" ", format(value), "\n");
+	}
+
+	/**
+	 * Writes the buckets, sum and count of a histogram, with the given labels
+	 * in addition to the bucket label.
+	 */
+	public void histogram(String name, LatencyHistogram histogram, String... labels) {
+		long[] counts = histogram.getCumulativeCounts();
+		for (int i = 0; i < counts.length; i++) {
+			write(name, "_bucket");
+			writeLabels(labels, "le", BUCKET_LABELS[i]);
+			write(" ", Long.toString(counts[i]), "\n");
+		}
+		write(name, "_sum");
+		writeLabels(labels, null, null);
+		write(" ", format(histogram.getSum()), "\n");
+		write(name, "_count");
+		writeLabels(labels, null, null);
+		// The total of the same snapshot as the buckets
+		write(" ", Long.toString(counts[counts.length - 1]), "\n");
+	}
+
+	/**
+	 * Writes the given quantiles, sum and count of a histogram as a summary,
+	 * with the given labels in addition to the quantile label.
+	 */
+	public void summary(String name, PercentileHistogram histogram, double[] quantiles, String... labels) {
+		for (double quantile : quantiles) {
+			write(name);
+			writeLabels(labels, "quantile", format(quantile));
+			write(" ", format(histogram.getValueAtQuantile(quantile)), "\n");
+		}
+		write(name, "_sum");
+		writeLabels(labels, null, null);
+		write(" ", format(histogram.getSum()), "\n");
+		write(name, "_count");
+		writeLabels(labels, null, null);
+		write(" ", Long.toString(histogram.getCount()), "\n");
+	}
+
+	private void writeLabels(String[] labels, String extraName, String extraValue) {
+		if (labels.length == 0 && extraName == null) {
+			return;
+		}
+		write("{");
+		for (int i = 0; i < labels.length; i += 2) {
+			if (i > 0) {
+				write(",");
+			}
+			writeLabel(labels[i], labels[i + 1]);
+		}
+		if (extraName != null) {
+			if (labels.length > 0) {
+				write(",");
+			}
+			writeLabel(extraName, extraValue);
+		}
+		write("}");
+	}
+
+	private void writeLabel(String name, String value) {
+		write(name, "=\"", value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"), "\"");
+	}
+
+	private static String format(double value) {
+		if (Double.isInfinite(value)) {
+			return value > 0 ? "+Inf" : "-Inf";
+		}
+		if (value == (long) value) {
+			return Long.toString((long) value);
+		}
+		return Double.toString(value);
+	}
+
+	private void write(String... parts) {
+		try {
+			for (String part : parts) {
+				out.write(part);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
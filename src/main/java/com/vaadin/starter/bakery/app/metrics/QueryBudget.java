@@ -0,0 +1,151 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.autoproxy.AbstractBeanFactoryAwareAdvisingPostProcessor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StreamUtils;
+
+import com.vaadin.flow.server.Constants;
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.frontend.FrontendUtils;
+import com.vaadin.starter.bakery.app.HasLogger;
+
+import elemental.json.Json;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+
+/**
+ * Warns in development mode when a Vaadin round trip or a service call
+ * executes more JDBC statements than its budget, which typically is a lazy
+ * association loaded for each row of a result (N+1) or an eager fetch that
+ * should not be there.
+ * <p>
+ * Round trips are counted by {@link UidlMetrics}. Service calls are the calls
+ * of the public methods of the services in the {@code backend.service} package
+ * made while handling a Vaadin request, including the statements flushed on
+ * commit; scheduled jobs and the data generation are not checked. Each round
+ * trip, by route and trigger, and each service method is warned about again
+ * only when it executes more statements than the last time it was warned
+ * about.
+ * <p>
+ * The services are only proxied for this outside of production mode, which
+ * has to be known before Vaadin starts, so it is read from the
+ * {@code vaadin.productionMode} property and from the build info of a
+ * production build like Vaadin does.
+ */
+@Component
+public class QueryBudget extends AbstractBeanFactoryAwareAdvisingPostProcessor
+		implements VaadinServiceInitListener, HasLogger {
+
+	private static final String SERVICE_PACKAGE = "com.vaadin.starter.bakery.backend.service.";
+	private static final String BUILD_INFO = Constants.VAADIN_SERVLET_RESOURCES + FrontendUtils.TOKEN_FILE;
+	// The statements listed in a warning
+	private static final int LISTED_STATEMENTS = 5;
+
+	private final int roundTripBudget;
+	private final int serviceCallBudget;
+	private volatile boolean enabled;
+	// The statements of the last warning, by round trip or service method
+	private final Map<String, Integer> warned = new ConcurrentHashMap<>();
+
+	/**
+	 * @param roundTripBudget
+	 *            the number of statements allowed in a Vaadin round trip, 0
+	 *            for any number
+	 * @param serviceCallBudget
+	 *            the number of statements allowed in a service call, 0 for
+	 *            any number
+	 * @param productionMode
+	 *            the {@code vaadin.productionMode} property
+	 */
+	@Autowired
+	public QueryBudget(@Value("${bakery.query-budget.round-trip:30}") int roundTripBudget,
+			@Value("${bakery.query-budget.service-call:15}") int serviceCallBudget,
+			@Value("${vaadin.productionMode:false}") boolean productionMode) {
+		this.roundTripBudget = roundTripBudget;
+		this.serviceCallBudget = serviceCallBudget;
+		if (serviceCallBudget > 0 && !productionMode && !isProductionBuild()) {
+			ComposablePointcut services = new ComposablePointcut(
+					type -> type.getName().startsWith(SERVICE_PACKAGE));
+			this.advisor = new DefaultPointcutAdvisor(services, createInterceptor());
+			// Also counts the statements of the transactions of the services
+			setBeforeExistingAdvisors(true);
+			setProxyTargetClass(true);
+		}
+	}
+
+	private static boolean isProductionBuild() {
+		try (InputStream in = QueryBudget.class.getClassLoader().getResourceAsStream(BUILD_INFO)) {
+			if (in == null) {
+				return false;
+			}
+			JsonObject info = Json.parse(StreamUtils.copyToString(in, StandardCharsets.UTF_8));
+			return info.hasKey(Constants.SERVLET_PARAMETER_PRODUCTION_MODE)
+					&& info.getBoolean(Constants.SERVLET_PARAMETER_PRODUCTION_MODE);
+		} catch (IOException | JsonException e) {
+			return false;
+		}
+	}
+
+	@Override
+	public void serviceInit(ServiceInitEvent event) {
+		enabled = !event.getSource().getDeploymentConfiguration().isProductionMode();
+		if (enabled && (roundTripBudget > 0 || serviceCallBudget > 0)) {
+			getLogger().info("Checking the query budgets of {} statements per round trip and {} per service call",
+					roundTripBudget, serviceCallBudget);
+		}
+	}
+
+	private MethodInterceptor createInterceptor() {
+		return invocation -> {
+			if (!enabled || VaadinSession.getCurrent() == null) {
+				return invocation.proceed();
+			}
+			QueryCounter.Scope statements = QueryCounter.open();
+			try {
+				return invocation.proceed();
+			} finally {
+				statements.close();
+				if (statements.getCount() > serviceCallBudget) {
+					warn(ClassUtils.getUserClass(invocation.getThis()).getSimpleName() + "."
+							+ invocation.getMethod().getName(), serviceCallBudget, statements);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @return whether the round trip went over its budget
+	 */
+	boolean isRoundTripOverBudget(QueryCounter.Scope statements) {
+		return enabled && roundTripBudget > 0 && statements.getCount() > roundTripBudget;
+	}
+
+	void warnRoundTrip(String route, String rpc, QueryCounter.Scope statements) {
+		warn("The round trip of " + route + " for " + rpc, roundTripBudget, statements);
+	}
+
+	private void warn(String name, int budget, QueryCounter.Scope statements) {
+		int count = statements.getCount();
+		Integer last = warned.get(name);
+		if (last != null && last >= count) {
+			return;
+		}
+		warned.put(name, count);
+		getLogger().warn("{} executed {} JDBC statements, more than its budget of {}. The most frequent ones:\n{}",
+				name, count, budget, statements.describe(LISTED_STATEMENTS));
+	}
+}
@@ -0,0 +1,126 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Counts the JDBC statements executed on the current thread while a
+ * {@link Scope} is open, e.g. during a Vaadin round trip or a service call.
+ * <p>
+ * Scopes nest: the statements of an inner scope also count for the outer
+ * scopes once it is closed. A batch counts as one statement. The statements
+ * are counted by {@link SlowQueryLog}'s wrapper of the data source, so no
+ * statements are counted without it.
+ *
+ * <pre>
+ * try (QueryCounter.Scope scope = QueryCounter.open()) {
+ * 	orderService.load(id);
+ * 	if (scope.getCount() &gt; 2) {
+ * 		...
+ * 	}
+ * }
+ * </pre>
+ */
+public final class QueryCounter {
+
+	private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+	private static final int MAX_SQL_LENGTH = 200;
+
+	private QueryCounter() {
+	}
+
+	/**
+	 * Starts counting the statements of the current thread, until the returned
+	 * scope is closed.
+	 */
+	public static Scope open() {
+		Scope scope = new Scope(CURRENT.get());
+		CURRENT.set(scope);
+		return scope;
+	}
+
+	static void count(String sql) {
+		Scope scope = CURRENT.get();
+		if (scope != null) {
+			scope.count(sql, 1);
+		}
+	}
+
+	/** The statements counted on a thread since {@link QueryCounter#open()}. */
+	public static final class Scope implements AutoCloseable {
+
+		private final Scope parent;
+		private int count;
+		// By SQL, created with the first statement
+		private Map<String, Integer> statements;
+		private boolean closed;
+
+		private Scope(Scope parent) {
+			this.parent = parent;
+		}
+
+		private void count(String sql, int times) {
+			count += times;
+			if (statements == null) {
+				statements = new HashMap<>();
+			}
+			statements.merge(sql == null ? "?" : sql, times, Integer::sum);
+		}
+
+		/**
+		 * @return the number of statements executed so far
+		 */
+		public int getCount() {
+			return count;
+		}
+
+		/**
+		 * @return how often each statement was executed, by its SQL
+		 */
+		public Map<String, Integer> getStatements() {
+			return statements == null ? Collections.emptyMap() : Collections.unmodifiableMap(statements);
+		}
+
+		/**
+		 * Describes the executed statements, the most frequent first, which
+		 * shows e.g. a lazy association loaded for each row of a result.
+		 *
+		 * @param limit
+		 *            the maximum number of statements to list
+		 */
+		public String describe(int limit) {
+			return getStatements().entrySet().stream()
+					.sorted(Map.Entry.<String, Integer>comparingByValue().reversed()).limit(limit)
+					.map(e -> e.getValue() + " x " + abbreviate(e.getKey()))
+					.collect(Collectors.joining("\n  ", "  ", ""));
+		}
+
+		private static String abbreviate(String sql) {
+			String line = sql.replaceAll("\\s+", " ").trim();
+			return line.length() <= MAX_SQL_LENGTH ? line : line.substring(0, MAX_SQL_LENGTH) + "...";
+		}
+
+		/**
+		 * Stops counting, and adds the statements to the enclosing scope.
+		 */
+		@Override
+		public void close() {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			if (CURRENT.get() == this) {
+				if (parent == null) {
+					CURRENT.remove();
+				} else {
+					CURRENT.set(parent);
+				}
+			}
+			if (parent != null && statements != null) {
+				statements.forEach((sql, times) -> parent.count(sql, times));
+			}
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.core.RepositoryInformation;
+import org.springframework.data.repository.core.support.RepositoryFactoryBeanSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records the latency, calls, returned rows and errors of each method of each
+ * Spring Data repository.
+ * <p>
+ * Each repository proxy gets an interceptor when it is created. Methods are
+ * told apart by their signature, e.g. {@code findAll(Pageable)}, so overloads
+ * are recorded separately, and each method is labelled with the kind of its
+ * implementation: a {@code derived} or
+ * {@code declared} ({@link Query @Query}) query, a {@code custom} method of a
+ * {@code ...RepositoryImpl} class, or a {@code base} method of the Spring Data
+ * JPA repository such as {@code findById}.
+ * <p>
+ * The returned rows are the elements of returned collections and pages, one
+ * for other non-empty results and the updated rows of {@link Modifying}
+ * queries. Results of counts, streams and callbacks are not rows.
+ */
+@Component
+public class RepositoryMetrics implements BeanPostProcessor, MetricsSource {
+
+	// By repository and method signature, sorted for the output
+	private final Map<String, MethodMetrics> metrics = new ConcurrentSkipListMap<>();
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) {
+		if (bean instanceof RepositoryFactoryBeanSupport) {
+			((RepositoryFactoryBeanSupport<?, ?, ?>) bean).addRepositoryFactoryCustomizer(
+					factory -> factory.addRepositoryProxyPostProcessor((proxyFactory, repositoryInformation) -> proxyFactory
+							.addAdvice(createInterceptor(repositoryInformation))));
+		}
+		return bean;
+	}
+
+	private MethodInterceptor createInterceptor(RepositoryInformation repositoryInformation) {
+		String repository = repositoryInformation.getRepositoryInterface().getSimpleName();
+		// Looking up by method does not allocate, unlike building a key
+		Map<Method, MethodMetrics> byMethod = new ConcurrentHashMap<>();
+		return invocation -> {
+			Method method = invocation.getMethod();
+			MethodMetrics methodMetrics = byMethod.get(method);
+			if (methodMetrics == null) {
+				methodMetrics = byMethod.computeIfAbsent(method,
+						m -> metrics.computeIfAbsent(repository + "." + signature(m),
+								name -> new MethodMetrics(repository, m, repositoryInformation)));
+			}
+			long start = System.nanoTime();
+			try {
+				Object result = invocation.proceed();
+				methodMetrics.rows.add(methodMetrics.countRows(result));
+				return result;
+			} catch (Throwable e) {
+				methodMetrics.errors.increment();
+				throw e;
+			} finally {
+				methodMetrics.latency.record(System.nanoTime() - start);
+			}
+		};
+	}
+
+	private static String signature(Method method) {
+		StringJoiner signature = new StringJoiner(", ", method.getName() + "(", ")");
+		for (Class<?> type : method.getParameterTypes()) {
+			signature.add(type.getSimpleName());
+		}
+		return signature.toString();
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		writer.metric("bakery_repository_duration_seconds", "histogram",
+				"Duration of repository method calls, including failed ones");
+		metrics.values().forEach(m -> writer.histogram("bakery_repository_duration_seconds", m.latency, m.labels));
+		writer.metric("bakery_repository_rows_total", "counter", "Rows returned or updated by repository methods");
+		metrics.values().forEach(m -> writer.sample("bakery_repository_rows_total", m.rows.sum(), m.labels));
+		writer.metric("bakery_repository_errors_total", "counter", "Repository method calls that threw an exception");
+		metrics.values().forEach(m -> writer.sample("bakery_repository_errors_total", m.errors.sum(), m.labels));
+	}
+
+	private static final class MethodMetrics {
+
+		final String[] labels;
+		final boolean modifying;
+		final LatencyHistogram latency = new LatencyHistogram();
+		final LongAdder rows = new LongAdder();
+		final LongAdder errors = new LongAdder();
+
+		MethodMetrics(String repository, Method method, RepositoryInformation repositoryInformation) {
+			String kind;
+			if (repositoryInformation.isCustomMethod(method)) {
+				kind = "custom";
+			} else if (repositoryInformation.isQueryMethod(method)) {
+				kind = AnnotatedElementUtils.hasAnnotation(method, Query.class) ? "declared" : "derived";
+			} else {
+				kind = "base";
+			}
+			labels = new String[] { "repository", repository, "method", signature(method), "query", kind };
+			modifying = AnnotatedElementUtils.hasAnnotation(method, Modifying.class);
+		}
+
+		long countRows(Object result) {
+			if (result == null) {
+				return 0;
+			} else if (result instanceof Collection) {
+				return ((Collection<?>) result).size();
+			} else if (result instanceof Slice) {
+				return ((Slice<?>) result).getNumberOfElements();
+			} else if (result instanceof Optional) {
+				return ((Optional<?>) result).isPresent() ? 1 : 0;
+			} else if (result instanceof Number) {
+				return modifying ? ((Number) result).longValue() : 0;
+			} else if (result instanceof Boolean || result instanceof AutoCloseable) {
+				// existsBy... queries and streams
+				return 0;
+			}
+			return 1;
+		}
+	}
+}
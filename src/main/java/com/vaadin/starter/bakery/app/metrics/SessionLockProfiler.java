@@ -0,0 +1,355 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+import com.vaadin.starter.bakery.app.HasLogger;
+
+/**
+ * Measures how long requests wait for the lock of their Vaadin session and how
+ * long it is held, to find the view code that should run in the background
+ * instead of blocking the other requests of the same browser.
+ * <p>
+ * Each new HTTP session gets a {@link ProfiledSessionLock} before Vaadin
+ * creates its own lock, which Vaadin then uses instead. When a lock has been
+ * held longer than {@code bakery.session-lock.threshold}, the stack of the
+ * holding thread is logged, and the hold is attributed to the innermost method
+ * of the UI code on the stack, e.g. {@code DashboardView.<init>} or
+ * {@code OrderPresenter.save}.
+ */
+@Component
+public class SessionLockProfiler
+		implements VaadinServiceInitListener, HttpSessionListener, MetricsSource, DisposableBean, HasLogger {
+
+	/** The lock statistics of a session. */
+	public static final class SessionStats {
+
+		private final String sessionId;
+		private final String user;
+		private final long acquisitions;
+		private final Duration wait;
+		private final Duration maxWait;
+		private final Duration hold;
+		private final Duration maxHold;
+
+		SessionStats(String sessionId, String user, ProfiledSessionLock lock) {
+			this.sessionId = sessionId;
+			this.user = user;
+			this.acquisitions = lock.acquisitions;
+			this.wait = Duration.ofNanos(lock.waitNanos);
+			this.maxWait = Duration.ofNanos(lock.maxWaitNanos);
+			this.hold = Duration.ofNanos(lock.holdNanos);
+			this.maxHold = Duration.ofNanos(lock.maxHoldNanos);
+		}
+
+		public String getSessionId() {
+			return sessionId;
+		}
+
+		/** @return the name of the signed in user, or {@code null} */
+		public String getUser() {
+			return user;
+		}
+
+		public long getAcquisitions() {
+			return acquisitions;
+		}
+
+		/** @return the total time spent waiting for the lock */
+		public Duration getWait() {
+			return wait;
+		}
+
+		public Duration getMaxWait() {
+			return maxWait;
+		}
+
+		/** @return the total time the lock has been held */
+		public Duration getHold() {
+			return hold;
+		}
+
+		public Duration getMaxHold() {
+			return maxHold;
+		}
+	}
+
+	/** The holds longer than the threshold attributed to a method. */
+	public static final class HolderStats {
+
+		private final String holder;
+		private final LongAdder holds = new LongAdder();
+		private final LongAdder holdNanos = new LongAdder();
+		private final LongAccumulator maxHoldNanos = new LongAccumulator(Math::max, 0);
+
+		HolderStats(String holder) {
+			this.holder = holder;
+		}
+
+		/**
+		 * @return the view or other UI class and method, e.g.
+		 *         {@code DashboardView.<init>}
+		 */
+		public String getHolder() {
+			return holder;
+		}
+
+		public long getHolds() {
+			return holds.sum();
+		}
+
+		/** @return the total time of the holds */
+		public Duration getHold() {
+			return Duration.ofNanos(holdNanos.sum());
+		}
+
+		public Duration getMaxHold() {
+			return Duration.ofNanos(maxHoldNanos.get());
+		}
+	}
+
+	private static final String APP_PACKAGE = "com.vaadin.starter.bakery.";
+	private static final String UI_PACKAGE = APP_PACKAGE + "ui.";
+	private static final String METRICS_PACKAGE = SessionLockProfiler.class.getPackage().getName() + ".";
+	// For holds that end before the watchdog sees them
+	private static final String UNKNOWN = "unknown";
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+
+	private final long thresholdNanos;
+	private final Set<ProfiledSessionLock> locks = ConcurrentHashMap.newKeySet();
+	// By holder, sorted for the output
+	private final Map<String, HolderStats> holders = new ConcurrentSkipListMap<>();
+	private final PercentileHistogram waits = new PercentileHistogram();
+	private final PercentileHistogram holds = new PercentileHistogram();
+	private final ScheduledExecutorService watchdog;
+	private volatile String lockAttribute;
+
+	/**
+	 * @param threshold
+	 *            the hold time from which the holder is logged, zero to not
+	 *            profile the session locks at all
+	 */
+	@Autowired
+	public SessionLockProfiler(@Value("${bakery.session-lock.threshold:PT0.5S}") Duration threshold) {
+		this.thresholdNanos = threshold.toNanos();
+		if (thresholdNanos <= 0) {
+			watchdog = null;
+			return;
+		}
+		watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "session-lock-watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		// Looks often enough to see the holder before a slow hold ends
+		long interval = Math.max(TimeUnit.MILLISECONDS.toNanos(10), thresholdNanos / 4);
+		watchdog.scheduleWithFixedDelay(this::checkHolds, interval, interval, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void serviceInit(ServiceInitEvent event) {
+		// The attribute in which VaadinService keeps the lock of the session
+		lockAttribute = event.getSource().getServiceName() + ".lock";
+	}
+
+	@Override
+	public void sessionCreated(HttpSessionEvent event) {
+		// Sessions created before the Vaadin service starts are not profiled
+		String attribute = lockAttribute;
+		if (watchdog != null && attribute != null) {
+			ProfiledSessionLock lock = new ProfiledSessionLock(this, event.getSession());
+			event.getSession().setAttribute(attribute, lock);
+			locks.add(lock);
+		}
+	}
+
+	@Override
+	public void sessionDestroyed(HttpSessionEvent event) {
+		String attribute = lockAttribute;
+		if (attribute != null) {
+			Object lock = event.getSession().getAttribute(attribute);
+			if (lock instanceof ProfiledSessionLock) {
+				locks.remove(lock);
+			}
+		}
+	}
+
+	@Override
+	public void destroy() {
+		if (watchdog != null) {
+			watchdog.shutdownNow();
+		}
+	}
+
+	public boolean isEnabled() {
+		return watchdog != null;
+	}
+
+	public Duration getThreshold() {
+		return Duration.ofNanos(thresholdNanos);
+	}
+
+	/**
+	 * @return the lock statistics of the current sessions, the ones that have
+	 *         held their lock the longest first
+	 */
+	public List<SessionStats> getSessions() {
+		List<SessionStats> sessions = new ArrayList<>(locks.size());
+		for (ProfiledSessionLock lock : locks) {
+			HttpSession session = lock.getSession();
+			try {
+				sessions.add(new SessionStats(session.getId(), getUser(session), lock));
+			} catch (IllegalStateException e) {
+				// Invalidated meanwhile
+			}
+		}
+		sessions.sort((a, b) -> b.getHold().compareTo(a.getHold()));
+		return sessions;
+	}
+
+	/**
+	 * @return the methods that held session locks longer than the threshold,
+	 *         the ones with the longest total first
+	 */
+	public List<HolderStats> getHolders() {
+		List<HolderStats> list = new ArrayList<>(holders.values());
+		list.sort((a, b) -> b.getHold().compareTo(a.getHold()));
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		writer.metric("bakery_session_lock_wait_seconds", "summary", "Time spent waiting for a Vaadin session lock");
+		writer.summary("bakery_session_lock_wait_seconds", waits, QUANTILES);
+		writer.metric("bakery_session_lock_hold_seconds", "summary", "Time a Vaadin session lock was held");
+		writer.summary("bakery_session_lock_hold_seconds", holds, QUANTILES);
+		writer.metric("bakery_session_lock_slow_holds_total", "counter",
+				"Session lock holds longer than the threshold, by the UI method holding the lock");
+		for (HolderStats stats : holders.values()) {
+			writer.sample("bakery_session_lock_slow_holds_total", stats.getHolds(), "holder", stats.holder);
+		}
+		writer.metric("bakery_session_lock_slow_hold_seconds_total", "counter",
+				"Time of the session lock holds longer than the threshold, by the UI method holding the lock");
+		for (HolderStats stats : holders.values()) {
+			writer.sample("bakery_session_lock_slow_hold_seconds_total", stats.holdNanos.sum() / 1e9, "holder",
+					stats.holder);
+		}
+	}
+
+	void acquired(long waitNanos) {
+		waits.record(waitNanos);
+	}
+
+	/**
+	 * @param holder
+	 *            the holder noticed by the watchdog, or {@code null}
+	 */
+	void released(long holdNanos, String holder) {
+		holds.record(holdNanos);
+		if (holdNanos < thresholdNanos) {
+			return;
+		}
+		HolderStats stats = holders.computeIfAbsent(holder != null ? holder : UNKNOWN, HolderStats::new);
+		stats.holds.increment();
+		stats.holdNanos.add(holdNanos);
+		stats.maxHoldNanos.accumulate(holdNanos);
+	}
+
+	private void checkHolds() {
+		try {
+			checkHolds(System.nanoTime());
+		} catch (RuntimeException e) {
+			// Would stop the watchdog
+			getLogger().warn("Unable to check the session locks", e);
+		}
+	}
+
+	private void checkHolds(long now) {
+		for (ProfiledSessionLock lock : locks) {
+			long acquiredAt = lock.getAcquiredAt();
+			ProfiledSessionLock.SlowHold slowHold = lock.slowHold;
+			if (acquiredAt == 0 || now - acquiredAt < thresholdNanos
+					|| slowHold != null && slowHold.acquiredAt == acquiredAt) {
+				continue;
+			}
+			Thread owner = lock.getOwner();
+			if (owner == null) {
+				continue;
+			}
+			StackTraceElement[] stack = owner.getStackTrace();
+			if (lock.getAcquiredAt() != acquiredAt) {
+				// Released meanwhile, the stack may be of something else
+				continue;
+			}
+			String holder = getHolder(stack);
+			lock.slowHold = new ProfiledSessionLock.SlowHold(acquiredAt, holder);
+			getLogger().warn("Session lock of {} held for over {} ms by {} on {}:{}", getUser(lock.getSession()),
+					TimeUnit.NANOSECONDS.toMillis(now - acquiredAt), holder, owner.getName(), format(stack));
+		}
+	}
+
+	static String getHolder(StackTraceElement[] stack) {
+		String holder = null;
+		for (StackTraceElement frame : stack) {
+			String className = frame.getClassName();
+			if (className.startsWith(UI_PACKAGE)) {
+				return getName(frame);
+			}
+			if (holder == null && className.startsWith(APP_PACKAGE) && !className.startsWith(METRICS_PACKAGE)
+					&& !className.contains("$$")) {
+				holder = getName(frame);
+			}
+		}
+		return holder != null ? holder : UNKNOWN;
+	}
+
+	private static String getName(StackTraceElement frame) {
+		String className = frame.getClassName();
+		return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+	}
+
+	private static String format(StackTraceElement[] stack) {
+		StringBuilder text = new StringBuilder();
+		for (StackTraceElement frame : stack) {
+			text.append("\n\tat ").append(frame);
+		}
+		return text.toString();
+	}
+
+	private static String getUser(HttpSession session) {
+		try {
+			Object context = session
+					.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+			if (context instanceof SecurityContext && ((SecurityContext) context).getAuthentication() != null) {
+				return ((SecurityContext) context).getAuthentication().getName();
+			}
+		} catch (IllegalStateException e) {
+			// Invalidated
+		}
+		return null;
+	}
+}
@@ -0,0 +1,72 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * A statement that took longer than the threshold of the {@link SlowQueryLog}.
+ */
+public final class SlowQuery {
+
+	private final Instant time;
+	private final Duration duration;
+	private final String sql;
+	private final String parameters;
+	private final String caller;
+	private final String plan;
+
+	SlowQuery(Instant time, Duration duration, String sql, String parameters, String caller, String plan) {
+		this.time = time;
+		this.duration = duration;
+		this.sql = sql;
+		this.parameters = parameters;
+		this.caller = caller;
+		this.plan = plan;
+	}
+
+	/** @return when the statement completed */
+	public Instant getTime() {
+		return time;
+	}
+
+	public Duration getDuration() {
+		return duration;
+	}
+
+	public String getSql() {
+		return sql;
+	}
+
+	/**
+	 * @return the name given to the query with a {@code /* ... *&#47;} comment at
+	 *         the start of the SQL, or {@code null}
+	 */
+	public String getName() {
+		if (!sql.startsWith("/*")) {
+			return null;
+		}
+		int end = sql.indexOf("*/");
+		return end < 0 ? null : sql.substring(2, end).trim();
+	}
+
+	/**
+	 * @return the types of the bound parameters, and the length and wildcards of
+	 *         string parameters, but not their values
+	 */
+	public String getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @return the service method, or another method of the application if no
+	 *         service is involved, that executed the statement
+	 */
+	public String getCaller() {
+		return caller;
+	}
+
+	/** @return the execution plan of the statement, or {@code null} */
+	public String getPlan() {
+		return plan;
+	}
+}
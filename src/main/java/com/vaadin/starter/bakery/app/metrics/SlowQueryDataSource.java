@@ -0,0 +1,167 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Wrapper;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+/**
+ * Proxies of a data source and its connections and statements that time the
+ * execution of the statements for a {@link SlowQueryLog}, and count them for
+ * the {@link QueryCounter}.
+ * <p>
+ * The values bound to prepared statements are kept until the statement is
+ * executed, and only described when it turns out to be slow.
+ */
+final class SlowQueryDataSource {
+
+	/** Stands for a parameter bound with {@code setNull}. */
+	static final Object NULL = new Object();
+
+	private SlowQueryDataSource() {
+	}
+
+	static DataSource wrap(DataSource dataSource, SlowQueryLog log) {
+		return proxy(DataSource.class, dataSource, (proxy, method, args) -> {
+			Object result = invoke(proxy, dataSource, method, args);
+			if (result instanceof Connection) {
+				Connection connection = (Connection) result;
+				return proxy(Connection.class, connection, new ConnectionHandler(connection, log));
+			}
+			return result;
+		});
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, T target, InvocationHandler handler) {
+		return (T) Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[] { type },
+				handler);
+	}
+
+	private static Object invoke(Object proxy, Object target, Method method, Object[] args) throws Throwable {
+		if (method.getDeclaringClass() == Object.class && method.getName().equals("equals")) {
+			return proxy == args[0];
+		} else if (method.getDeclaringClass() == Object.class && method.getName().equals("hashCode")) {
+			return System.identityHashCode(proxy);
+		}
+		if (method.getDeclaringClass() == Wrapper.class) {
+			Class<?> type = (Class<?>) args[0];
+			if (type.isInstance(proxy)) {
+				return method.getName().equals("unwrap") ? proxy : true;
+			}
+		}
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static final class ConnectionHandler implements InvocationHandler {
+
+		private final Connection connection;
+		private final SlowQueryLog log;
+
+		ConnectionHandler(Connection connection, SlowQueryLog log) {
+			this.connection = connection;
+			this.log = log;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			Object result = SlowQueryDataSource.invoke(proxy, connection, method, args);
+			if (result instanceof CallableStatement) {
+				return proxy(CallableStatement.class, (CallableStatement) result,
+						new StatementHandler((Statement) result, (String) args[0], (Connection) proxy, this));
+			} else if (result instanceof PreparedStatement) {
+				return proxy(PreparedStatement.class, (PreparedStatement) result,
+						new StatementHandler((Statement) result, (String) args[0], (Connection) proxy, this));
+			} else if (result instanceof Statement) {
+				return proxy(Statement.class, (Statement) result,
+						new StatementHandler((Statement) result, null, (Connection) proxy, this));
+			}
+			return result;
+		}
+	}
+
+	private static final class StatementHandler implements InvocationHandler {
+
+		private static final Object[] NO_PARAMETERS = {};
+
+		private final Statement statement;
+		private final Connection connectionProxy;
+		private final ConnectionHandler connection;
+		// The SQL of a prepared statement, or the last SQL of a plain statement
+		private String sql;
+		private Object[] parameters = NO_PARAMETERS;
+		private int parameterCount;
+		private int batchSize;
+
+		StatementHandler(Statement statement, String sql, Connection connectionProxy, ConnectionHandler connection) {
+			this.statement = statement;
+			this.sql = sql;
+			this.connectionProxy = connectionProxy;
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+				bind((Integer) args[0], name.equals("setNull") ? NULL : args[1]);
+			} else if (name.equals("clearParameters")) {
+				Arrays.fill(parameters, null);
+				parameterCount = 0;
+			} else if (name.equals("addBatch")) {
+				batchSize++;
+				if (args != null) {
+					sql = (String) args[0];
+				}
+			} else if (name.equals("clearBatch")) {
+				batchSize = 0;
+			} else if (name.equals("getConnection")) {
+				return connectionProxy;
+			} else if (name.startsWith("execute")) {
+				return execute(proxy, method, args);
+			}
+			return SlowQueryDataSource.invoke(proxy, statement, method, args);
+		}
+
+		private void bind(int index, Object value) {
+			if (index > parameters.length) {
+				parameters = Arrays.copyOf(parameters, Math.max(index, 8));
+			}
+			parameters[index - 1] = value;
+			parameterCount = Math.max(parameterCount, index);
+		}
+
+		private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+			if (args != null && args.length > 0 && args[0] instanceof String) {
+				sql = (String) args[0];
+			}
+			boolean batch = method.getName().contains("Batch");
+			QueryCounter.count(sql);
+			long start = System.nanoTime();
+			try {
+				return SlowQueryDataSource.invoke(proxy, statement, method, args);
+			} finally {
+				long nanos = System.nanoTime() - start;
+				if (connection.log.isSlow(nanos) && sql != null) {
+					connection.log.record(sql, nanos, parameters, parameterCount, batch ? batchSize : 0,
+							connection.connection);
+				}
+				if (batch) {
+					batchSize = 0;
+				}
+			}
+		}
+	}
+}
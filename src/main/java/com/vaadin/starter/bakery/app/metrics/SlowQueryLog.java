@@ -0,0 +1,258 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.lang.StackWalker.StackFrame;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+
+/**
+ * Logs the JDBC statements that take longer than
+ * {@code bakery.slow-query.threshold}, and keeps the last
+ * {@code bakery.slow-query.log-size} of them for the admins.
+ * <p>
+ * The data source is wrapped so that the execution of each statement is timed.
+ * Each slow statement is logged with the shapes of its parameters and the
+ * service method it was called from. On H2 its execution plan is captured with
+ * {@code EXPLAIN} the first time the statement is slow.
+ * <p>
+ * The wrapper also counts the statements for the {@link QueryCounter}, even
+ * when the log is turned off.
+ * <p>
+ * Queries can name themselves with a comment at the start of the SQL, see
+ * {@link SlowQuery#getName()}; for JPA queries that is the
+ * {@code org.hibernate.comment} hint.
+ */
+@Component
+public class SlowQueryLog implements BeanPostProcessor, MetricsSource, HasLogger {
+
+	private static final String APP_PACKAGE = "com.vaadin.starter.bakery.";
+	private static final String SERVICE_PACKAGE = APP_PACKAGE + "backend.service.";
+	private static final String METRICS_PACKAGE = SlowQueryLog.class.getPackage().getName() + ".";
+	// Plans are captured for at most this many distinct statements
+	private static final int MAX_PLANS = 1000;
+
+	private final Duration threshold;
+	private final long thresholdNanos;
+	private final SlowQuery[] recent;
+	private int next;
+	private final LongAdder count = new LongAdder();
+	private final Map<String, String> plans = new ConcurrentHashMap<>();
+	private volatile Boolean h2;
+
+	/**
+	 * @param threshold
+	 *            the duration from which statements are slow, zero to time no
+	 *            statements at all
+	 * @param size
+	 *            the number of slow queries to keep
+	 */
+	@Autowired
+	public SlowQueryLog(@Value("${bakery.slow-query.threshold:PT0.2S}") Duration threshold,
+			@Value("${bakery.slow-query.log-size:100}") int size) {
+		this.threshold = threshold;
+		this.thresholdNanos = threshold.toNanos();
+		this.recent = new SlowQuery[size];
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) {
+		if (bean instanceof DataSource) {
+			return SlowQueryDataSource.wrap((DataSource) bean, this);
+		}
+		return bean;
+	}
+
+	public boolean isEnabled() {
+		return thresholdNanos > 0 && recent.length > 0;
+	}
+
+	public Duration getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return the kept slow queries, the latest first
+	 */
+	public synchronized List<SlowQuery> getRecent() {
+		List<SlowQuery> list = new ArrayList<>(recent.length);
+		for (int i = 1; i <= recent.length; i++) {
+			SlowQuery query = recent[Math.floorMod(next - i, recent.length)];
+			if (query == null) {
+				break;
+			}
+			list.add(query);
+		}
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		writer.metric("bakery_slow_queries_total", "counter",
+				"JDBC statements that took longer than the slow query threshold");
+		writer.sample("bakery_slow_queries_total", count.sum());
+	}
+
+	boolean isSlow(long nanos) {
+		return thresholdNanos > 0 && nanos >= thresholdNanos && recent.length > 0;
+	}
+
+	/**
+	 * Records a slow statement, on the thread that executed it.
+	 *
+	 * @param parameters
+	 *            the values of the last bound parameters, indexed from 0
+	 * @param batchSize
+	 *            the number of parameter sets executed as a batch, 0 if not a
+	 *            batch
+	 * @param connection
+	 *            the unwrapped connection the statement was executed on
+	 */
+	void record(String sql, long nanos, Object[] parameters, int parameterCount, int batchSize,
+			Connection connection) {
+		count.increment();
+		String shapes = describeParameters(parameters, parameterCount, batchSize);
+		String caller = findCaller();
+		String plan = plans.get(sql);
+		boolean newPlan = plan == null && batchSize == 0 && plans.size() < MAX_PLANS;
+		if (newPlan) {
+			plan = explain(sql, parameters, parameterCount, connection);
+			if (plan != null) {
+				plans.putIfAbsent(sql, plan);
+			}
+		}
+		Duration duration = Duration.ofNanos(nanos);
+		SlowQuery query = new SlowQuery(Instant.now(), duration, sql, shapes, caller, plan);
+		synchronized (this) {
+			recent[next] = query;
+			next = (next + 1) % recent.length;
+		}
+
+		if (newPlan && plan != null) {
+			getLogger().warn("Slow query ({} ms) from {} with parameters [{}]: {}\n{}", duration.toMillis(), caller,
+					shapes, sql, plan);
+		} else {
+			getLogger().warn("Slow query ({} ms) from {} with parameters [{}]: {}", duration.toMillis(), caller,
+					shapes, sql);
+		}
+	}
+
+	static String describeParameters(Object[] parameters, int parameterCount, int batchSize) {
+		StringBuilder text = new StringBuilder();
+		if (batchSize > 0) {
+			text.append("batch of ").append(batchSize).append(", last: ");
+		}
+		for (int i = 0; i < parameterCount; i++) {
+			if (i > 0) {
+				text.append(", ");
+			}
+			text.append(i + 1).append(": ");
+			Object value = parameters[i];
+			if (value == null || value == SlowQueryDataSource.NULL) {
+				text.append("null");
+			} else if (value instanceof String) {
+				String string = (String) value;
+				text.append("String(").append(string.length());
+				if (string.indexOf('%') >= 0) {
+					// Whether a LIKE pattern can use an index
+					text.append(", ").append(string.startsWith("%") ? "%" : "").append("...")
+							.append(string.length() > 1 && string.endsWith("%") ? "%" : "");
+				}
+				text.append(')');
+			} else if (value instanceof byte[]) {
+				text.append("byte[").append(((byte[]) value).length).append(']');
+			} else {
+				text.append(value.getClass().getSimpleName());
+			}
+		}
+		return text.toString();
+	}
+
+	private static String findCaller() {
+		Optional<StackFrame> appFrame = StackWalker.getInstance().walk(frames -> {
+			StackFrame first = null;
+			for (StackFrame frame : (Iterable<StackFrame>) frames::iterator) {
+				String className = frame.getClassName();
+				if (!className.startsWith(APP_PACKAGE) || className.startsWith(METRICS_PACKAGE)
+						|| className.contains("$$")) {
+					continue;
+				}
+				if (className.startsWith(SERVICE_PACKAGE)) {
+					return Optional.of(frame);
+				}
+				if (first == null) {
+					first = frame;
+				}
+			}
+			return Optional.ofNullable(first);
+		});
+		return appFrame.map(frame -> {
+			String className = frame.getClassName();
+			return className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName() + ":"
+					+ frame.getLineNumber();
+		}).orElse("unknown");
+	}
+
+	private String explain(String sql, Object[] parameters, int parameterCount, Connection connection) {
+		try {
+			if (h2 == null) {
+				h2 = "H2".equals(connection.getMetaData().getDatabaseProductName());
+			}
+			if (!h2 || !isExplainable(sql)) {
+				return null;
+			}
+			try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + sql)) {
+				for (int i = 0; i < parameterCount; i++) {
+					Object value = parameters[i];
+					if (value == null || value == SlowQueryDataSource.NULL) {
+						explain.setNull(i + 1, Types.NULL);
+					} else {
+						explain.setObject(i + 1, value);
+					}
+				}
+				StringBuilder plan = new StringBuilder();
+				try (ResultSet rows = explain.executeQuery()) {
+					while (rows.next()) {
+						plan.append(rows.getString(1)).append('\n');
+					}
+				}
+				return plan.toString().trim();
+			}
+		} catch (SQLException e) {
+			getLogger().debug("Unable to explain {}", sql, e);
+			return null;
+		}
+	}
+
+	private static boolean isExplainable(String sql) {
+		String statement = sql;
+		if (statement.startsWith("/*")) {
+			int end = statement.indexOf("*/");
+			statement = end < 0 ? "" : statement.substring(end + 2);
+		}
+		statement = statement.trim().toLowerCase(Locale.ROOT);
+		return statement.startsWith("select") || statement.startsWith("with") || statement.startsWith("insert")
+				|| statement.startsWith("update") || statement.startsWith("delete")
+				|| statement.startsWith("merge");
+	}
+}
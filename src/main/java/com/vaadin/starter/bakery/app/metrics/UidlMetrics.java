@@ -0,0 +1,254 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.vaadin.flow.component.HasElement;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.server.ServiceInitEvent;
+import com.vaadin.flow.server.VaadinRequest;
+import com.vaadin.flow.server.VaadinResponse;
+import com.vaadin.flow.server.VaadinServiceInitListener;
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.communication.ServerRpcHandler;
+import com.vaadin.flow.server.communication.UidlRequestHandler;
+import com.vaadin.flow.server.communication.rpc.RpcInvocationHandler;
+
+import elemental.json.JsonObject;
+
+/**
+ * Times the server side of each Vaadin round trip, i.e. each UIDL request, by
+ * the route shown in the UI and the RPC invocation that triggered it.
+ * <p>
+ * The time of a round trip is split into waiting for the session lock,
+ * handling the RPC invocations, including the event listeners of the views,
+ * and creating and writing the response. The total also includes running the
+ * tasks queued with {@link UI#access} when the session is unlocked.
+ * <p>
+ * The triggering invocation is the last one that is not just a property
+ * synchronization ({@code mSync}), e.g. {@code event:click} or
+ * {@code navigation}.
+ * <p>
+ * The JDBC statements of each round trip are checked against the
+ * {@link QueryBudget}.
+ */
+@Component
+public class UidlMetrics implements VaadinServiceInitListener, MetricsSource {
+
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99 };
+	// Event names come from the client, so the number of label combinations is
+	// limited; the rest are counted as "other"
+	private static final int MAX_KEYS = 500;
+	private static final String NONE = "none";
+	private static final String SYNC = "mSync";
+
+	// By route and RPC, sorted for the output
+	private final Map<String, RoundTripMetrics> metrics = new ConcurrentSkipListMap<>();
+	private final ThreadLocal<RoundTrip> current = ThreadLocal.withInitial(RoundTrip::new);
+	private final QueryBudget queryBudget;
+
+	@Autowired
+	public UidlMetrics(QueryBudget queryBudget) {
+		this.queryBudget = queryBudget;
+	}
+
+	@Override
+	public void serviceInit(ServiceInitEvent event) {
+		// Added handlers come before the built-in ones, so this one handles all
+		// UIDL requests instead of the built-in UidlRequestHandler
+		event.addRequestHandler(new TimedUidlRequestHandler());
+	}
+
+	@Override
+	public void writeMetrics(PrometheusWriter writer) {
+		writer.metric("bakery_uidl_duration_seconds", "summary",
+				"Server time of Vaadin round trips by phase: total, lock_wait, handling and response");
+		for (RoundTripMetrics m : metrics.values()) {
+			writer.summary("bakery_uidl_duration_seconds", m.total, QUANTILES, "route", m.route, "rpc", m.rpc,
+					"phase", "total");
+			writer.summary("bakery_uidl_duration_seconds", m.lockWait, QUANTILES, "route", m.route, "rpc", m.rpc,
+					"phase", "lock_wait");
+			writer.summary("bakery_uidl_duration_seconds", m.handling, QUANTILES, "route", m.route, "rpc", m.rpc,
+					"phase", "handling");
+			writer.summary("bakery_uidl_duration_seconds", m.response, QUANTILES, "route", m.route, "rpc", m.rpc,
+					"phase", "response");
+		}
+	}
+
+	private void record(RoundTrip roundTrip, long end) {
+		String rpc = getRpc(roundTrip);
+		String key = roundTrip.route + " " + rpc;
+		RoundTripMetrics m = metrics.get(key);
+		if (m == null) {
+			if (metrics.size() >= MAX_KEYS) {
+				rpc = "other";
+				key = roundTrip.route + " " + rpc;
+			}
+			String route = roundTrip.route;
+			String rpcLabel = rpc;
+			m = metrics.computeIfAbsent(key, k -> new RoundTripMetrics(route, rpcLabel));
+		}
+		m.total.record(end - roundTrip.start);
+		if (roundTrip.locked != 0) {
+			m.lockWait.record(roundTrip.locked - roundTrip.start);
+		}
+		if (roundTrip.handled != 0) {
+			m.handling.record(roundTrip.handled - roundTrip.locked);
+			m.response.record(roundTrip.responded - roundTrip.handled);
+		}
+	}
+
+	private static String getRpc(RoundTrip roundTrip) {
+		return roundTrip.rpc == null ? NONE
+				: roundTrip.rpcDetail == null ? roundTrip.rpc : roundTrip.rpc + ":" + roundTrip.rpcDetail;
+	}
+
+	static String getRoute(UI ui) {
+		List<HasElement> chain = ui.getInternals().getActiveRouterTargetsChain();
+		return chain.isEmpty() ? NONE : ClassUtils.getUserClass(chain.get(0)).getSimpleName();
+	}
+
+	/** The times of the round trip on the current thread. */
+	private static final class RoundTrip {
+
+		long start;
+		long locked;
+		long handled;
+		long responded;
+		String route;
+		String rpc;
+		String rpcDetail;
+
+		void start() {
+			start = System.nanoTime();
+			locked = 0;
+			handled = 0;
+			responded = 0;
+			route = NONE;
+			rpc = null;
+			rpcDetail = null;
+		}
+	}
+
+	private static final class RoundTripMetrics {
+
+		final String route;
+		final String rpc;
+		final PercentileHistogram total = new PercentileHistogram();
+		final PercentileHistogram lockWait = new PercentileHistogram();
+		final PercentileHistogram handling = new PercentileHistogram();
+		final PercentileHistogram response = new PercentileHistogram();
+
+		RoundTripMetrics(String route, String rpc) {
+			this.route = route;
+			this.rpc = rpc;
+		}
+	}
+
+	private final class TimedUidlRequestHandler extends UidlRequestHandler {
+
+		@Override
+		public boolean handleRequest(VaadinSession session, VaadinRequest request, VaadinResponse response)
+				throws IOException {
+			if (session == null || !canHandleRequest(request)) {
+				return false;
+			}
+			RoundTrip roundTrip = current.get();
+			roundTrip.start();
+			QueryCounter.Scope statements = QueryCounter.open();
+			try {
+				return super.handleRequest(session, request, response);
+			} finally {
+				record(roundTrip, System.nanoTime());
+				statements.close();
+				if (queryBudget.isRoundTripOverBudget(statements)) {
+					queryBudget.warnRoundTrip(roundTrip.route, getRpc(roundTrip), statements);
+				}
+			}
+		}
+
+		@Override
+		public boolean synchronizedHandleRequest(VaadinSession session, VaadinRequest request,
+				VaadinResponse response) throws IOException {
+			RoundTrip roundTrip = current.get();
+			roundTrip.locked = System.nanoTime();
+			try {
+				return super.synchronizedHandleRequest(session, request, response);
+			} finally {
+				if (roundTrip.handled != 0) {
+					roundTrip.responded = System.nanoTime();
+				}
+			}
+		}
+
+		@Override
+		protected ServerRpcHandler createRpcHandler() {
+			return new TimedServerRpcHandler();
+		}
+	}
+
+	private final class TimedServerRpcHandler extends ServerRpcHandler {
+
+		private transient Map<String, RpcInvocationHandler> invocationHandlers;
+
+		@Override
+		public void handleRpc(UI ui, Reader reader, VaadinRequest request)
+				throws IOException, InvalidUIDLSecurityKeyException {
+			RoundTrip roundTrip = current.get();
+			try {
+				super.handleRpc(ui, reader, request);
+			} finally {
+				roundTrip.handled = System.nanoTime();
+				roundTrip.route = getRoute(ui);
+			}
+		}
+
+		@Override
+		protected Map<String, RpcInvocationHandler> getInvocationHandlers() {
+			if (invocationHandlers == null) {
+				Map<String, RpcInvocationHandler> handlers = new HashMap<>();
+				super.getInvocationHandlers().forEach((type, handler) -> handlers.put(type, new NamingHandler(handler)));
+				invocationHandlers = handlers;
+			}
+			return invocationHandlers;
+		}
+	}
+
+	/** Notes the type of each invocation as the trigger of the round trip. */
+	private final class NamingHandler implements RpcInvocationHandler {
+
+		private final RpcInvocationHandler handler;
+
+		NamingHandler(RpcInvocationHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public String getRpcType() {
+			return handler.getRpcType();
+		}
+
+		@Override
+		public Optional<Runnable> handle(UI ui, JsonObject invocationJson) {
+			RoundTrip roundTrip = current.get();
+			String type = handler.getRpcType();
+			if (!SYNC.equals(type) || roundTrip.rpc == null) {
+				roundTrip.rpc = type;
+				roundTrip.rpcDetail = invocationJson.hasKey("event") ? invocationJson.getString("event")
+						: invocationJson.hasKey("templateEventMethodName")
+								? invocationJson.getString("templateEventMethodName")
+								: null;
+			}
+			return handler.handle(ui, invocationJson);
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package com.vaadin.starter.bakery.app.security;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedHttpSession;
+import com.vaadin.flow.server.WrappedSession;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+
+/**
+ * Keeps the {@link User} of the signed in user in the HTTP session, so that it
+ * is only loaded from the database once per session instead of every time a
+ * {@link CurrentUser} is injected.
+ * <p>
+ * The cached user is reloaded after it has been changed, see
+ * {@link #invalidate(User)}. Outside of a request or a Vaadin session the user
+ * is always loaded from the database.
+ */
+@Component
+public class CurrentUserCache {
+
+	private static final String ATTRIBUTE = CurrentUserCache.class.getName();
+
+	private final UserRepository userRepository;
+
+	// Incremented on each change, the user ids map to the time of their last change
+	private final AtomicLong clock = new AtomicLong();
+	private final Map<Long, Long> changes = new ConcurrentHashMap<>();
+
+	@Autowired
+	public CurrentUserCache(UserRepository userRepository) {
+		this.userRepository = userRepository;
+	}
+
+	/**
+	 * Finds the user with the given e-mail address, from the current session if
+	 * it has already been loaded.
+	 *
+	 * @param username
+	 *            the e-mail address of the user
+	 * @return the user, or {@code null} if there is no such user
+	 */
+	public User find(String username) {
+		WrappedSession session = getSession();
+		if (session == null) {
+			return userRepository.findByEmailIgnoreCase(username);
+		}
+
+		Object cached = session.getAttribute(ATTRIBUTE);
+		if (cached instanceof Entry && isValid((Entry) cached, username)) {
+			return ((Entry) cached).user;
+		}
+		// Taken before loading, so that a concurrent change invalidates the entry
+		long loaded = clock.get();
+		User user = userRepository.findByEmailIgnoreCase(username);
+		session.setAttribute(ATTRIBUTE, user != null ? new Entry(username, user, loaded) : null);
+		return user;
+	}
+
+	/**
+	 * Makes all sessions reload the given user the next time it is needed. Within
+	 * a transaction this happens once the transaction has been committed.
+	 *
+	 * @param user
+	 *            the changed or deleted user
+	 */
+	public void invalidate(User user) {
+		if (user == null || user.getId() == null) {
+			return;
+		}
+		Long id = user.getId();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					changes.put(id, clock.incrementAndGet());
+				}
+			});
+		} else {
+			changes.put(id, clock.incrementAndGet());
+		}
+	}
+
+	private boolean isValid(Entry entry, String username) {
+		return entry.username.equalsIgnoreCase(username)
+				&& changes.getOrDefault(entry.user.getId(), Long.MIN_VALUE) <= entry.loaded;
+	}
+
+	private static WrappedSession getSession() {
+		VaadinSession vaadinSession = VaadinSession.getCurrent();
+		if (vaadinSession != null) {
+			return vaadinSession.getSession();
+		}
+		// E.g. the login request, which is not handled by Vaadin
+		RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+		if (attributes instanceof ServletRequestAttributes) {
+			HttpSession httpSession = ((ServletRequestAttributes) attributes).getRequest().getSession(false);
+			return httpSession != null ? new WrappedHttpSession(httpSession) : null;
+		}
+		return null;
+	}
+
+	private static final class Entry implements Serializable {
+
+		private final String username;
+		private final User user;
+		private final long loaded;
+
+		private Entry(String username, User user, long loaded) {
+			this.username = username;
+			this.user = user;
+			this.loaded = loaded;
+		}
+	}
+}
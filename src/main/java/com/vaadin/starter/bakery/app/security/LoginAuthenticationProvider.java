@@ -0,0 +1,148 @@
+package com.vaadin.starter.bakery.app.security;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.authentication.WebAuthenticationDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.app.metrics.OperationEvent;
+
+/**
+ * Checks the credentials of a login on a small, bounded pool of threads.
+ * <p>
+ * Hashing a password takes tens of milliseconds of CPU time, so a burst of
+ * logins could otherwise use all processors and stall the requests of users
+ * who are already logged in. Logins are queued when all login threads are
+ * busy, and rejected right away when the queue is full or when the
+ * {@link LoginThrottle} does not allow more attempts.
+ * <p>
+ * Passwords hashed with a different cost than the configured one are hashed
+ * again after a successful login, see {@link RehashingPasswordEncoder}.
+ */
+@Component
+public class LoginAuthenticationProvider extends DaoAuthenticationProvider implements DisposableBean, HasLogger {
+
+	private final LoginThrottle throttle;
+	private final ThreadPoolExecutor executor;
+	private final long timeoutMillis;
+
+	@Autowired
+	public LoginAuthenticationProvider(UserDetailsService userDetailsService, PasswordEncoder passwordEncoder,
+			LoginThrottle throttle, @Value("${bakery.login.threads:0}") int threads,
+			@Value("${bakery.login.queue-size:100}") int queueSize,
+			@Value("${bakery.login.timeout:PT10S}") Duration timeout) {
+		setUserDetailsService(userDetailsService);
+		if (userDetailsService instanceof UserDetailsPasswordService) {
+			setUserDetailsPasswordService((UserDetailsPasswordService) userDetailsService);
+		}
+		setPasswordEncoder(passwordEncoder);
+		this.throttle = throttle;
+		this.timeoutMillis = timeout.toMillis();
+
+		// Half of the processors by default, leaving the rest for everyone else
+		int poolSize = threads > 0 ? threads : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+		AtomicInteger threadNumber = new AtomicInteger();
+		executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), runnable -> {
+					Thread thread = new Thread(runnable, "login-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+	}
+
+	@Override
+	public Authentication authenticate(Authentication authentication) throws AuthenticationException {
+		return OperationEvent.record("login", null, () -> throttledAuthenticate(authentication), (event, result) -> {
+			// Not signed in yet, so the role is not the one of the current user
+			event.setRole(SecurityUtils.getRole(result));
+			event.succeeded(-1);
+		});
+	}
+
+	private Authentication throttledAuthenticate(Authentication authentication) {
+		String username = authentication.getName();
+		String address = authentication.getDetails() instanceof WebAuthenticationDetails
+				? ((WebAuthenticationDetails) authentication.getDetails()).getRemoteAddress()
+				: null;
+		if (!throttle.tryAttempt(username, address)) {
+			getLogger().warn("Too many login attempts for {} from {}", username, address);
+			throw new LoginRejectedException("Too many login attempts, please try again later");
+		}
+
+		try {
+			return verify(authentication);
+		} catch (BadCredentialsException e) {
+			throttle.failed(username);
+			throw e;
+		}
+	}
+
+	private Authentication verify(Authentication authentication) {
+		// For the user lookup, which keeps the user in the session
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		Future<Authentication> result;
+		try {
+			result = executor.submit(() -> {
+				RequestContextHolder.setRequestAttributes(requestAttributes);
+				try {
+					return super.authenticate(authentication);
+				} finally {
+					RequestContextHolder.resetRequestAttributes();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			getLogger().warn("Login queue full, rejected login for {}", authentication.getName());
+			throw new LoginRejectedException("Too many simultaneous logins, please try again later", e);
+		}
+
+		try {
+			return result.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof AuthenticationException) {
+				throw (AuthenticationException) e.getCause();
+			}
+			throw new AuthenticationServiceException("Unable to check the credentials", e.getCause());
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			throw new LoginRejectedException("Login timed out, please try again later", e);
+		} catch (InterruptedException e) {
+			result.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new AuthenticationServiceException("Interrupted while checking the credentials", e);
+		}
+	}
+
+	/**
+	 * @return the number of logins waiting for a login thread
+	 */
+	public int getQueuedLogins() {
+		return executor.getQueue().size();
+	}
+
+	@Override
+	public void destroy() {
+		executor.shutdownNow();
+	}
+}
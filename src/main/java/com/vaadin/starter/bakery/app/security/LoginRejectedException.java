@@ -0,0 +1,18 @@
+package com.vaadin.starter.bakery.app.security;
+
+import org.springframework.security.core.AuthenticationException;
+
+/**
+ * Thrown when a login attempt is rejected without checking the credentials,
+ * because of too many attempts or too many simultaneous logins.
+ */
+public class LoginRejectedException extends AuthenticationException {
+
+	public LoginRejectedException(String message) {
+		super(message);
+	}
+
+	public LoginRejectedException(String message, Throwable cause) {
+		super(message, cause);
+	}
+}
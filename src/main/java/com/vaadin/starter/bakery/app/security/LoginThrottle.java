@@ -0,0 +1,137 @@
+package com.vaadin.starter.bakery.app.security;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Limits the rate of login attempts with a token bucket per client address and
+ * per account.
+ * <p>
+ * Every attempt takes a token from the bucket of its address, so that a single
+ * client cannot keep the login threads busy. Only failed attempts take a token
+ * from the bucket of the account, so that guessing the password of an account
+ * is slowed down, while users who log in correctly are never throttled.
+ */
+@Component
+public class LoginThrottle {
+
+	private final Map<String, TokenBucket> addresses = new ConcurrentHashMap<>();
+	private final Map<String, TokenBucket> accounts = new ConcurrentHashMap<>();
+
+	private final int addressAttempts;
+	private final long addressRefillNanos;
+	private final int accountAttempts;
+	private final long accountRefillNanos;
+	private final LongSupplier clock;
+
+	@Autowired
+	public LoginThrottle(@Value("${bakery.login.address-attempts:50}") int addressAttempts,
+			@Value("${bakery.login.address-refill:PT1S}") Duration addressRefill,
+			@Value("${bakery.login.account-attempts:5}") int accountAttempts,
+			@Value("${bakery.login.account-refill:PT1M}") Duration accountRefill) {
+		this(addressAttempts, addressRefill, accountAttempts, accountRefill, System::nanoTime);
+	}
+
+	LoginThrottle(int addressAttempts, Duration addressRefill, int accountAttempts, Duration accountRefill,
+			LongSupplier clock) {
+		this.addressAttempts = addressAttempts;
+		this.addressRefillNanos = addressRefill.toNanos();
+		this.accountAttempts = accountAttempts;
+		this.accountRefillNanos = accountRefill.toNanos();
+		this.clock = clock;
+	}
+
+	/**
+	 * Checks whether a login attempt is allowed, and counts it for the address.
+	 *
+	 * @param username
+	 *            the user name the attempt is for
+	 * @param address
+	 *            the address of the client, or {@code null} if not known
+	 * @return {@code true} if the credentials may be checked
+	 */
+	public boolean tryAttempt(String username, String address) {
+		long now = clock.getAsLong();
+		TokenBucket account = accounts.get(key(username));
+		if (account != null && !account.hasToken(now)) {
+			return false;
+		}
+		return address == null || addresses
+				.computeIfAbsent(address, key -> new TokenBucket(addressAttempts, addressRefillNanos, now))
+				.tryTake(now);
+	}
+
+	/**
+	 * Counts a failed login attempt for the account.
+	 *
+	 * @param username
+	 *            the user name the attempt was for
+	 */
+	public void failed(String username) {
+		long now = clock.getAsLong();
+		accounts.computeIfAbsent(key(username), key -> new TokenBucket(accountAttempts, accountRefillNanos, now))
+				.tryTake(now);
+	}
+
+	/**
+	 * Forgets the buckets that have been refilled, which behave the same as new
+	 * ones.
+	 */
+	@Scheduled(fixedDelayString = "${bakery.login.cleanup-interval:PT10M}")
+	public void removeFullBuckets() {
+		long now = clock.getAsLong();
+		addresses.values().removeIf(bucket -> bucket.isFull(now));
+		accounts.values().removeIf(bucket -> bucket.isFull(now));
+	}
+
+	private static String key(String username) {
+		return username == null ? "" : username.toLowerCase(Locale.ROOT);
+	}
+
+	private static final class TokenBucket {
+
+		private final int capacity;
+		private final long refillNanos;
+		private double tokens;
+		private long updated;
+
+		private TokenBucket(int capacity, long refillNanos, long now) {
+			this.capacity = capacity;
+			this.refillNanos = refillNanos;
+			this.tokens = capacity;
+			this.updated = now;
+		}
+
+		synchronized boolean tryTake(long now) {
+			refill(now);
+			if (tokens < 1) {
+				return false;
+			}
+			tokens--;
+			return true;
+		}
+
+		synchronized boolean hasToken(long now) {
+			refill(now);
+			return tokens >= 1;
+		}
+
+		synchronized boolean isFull(long now) {
+			refill(now);
+			return tokens >= capacity;
+		}
+
+		private void refill(long now) {
+			tokens = Math.min(capacity, tokens + (double) (now - updated) / refillNanos);
+			updated = now;
+		}
+	}
+}
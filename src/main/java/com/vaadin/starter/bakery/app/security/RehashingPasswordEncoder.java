@@ -0,0 +1,38 @@
+package com.vaadin.starter.bakery.app.security;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/**
+ * A {@link BCryptPasswordEncoder} that asks for passwords to be hashed again
+ * whenever they have been hashed with a different cost than the configured
+ * one, also a higher one. The password of a user is then hashed again on the
+ * next successful login, so lowering or raising the cost takes effect without
+ * resetting passwords.
+ */
+public class RehashingPasswordEncoder extends BCryptPasswordEncoder {
+
+	private static final Pattern COST = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$.*", Pattern.DOTALL);
+
+	private final int strength;
+
+	/**
+	 * @param strength
+	 *            the log rounds to use, between 4 and 31
+	 */
+	public RehashingPasswordEncoder(int strength) {
+		super(strength);
+		this.strength = strength;
+	}
+
+	@Override
+	public boolean upgradeEncoding(String encodedPassword) {
+		if (encodedPassword == null) {
+			return false;
+		}
+		Matcher matcher = COST.matcher(encodedPassword);
+		return matcher.matches() && Integer.parseInt(matcher.group(1)) != strength;
+	}
+}
@@ -1,10 +1,11 @@
 package com.vaadin.starter.bakery.app.security;
 
 import com.vaadin.flow.spring.security.VaadinWebSecurityConfigurerAdapter;
+import com.vaadin.starter.bakery.app.metrics.MetricsController;
 import com.vaadin.starter.bakery.backend.data.entity.User;
-import com.vaadin.starter.bakery.backend.repositories.UserRepository;
 import com.vaadin.starter.bakery.ui.views.login.LoginView;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,7 +13,6 @@ import org.springframework.context.annotation.Scope;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.builders.WebSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
@@ -20,7 +20,8 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * <li>Bypass security checks for static resources,</li>
  * <li>Restrict access to the application, allowing only logged in users,</li>
  * <li>Set up the login form,</li>
- * <li>Configures the {@link UserDetailsServiceImpl}.</li>
+ * <li>Configures the {@link UserDetailsServiceImpl} and the
+ * {@link LoginAuthenticationProvider} using it.</li>
  * 
  */
 @EnableWebSecurity
@@ -31,15 +32,15 @@ public class SecurityConfiguration extends VaadinWebSecurityConfigurerAdapter {
 	 * The password encoder to use when encrypting passwords.
 	 */
 	@Bean
-	public PasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	public PasswordEncoder passwordEncoder(@Value("${bakery.security.bcrypt-strength:10}") int strength) {
+		return new RehashingPasswordEncoder(strength);
 	}
 
 	@Bean
 	@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
-	public CurrentUser currentUser(UserRepository userRepository) {
+	public CurrentUser currentUser(CurrentUserCache currentUserCache) {
 		final String username = SecurityUtils.getUsername();
-		User user = username != null ? userRepository.findByEmailIgnoreCase(username) : null;
+		User user = username != null ? currentUserCache.find(username) : null;
 		return () -> user;
 	}	
 
@@ -68,6 +69,9 @@ public class SecurityConfiguration extends VaadinWebSecurityConfigurerAdapter {
 				"/icons/**", "/images/**",
 
 				// (development mode) H2 debugging console
-				"/h2-console/**");
+				"/h2-console/**",
+
+				// metrics for monitoring, which checks its own token
+				MetricsController.PATH);
 	}
 }
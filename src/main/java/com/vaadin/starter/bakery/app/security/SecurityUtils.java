@@ -2,6 +2,7 @@ package com.vaadin.starter.bakery.app.security;
 
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,6 +14,8 @@ import org.springframework.security.core.userdetails.UserDetails;
  */
 public final class SecurityUtils {
 
+	private static final String ROLE_PREFIX = "ROLE_";
+
 	private SecurityUtils() {
 		// Util methods only
 	}
@@ -36,6 +39,35 @@ public final class SecurityUtils {
 		return null;
 	}
 
+	/**
+	 * Gets the role of the currently signed in user.
+	 *
+	 * @return the role of the current user, e.g. {@code baker}, or
+	 *         <code>null</code> if the user has not signed in
+	 */
+	public static String getRole() {
+		SecurityContext context = SecurityContextHolder.getContext();
+		return context == null ? null : getRole(context.getAuthentication());
+	}
+
+	/**
+	 * Gets the role of an authenticated user.
+	 *
+	 * @return the role of the user, e.g. {@code baker}, or <code>null</code> if
+	 *         the authentication has no role
+	 */
+	public static String getRole(Authentication authentication) {
+		if (authentication != null) {
+			for (GrantedAuthority authority : authentication.getAuthorities()) {
+				String name = authority.getAuthority();
+				if (name != null && name.startsWith(ROLE_PREFIX)) {
+					return name.substring(ROLE_PREFIX.length());
+				}
+			}
+		}
+		return null;
+	}
+
 	/**
 	 * Checks if the user is logged in.
 	 *
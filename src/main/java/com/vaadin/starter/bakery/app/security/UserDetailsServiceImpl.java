@@ -6,12 +6,13 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
 import com.vaadin.starter.bakery.backend.data.entity.User;
-import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.UserService;
 
 /**
  * Implements the {@link UserDetailsService}.
@@ -21,27 +22,30 @@ import com.vaadin.starter.bakery.backend.repositories.UserRepository;
  */
 @Service
 @Primary
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
-	private final UserRepository userRepository;
+	private final CurrentUserCache currentUserCache;
+	private final UserService userService;
 
 	@Autowired
-	public UserDetailsServiceImpl(UserRepository userRepository) {
-		this.userRepository = userRepository;
+	public UserDetailsServiceImpl(CurrentUserCache currentUserCache, UserService userService) {
+		this.currentUserCache = currentUserCache;
+		this.userService = userService;
 	}
 
 	/**
 	 *
 	 * Recovers the {@link User} from the database using the e-mail address supplied
 	 * in the login screen. If the user is found, returns a
-	 * {@link org.springframework.security.core.userdetails.User}.
+	 * {@link org.springframework.security.core.userdetails.User}. The user is
+	 * kept in the session for the {@link CurrentUser} after logging in.
 	 *
 	 * @param username User's e-mail address
 	 * 
 	 */
 	@Override
 	public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-		User user = userRepository.findByEmailIgnoreCase(username);
+		User user = currentUserCache.find(username);
 		if (null == user) {
 			throw new UsernameNotFoundException("No user present with username: " + username);
 		} else {
@@ -49,4 +53,14 @@ public class UserDetailsServiceImpl implements UserDetailsService {
 					Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + user.getRole())));
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Stores the password of a user hashed again with the current settings
+	 * after a successful login.
+	 */
+	@Override
+	public UserDetails updatePassword(UserDetails user, String newPassword) {
+		userService.updatePasswordHash(user.getUsername(), newPassword);
+		return org.springframework.security.core.userdetails.User.withUserDetails(user).password(newPassword).build();
+	}
+}
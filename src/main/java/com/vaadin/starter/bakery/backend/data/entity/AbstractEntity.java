@@ -4,15 +4,24 @@ import java.io.Serializable;
 import java.util.Objects;
 
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Version;
 
 @MappedSuperclass
 public abstract class AbstractEntity implements Serializable {
 
+	/** The database sequence of the entity ids. */
+	public static final String ID_SEQUENCE = "hibernate_sequence";
+
+	// Ids are allocated in blocks so that inserts can be batched without a
+	// sequence round trip per row, except on databases whose sequence still
+	// increments by 1, see application.properties
 	@Id
-	@GeneratedValue
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "entity_sequence")
+	@SequenceGenerator(name = "entity_sequence", sequenceName = ID_SEQUENCE, allocationSize = 50)
 	private Long id;
 
 	@Version
@@ -5,6 +5,8 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.Pattern;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 /**
  * Entidade que representa um cliente no sistema de padaria.
  * <p>
@@ -14,6 +16,7 @@ import javax.validation.constraints.Size;
  * @author LETI
  */
 @Entity
+@DynamicUpdate
 public class Customer extends AbstractEntity {
 
     /**
@@ -29,5 +32,51 @@ public class Customer extends AbstractEntity {
     /**
      * Número de telefone do cliente.
      * <p>
-     * Campo obrigatório*
-
+     * Campo obrigatório, limitado a 20 caracteres e validado por um padrão simples.
+     * </p>
+     */
+    @NotBlank
+    @Size(max = 20, message = "{bakery.phone.number.invalid}")
+    // A simple phone number pattern
+    @Pattern(regexp = "^(\\+\\d+)?([-]?\\d+)*$", message = "{bakery.phone.number.invalid}")
+    private String phoneNumber;
+
+    /**
+     * Detalhes adicionais sobre o cliente.
+     * <p>
+     * Campo opcional, limitado a 255 caracteres.
+     * </p>
+     */
+    @Size(max = 255)
+    private String details;
+
+    /** @return o nome completo do cliente */
+    public String getFullName() {
+        return fullName;
+    }
+
+    /** @param fullName define o nome completo do cliente */
+    public void setFullName(String fullName) {
+        this.fullName = fullName;
+    }
+
+    /** @return o número de telefone do cliente */
+    public String getPhoneNumber() {
+        return phoneNumber;
+    }
+
+    /** @param phoneNumber define o número de telefone do cliente */
+    public void setPhoneNumber(String phoneNumber) {
+        this.phoneNumber = phoneNumber;
+    }
+
+    /** @return os detalhes adicionais do cliente */
+    public String getDetails() {
+        return details;
+    }
+
+    /** @param details define os detalhes adicionais do cliente */
+    public void setDetails(String details) {
+        this.details = details;
+    }
+}
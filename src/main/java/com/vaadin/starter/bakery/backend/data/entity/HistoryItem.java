@@ -1,6 +1,7 @@
 package com.vaadin.starter.bakery.backend.data.entity;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 import javax.persistence.Entity;
 import javax.persistence.ManyToOne;
@@ -8,9 +9,12 @@ import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 import com.vaadin.starter.bakery.backend.data.OrderState;
 
 @Entity
+@DynamicUpdate
 public class HistoryItem extends AbstractEntity {
 
 	private OrderState newState;
@@ -32,7 +36,9 @@ public class HistoryItem extends AbstractEntity {
 	public HistoryItem(User createdBy, String message) {
 		this.createdBy = createdBy;
 		this.message = message;
-		timestamp = LocalDateTime.now();
+		// Truncated to what the database keeps, so that merging a detached item
+		// back does not see the timestamp as changed
+		timestamp = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
 	}
 
 	public OrderState getNewState() {
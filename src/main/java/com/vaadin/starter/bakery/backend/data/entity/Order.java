@@ -18,12 +18,16 @@ import javax.persistence.NamedEntityGraph;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
 import javax.persistence.OrderColumn;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.NotNull;
 
 import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import com.vaadin.starter.bakery.backend.data.OrderState;
 /**
@@ -32,6 +36,10 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
  * <p>
  * This entity is mapped to the database as "OrderInfo" to avoid reserved word conflicts.
  * </p>
+ * <p>
+ * Updates only write the columns that actually changed, so e.g. changing the state
+ * of an order does not rewrite the customer, items or the rest of the row.
+ * </p>
  *
  * @author LETI-65074
  */
@@ -48,13 +56,18 @@ import com.vaadin.starter.bakery.backend.data.OrderState;
                 @NamedAttributeNode("history")
         })
 })// ver se linha de comandos funicona git status
-@Table(indexes = @Index(columnList = "dueDate"))
+@DynamicUpdate
+@Table(indexes = { @Index(columnList = "dueDate"), @Index(columnList = "totalPrice") })
 public class Order extends AbstractEntity implements OrderSummary {
 
     /** Entity graph name for brief order info. */
     public static final String ENTITY_GRAPTH_BRIEF = "Order.brief";
     /** Entity graph name for full order info. */
     public static final String ENTITY_GRAPTH_FULL = "Order.full";
+    /** Column in the history item table referencing the order. */
+    public static final String HISTORY_JOIN_COLUMN = "history_id";
+    /** Column in the history item table holding the position in the history. */
+    public static final String HISTORY_ORDER_COLUMN = "history_order";
 
     /** Date when the order is due. */
     @NotNull(message = "{bakery.due.date.required}")
@@ -87,10 +100,20 @@ public class Order extends AbstractEntity implements OrderSummary {
     @NotNull(message = "{bakery.status.required}")
     private OrderState state;
 
+    /**
+     * Total price of all items in cents. Kept in sync with {@link #items} so that
+     * it can be used in queries for sorting, filtering and revenue statistics.
+     */
+    private int totalPrice;
+
+    /** Whether the order was read from the archive, in which case it cannot be changed. */
+    @Transient
+    private boolean archived;
+
     /** History of changes for the order. */
     @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
-    @OrderColumn
-    @JoinColumn
+    @OrderColumn(name = HISTORY_ORDER_COLUMN)
+    @JoinColumn(name = HISTORY_JOIN_COLUMN)
     private List<HistoryItem> history;
 
     /**
@@ -118,14 +141,16 @@ public class Order extends AbstractEntity implements OrderSummary {
      *
      * @param createdBy the user who made the change
      * @param comment   the comment describing the change
+     * @return the added history item
      */
-    public void addHistoryItem(User createdBy, String comment) {
+    public HistoryItem addHistoryItem(User createdBy, String comment) {
         HistoryItem item = new HistoryItem(createdBy, comment);
         item.setNewState(state);
         if (history == null) {
             history = new LinkedList<>();
         }
         history.add(item);
+        return item;
     }
 
     /** @return the due date of the order */
@@ -181,6 +206,7 @@ public class Order extends AbstractEntity implements OrderSummary {
     /** @param items sets the list of order items */
     public void setItems(List<OrderItem> items) {
         this.items = items;
+        updateTotalPrice();
     }
 
     /** @return the history of the order */
@@ -223,6 +249,33 @@ public class Order extends AbstractEntity implements OrderSummary {
     /** @return the total price of all items in the order */
     @Override
     public Integer getTotalPrice() {
-        return items.stream().map(i -> i.getTotalPrice()).reduce(0, Integer::sum);
+        return totalPrice;
+    }
+
+    /** @return whether the order was read from the archive and is read-only */
+    public boolean isArchived() {
+        return archived;
+    }
+
+    /** @param archived whether the order was read from the archive */
+    public void setArchived(boolean archived) {
+        this.archived = archived;
+    }
+
+    /**
+     * Recalculates the persisted total price from the current items. Called
+     * whenever the items are replaced and before the order is written, but
+     * must be called explicitly after modifying an item in place.
+     */
+    @PrePersist
+    @PreUpdate
+    public void updateTotalPrice() {
+        int sum = 0;
+        if (items != null) {
+            for (OrderItem item : items) {
+                sum += item.getTotalPrice();
+            }
+        }
+        totalPrice = sum;
     }
 }
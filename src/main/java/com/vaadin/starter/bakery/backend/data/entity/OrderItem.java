@@ -6,7 +6,10 @@ import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
+import org.hibernate.annotations.DynamicUpdate;
+
 @Entity
+@DynamicUpdate
 public class OrderItem extends AbstractEntity {
 
 	@ManyToOne
@@ -20,12 +23,25 @@ public class OrderItem extends AbstractEntity {
 	@Size(max = 255)
 	private String comment;
 
+	// Price of the product at the time it was ordered, so that later price
+	// changes do not rewrite the order history
+	private Integer unitPrice;
+
 	public Product getProduct() {
 		return product;
 	}
 
 	public void setProduct(Product product) {
 		this.product = product;
+		this.unitPrice = product == null ? null : product.getPrice();
+	}
+
+	public Integer getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(Integer unitPrice) {
+		this.unitPrice = unitPrice;
 	}
 
 	public Integer getQuantity() {
@@ -45,6 +61,12 @@ public class OrderItem extends AbstractEntity {
 	}
 
 	public int getTotalPrice() {
-		return quantity == null || product == null ? 0 : quantity * product.getPrice();
+		if (quantity == null) {
+			return 0;
+		}
+		if (unitPrice != null) {
+			return quantity * unitPrice;
+		}
+		return product == null ? 0 : quantity * product.getPrice();
 	}
 }
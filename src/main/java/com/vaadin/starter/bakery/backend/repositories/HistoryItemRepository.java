@@ -4,5 +4,5 @@ import org.springframework.data.jpa.repository.JpaRepository;
 
 import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 
-public interface HistoryItemRepository extends JpaRepository<HistoryItem, Long> {
+public interface HistoryItemRepository extends JpaRepository<HistoryItem, Long>, HistoryItemRepositoryCustom {
 }
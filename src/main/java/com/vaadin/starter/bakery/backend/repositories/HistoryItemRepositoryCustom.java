@@ -0,0 +1,44 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+
+public interface HistoryItemRepositoryCustom {
+
+	/**
+	 * Stores a history item that has already been added to the end of the
+	 * history of a persisted order, without writing the order itself.
+	 * <p>
+	 * Issues one insert for the history item, taking the next sequence number
+	 * from the database, and a version-checked update that bumps the order
+	 * version and writes its current state. The given detached instances are updated with the new id and
+	 * version so that they can be saved normally afterwards.
+	 *
+	 * @param order
+	 *            the order the item belongs to
+	 * @param item
+	 *            the new history item
+	 * @throws org.springframework.orm.ObjectOptimisticLockingFailureException
+	 *             if the order has been modified since it was loaded
+	 */
+	void append(Order order, HistoryItem item);
+
+	/**
+	 * Adds a copy of the given history item to the end of the history of each of
+	 * the given orders, without writing the orders themselves.
+	 * <p>
+	 * The rows are inserted with batched statements; the given item is only used
+	 * as a template and is not stored itself.
+	 *
+	 * @param orderIds
+	 *            the ids of the orders to add the item to
+	 * @param item
+	 *            the history item to copy
+	 * @param progress
+	 *            called with the number of rows inserted so far after each batch
+	 */
+	void appendToAll(List<Long> orderIds, HistoryItem item, IntConsumer progress);
+}
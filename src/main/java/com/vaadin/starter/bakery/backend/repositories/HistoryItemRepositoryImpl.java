@@ -0,0 +1,128 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.engine.spi.SelfDirtinessTracker;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.query.NativeQuery;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+
+class HistoryItemRepositoryImpl implements HistoryItemRepositoryCustom {
+
+	// The position is computed in the same statement so that only one row is
+	// written, regardless of the length of the history
+	private static final String INSERT_HISTORY_ITEM = "INSERT INTO history_item "
+			+ "(id, version, message, new_state, timestamp, created_by_id, " + Order.HISTORY_JOIN_COLUMN + ", "
+			+ Order.HISTORY_ORDER_COLUMN + ") "
+			+ "SELECT ?, 0, ?, ?, ?, ?, ?, "
+			+ "coalesce(max(h." + Order.HISTORY_ORDER_COLUMN + ") + 1, 0) "
+			+ "FROM history_item h WHERE h." + Order.HISTORY_JOIN_COLUMN + " = ?";
+
+	private static final int BATCH_SIZE = 100;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public void append(Order order, HistoryItem item) {
+		int updated = entityManager
+				.createQuery("UPDATE OrderInfo o SET o.version = o.version + 1, o.state = :state "
+						+ "WHERE o.id = :id AND o.version = :version")
+				.setParameter("state", order.getState()).setParameter("id", order.getId())
+				.setParameter("version", order.getVersion()).executeUpdate();
+		if (updated == 0) {
+			throw new ObjectOptimisticLockingFailureException(Order.class, order.getId());
+		}
+
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		EntityPersister itemPersister = session.getEntityPersister(null, item);
+		Serializable id = itemPersister.getIdentifierGenerator().generate(session, item);
+
+		// Without a query space Hibernate would clear the whole second-level and
+		// query cache, as it cannot tell which tables a native statement writes
+		entityManager.createNativeQuery(INSERT_HISTORY_ITEM).unwrap(NativeQuery.class)
+				.addSynchronizedEntityClass(HistoryItem.class)
+				.setParameter(1, id)
+				.setParameter(2, item.getMessage())
+				.setParameter(3, item.getNewState() == null ? null : item.getNewState().ordinal())
+				.setParameter(4, item.getTimestamp())
+				.setParameter(5, item.getCreatedBy().getId())
+				.setParameter(6, order.getId())
+				.setParameter(7, order.getId())
+				.executeUpdate();
+
+		itemPersister.setIdentifier(item, id, session);
+		EntityPersister orderPersister = session.getEntityPersister(null, order);
+		orderPersister.setPropertyValue(order, orderPersister.getVersionProperty(), order.getVersion() + 1);
+
+		// The new row is already in place, so a later merge of the order must
+		// not write the appended item or the state again
+		if (order.getHistory() instanceof PersistentCollection) {
+			((PersistentCollection) order.getHistory()).clearDirty();
+		}
+		clearDirtyAttributes(item);
+		clearDirtyAttributes(order, "state", "version", "history");
+	}
+
+	@Override
+	public void appendToAll(List<Long> orderIds, HistoryItem item, IntConsumer progress) {
+		SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+		EntityPersister itemPersister = session.getEntityPersister(null, item);
+		entityManager.unwrap(Session.class).doWork(connection -> {
+			try (PreparedStatement statement = connection.prepareStatement(INSERT_HISTORY_ITEM)) {
+				int inserted = 0;
+				for (Long orderId : orderIds) {
+					statement.setObject(1, itemPersister.getIdentifierGenerator().generate(session, item));
+					statement.setString(2, item.getMessage());
+					if (item.getNewState() == null) {
+						statement.setNull(3, Types.INTEGER);
+					} else {
+						statement.setInt(3, item.getNewState().ordinal());
+					}
+					statement.setObject(4, item.getTimestamp());
+					statement.setLong(5, item.getCreatedBy().getId());
+					statement.setLong(6, orderId);
+					statement.setLong(7, orderId);
+					statement.addBatch();
+					inserted++;
+					if (inserted % BATCH_SIZE == 0 || inserted == orderIds.size()) {
+						statement.executeBatch();
+						progress.accept(inserted);
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Forgets the given (or, if none given, all) changes recorded by an entity
+	 * enhanced with dirty tracking, as merge trusts those of the detached
+	 * instance.
+	 */
+	private static void clearDirtyAttributes(Object entity, String... attributes) {
+		if (entity instanceof SelfDirtinessTracker) {
+			SelfDirtinessTracker tracker = (SelfDirtinessTracker) entity;
+			List<String> pending = new ArrayList<>(Arrays.asList(tracker.$$_hibernate_getDirtyAttributes()));
+			pending.removeAll(Arrays.asList(attributes));
+			tracker.$$_hibernate_clearDirtyAttributes();
+			if (attributes.length > 0) {
+				pending.forEach(tracker::$$_hibernate_trackChange);
+			}
+		}
+	}
+}
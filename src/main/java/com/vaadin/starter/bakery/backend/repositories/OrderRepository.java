@@ -1,32 +1,64 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
+import static org.hibernate.annotations.QueryHints.COMMENT;
+
 import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.EntityGraph.EntityGraphType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.vaadin.starter.bakery.backend.data.OrderState;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
 
-public interface OrderRepository extends JpaRepository<Order, Long> {
+public interface OrderRepository extends JpaRepository<Order, Long>, OrderRepositoryCustom {
+
+	// Names of the expensive queries in the SQL, e.g. in the slow query log
+	String CUSTOMER_SEARCH = "Storefront: orders by customer name (LIKE)";
+	String DELIVERIES_PER_MONTH = "Dashboard: deliveries per month (year(dueDate))";
+	String SALES_PER_MONTH = "Dashboard: sales per month (year(dueDate))";
+	String DELIVERIES_PER_DAY = "Dashboard: deliveries per day (year(dueDate))";
+	String DELIVERIES_PER_PRODUCT = "Dashboard: deliveries per product (year(dueDate))";
 
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	Page<Order> findByDueDateAfter(LocalDate filterDate, Pageable pageable);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	Page<Order> findByCustomerFullNameContainingIgnoreCase(String searchQuery, Pageable pageable);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	Page<Order> findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate, Pageable pageable);
 
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	Page<Order> findByTotalPriceBetween(int minTotal, int maxTotal, Pageable pageable);
+
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	Page<Order> findByDueDateAfterAndTotalPriceBetween(LocalDate filterDate, int minTotal, int maxTotal,
+			Pageable pageable);
+
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	Page<Order> findByCustomerFullNameContainingIgnoreCaseAndTotalPriceBetween(String searchQuery, int minTotal,
+			int maxTotal, Pageable pageable);
+
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
+	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
+	Page<Order> findByCustomerFullNameContainingIgnoreCaseAndDueDateAfterAndTotalPriceBetween(String searchQuery,
+			LocalDate dueDate, int minTotal, int maxTotal, Pageable pageable);
+
 	@Override
 	@EntityGraph(value = Order.ENTITY_GRAPTH_BRIEF, type = EntityGraphType.LOAD)
 	List<Order> findAll();
@@ -44,26 +76,59 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
 
 	long countByDueDateAfter(LocalDate dueDate);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
 	long countByCustomerFullNameContainingIgnoreCase(String searchQuery);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
 	long countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(String searchQuery, LocalDate dueDate);
 
+	long countByTotalPriceBetween(int minTotal, int maxTotal);
+
+	long countByDueDateAfterAndTotalPriceBetween(LocalDate dueDate, int minTotal, int maxTotal);
+
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
+	long countByCustomerFullNameContainingIgnoreCaseAndTotalPriceBetween(String searchQuery, int minTotal,
+			int maxTotal);
+
+	@QueryHints(@QueryHint(name = COMMENT, value = CUSTOMER_SEARCH))
+	long countByCustomerFullNameContainingIgnoreCaseAndDueDateAfterAndTotalPriceBetween(String searchQuery,
+			LocalDate dueDate, int minTotal, int maxTotal);
+
 	long countByDueDate(LocalDate dueDate);
 
 	long countByDueDateAndStateIn(LocalDate dueDate, Collection<OrderState> state);
 
 	long countByState(OrderState state);
 
+	@Query("SELECT o.id FROM OrderInfo o WHERE o.dueDate = ?1 AND o.state IN ?2 ORDER BY o.id")
+	List<Long> findIdsByDueDateAndStateIn(LocalDate dueDate, Collection<OrderState> states);
+
+	@Modifying
+	@Query("UPDATE OrderInfo o SET o.state = ?3, o.version = o.version + 1 WHERE o.id IN ?1 AND o.state IN ?2")
+	int changeState(Collection<Long> ids, Collection<OrderState> fromStates, OrderState state);
+
+	@QueryHints(@QueryHint(name = COMMENT, value = DELIVERIES_PER_MONTH))
 	@Query("SELECT month(dueDate) as month, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 group by month(dueDate)")
 	List<Object[]> countPerMonth(OrderState orderState, int year);
 
-	@Query("SELECT year(o.dueDate) as y, month(o.dueDate) as m, sum(oi.quantity*p.price) as deliveries FROM OrderInfo o JOIN o.items oi JOIN oi.product p where o.state=?1 and year(o.dueDate)<=?2 AND year(o.dueDate)>=(?2-3) group by year(o.dueDate), month(o.dueDate) order by y desc, month(o.dueDate)")
+	@QueryHints(@QueryHint(name = COMMENT, value = SALES_PER_MONTH))
+	@Query("SELECT year(o.dueDate) as y, month(o.dueDate) as m, sum(o.totalPrice) as deliveries FROM OrderInfo o where o.state=?1 and year(o.dueDate)<=?2 AND year(o.dueDate)>=(?2-3) group by year(o.dueDate), month(o.dueDate) order by y desc, month(o.dueDate)")
 	List<Object[]> sumPerMonthLastThreeYears(OrderState orderState, int year);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = DELIVERIES_PER_DAY))
 	@Query("SELECT day(dueDate) as day, count(*) as deliveries FROM OrderInfo o where o.state=?1 and year(dueDate)=?2 and month(dueDate)=?3 group by day(dueDate)")
 	List<Object[]> countPerDay(OrderState orderState, int year, int month);
 
+	@QueryHints(@QueryHint(name = COMMENT, value = DELIVERIES_PER_PRODUCT))
 	@Query("SELECT sum(oi.quantity), p FROM OrderInfo o JOIN o.items oi JOIN oi.product p WHERE o.state=?1 AND year(o.dueDate)=?2 AND month(o.dueDate)=?3 GROUP BY p.id ORDER BY p.id")
 	List<Object[]> countPerProduct(OrderState orderState, int year, int month);
 
+	@Modifying
+	@Query("UPDATE OrderItem oi SET oi.unitPrice = (SELECT p.price FROM Product p WHERE p = oi.product) WHERE oi.unitPrice IS NULL")
+	int backfillUnitPrices();
+
+	@Modifying
+	@Query("UPDATE OrderInfo o SET o.totalPrice = (SELECT coalesce(sum(oi.quantity*oi.unitPrice), 0) FROM OrderInfo o2 JOIN o2.items oi WHERE o2 = o)")
+	int backfillTotalPrices();
+
 }
@@ -0,0 +1,100 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+
+/**
+ * Access to the archive tables, which hold old orders moved out of the order
+ * tables so that those only contain the orders of the last weeks.
+ * <p>
+ * Orders read from the archive are read-only and marked with
+ * {@link Order#isArchived()}. The other methods of {@link OrderRepository}
+ * never see archived orders.
+ */
+public interface OrderRepositoryCustom {
+
+	/**
+	 * Moves up to {@code batchSize} orders in the given states that were due
+	 * before the given date, together with their customers, items and history,
+	 * to the archive tables.
+	 *
+	 * @return the number of orders moved
+	 */
+	int archive(LocalDate dueBefore, Collection<OrderState> states, int batchSize);
+
+	/**
+	 * @return the latest due date of the archived orders, or empty if the
+	 *         archive is empty
+	 */
+	Optional<LocalDate> findLatestArchivedDueDate();
+
+	/**
+	 * Finds an archived order, including its history.
+	 */
+	Optional<Order> findArchivedById(long id);
+
+	/**
+	 * Finds the orders matching the storefront criteria in both the order and
+	 * the archive tables.
+	 *
+	 * @param filter
+	 *            text contained in the customer name, ignoring case, or
+	 *            {@code null}
+	 * @param dueAfter
+	 *            the date after which the orders are due, or {@code null}
+	 * @param minTotal
+	 *            the minimum total price in cents, or {@code null}
+	 * @param maxTotal
+	 *            the maximum total price in cents, or {@code null}
+	 */
+	Page<Order> findAllIncludingArchive(String filter, LocalDate dueAfter, Integer minTotal, Integer maxTotal,
+			Pageable pageable);
+
+	/**
+	 * Counts the orders matching the same criteria as
+	 * {@link #findAllIncludingArchive} in both the order and the archive tables.
+	 */
+	long countIncludingArchive(String filter, LocalDate dueAfter, Integer minTotal, Integer maxTotal);
+
+	/**
+	 * Streams the items of the orders due in the given range from both the
+	 * archive and the order tables, without loading any entities. There is one
+	 * row per item, ordered by due date, order and item, with the archived
+	 * orders first.
+	 * <p>
+	 * The rows have the columns {@code order_id}, {@code due_date},
+	 * {@code due_time}, {@code state} (the ordinal), {@code total_price},
+	 * {@code customer_name}, {@code customer_phone}, {@code customer_details},
+	 * {@code pickup_location}, {@code product}, {@code quantity},
+	 * {@code unit_price} and {@code comment}.
+	 *
+	 * @param from
+	 *            the first due date, inclusive
+	 * @param to
+	 *            the last due date, inclusive
+	 * @param handler
+	 *            called for each row of the forward-only result set
+	 */
+	void forEachOrderItem(LocalDate from, LocalDate to, RowCallbackHandler handler);
+
+	/** Archived counterpart of {@link OrderRepository#countPerMonth}. */
+	List<Object[]> countArchivedPerMonth(OrderState orderState, int year);
+
+	/** Archived counterpart of {@link OrderRepository#sumPerMonthLastThreeYears}. */
+	List<Object[]> sumArchivedPerMonthLastThreeYears(OrderState orderState, int year);
+
+	/** Archived counterpart of {@link OrderRepository#countPerDay}. */
+	List<Object[]> countArchivedPerDay(OrderState orderState, int year, int month);
+
+	/** Archived counterpart of {@link OrderRepository#countPerProduct}. */
+	List<Object[]> countArchivedPerProduct(OrderState orderState, int year, int month);
+}
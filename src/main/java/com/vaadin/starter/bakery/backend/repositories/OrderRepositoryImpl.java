@@ -0,0 +1,394 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Transactional;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+
+/**
+ * Each archive table has the columns of the table it archives, so rows are
+ * moved with {@code INSERT ... SELECT} statements and archived rows can be
+ * read back as {@link Order} entities with native queries. The columns are
+ * read from the JDBC metadata on startup: new archive tables are created with
+ * them, columns added to the order tables since are added to the archive
+ * tables, and rows are copied by column name.
+ */
+class OrderRepositoryImpl implements OrderRepositoryCustom {
+
+	private static final String ARCHIVE_PREFIX = "archived_";
+
+	// In dependency order: customers are referenced by orders, which are
+	// referenced by items and history
+	private static final String[][] ARCHIVE_TABLES = {
+			{ "customer" },
+			{ "order_info",
+					"CREATE INDEX archived_order_info_due_date ON archived_order_info (due_date)",
+					"ALTER TABLE archived_order_info ADD FOREIGN KEY (customer_id) REFERENCES archived_customer (id)",
+					"ALTER TABLE archived_order_info ADD FOREIGN KEY (pickup_location_id) REFERENCES pickup_location (id)" },
+			{ "order_item",
+					"ALTER TABLE archived_order_item ADD FOREIGN KEY (items_id) REFERENCES archived_order_info (id)",
+					"ALTER TABLE archived_order_item ADD FOREIGN KEY (product_id) REFERENCES product (id)" },
+			{ "history_item",
+					"ALTER TABLE archived_history_item ADD FOREIGN KEY (" + Order.HISTORY_JOIN_COLUMN
+							+ ") REFERENCES archived_order_info (id)",
+					"ALTER TABLE archived_history_item ADD FOREIGN KEY (created_by_id) REFERENCES user_info (id)" } };
+
+	// Rows fetched from the database at a time when streaming exports
+	private static final int EXPORT_FETCH_SIZE = 500;
+
+	private static final Map<String, String> SORT_COLUMNS = new LinkedHashMap<>();
+	static {
+		SORT_COLUMNS.put("id", "id");
+		SORT_COLUMNS.put("dueDate", "due_date");
+		SORT_COLUMNS.put("dueTime", "due_time");
+		SORT_COLUMNS.put("totalPrice", "total_price");
+	}
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	// The comma separated columns copied to the archive, by table
+	private final Map<String, String> archivedColumns = new HashMap<>();
+
+	private final NamedParameterJdbcTemplate jdbcTemplate;
+	private final NamedParameterJdbcTemplate exportJdbcTemplate;
+
+	@Autowired
+	OrderRepositoryImpl(NamedParameterJdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+		JdbcTemplate exportTemplate = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+		exportTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+		this.exportJdbcTemplate = new NamedParameterJdbcTemplate(exportTemplate);
+	}
+
+	@PostConstruct
+	void createTables() {
+		jdbcTemplate.getJdbcTemplate().execute((ConnectionCallback<Void>) connection -> {
+			DatabaseMetaData metaData = connection.getMetaData();
+			for (String[] table : ARCHIVE_TABLES) {
+				String name = table[0];
+				Map<String, String> columns = columns(metaData, connection.getSchema(), name);
+				if (columns.isEmpty()) {
+					throw new IllegalStateException("Table " + name + " not found for archiving");
+				}
+				Map<String, String> existing = columns(metaData, connection.getSchema(), ARCHIVE_PREFIX + name);
+				if (existing.isEmpty()) {
+					List<String> definitions = new ArrayList<>();
+					columns.forEach((column, type) -> definitions.add(column + " " + type));
+					execute("CREATE TABLE " + ARCHIVE_PREFIX + name + " (" + String.join(", ", definitions)
+							+ ", PRIMARY KEY (id))");
+					for (int i = 1; i < table.length; i++) {
+						execute(table[i]);
+					}
+				} else {
+					columns.forEach((column, type) -> {
+						if (!existing.containsKey(column)) {
+							execute("ALTER TABLE " + ARCHIVE_PREFIX + name + " ADD COLUMN " + column + " " + type);
+						}
+					});
+				}
+				archivedColumns.put(name, String.join(", ", columns.keySet()));
+			}
+			return null;
+		});
+	}
+
+	/**
+	 * Reads the columns of a table with their SQL types, in the order of the
+	 * table, or none if there is no such table.
+	 */
+	private static Map<String, String> columns(DatabaseMetaData metaData, String schema, String table)
+			throws SQLException {
+		String pattern = metaData.storesUpperCaseIdentifiers() ? table.toUpperCase(Locale.ROOT) : table;
+		Map<String, String> columns = new LinkedHashMap<>();
+		try (ResultSet rows = metaData.getColumns(null, schema, pattern, null)) {
+			while (rows.next()) {
+				String type = rows.getString("TYPE_NAME");
+				switch (rows.getInt("DATA_TYPE")) {
+				case Types.CHAR:
+				case Types.VARCHAR:
+				case Types.NCHAR:
+				case Types.NVARCHAR:
+				case Types.BINARY:
+				case Types.VARBINARY:
+					type += "(" + rows.getInt("COLUMN_SIZE") + ")";
+					break;
+				case Types.DECIMAL:
+				case Types.NUMERIC:
+					type += "(" + rows.getInt("COLUMN_SIZE") + ", " + rows.getInt("DECIMAL_DIGITS") + ")";
+					break;
+				default:
+					break;
+				}
+				columns.put(rows.getString("COLUMN_NAME").toLowerCase(Locale.ROOT), type);
+			}
+		}
+		return columns;
+	}
+
+	private void execute(String sql) {
+		jdbcTemplate.getJdbcTemplate().execute(sql);
+	}
+
+	private String copyToArchive(String table, String condition) {
+		String columns = archivedColumns.get(table);
+		return "INSERT INTO " + ARCHIVE_PREFIX + table + " (" + columns + ") SELECT " + columns + " FROM " + table
+				+ " WHERE " + condition;
+	}
+
+	@Override
+	@Transactional(rollbackOn = Exception.class)
+	public int archive(LocalDate dueBefore, Collection<OrderState> states, int batchSize) {
+		List<Long> ids = entityManager
+				.createQuery("SELECT o.id FROM OrderInfo o WHERE o.state IN :states AND o.dueDate < :dueBefore "
+						+ "ORDER BY o.id", Long.class)
+				.setParameter("states", states).setParameter("dueBefore", dueBefore).setMaxResults(batchSize)
+				.getResultList();
+		if (ids.isEmpty()) {
+			return 0;
+		}
+
+		MapSqlParameterSource params = new MapSqlParameterSource("ids", ids);
+		List<Long> customerIds = jdbcTemplate.queryForList(
+				"SELECT customer_id FROM order_info WHERE id IN (:ids)", params, Long.class);
+		params.addValue("customerIds", customerIds);
+
+		jdbcTemplate.update(copyToArchive("customer", "id IN (:customerIds)"), params);
+		jdbcTemplate.update(copyToArchive("order_info", "id IN (:ids)"), params);
+		jdbcTemplate.update(copyToArchive("order_item", "items_id IN (:ids)"), params);
+		jdbcTemplate.update(copyToArchive("history_item", Order.HISTORY_JOIN_COLUMN + " IN (:ids)"), params);
+
+		jdbcTemplate.update("DELETE FROM order_item WHERE items_id IN (:ids)", params);
+		jdbcTemplate.update("DELETE FROM history_item WHERE " + Order.HISTORY_JOIN_COLUMN + " IN (:ids)", params);
+		jdbcTemplate.update("DELETE FROM order_info WHERE id IN (:ids)", params);
+		jdbcTemplate.update("DELETE FROM customer WHERE id IN (:customerIds)", params);
+		return ids.size();
+	}
+
+	@Override
+	public Optional<LocalDate> findLatestArchivedDueDate() {
+		return Optional.ofNullable(jdbcTemplate.queryForObject("SELECT max(due_date) FROM archived_order_info",
+				new MapSqlParameterSource(), LocalDate.class));
+	}
+
+	@Override
+	@Transactional
+	public Optional<Order> findArchivedById(long id) {
+		List<Order> orders = loadArchived(Collections.singletonList(id));
+		if (orders.isEmpty()) {
+			return Optional.empty();
+		}
+		session().createNativeQuery("SELECT {o.*}, {h.*} FROM archived_order_info o "
+				+ "LEFT JOIN archived_history_item h ON h." + Order.HISTORY_JOIN_COLUMN + " = o.id WHERE o.id = :id")
+				.addEntity("o", Order.class).addJoin("h", "o.history").setParameter("id", id).setReadOnly(true)
+				.list();
+		return Optional.of(orders.get(0));
+	}
+
+	@Override
+	@Transactional
+	public Page<Order> findAllIncludingArchive(String filter, LocalDate dueAfter, Integer minTotal,
+			Integer maxTotal, Pageable pageable) {
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		String where = where(filter, dueAfter, minTotal, maxTotal, params);
+		String sql = "SELECT id, archived FROM ("
+				+ "SELECT o.id, o.due_date, o.due_time, o.total_price, 0 AS archived FROM order_info o "
+				+ "JOIN customer c ON c.id = o.customer_id" + where
+				+ " UNION ALL SELECT o.id, o.due_date, o.due_time, o.total_price, 1 AS archived FROM archived_order_info o "
+				+ "JOIN archived_customer c ON c.id = o.customer_id" + where + ") u" + orderBy(pageable.getSort());
+		if (pageable.isPaged()) {
+			sql += " LIMIT :limit OFFSET :offset";
+			params.addValue("limit", pageable.getPageSize()).addValue("offset", pageable.getOffset());
+		}
+
+		Map<Long, Boolean> page = new LinkedHashMap<>();
+		jdbcTemplate.query(sql, params, row -> {
+			page.put(row.getLong("id"), row.getInt("archived") == 1);
+		});
+		List<Long> hotIds = page.entrySet().stream().filter(e -> !e.getValue()).map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+		List<Long> archivedIds = page.entrySet().stream().filter(Map.Entry::getValue).map(Map.Entry::getKey)
+				.collect(Collectors.toList());
+
+		Map<Long, Order> orders = new LinkedHashMap<>();
+		page.keySet().forEach(id -> orders.put(id, null));
+		if (!hotIds.isEmpty()) {
+			entityManager.createQuery("SELECT o FROM OrderInfo o WHERE o.id IN :ids", Order.class)
+					.setHint("javax.persistence.fetchgraph", entityManager.getEntityGraph(Order.ENTITY_GRAPTH_BRIEF))
+					.setParameter("ids", hotIds).getResultList().forEach(o -> orders.put(o.getId(), o));
+		}
+		loadArchived(archivedIds).forEach(o -> orders.put(o.getId(), o));
+
+		List<Order> content = orders.values().stream().filter(o -> o != null).collect(Collectors.toList());
+		long total = pageable.isPaged() ? countIncludingArchive(filter, dueAfter, minTotal, maxTotal) : content.size();
+		return new PageImpl<>(content, pageable, total);
+	}
+
+	@Override
+	public long countIncludingArchive(String filter, LocalDate dueAfter, Integer minTotal, Integer maxTotal) {
+		MapSqlParameterSource params = new MapSqlParameterSource();
+		String where = where(filter, dueAfter, minTotal, maxTotal, params);
+		Long count = jdbcTemplate.queryForObject("SELECT "
+				+ "(SELECT count(*) FROM order_info o JOIN customer c ON c.id = o.customer_id" + where + ") + "
+				+ "(SELECT count(*) FROM archived_order_info o JOIN archived_customer c ON c.id = o.customer_id"
+				+ where + ")", params, Long.class);
+		return count == null ? 0 : count;
+	}
+
+	@Override
+	@Transactional
+	public void forEachOrderItem(LocalDate from, LocalDate to, RowCallbackHandler handler) {
+		// Within a transaction, as some drivers only use the fetch size with auto-commit off
+		MapSqlParameterSource params = new MapSqlParameterSource("from", from).addValue("to", to);
+		exportJdbcTemplate.query(exportQuery(ARCHIVE_PREFIX), params, handler);
+		exportJdbcTemplate.query(exportQuery(""), params, handler);
+	}
+
+	private static String exportQuery(String prefix) {
+		return "SELECT o.id AS order_id, o.due_date, o.due_time, o.state, o.total_price, "
+				+ "c.full_name AS customer_name, c.phone_number AS customer_phone, c.details AS customer_details, "
+				+ "l.name AS pickup_location, p.name AS product, i.quantity, i.unit_price, i.comment FROM "
+				+ prefix + "order_info o JOIN " + prefix + "customer c ON c.id = o.customer_id "
+				+ "LEFT JOIN pickup_location l ON l.id = o.pickup_location_id JOIN " + prefix
+				+ "order_item i ON i.items_id = o.id JOIN product p ON p.id = i.product_id "
+				+ "WHERE o.due_date BETWEEN :from AND :to ORDER BY o.due_date, o.id, i.items_order";
+	}
+
+	@Override
+	public List<Object[]> countArchivedPerMonth(OrderState orderState, int year) {
+		return jdbcTemplate.query("SELECT " + extract("MONTH") + " AS m, count(*) AS c FROM archived_order_info o "
+				+ "WHERE o.state = :state AND " + extract("YEAR") + " = :year GROUP BY " + extract("MONTH"),
+				new MapSqlParameterSource("state", orderState.ordinal()).addValue("year", year),
+				(row, i) -> new Object[] { row.getInt("m"), row.getLong("c") });
+	}
+
+	@Override
+	public List<Object[]> sumArchivedPerMonthLastThreeYears(OrderState orderState, int year) {
+		return jdbcTemplate.query("SELECT " + extract("YEAR") + " AS y, " + extract("MONTH")
+				+ " AS m, sum(o.total_price) AS s FROM archived_order_info o WHERE o.state = :state AND "
+				+ extract("YEAR") + " BETWEEN :from AND :year GROUP BY " + extract("YEAR") + ", " + extract("MONTH"),
+				new MapSqlParameterSource("state", orderState.ordinal()).addValue("from", year - 3).addValue("year",
+						year),
+				(row, i) -> new Object[] { row.getInt("y"), row.getInt("m"), row.getLong("s") });
+	}
+
+	@Override
+	public List<Object[]> countArchivedPerDay(OrderState orderState, int year, int month) {
+		return jdbcTemplate.query("SELECT " + extract("DAY") + " AS d, count(*) AS c FROM archived_order_info o "
+				+ "WHERE o.state = :state AND " + extract("YEAR") + " = :year AND " + extract("MONTH")
+				+ " = :month GROUP BY " + extract("DAY"),
+				new MapSqlParameterSource("state", orderState.ordinal()).addValue("year", year).addValue("month",
+						month),
+				(row, i) -> new Object[] { row.getInt("d"), row.getLong("c") });
+	}
+
+	@Override
+	@Transactional
+	public List<Object[]> countArchivedPerProduct(OrderState orderState, int year, int month) {
+		List<Object[]> rows = jdbcTemplate.query("SELECT i.product_id AS p, sum(i.quantity) AS q "
+				+ "FROM archived_order_info o JOIN archived_order_item i ON i.items_id = o.id "
+				+ "WHERE o.state = :state AND " + extract("YEAR") + " = :year AND " + extract("MONTH")
+				+ " = :month GROUP BY i.product_id",
+				new MapSqlParameterSource("state", orderState.ordinal()).addValue("year", year).addValue("month",
+						month),
+				(row, i) -> new Object[] { row.getLong("q"), row.getLong("p") });
+		rows.forEach(row -> row[1] = entityManager.find(Product.class, row[1]));
+		return rows;
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Order> loadArchived(List<Long> ids) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		List<Object[]> rows = session().createNativeQuery("SELECT {o.*}, {c.*}, {i.*} FROM archived_order_info o "
+				+ "JOIN archived_customer c ON c.id = o.customer_id "
+				+ "LEFT JOIN archived_order_item i ON i.items_id = o.id WHERE o.id IN (:ids)")
+				.addEntity("o", Order.class).addJoin("c", "o.customer").addJoin("i", "o.items")
+				.setParameterList("ids", ids).setReadOnly(true).list();
+		List<Order> orders = new ArrayList<>();
+		for (Object[] row : rows) {
+			Order order = (Order) row[0];
+			if (!order.isArchived()) {
+				order.setArchived(true);
+				orders.add(order);
+			}
+		}
+		return orders;
+	}
+
+	private Session session() {
+		return entityManager.unwrap(Session.class);
+	}
+
+	private static String extract(String field) {
+		return "CAST(EXTRACT(" + field + " FROM o.due_date) AS INTEGER)";
+	}
+
+	private static String where(String filter, LocalDate dueAfter, Integer minTotal, Integer maxTotal,
+			MapSqlParameterSource params) {
+		List<String> conditions = new ArrayList<>();
+		if (filter != null && !filter.isEmpty()) {
+			conditions.add("lower(c.full_name) LIKE :filter ESCAPE '\\'");
+			params.addValue("filter", "%" + filter.toLowerCase(Locale.ROOT).replace("\\", "\\\\").replace("%", "\\%")
+					.replace("_", "\\_") + "%");
+		}
+		if (dueAfter != null) {
+			conditions.add("o.due_date > :dueAfter");
+			params.addValue("dueAfter", dueAfter);
+		}
+		if (minTotal != null) {
+			conditions.add("o.total_price >= :minTotal");
+			params.addValue("minTotal", minTotal);
+		}
+		if (maxTotal != null) {
+			conditions.add("o.total_price <= :maxTotal");
+			params.addValue("maxTotal", maxTotal);
+		}
+		return conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions);
+	}
+
+	private static String orderBy(Sort sort) {
+		List<String> orders = new ArrayList<>();
+		for (Sort.Order order : sort) {
+			String column = SORT_COLUMNS.get(order.getProperty());
+			if (column == null) {
+				throw new IllegalArgumentException("Unable to sort archived orders by " + order.getProperty());
+			}
+			orders.add(column + (order.isAscending() ? " ASC" : " DESC"));
+		}
+		return orders.isEmpty() ? "" : " ORDER BY " + String.join(", ", orders);
+	}
+}
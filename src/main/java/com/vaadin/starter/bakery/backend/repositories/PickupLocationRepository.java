@@ -1,14 +1,35 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.CACHE_REGION;
+import static org.hibernate.annotations.QueryHints.COMMENT;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
 
 public interface PickupLocationRepository extends JpaRepository<PickupLocation, Long> {
 
+	/** Query cache region of the cached queries, see {@code ehcache.xml}. */
+	String QUERY_REGION = "pickup-location-queries";
+
+	/** Name of the search queries in the SQL, e.g. in the slow query log. */
+	String NAME_SEARCH = "Pickup locations: locations by name (LIKE)";
+
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION),
+			@QueryHint(name = COMMENT, value = NAME_SEARCH) })
 	Page<PickupLocation> findByNameLikeIgnoreCase(String nameFilter, Pageable pageable);
 
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION),
+			@QueryHint(name = COMMENT, value = NAME_SEARCH) })
 	int countByNameLikeIgnoreCase(String nameFilter);
+
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION) })
+	@Override
+	Page<PickupLocation> findAll(Pageable pageable);
 }
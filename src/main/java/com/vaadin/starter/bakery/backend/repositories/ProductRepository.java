@@ -1,17 +1,41 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.CACHE_REGION;
+import static org.hibernate.annotations.QueryHints.COMMENT;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+	/** Query cache region of the cached queries, see {@code ehcache.xml}. */
+	String QUERY_REGION = "product-queries";
+
+	/** Name of the search queries in the SQL, e.g. in the slow query log. */
+	String NAME_SEARCH = "Products: products by name (LIKE)";
+
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION) })
 	Page<Product> findBy(Pageable page);
 
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION),
+			@QueryHint(name = COMMENT, value = NAME_SEARCH) })
 	Page<Product> findByNameLikeIgnoreCase(String name, Pageable page);
 
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION),
+			@QueryHint(name = COMMENT, value = NAME_SEARCH) })
 	int countByNameLikeIgnoreCase(String name);
 
+	@Query("SELECT i.product.id, count(i) FROM OrderItem i GROUP BY i.product.id")
+	List<Object[]> countOrderItemsPerProduct();
+
 }
@@ -1,20 +1,34 @@
 package com.vaadin.starter.bakery.backend.repositories;
 
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.CACHE_REGION;
+
+import java.util.List;
+
+import javax.persistence.QueryHint;
+
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.vaadin.starter.bakery.backend.data.entity.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
 
+	/** Query cache region of the cached queries, see {@code ehcache.xml}. */
+	String QUERY_REGION = "user-queries";
+
+	@QueryHints({ @QueryHint(name = CACHEABLE, value = "true"), @QueryHint(name = CACHE_REGION, value = QUERY_REGION) })
 	User findByEmailIgnoreCase(String email);
 
 	Page<User> findBy(Pageable pageable);
 
-	Page<User> findByEmailLikeIgnoreCaseOrFirstNameLikeIgnoreCaseOrLastNameLikeIgnoreCaseOrRoleLikeIgnoreCase(
-			String emailLike, String firstNameLike, String lastNameLike, String roleLike, Pageable pageable);
-
-	long countByEmailLikeIgnoreCaseOrFirstNameLikeIgnoreCaseOrLastNameLikeIgnoreCaseOrRoleLikeIgnoreCase(
-			String emailLike, String firstNameLike, String lastNameLike, String roleLike);
+	/**
+	 * @return the id, e-mail address, first name, last name and role of all
+	 *         users, for building the {@code UserSearchIndex}
+	 */
+	@Query("SELECT u.id, u.email, u.firstName, u.lastName, u.role FROM UserInfo u")
+	List<Object[]> findSearchFields();
 }
@@ -0,0 +1,91 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+
+/**
+ * Evicts changed entities from the Hibernate second-level and query cache and
+ * provides the statistics of the cache regions configured in
+ * {@code ehcache.xml}.
+ */
+@Service
+public class CacheService implements HasLogger {
+
+	private final SessionFactory sessionFactory;
+
+	@Autowired
+	public CacheService(EntityManagerFactory entityManagerFactory) {
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+	}
+
+	/**
+	 * Evicts a saved or deleted entity and all cached query results of its
+	 * type. Within a transaction this happens once the transaction has been
+	 * committed, as committing puts the entity back into the cache.
+	 *
+	 * @param entity
+	 *            the changed entity
+	 * @param queryRegion
+	 *            the query cache region of the queries for the entity type
+	 */
+	public void evict(AbstractEntity entity, String queryRegion) {
+		Class<?> type = entity != null && entity.getId() != null ? Hibernate.getClass(entity) : null;
+		Long id = type != null ? entity.getId() : null;
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					evict(type, id, queryRegion);
+				}
+			});
+		} else {
+			evict(type, id, queryRegion);
+		}
+	}
+
+	private void evict(Class<?> type, Long id, String queryRegion) {
+		if (type != null) {
+			sessionFactory.getCache().evictEntityData(type, id);
+		}
+		sessionFactory.getCache().evictQueryRegion(queryRegion);
+	}
+
+	/**
+	 * @return the statistics of each cache region, by region name
+	 */
+	public Map<String, CacheRegionStatistics> getStatistics() {
+		Statistics statistics = sessionFactory.getStatistics();
+		Map<String, CacheRegionStatistics> regions = new TreeMap<>();
+		for (String region : statistics.getSecondLevelCacheRegionNames()) {
+			CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+			if (regionStatistics != null) {
+				regions.put(region, regionStatistics);
+			}
+		}
+		return regions;
+	}
+
+	@Scheduled(fixedDelayString = "${bakery.cache.statistics-interval:PT10M}")
+	void logStatistics() {
+		if (getLogger().isDebugEnabled()) {
+			getStatistics().forEach((region, statistics) -> getLogger().debug(
+					"Cache region {}: {} hits, {} misses, {} puts", region, statistics.getHitCount(),
+					statistics.getMissCount(), statistics.getPutCount()));
+		}
+	}
+}
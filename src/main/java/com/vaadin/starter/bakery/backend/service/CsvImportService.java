@@ -0,0 +1,669 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
+import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+
+/**
+ * Imports new products and orders from CSV files, e.g. seasonal catalog
+ * changes and pre-orders from partners.
+ * <p>
+ * The file is read on the calling thread and split into chunks of products or
+ * orders, which are converted, validated and stored in parallel, each chunk in
+ * its own transaction with batched inserts. Rows that cannot be imported are
+ * reported in the {@link Result} instead of failing the whole file. When a
+ * chunk cannot be stored, e.g. because of a duplicate product name, its
+ * products or orders are stored one at a time through {@link ProductService}
+ * or {@link OrderService}, so that only the failing ones are rejected, with the
+ * same messages as when saving them in the editors.
+ * <p>
+ * If the rest of the file cannot be read or a chunk fails unexpectedly, the
+ * {@link Result} reports the affected lines together with everything that was
+ * imported.
+ */
+@Service
+public class CsvImportService implements HasLogger {
+
+	/** The kinds of files that can be imported. */
+	public enum Type {
+		/**
+		 * One product per line, with the price in the currency, e.g.
+		 * {@code 12.50}.
+		 */
+		PRODUCTS("name", "price"),
+		/**
+		 * One line per order item, in the format of {@link OrderExportService}.
+		 * Consecutive lines with the same {@code order_id} are items of the same
+		 * order, which is taken from the first of them. The {@code order_id}
+		 * only groups the lines and is not stored. The optional columns are
+		 * {@code order_id}, {@code state} (by default new),
+		 * {@code customer_details}, {@code unit_price} (by default the product
+		 * price) and {@code comment}; other columns such as {@code total} are
+		 * ignored. The {@code '} the export puts before values that would start
+		 * a formula, such as phone numbers, is removed.
+		 */
+		ORDERS("due_date", "due_time", "customer_name", "customer_phone", "pickup_location", "product",
+				"quantity");
+
+		private final List<String> requiredColumns;
+
+		Type(String... requiredColumns) {
+			this.requiredColumns = Collections.unmodifiableList(Arrays.asList(requiredColumns));
+		}
+
+		public List<String> getRequiredColumns() {
+			return requiredColumns;
+		}
+	}
+
+	/** A row that could not be imported. */
+	public static final class RowError {
+
+		private final long line;
+		private final String message;
+
+		RowError(long line, String message) {
+			this.line = line;
+			this.message = message;
+		}
+
+		/**
+		 * @return the line of the file on which the row starts, starting from 1
+		 */
+		public long getLine() {
+			return line;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+	/** The outcome of an import. */
+	public static final class Result {
+
+		private long imported;
+		private long rejected;
+		private long errorCount;
+		private boolean complete = true;
+		private final List<RowError> errors = new ArrayList<>();
+
+		/**
+		 * @return the number of imported products or orders
+		 */
+		public long getImported() {
+			return imported;
+		}
+
+		/**
+		 * @return the number of products or orders that were not imported
+		 */
+		public long getRejected() {
+			return rejected;
+		}
+
+		/**
+		 * @return the number of errors, which can be more than the ones
+		 *         returned by {@link #getErrors()}
+		 */
+		public long getErrorCount() {
+			return errorCount;
+		}
+
+		/**
+		 * @return {@code false} if some lines were neither imported nor
+		 *         rejected, because the rest of the file could not be read or a
+		 *         chunk failed unexpectedly; the errors tell which lines
+		 */
+		public boolean isComplete() {
+			return complete;
+		}
+
+		/**
+		 * @return the first {@value CsvImportService#MAX_ERRORS} errors, ordered
+		 *         by line
+		 */
+		public List<RowError> getErrors() {
+			return Collections.unmodifiableList(errors);
+		}
+
+		void addError(long line, String message) {
+			errorCount++;
+			if (errors.size() < MAX_ERRORS) {
+				errors.add(new RowError(line, message));
+			}
+		}
+
+		void stop(long line, String message) {
+			complete = false;
+			// Reported even when there are already too many errors
+			errorCount++;
+			errors.add(new RowError(line, message));
+		}
+
+		void add(Result chunk) {
+			imported += chunk.imported;
+			rejected += chunk.rejected;
+			errorCount += chunk.errorCount;
+			for (RowError error : chunk.errors) {
+				if (errors.size() == MAX_ERRORS) {
+					break;
+				}
+				errors.add(error);
+			}
+		}
+	}
+
+	private static final int MAX_ERRORS = 1000;
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final Pattern ITEM_PROPERTY = Pattern.compile("items\\[(\\d+)\\]\\.(.*)");
+
+	private final ProductService productService;
+	private final OrderService orderService;
+	private final ProductRepository productRepository;
+	private final PickupLocationRepository pickupLocationRepository;
+	private final CacheService cacheService;
+	private final ProductCatalog productCatalog;
+	private final Validator validator;
+	private final TransactionTemplate transactionTemplate;
+	private final int threads;
+	private final int chunkSize;
+
+	@Autowired
+	public CsvImportService(ProductService productService, OrderService orderService,
+			ProductRepository productRepository, PickupLocationRepository pickupLocationRepository,
+			CacheService cacheService, ProductCatalog productCatalog, Validator validator,
+			PlatformTransactionManager transactionManager, @Value("${bakery.import.threads:0}") int threads,
+			@Value("${bakery.import.chunk-size:1000}") int chunkSize) {
+		this.productService = productService;
+		this.orderService = orderService;
+		this.productRepository = productRepository;
+		this.pickupLocationRepository = pickupLocationRepository;
+		this.cacheService = cacheService;
+		this.productCatalog = productCatalog;
+		this.validator = validator;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Imports the products or orders of a CSV file with a header line naming the
+	 * columns, in any order and case. The file must be encoded in UTF-8.
+	 *
+	 * @param currentUser
+	 *            the user importing, who is recorded as the creator of orders
+	 * @param in
+	 *            the contents of the file, which is not closed
+	 * @return the number of imported products or orders and the rows that
+	 *         could not be imported, also when reading fails or the file is not
+	 *         valid CSV, see {@link Result#isComplete()}
+	 */
+	public Result importCsv(User currentUser, Type type, InputStream in) {
+		long start = System.currentTimeMillis();
+		Result result = new Result();
+		CsvReader reader = new CsvReader(
+				new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE));
+		String[] header;
+		try {
+			header = reader.next();
+		} catch (IOException e) {
+			result.stop(1, "Unable to read the file: " + e.getMessage());
+			return result;
+		}
+		if (header == null) {
+			result.addError(1, "The file is empty");
+			return result;
+		}
+		Map<String, Integer> columns = new HashMap<>();
+		for (int i = 0; i < header.length; i++) {
+			columns.putIfAbsent(header[i].trim().toLowerCase(Locale.ENGLISH), i);
+		}
+		List<String> missing = type.getRequiredColumns().stream().filter(c -> !columns.containsKey(c))
+				.collect(Collectors.toList());
+		if (!missing.isEmpty()) {
+			result.addError(reader.getLine(), "Missing columns " + String.join(", ", missing));
+			return result;
+		}
+
+		Importer<?> importer = type == Type.PRODUCTS ? new ProductImporter(currentUser, columns)
+				: new OrderImporter(currentUser, columns);
+		importRows(importer, reader, result);
+		importer.finish(result);
+		getLogger().info("Imported {} and rejected {} {} in {} ms", result.imported, result.rejected,
+				type.name().toLowerCase(Locale.ENGLISH), System.currentTimeMillis() - start);
+		return result;
+	}
+
+	private void importRows(Importer<?> importer, CsvReader reader, Result result) {
+		// With at most one chunk waiting per thread, the reading thread stores
+		// chunks itself when all threads are busy, so the chunks in memory are
+		// bounded regardless of the size of the file
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(threads), new ThreadPoolExecutor.CallerRunsPolicy());
+		List<Chunk> chunks = new ArrayList<>();
+		IOException readFailure = null;
+		long unreadLine = 0;
+		try {
+			List<List<Row>> chunk = new ArrayList<>();
+			Row previous = null;
+			try {
+				for (String[] fields = reader.next(); fields != null; fields = reader.next()) {
+					Row row = new Row(reader.getLine(), fields);
+					if (previous != null && importer.continues(previous, row)) {
+						chunk.get(chunk.size() - 1).add(row);
+					} else {
+						if (chunk.size() == chunkSize) {
+							List<List<Row>> full = chunk;
+							chunks.add(new Chunk(full, executor.submit(() -> importer.importChunk(full))));
+							chunk = new ArrayList<>();
+						}
+						List<Row> rows = new ArrayList<>(1);
+						rows.add(row);
+						chunk.add(rows);
+					}
+					previous = row;
+				}
+			} catch (IOException e) {
+				// The rows read before are still imported
+				readFailure = e;
+				unreadLine = reader.getLine();
+				if (importer.hasMultipleRows() && !chunk.isEmpty()) {
+					// The rest of the last entity may be in the part that cannot be read
+					unreadLine = chunk.remove(chunk.size() - 1).get(0).line;
+				}
+			}
+			if (!chunk.isEmpty()) {
+				List<List<Row>> last = chunk;
+				chunks.add(new Chunk(last, executor.submit(() -> importer.importChunk(last))));
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		for (Chunk chunk : chunks) {
+			try {
+				result.add(chunk.result.get());
+			} catch (InterruptedException e) {
+				executor.shutdownNow();
+				Thread.currentThread().interrupt();
+				result.stop(chunk.firstLine, "The import was interrupted");
+				return;
+			} catch (ExecutionException e) {
+				getLogger().warn("Unable to import lines {} to {}", chunk.firstLine, chunk.lastLine, e.getCause());
+				result.stop(chunk.firstLine, "Unable to import lines " + chunk.firstLine + " to " + chunk.lastLine
+						+ ", some of them may have been imported: " + e.getCause().getMessage());
+			}
+		}
+		if (readFailure != null) {
+			result.stop(unreadLine,
+					"Unable to read the file from this line on: " + readFailure.getMessage());
+		}
+	}
+
+	private static final class Chunk {
+
+		final long firstLine;
+		final long lastLine;
+		final Future<Result> result;
+
+		Chunk(List<List<Row>> rows, Future<Result> result) {
+			List<Row> last = rows.get(rows.size() - 1);
+			this.firstLine = rows.get(0).get(0).line;
+			this.lastLine = last.get(last.size() - 1).line;
+			this.result = result;
+		}
+	}
+
+	private static final class Row {
+
+		final long line;
+		final String[] fields;
+
+		Row(long line, String[] fields) {
+			this.line = line;
+			this.fields = fields;
+		}
+	}
+
+	/**
+	 * Converts rows to entities of one type and stores them.
+	 */
+	private abstract class Importer<T extends AbstractEntity> {
+
+		final User currentUser;
+		private final Map<String, Integer> columns;
+		private final CrudService<T> service;
+		private final Map<String, String> propertyColumns;
+
+		/**
+		 * @param propertyColumns
+		 *            the columns of the validated properties, by property path
+		 */
+		Importer(User currentUser, Map<String, Integer> columns, CrudService<T> service,
+				Map<String, String> propertyColumns) {
+			this.currentUser = currentUser;
+			this.columns = columns;
+			this.service = service;
+			this.propertyColumns = propertyColumns;
+		}
+
+		/**
+		 * @return whether the row belongs to the same entity as the previous row
+		 */
+		boolean continues(Row previous, Row row) {
+			return false;
+		}
+
+		/**
+		 * @return whether an entity can have more than one row, see
+		 *         {@link #continues(Row, Row)}
+		 */
+		boolean hasMultipleRows() {
+			return false;
+		}
+
+		/**
+		 * Creates a new entity from the given rows.
+		 *
+		 * @return the entity, or {@code null} if the rows are not valid, in
+		 *         which case the errors have been added to the result
+		 */
+		abstract T convert(List<Row> rows, Result result);
+
+		/**
+		 * @return the constraint violations of the entity and the entities it
+		 *         cascades to
+		 */
+		Set<ConstraintViolation<Object>> validate(T entity) {
+			return new HashSet<>(validator.<Object>validate(entity));
+		}
+
+		/**
+		 * Called after all rows have been imported.
+		 */
+		void finish(Result result) {
+		}
+
+		Result importChunk(List<List<Row>> chunk) {
+			Result result = new Result();
+			List<T> entities = new ArrayList<>(chunk.size());
+			List<List<Row>> entityRows = new ArrayList<>(chunk.size());
+			for (List<Row> rows : chunk) {
+				T entity = convert(rows, result);
+				if (entity != null && isValid(entity, rows, result)) {
+					entities.add(entity);
+					entityRows.add(rows);
+				} else {
+					result.rejected++;
+				}
+			}
+			if (entities.isEmpty()) {
+				return result;
+			}
+
+			try {
+				transactionTemplate.executeWithoutResult(status -> service.getRepository().saveAll(entities));
+				result.imported += entities.size();
+			} catch (RuntimeException e) {
+				getLogger().debug("Unable to store a chunk of {} entities, storing them one at a time",
+						entities.size(), e);
+				// The entities of the failed transaction already have ids
+				for (List<Row> rows : entityRows) {
+					save(convert(rows, new Result()), rows.get(0), result);
+				}
+			}
+			result.errors.sort(Comparator.comparingLong(RowError::getLine));
+			return result;
+		}
+
+		private void save(T entity, Row row, Result result) {
+			try {
+				service.save(currentUser, entity);
+				result.imported++;
+			} catch (UserFriendlyDataException e) {
+				result.rejected++;
+				result.addError(row.line, e.getMessage());
+			} catch (RuntimeException e) {
+				getLogger().debug("Unable to store the row on line {}", row.line, e);
+				result.rejected++;
+				result.addError(row.line, "Unable to store the row");
+			}
+		}
+
+		private boolean isValid(T entity, List<Row> rows, Result result) {
+			Set<ConstraintViolation<Object>> violations = validate(entity);
+			for (ConstraintViolation<Object> violation : violations) {
+				String property = violation.getPropertyPath().toString();
+				Row row = rows.get(0);
+				Matcher item = ITEM_PROPERTY.matcher(property);
+				if (item.matches()) {
+					row = rows.get(Integer.parseInt(item.group(1)));
+					property = item.group(2);
+				}
+				result.addError(row.line,
+						propertyColumns.getOrDefault(property, property) + ": " + violation.getMessage());
+			}
+			return violations.isEmpty();
+		}
+
+		/**
+		 * @return the trimmed value of the column, or {@code null} if it is
+		 *         empty or missing
+		 */
+		String value(Row row, String column) {
+			Integer index = columns.get(column);
+			if (index == null || index >= row.fields.length) {
+				return null;
+			}
+			String value = row.fields[index].trim();
+			// The export prefixes values that would start a formula with '
+			if (value.length() > 1 && value.charAt(0) == '\''
+					&& OrderExportService.CSV_FORMULA_START.indexOf(value.charAt(1)) >= 0) {
+				value = value.substring(1);
+			}
+			return value.isEmpty() ? null : value;
+		}
+
+		/**
+		 * Parses the value of a column, adding an error to the result if it is
+		 * required but missing or cannot be parsed.
+		 *
+		 * @param expected
+		 *            describes the expected value, e.g. "a date like 2024-12-24"
+		 * @return the parsed value, or {@code null} if there is none or it is
+		 *         not valid
+		 */
+		<V> V parse(Row row, String column, boolean required, Function<String, V> parser, String expected,
+				Result result) {
+			String value = value(row, column);
+			if (value == null) {
+				if (required) {
+					result.addError(row.line, column + " is missing");
+				}
+				return null;
+			}
+			try {
+				return parser.apply(value);
+			} catch (RuntimeException e) {
+				result.addError(row.line, column + ": '" + value + "' is not " + expected);
+				return null;
+			}
+		}
+
+		Integer parsePrice(Row row, String column, boolean required, Result result) {
+			return parse(row, column, required, value -> new BigDecimal(value).movePointRight(2).intValueExact(),
+					"a price like 12.50", result);
+		}
+	}
+
+	private final class ProductImporter extends Importer<Product> {
+
+		ProductImporter(User currentUser, Map<String, Integer> columns) {
+			super(currentUser, columns, productService, Collections.emptyMap());
+		}
+
+		@Override
+		Product convert(List<Row> rows, Result result) {
+			Row row = rows.get(0);
+			long errors = result.errorCount;
+			Product product = new Product();
+			product.setName(value(row, "name"));
+			product.setPrice(parsePrice(row, "price", true, result));
+			return result.errorCount == errors ? product : null;
+		}
+
+		@Override
+		void finish(Result result) {
+			if (result.imported > 0) {
+				cacheService.evict(null, ProductRepository.QUERY_REGION);
+				productCatalog.refresh();
+			}
+		}
+	}
+
+	private final class OrderImporter extends Importer<Order> {
+
+		private final Map<String, Product> products = new HashMap<>();
+		private final Map<String, PickupLocation> pickupLocations = new HashMap<>();
+
+		OrderImporter(User currentUser, Map<String, Integer> columns) {
+			super(currentUser, columns, orderService, orderPropertyColumns());
+			productRepository.findAll().forEach(p -> products.put(key(p.getName()), p));
+			pickupLocationRepository.findAll().forEach(l -> pickupLocations.put(key(l.getName()), l));
+		}
+
+		@Override
+		boolean continues(Row previous, Row row) {
+			String id = value(row, "order_id");
+			return id != null && id.equals(value(previous, "order_id"));
+		}
+
+		@Override
+		boolean hasMultipleRows() {
+			return true;
+		}
+
+		@Override
+		Order convert(List<Row> rows, Result result) {
+			Row first = rows.get(0);
+			long errors = result.errorCount;
+			Order order = new Order(currentUser);
+			order.setDueDate(parse(first, "due_date", true, LocalDate::parse, "a date like 2024-12-24", result));
+			order.setDueTime(parse(first, "due_time", true, LocalTime::parse, "a time like 16:00", result));
+			order.setPickupLocation(parse(first, "pickup_location", true,
+					name -> lookup(pickupLocations, name), "a pickup location", result));
+			order.getCustomer().setFullName(value(first, "customer_name"));
+			order.getCustomer().setPhoneNumber(value(first, "customer_phone"));
+			order.getCustomer().setDetails(value(first, "customer_details"));
+			OrderState state = parse(first, "state", false, CsvImportService::state, "an order state", result);
+			if (state != null) {
+				order.changeState(currentUser, state);
+			}
+
+			List<OrderItem> items = new ArrayList<>(rows.size());
+			for (Row row : rows) {
+				OrderItem item = new OrderItem();
+				item.setProduct(parse(row, "product", true, name -> lookup(products, name), "a product", result));
+				item.setQuantity(parse(row, "quantity", true, Integer::valueOf, "a whole number", result));
+				Integer unitPrice = parsePrice(row, "unit_price", false, result);
+				if (unitPrice != null) {
+					item.setUnitPrice(unitPrice);
+				}
+				item.setComment(value(row, "comment"));
+				items.add(item);
+			}
+			order.setItems(items);
+			return result.errorCount == errors ? order : null;
+		}
+
+		@Override
+		Set<ConstraintViolation<Object>> validate(Order order) {
+			// The customer is not validated with the order, only when it is
+			// persisted
+			Set<ConstraintViolation<Object>> violations = super.validate(order);
+			violations.addAll(validator.<Object>validate(order.getCustomer()));
+			return violations;
+		}
+
+		private <V> V lookup(Map<String, V> entities, String name) {
+			V entity = entities.get(key(name));
+			if (entity == null) {
+				throw new IllegalArgumentException("Unknown " + name);
+			}
+			return entity;
+		}
+
+	}
+
+	private static OrderState state(String value) {
+		for (OrderState state : OrderState.values()) {
+			if (state.name().equalsIgnoreCase(value) || state.getDisplayName().equalsIgnoreCase(value)) {
+				return state;
+			}
+		}
+		throw new IllegalArgumentException("Unknown state " + value);
+	}
+
+	private static String key(String name) {
+		return name.trim().toLowerCase(Locale.ENGLISH);
+	}
+
+	private static Map<String, String> orderPropertyColumns() {
+		Map<String, String> columns = new HashMap<>();
+		columns.put("dueDate", "due_date");
+		columns.put("dueTime", "due_time");
+		columns.put("pickupLocation", "pickup_location");
+		columns.put("fullName", "customer_name");
+		columns.put("phoneNumber", "customer_phone");
+		columns.put("details", "customer_details");
+		columns.put("quantity", "quantity");
+		columns.put("comment", "comment");
+		return columns;
+	}
+}
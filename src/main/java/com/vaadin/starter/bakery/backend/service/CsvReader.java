@@ -0,0 +1,117 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the records of a CSV file as written by spreadsheets and by
+ * {@link OrderExportService}: comma separated fields, optionally quoted with
+ * {@code "}, where quoted fields may contain commas, doubled quotes and line
+ * breaks (RFC 4180). Lines may end with {@code \r\n} or {@code \n}, and a
+ * leading byte order mark is ignored.
+ */
+final class CsvReader {
+
+	private static final int BOM = '\uFEFF';
+
+	private final Reader reader;
+	private final StringBuilder field = new StringBuilder();
+	// The character after the ones read so far, -1 at the end of the input
+	// and -2 before the first read
+	private int next = -2;
+	private long line = 1;
+	private long recordLine;
+
+	/**
+	 * @param reader
+	 *            the reader to read from, which should be buffered
+	 */
+	CsvReader(Reader reader) {
+		this.reader = reader;
+	}
+
+	/**
+	 * Reads the next record, skipping empty lines.
+	 *
+	 * @return the fields of the record, or {@code null} at the end of the input
+	 * @throws IOException
+	 *             if reading fails or a quoted field is not closed
+	 */
+	String[] next() throws IOException {
+		if (next == -2) {
+			next = reader.read();
+			if (next == BOM) {
+				next = reader.read();
+			}
+		}
+		while (next == '\r' || next == '\n') {
+			skipLineBreak();
+		}
+		if (next == -1) {
+			return null;
+		}
+
+		recordLine = line;
+		List<String> fields = new ArrayList<>();
+		while (true) {
+			field.setLength(0);
+			if (next == '"') {
+				readQuoted();
+			}
+			while (next != ',' && next != '\r' && next != '\n' && next != -1) {
+				field.append((char) next);
+				next = reader.read();
+			}
+			fields.add(field.toString());
+			if (next != ',') {
+				break;
+			}
+			next = reader.read();
+		}
+		if (next != -1) {
+			skipLineBreak();
+		}
+		return fields.toArray(new String[0]);
+	}
+
+	/**
+	 * @return the line number, starting from 1, on which the last record
+	 *         returned by {@link #next()} starts
+	 */
+	long getLine() {
+		return recordLine;
+	}
+
+	private void readQuoted() throws IOException {
+		while (true) {
+			next = reader.read();
+			if (next == -1) {
+				throw new IOException("Unterminated quoted field starting on line " + recordLine);
+			}
+			if (next == '"') {
+				next = reader.read();
+				if (next != '"') {
+					// Anything after the closing quote is kept as is
+					return;
+				}
+			} else if (next == '\n') {
+				line++;
+			}
+			field.append((char) next);
+		}
+	}
+
+	private void skipLineBreak() throws IOException {
+		if (next == '\r') {
+			next = reader.read();
+			if (next == '\n') {
+				next = reader.read();
+			}
+		} else {
+			next = reader.read();
+		}
+		line++;
+	}
+}
@@ -0,0 +1,85 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+/**
+ * Periodically moves delivered and cancelled orders older than
+ * {@code bakery.archive.age} to the archive tables and keeps track of which
+ * dates the archive covers, so that queries only include the archive when
+ * needed.
+ */
+@Service
+public class OrderArchiveService implements HasLogger {
+
+	private static final Set<OrderState> archivedStates = Collections
+			.unmodifiableSet(EnumSet.of(OrderState.DELIVERED, OrderState.CANCELLED));
+
+	private final OrderRepository orderRepository;
+	private final Period age;
+	private final int batchSize;
+
+	private volatile LocalDate latestArchivedDueDate;
+
+	@Autowired
+	public OrderArchiveService(OrderRepository orderRepository, @Value("${bakery.archive.age:P28D}") Period age,
+			@Value("${bakery.archive.batch-size:500}") int batchSize) {
+		this.orderRepository = orderRepository;
+		this.age = age;
+		this.batchSize = batchSize;
+	}
+
+	@PostConstruct
+	void init() {
+		latestArchivedDueDate = orderRepository.findLatestArchivedDueDate().orElse(null);
+	}
+
+	/**
+	 * Moves all delivered and cancelled orders that are older than the
+	 * configured age to the archive, one batch per transaction.
+	 *
+	 * @return the number of archived orders
+	 */
+	@Scheduled(fixedDelayString = "${bakery.archive.interval:PT1H}")
+	public int archive() {
+		LocalDate dueBefore = LocalDate.now().minus(age);
+		int archived = 0;
+		int moved;
+		do {
+			moved = orderRepository.archive(dueBefore, archivedStates, batchSize);
+			archived += moved;
+		} while (moved == batchSize);
+
+		if (archived > 0) {
+			latestArchivedDueDate = orderRepository.findLatestArchivedDueDate().orElse(null);
+			getLogger().info("Archived {} orders due before {}", archived, dueBefore);
+		}
+		return archived;
+	}
+
+	/**
+	 * Checks whether the archive may contain orders due on or after the given
+	 * date.
+	 *
+	 * @param from
+	 *            the first due date of interest, or {@code null} for all orders
+	 */
+	public boolean isNeededFrom(LocalDate from) {
+		LocalDate latest = latestArchivedDueDate;
+		return latest != null && (from == null || !latest.isBefore(from));
+	}
+}
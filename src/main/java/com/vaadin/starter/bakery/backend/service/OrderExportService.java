@@ -0,0 +1,275 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
+
+/**
+ * Exports the orders of a date range, including archived ones, for use outside
+ * of the application.
+ * <p>
+ * The rows are streamed from the database straight to the output, so the
+ * memory used does not depend on the number of exported orders.
+ */
+@Service
+public class OrderExportService implements HasLogger {
+
+	/** The supported export formats. */
+	public enum Format {
+		/** One line per order item, with the order repeated on each line. */
+		CSV("text/csv", "csv"),
+		/** One JSON object per order, with the items nested in it. */
+		JSON_LINES("application/x-ndjson", "jsonl");
+
+		private final String contentType;
+		private final String extension;
+
+		Format(String contentType, String extension) {
+			this.contentType = contentType;
+			this.extension = extension;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	private static final String[] CSV_HEADER = { "order_id", "due_date", "due_time", "state", "total",
+			"customer_name", "customer_phone", "customer_details", "pickup_location", "product", "quantity",
+			"unit_price", "comment" };
+
+	// Spreadsheet applications treat a cell starting with any of these as a formula
+	static final String CSV_FORMULA_START = "=+-@\t\r";
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	// Sends the exported data to the client in chunks instead of all at the end
+	private static final int FLUSH_INTERVAL_ROWS = 1000;
+
+	private static final OrderState[] STATES = OrderState.values();
+
+	private final OrderRepository orderRepository;
+	private final JsonFactory jsonFactory = new JsonFactory();
+
+	@Autowired
+	public OrderExportService(OrderRepository orderRepository) {
+		this.orderRepository = orderRepository;
+	}
+
+	/**
+	 * Writes the orders due in the given range, including archived ones, to the
+	 * given stream. The stream is flushed but not closed.
+	 *
+	 * @param from
+	 *            the first due date, inclusive
+	 * @param to
+	 *            the last due date, inclusive
+	 * @return the number of exported orders
+	 */
+	public long export(LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+		long start = System.currentTimeMillis();
+		Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+		RowWriter rowWriter = format == Format.CSV ? new CsvRowWriter(writer) : new JsonLinesRowWriter(writer);
+		try {
+			orderRepository.forEachOrderItem(from, to, row -> {
+				try {
+					rowWriter.write(row);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (UncheckedIOException e) {
+			// Typically the client went away
+			throw e.getCause();
+		}
+		rowWriter.finish();
+		getLogger().info("Exported {} orders due {} to {} as {} in {} ms", rowWriter.orders, from, to, format,
+				System.currentTimeMillis() - start);
+		return rowWriter.orders;
+	}
+
+	private static BigDecimal price(ResultSet row, String column) throws SQLException {
+		return BigDecimal.valueOf(row.getInt(column), 2);
+	}
+
+	private static String state(ResultSet row) throws SQLException {
+		return STATES[row.getInt("state")].name();
+	}
+
+	private abstract static class RowWriter {
+
+		long orders;
+		private long rows;
+		private long orderId = -1;
+
+		void write(ResultSet row) throws SQLException, IOException {
+			long id = row.getLong("order_id");
+			boolean first = id != orderId;
+			if (first) {
+				orderId = id;
+				orders++;
+			}
+			write(row, first);
+			if (++rows % FLUSH_INTERVAL_ROWS == 0) {
+				flush();
+			}
+		}
+
+		/**
+		 * @param firstItem
+		 *            whether the row is the first one of its order
+		 */
+		abstract void write(ResultSet row, boolean firstItem) throws SQLException, IOException;
+
+		abstract void flush() throws IOException;
+
+		/**
+		 * Writes whatever is still missing after the last row and flushes.
+		 */
+		abstract void finish() throws IOException;
+	}
+
+	private static final class CsvRowWriter extends RowWriter {
+
+		private final Writer writer;
+
+		CsvRowWriter(Writer writer) throws IOException {
+			this.writer = writer;
+			writeLine((Object[]) CSV_HEADER);
+		}
+
+		@Override
+		void write(ResultSet row, boolean firstItem) throws SQLException, IOException {
+			writeLine(row.getLong("order_id"), row.getObject("due_date", LocalDate.class),
+					row.getString("due_time"), state(row), price(row, "total_price"), row.getString("customer_name"),
+					row.getString("customer_phone"), row.getString("customer_details"),
+					row.getString("pickup_location"), row.getString("product"), row.getInt("quantity"),
+					price(row, "unit_price"), row.getString("comment"));
+		}
+
+		private void writeLine(Object... values) throws IOException {
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				if (values[i] instanceof String) {
+					writeValue(escapeFormula((String) values[i]));
+				} else if (values[i] instanceof BigDecimal) {
+					writeValue(((BigDecimal) values[i]).toPlainString());
+				} else if (values[i] != null) {
+					writeValue(values[i].toString());
+				}
+			}
+			writer.write("\r\n");
+		}
+
+		/**
+		 * Prefixes texts that would start a formula with {@code '}, so that e.g. a
+		 * customer name of {@code =HYPERLINK(...)} is shown as it is when the
+		 * export is opened in a spreadsheet.
+		 */
+		private static String escapeFormula(String text) {
+			return !text.isEmpty() && CSV_FORMULA_START.indexOf(text.charAt(0)) >= 0 ? "'" + text : text;
+		}
+
+		private void writeValue(String value) throws IOException {
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+					&& value.indexOf('\r') < 0) {
+				writer.write(value);
+				return;
+			}
+			writer.write('"');
+			writer.write(value.replace("\"", "\"\""));
+			writer.write('"');
+		}
+
+		@Override
+		void flush() throws IOException {
+			writer.flush();
+		}
+
+		@Override
+		void finish() throws IOException {
+			flush();
+		}
+	}
+
+	private final class JsonLinesRowWriter extends RowWriter {
+
+		private final JsonGenerator generator;
+		private boolean open;
+
+		JsonLinesRowWriter(Writer writer) throws IOException {
+			generator = jsonFactory.createGenerator(writer);
+			generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		}
+
+		@Override
+		void write(ResultSet row, boolean firstItem) throws SQLException, IOException {
+			if (firstItem) {
+				endOrder();
+				generator.writeStartObject();
+				generator.writeNumberField("id", row.getLong("order_id"));
+				generator.writeStringField("dueDate", row.getObject("due_date", LocalDate.class).toString());
+				generator.writeStringField("dueTime", row.getString("due_time"));
+				generator.writeStringField("state", state(row));
+				generator.writeNumberField("total", price(row, "total_price"));
+				generator.writeObjectFieldStart("customer");
+				generator.writeStringField("name", row.getString("customer_name"));
+				generator.writeStringField("phone", row.getString("customer_phone"));
+				generator.writeStringField("details", row.getString("customer_details"));
+				generator.writeEndObject();
+				generator.writeStringField("pickupLocation", row.getString("pickup_location"));
+				generator.writeArrayFieldStart("items");
+				open = true;
+			}
+			generator.writeStartObject();
+			generator.writeStringField("product", row.getString("product"));
+			generator.writeNumberField("quantity", row.getInt("quantity"));
+			generator.writeNumberField("unitPrice", price(row, "unit_price"));
+			generator.writeStringField("comment", row.getString("comment"));
+			generator.writeEndObject();
+		}
+
+		private void endOrder() throws IOException {
+			if (open) {
+				generator.writeEndArray();
+				generator.writeEndObject();
+				generator.writeRaw('\n');
+				open = false;
+			}
+		}
+
+		@Override
+		void flush() throws IOException {
+			// Also flushes the writer
+			generator.flush();
+		}
+
+		@Override
+		void finish() throws IOException {
+			endOrder();
+			flush();
+		}
+	}
+}
@@ -4,35 +4,48 @@ import java.time.LocalDate;
 import java.time.LocalTime;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.EnumSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.StringJoiner;
 import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
+import javax.persistence.EntityNotFoundException;
 import javax.transaction.Transactional;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
 
+import com.vaadin.starter.bakery.app.metrics.OperationEvent;
 import com.vaadin.starter.bakery.backend.data.DashboardData;
 import com.vaadin.starter.bakery.backend.data.DeliveryStats;
 import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.data.entity.OrderSummary;
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.HistoryItemRepository;
 import com.vaadin.starter.bakery.backend.repositories.OrderRepository;
 
 @Service
 public class OrderService implements CrudService<Order> {
 
 	private final OrderRepository orderRepository;
+	private final HistoryItemRepository historyItemRepository;
+	private final OrderArchiveService orderArchiveService;
 
     /**
      * Determines a pseudo-random {@link OrderState} for an order based on its due date.
@@ -52,9 +65,12 @@ public class OrderService implements CrudService<Order> {
      */
 
 	@Autowired
-	public OrderService(OrderRepository orderRepository) {
+	public OrderService(OrderRepository orderRepository, HistoryItemRepository historyItemRepository,
+			OrderArchiveService orderArchiveService) {
 		super();
 		this.orderRepository = orderRepository;
+		this.historyItemRepository = historyItemRepository;
+		this.orderArchiveService = orderArchiveService;
 	}
 
 	private static final Set<OrderState> notAvailableStates = Collections.unmodifiableSet(
@@ -79,29 +95,188 @@ public class OrderService implements CrudService<Order> {
      */
 	@Transactional(rollbackOn = Exception.class)
 	public Order saveOrder(User currentUser, Long id, BiConsumer<User, Order> orderFiller) {
-		Order order;
-		if (id == null) {
-			order = new Order(currentUser);
-		} else {
-			order = load(id);
-		}
-		orderFiller.accept(currentUser, order);
-		return orderRepository.save(order);
+		return OperationEvent.recordWithTransaction("OrderService.saveOrder", () -> {
+			Order order;
+			if (id == null) {
+				order = new Order(currentUser);
+			} else {
+				order = load(id);
+				checkNotArchived(order);
+			}
+			orderFiller.accept(currentUser, order);
+			order.updateTotalPrice();
+			return orderRepository.save(order);
+		}, saved -> saved.getItems().size());
 	}
 
 	@Transactional(rollbackOn = Exception.class)
 	public Order saveOrder(Order order) {
-		return orderRepository.save(order);
+		return OperationEvent.recordWithTransaction("OrderService.saveOrder", () -> {
+			checkNotArchived(order);
+			order.updateTotalPrice();
+			return orderRepository.save(order);
+		}, saved -> saved.getItems().size());
+	}
+
+	/**
+	 * Fills in the unit price snapshot of order items stored before it existed
+	 * and recalculates the persisted order totals from the snapshots.
+	 *
+	 * @return the number of order items that were updated
+	 */
+	@Transactional(rollbackOn = Exception.class)
+	public int backfillPrices() {
+		int items = orderRepository.backfillUnitPrices();
+		if (items > 0) {
+			orderRepository.backfillTotalPrices();
+		}
+		return items;
 	}
 
+	/**
+	 * Adds a comment to the history of an order. For persisted orders only the
+	 * new history item is inserted; the items and customer are not written.
+	 */
 	@Transactional(rollbackOn = Exception.class)
 	public Order addComment(User currentUser, Order order, String comment) {
-		order.addHistoryItem(currentUser, comment);
-		return orderRepository.save(order);
+		return OperationEvent.recordWithTransaction("OrderService.addComment", () -> {
+			checkNotArchived(order);
+			HistoryItem item = order.addHistoryItem(currentUser, comment);
+			if (order.getId() == null) {
+				return orderRepository.save(order);
+			}
+			historyItemRepository.append(order, item);
+			return order;
+		}, saved -> 1);
+	}
+
+	/**
+	 * Changes the state of an order, writing only the new state and the
+	 * corresponding history item for persisted orders.
+	 */
+	@Transactional(rollbackOn = Exception.class)
+	public Order changeState(User currentUser, Order order, OrderState state) {
+		checkNotArchived(order);
+		if (order.getState() == state) {
+			return order;
+		}
+		order.changeState(currentUser, state);
+		if (order.getId() == null) {
+			return orderRepository.save(order);
+		}
+		List<HistoryItem> history = order.getHistory();
+		historyItemRepository.append(order, history.get(history.size() - 1));
+		return order;
+	}
+
+	/**
+	 * Changes the state of all orders due on the given date that are in one of
+	 * the given states, adding the corresponding history item to each of them.
+	 * <p>
+	 * The orders are updated with one statement and the history items are
+	 * inserted in batches, all in one transaction. The version of each changed
+	 * order is incremented, so saving a copy loaded before fails as usual.
+	 *
+	 * @param progress
+	 *            called with the number of orders done and the total number of
+	 *            orders to change
+	 * @return the number of changed orders
+	 * @throws OptimisticLockingFailureException
+	 *             if any of the orders was changed concurrently, in which case
+	 *             none of them is changed
+	 */
+	@Transactional(rollbackOn = Exception.class)
+	public int changeStates(User currentUser, LocalDate dueDate, Collection<OrderState> fromStates,
+			OrderState state, BiConsumer<Integer, Integer> progress) {
+		Set<OrderState> states = EnumSet.noneOf(OrderState.class);
+		states.addAll(fromStates);
+		states.remove(state);
+		if (states.isEmpty()) {
+			return 0;
+		}
+
+		List<Long> ids = orderRepository.findIdsByDueDateAndStateIn(dueDate, states);
+		if (ids.isEmpty()) {
+			return 0;
+		}
+		progress.accept(0, ids.size());
+		if (orderRepository.changeState(ids, states, state) != ids.size()) {
+			throw new OptimisticLockingFailureException("Orders due " + dueDate + " were changed concurrently");
+		}
+
+		HistoryItem item = new HistoryItem(currentUser, "Order " + state);
+		item.setNewState(state);
+		historyItemRepository.appendToAll(ids, item, done -> progress.accept(done, ids.size()));
+		return ids.size();
+	}
+
+	public long countByDueDateAndStates(LocalDate dueDate, Collection<OrderState> states) {
+		return states.isEmpty() ? 0 : orderRepository.countByDueDateAndStateIn(dueDate, states);
 	}
 
 	public Page<Order> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
 			Optional<LocalDate> optionalFilterDate, Pageable pageable) {
+		return findAnyMatchingAfterDueDate(optionalFilter, optionalFilterDate, Optional.empty(), Optional.empty(),
+				pageable);
+	}
+
+	public Page<Order> findAnyMatchingAfterDueDate(Optional<String> optionalFilter,
+			Optional<LocalDate> optionalFilterDate, Optional<Integer> optionalMinTotal,
+			Optional<Integer> optionalMaxTotal, Pageable pageable) {
+		return OperationEvent.record("OrderService.findAnyMatchingAfterDueDate",
+				() -> describeFilter(optionalFilter, optionalFilterDate, optionalMinTotal, optionalMaxTotal),
+				() -> findMatchingAfterDueDate(optionalFilter, optionalFilterDate, optionalMinTotal,
+						optionalMaxTotal, pageable),
+				(event, page) -> event.succeeded(page.getNumberOfElements()));
+	}
+
+	/**
+	 * Describes which criteria of an order search are given, without their
+	 * values, e.g. {@code name+dueDate}.
+	 */
+	private static String describeFilter(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate,
+			Optional<Integer> optionalMinTotal, Optional<Integer> optionalMaxTotal) {
+		StringJoiner shape = new StringJoiner("+");
+		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+			shape.add("name");
+		}
+		if (optionalFilterDate.isPresent()) {
+			shape.add("dueDate");
+		}
+		if (optionalMinTotal.isPresent() || optionalMaxTotal.isPresent()) {
+			shape.add("total");
+		}
+		return shape.length() == 0 ? "none" : shape.toString();
+	}
+
+	private Page<Order> findMatchingAfterDueDate(Optional<String> optionalFilter,
+			Optional<LocalDate> optionalFilterDate, Optional<Integer> optionalMinTotal,
+			Optional<Integer> optionalMaxTotal, Pageable pageable) {
+		if (isArchiveNeeded(optionalFilterDate)) {
+			return orderRepository.findAllIncludingArchive(optionalFilter.filter(f -> !f.isEmpty()).orElse(null),
+					optionalFilterDate.orElse(null), optionalMinTotal.orElse(null), optionalMaxTotal.orElse(null),
+					pageable);
+		}
+		if (optionalMinTotal.isPresent() || optionalMaxTotal.isPresent()) {
+			int minTotal = optionalMinTotal.orElse(0);
+			int maxTotal = optionalMaxTotal.orElse(Integer.MAX_VALUE);
+			if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+				if (optionalFilterDate.isPresent()) {
+					return orderRepository.findByCustomerFullNameContainingIgnoreCaseAndDueDateAfterAndTotalPriceBetween(
+							optionalFilter.get(), optionalFilterDate.get(), minTotal, maxTotal, pageable);
+				} else {
+					return orderRepository.findByCustomerFullNameContainingIgnoreCaseAndTotalPriceBetween(
+							optionalFilter.get(), minTotal, maxTotal, pageable);
+				}
+			} else {
+				if (optionalFilterDate.isPresent()) {
+					return orderRepository.findByDueDateAfterAndTotalPriceBetween(optionalFilterDate.get(), minTotal,
+							maxTotal, pageable);
+				} else {
+					return orderRepository.findByTotalPriceBetween(minTotal, maxTotal, pageable);
+				}
+			}
+		}
 		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
 			if (optionalFilterDate.isPresent()) {
 				return orderRepository.findByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(
@@ -124,18 +299,55 @@ public class OrderService implements CrudService<Order> {
 	}
 
 	public long countAnyMatchingAfterDueDate(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate) {
-		if (optionalFilter.isPresent() && optionalFilterDate.isPresent()) {
-			return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(optionalFilter.get(),
-					optionalFilterDate.get());
-		} else if (optionalFilter.isPresent()) {
-			return orderRepository.countByCustomerFullNameContainingIgnoreCase(optionalFilter.get());
-		} else if (optionalFilterDate.isPresent()) {
-			return orderRepository.countByDueDateAfter(optionalFilterDate.get());
+		return countAnyMatchingAfterDueDate(optionalFilter, optionalFilterDate, Optional.empty(), Optional.empty());
+	}
+
+	public long countAnyMatchingAfterDueDate(Optional<String> optionalFilter, Optional<LocalDate> optionalFilterDate,
+			Optional<Integer> optionalMinTotal, Optional<Integer> optionalMaxTotal) {
+		if (isArchiveNeeded(optionalFilterDate)) {
+			return orderRepository.countIncludingArchive(optionalFilter.filter(f -> !f.isEmpty()).orElse(null),
+					optionalFilterDate.orElse(null), optionalMinTotal.orElse(null), optionalMaxTotal.orElse(null));
+		}
+		if (optionalMinTotal.isPresent() || optionalMaxTotal.isPresent()) {
+			int minTotal = optionalMinTotal.orElse(0);
+			int maxTotal = optionalMaxTotal.orElse(Integer.MAX_VALUE);
+			if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+				if (optionalFilterDate.isPresent()) {
+					return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndDueDateAfterAndTotalPriceBetween(
+							optionalFilter.get(), optionalFilterDate.get(), minTotal, maxTotal);
+				} else {
+					return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndTotalPriceBetween(
+							optionalFilter.get(), minTotal, maxTotal);
+				}
+			} else {
+				if (optionalFilterDate.isPresent()) {
+					return orderRepository.countByDueDateAfterAndTotalPriceBetween(optionalFilterDate.get(), minTotal,
+							maxTotal);
+				} else {
+					return orderRepository.countByTotalPriceBetween(minTotal, maxTotal);
+				}
+			}
+		}
+		if (optionalFilter.isPresent() && !optionalFilter.get().isEmpty()) {
+			if (optionalFilterDate.isPresent()) {
+				return orderRepository.countByCustomerFullNameContainingIgnoreCaseAndDueDateAfter(optionalFilter.get(),
+						optionalFilterDate.get());
+			} else {
+				return orderRepository.countByCustomerFullNameContainingIgnoreCase(optionalFilter.get());
+			}
 		} else {
-			return orderRepository.count();
+			if (optionalFilterDate.isPresent()) {
+				return orderRepository.countByDueDateAfter(optionalFilterDate.get());
+			} else {
+				return orderRepository.count();
+			}
 		}
 	}
 
+	private boolean isArchiveNeeded(Optional<LocalDate> optionalFilterDate) {
+		return orderArchiveService.isNeededFrom(optionalFilterDate.map(date -> date.plusDays(1)).orElse(null));
+	}
+
 	private DeliveryStats getDeliveryStats() {
 		DeliveryStats stats = new DeliveryStats();
 		LocalDate today = LocalDate.now();
@@ -151,6 +363,11 @@ public class OrderService implements CrudService<Order> {
 	}
 
 	public DashboardData getDashboardData(int month, int year) {
+		return OperationEvent.record("OrderService.getDashboardData", () -> loadDashboardData(month, year),
+				data -> -1);
+	}
+
+	private DashboardData loadDashboardData(int month, int year) {
 		DashboardData data = new DashboardData();
 		data.setDeliveryStats(getDeliveryStats());
 		data.setDeliveriesThisMonth(getDeliveriesPerDay(month, year));
@@ -159,6 +376,9 @@ public class OrderService implements CrudService<Order> {
 		Number[][] salesPerMonth = new Number[3][12];
 		data.setSalesPerMonth(salesPerMonth);
 		List<Object[]> sales = orderRepository.sumPerMonthLastThreeYears(OrderState.DELIVERED, year);
+		if (orderArchiveService.isNeededFrom(LocalDate.of(year - 3, 1, 1))) {
+			sales = sumByKey(sales, orderRepository.sumArchivedPerMonthLastThreeYears(OrderState.DELIVERED, year), 2);
+		}
 
 		for (Object[] salesData : sales) {
 			// year, month, deliveries
@@ -174,7 +394,12 @@ public class OrderService implements CrudService<Order> {
 
 		LinkedHashMap<Product, Integer> productDeliveries = new LinkedHashMap<>();
 		data.setProductDeliveries(productDeliveries);
-		for (Object[] result : orderRepository.countPerProduct(OrderState.DELIVERED, year, month)) {
+		List<Object[]> products = orderRepository.countPerProduct(OrderState.DELIVERED, year, month);
+		if (orderArchiveService.isNeededFrom(LocalDate.of(year, month, 1))) {
+			products = sumPerProduct(products,
+					orderRepository.countArchivedPerProduct(OrderState.DELIVERED, year, month));
+		}
+		for (Object[] result : products) {
 			int sum = ((Long) result[0]).intValue();
 			Product p = (Product) result[1];
 			productDeliveries.put(p, sum);
@@ -185,12 +410,53 @@ public class OrderService implements CrudService<Order> {
 
 	private List<Number> getDeliveriesPerDay(int month, int year) {
 		int daysInMonth = YearMonth.of(year, month).lengthOfMonth();
-		return flattenAndReplaceMissingWithNull(daysInMonth,
-				orderRepository.countPerDay(OrderState.DELIVERED, year, month));
+		List<Object[]> deliveries = orderRepository.countPerDay(OrderState.DELIVERED, year, month);
+		if (orderArchiveService.isNeededFrom(LocalDate.of(year, month, 1))) {
+			deliveries = sumByKey(deliveries, orderRepository.countArchivedPerDay(OrderState.DELIVERED, year, month), 1);
+		}
+		return flattenAndReplaceMissingWithNull(daysInMonth, deliveries);
 	}
 
 	private List<Number> getDeliveriesPerMonth(int year) {
-		return flattenAndReplaceMissingWithNull(12, orderRepository.countPerMonth(OrderState.DELIVERED, year));
+		List<Object[]> deliveries = orderRepository.countPerMonth(OrderState.DELIVERED, year);
+		if (orderArchiveService.isNeededFrom(LocalDate.of(year, 1, 1))) {
+			deliveries = sumByKey(deliveries, orderRepository.countArchivedPerMonth(OrderState.DELIVERED, year), 1);
+		}
+		return flattenAndReplaceMissingWithNull(12, deliveries);
+	}
+
+	/**
+	 * Merges the rows of an aggregate query on the order tables with the rows
+	 * of its archived counterpart. The first {@code keyColumns} columns of each
+	 * row are the key, the last one is the {@code Long} value, which is summed
+	 * for equal keys.
+	 */
+	private static List<Object[]> sumByKey(List<Object[]> rows, List<Object[]> archivedRows, int keyColumns) {
+		Map<List<Object>, Object[]> merged = new LinkedHashMap<>();
+		for (List<Object[]> list : Arrays.asList(rows, archivedRows)) {
+			for (Object[] row : list) {
+				merged.merge(Arrays.asList(row).subList(0, keyColumns), row.clone(), (a, b) -> {
+					a[keyColumns] = ((Number) a[keyColumns]).longValue() + ((Number) b[keyColumns]).longValue();
+					return a;
+				});
+			}
+		}
+		return new ArrayList<>(merged.values());
+	}
+
+	/**
+	 * Merges the product quantities of the order tables with the ones of the
+	 * archive, keeping them ordered by product id.
+	 */
+	private static List<Object[]> sumPerProduct(List<Object[]> rows, List<Object[]> archivedRows) {
+		Map<Product, Long> quantities = new LinkedHashMap<>();
+		for (List<Object[]> list : Arrays.asList(rows, archivedRows)) {
+			for (Object[] row : list) {
+				quantities.merge((Product) row[1], (Long) row[0], Long::sum);
+			}
+		}
+		return quantities.entrySet().stream().sorted(Comparator.comparing(e -> e.getKey().getId()))
+				.map(e -> new Object[] { e.getValue(), e.getKey() }).collect(Collectors.toList());
 	}
 
 	private List<Number> flattenAndReplaceMissingWithNull(int length, List<Object[]> list) {
@@ -205,6 +471,29 @@ public class OrderService implements CrudService<Order> {
 		return counts;
 	}
 
+	@Override
+	@Transactional(rollbackOn = Exception.class)
+	public Order save(User currentUser, Order entity) {
+		checkNotArchived(entity);
+		entity.updateTotalPrice();
+		return orderRepository.saveAndFlush(entity);
+	}
+
+	/**
+	 * Loads an order, falling back to the archive if it has been archived.
+	 */
+	@Override
+	public Order load(long id) {
+		return orderRepository.findById(id).orElseGet(
+				() -> orderRepository.findArchivedById(id).orElseThrow(EntityNotFoundException::new));
+	}
+
+	private static void checkNotArchived(Order order) {
+		if (order.isArchived()) {
+			throw new UserFriendlyDataException("Archived orders cannot be changed.");
+		}
+	}
+
 	@Override
 	public JpaRepository<Order, Long> getRepository() {
 		return orderRepository;
@@ -17,10 +17,12 @@ import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
 public class PickupLocationService implements FilterableCrudService<PickupLocation>{
 
 	private final PickupLocationRepository pickupLocationRepository;
+	private final CacheService cacheService;
 
 	@Autowired
-	public PickupLocationService(PickupLocationRepository pickupLocationRepository) {
+	public PickupLocationService(PickupLocationRepository pickupLocationRepository, CacheService cacheService) {
 		this.pickupLocationRepository = pickupLocationRepository;
+		this.cacheService = cacheService;
 	}
 
 	public Page<PickupLocation> findAnyMatching(Optional<String> filter, Pageable pageable) {
@@ -50,6 +52,19 @@ public class PickupLocationService implements FilterableCrudService<PickupLocati
 		return pickupLocationRepository;
 	}
 
+	@Override
+	public PickupLocation save(User currentUser, PickupLocation entity) {
+		PickupLocation pickupLocation = FilterableCrudService.super.save(currentUser, entity);
+		cacheService.evict(pickupLocation, PickupLocationRepository.QUERY_REGION);
+		return pickupLocation;
+	}
+
+	@Override
+	public void delete(User currentUser, PickupLocation entity) {
+		FilterableCrudService.super.delete(currentUser, entity);
+		cacheService.evict(entity, PickupLocationRepository.QUERY_REGION);
+	}
+
 	@Override
 	public PickupLocation createNew(User currentUser) {
 		return new PickupLocation();
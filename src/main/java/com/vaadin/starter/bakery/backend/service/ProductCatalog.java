@@ -0,0 +1,184 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+
+/**
+ * All products kept in memory for picking products in the order editors
+ * without querying the database on every key stroke.
+ * <p>
+ * The catalog is an immutable {@link Snapshot} that is replaced as a whole
+ * whenever products are saved or deleted, so readers always see a consistent
+ * set of products. Products are ordered by popularity, i.e. by how many of the
+ * current orders contain them, which is only counted again by
+ * {@link #refresh()}.
+ */
+@Service
+public class ProductCatalog {
+
+	private final ProductRepository productRepository;
+
+	private volatile Snapshot snapshot;
+
+	@Autowired
+	public ProductCatalog(ProductRepository productRepository) {
+		this.productRepository = productRepository;
+	}
+
+	/**
+	 * Reloads the products and their popularity from the database. Also run
+	 * periodically, as the popularity changes with new orders.
+	 */
+	@Scheduled(fixedDelayString = "${bakery.catalog.refresh-interval:PT1H}",
+			initialDelayString = "${bakery.catalog.refresh-interval:PT1H}")
+	public synchronized void refresh() {
+		Map<Long, Long> popularity = new HashMap<>();
+		for (Object[] row : productRepository.countOrderItemsPerProduct()) {
+			popularity.put((Long) row[0], (Long) row[1]);
+		}
+		long version = snapshot == null ? 1 : snapshot.getVersion() + 1;
+		snapshot = new Snapshot(version, productRepository.findAll(),
+				product -> popularity.getOrDefault(product.getId(), 0L));
+	}
+
+	/**
+	 * Adds a saved product, or replaces the product with the same id keeping
+	 * its popularity.
+	 *
+	 * @param product
+	 *            the saved product
+	 */
+	public synchronized void update(Product product) {
+		if (snapshot != null) {
+			snapshot = snapshot.replace(product.getId(), product);
+		}
+	}
+
+	/**
+	 * Removes a deleted product.
+	 *
+	 * @param product
+	 *            the deleted product
+	 */
+	public synchronized void remove(Product product) {
+		if (snapshot != null) {
+			snapshot = snapshot.replace(product.getId(), null);
+		}
+	}
+
+	/**
+	 * @return the current contents of the catalog, loaded on first use
+	 */
+	public Snapshot getSnapshot() {
+		Snapshot current = snapshot;
+		if (current == null) {
+			synchronized (this) {
+				if (snapshot == null) {
+					refresh();
+				}
+				current = snapshot;
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * An immutable version of the catalog.
+	 */
+	public static final class Snapshot {
+
+		private final long version;
+		private final List<Product> products;
+		private final long[] popularity;
+		private final String[] names;
+
+		Snapshot(long version, List<Product> products, ToLongFunction<Product> popularity) {
+			this.version = version;
+			List<Product> sorted = new ArrayList<>(products);
+			sorted.sort(Comparator.comparingLong(popularity).reversed().thenComparing(Product::getName,
+					String.CASE_INSENSITIVE_ORDER));
+			this.products = Collections.unmodifiableList(sorted);
+			this.popularity = sorted.stream().mapToLong(popularity).toArray();
+			this.names = sorted.stream().map(product -> product.getName().toLowerCase(Locale.ROOT))
+					.toArray(String[]::new);
+		}
+
+		/**
+		 * Creates the next version without the product with the given id, and
+		 * with the added product, if any, which gets the popularity of the
+		 * removed one.
+		 */
+		Snapshot replace(Long id, Product added) {
+			Map<Product, Long> kept = new IdentityHashMap<>();
+			long addedPopularity = 0;
+			for (int i = 0; i < popularity.length; i++) {
+				if (id != null && id.equals(products.get(i).getId())) {
+					addedPopularity = popularity[i];
+				} else {
+					kept.put(products.get(i), popularity[i]);
+				}
+			}
+			if (added != null) {
+				kept.put(added, addedPopularity);
+			}
+			return new Snapshot(version + 1, new ArrayList<>(kept.keySet()), kept::get);
+		}
+
+		/**
+		 * @return a number that is incremented each time the catalog changes
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		/**
+		 * Finds the products whose name contains the given text, ignoring case.
+		 * Products with a word starting with the text come first, otherwise the
+		 * products are in order of popularity.
+		 *
+		 * @param filter
+		 *            the text to search for, or {@code null} for all products
+		 */
+		public List<Product> find(String filter) {
+			if (filter == null || filter.isEmpty()) {
+				return products;
+			}
+			String text = filter.toLowerCase(Locale.ROOT);
+			List<Product> wordMatches = new ArrayList<>();
+			List<Product> otherMatches = new ArrayList<>();
+			for (int i = 0; i < names.length; i++) {
+				int index = names[i].indexOf(text);
+				if (index == 0 || index > 0 && isWordStart(names[i], text)) {
+					wordMatches.add(products.get(i));
+				} else if (index > 0) {
+					otherMatches.add(products.get(i));
+				}
+			}
+			wordMatches.addAll(otherMatches);
+			return wordMatches;
+		}
+
+		private static boolean isWordStart(String name, String text) {
+			for (int index = name.indexOf(text); index >= 0; index = name.indexOf(text, index + 1)) {
+				if (index == 0 || name.charAt(index - 1) == ' ') {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+}
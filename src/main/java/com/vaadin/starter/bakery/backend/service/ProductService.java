@@ -17,10 +17,15 @@ import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
 public class ProductService implements FilterableCrudService<Product> {
 
 	private final ProductRepository productRepository;
+	private final CacheService cacheService;
+	private final ProductCatalog productCatalog;
 
 	@Autowired
-	public ProductService(ProductRepository productRepository) {
+	public ProductService(ProductRepository productRepository, CacheService cacheService,
+			ProductCatalog productCatalog) {
 		this.productRepository = productRepository;
+		this.cacheService = cacheService;
+		this.productCatalog = productCatalog;
 	}
 
 	@Override
@@ -60,7 +65,10 @@ public class ProductService implements FilterableCrudService<Product> {
 	@Override
 	public Product save(User currentUser, Product entity) {
 		try {
-			return FilterableCrudService.super.save(currentUser, entity);
+			Product product = FilterableCrudService.super.save(currentUser, entity);
+			cacheService.evict(product, ProductRepository.QUERY_REGION);
+			productCatalog.update(product);
+			return product;
 		} catch (DataIntegrityViolationException e) {
 			throw new UserFriendlyDataException(
 					"There is already a product with that name. Please select a unique name for the product.");
@@ -68,4 +76,11 @@ public class ProductService implements FilterableCrudService<Product> {
 
 	}
 
+	@Override
+	public void delete(User currentUser, Product entity) {
+		FilterableCrudService.super.delete(currentUser, entity);
+		cacheService.evict(entity, ProductRepository.QUERY_REGION);
+		productCatalog.remove(entity);
+	}
+
 }
@@ -0,0 +1,109 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds the ids of texts containing a given text, ignoring case, without
+ * scanning all texts. Each text is split into all of its three character
+ * sequences, and only the texts containing every sequence of the searched text
+ * are compared. Shorter searches compare all texts.
+ * <p>
+ * Not thread safe.
+ */
+final class TrigramIndex {
+
+	private final Map<Long, Integer> documents = new HashMap<>();
+	private final Deque<Integer> freeDocuments = new ArrayDeque<>();
+	private final Map<Long, BitSet> postings = new HashMap<>();
+	private final BitSet live = new BitSet();
+	private long[] ids = new long[16];
+	private String[] texts = new String[16];
+	private int length;
+
+	/**
+	 * Adds a text, replacing any previous text with the same id.
+	 */
+	void put(long id, String text) {
+		remove(id);
+		Integer document = freeDocuments.poll();
+		if (document == null) {
+			document = length++;
+			if (document == ids.length) {
+				ids = Arrays.copyOf(ids, ids.length * 2);
+				texts = Arrays.copyOf(texts, texts.length * 2);
+			}
+		}
+		String normalized = text.toLowerCase(Locale.ROOT);
+		ids[document] = id;
+		texts[document] = normalized;
+		live.set(document);
+		documents.put(id, document);
+		for (int i = 0; i + 3 <= normalized.length(); i++) {
+			postings.computeIfAbsent(trigram(normalized, i), key -> new BitSet()).set(document);
+		}
+	}
+
+	void remove(long id) {
+		Integer document = documents.remove(id);
+		if (document == null) {
+			return;
+		}
+		String text = texts[document];
+		for (int i = 0; i + 3 <= text.length(); i++) {
+			long key = trigram(text, i);
+			BitSet documentsWithTrigram = postings.get(key);
+			// Already removed if the trigram occurs more than once
+			if (documentsWithTrigram == null) {
+				continue;
+			}
+			documentsWithTrigram.clear(document);
+			if (documentsWithTrigram.isEmpty()) {
+				postings.remove(key);
+			}
+		}
+		texts[document] = null;
+		live.clear(document);
+		freeDocuments.push(document);
+	}
+
+	/**
+	 * @return the ids of the texts containing the given text, in ascending order
+	 */
+	long[] find(String text) {
+		String normalized = text.toLowerCase(Locale.ROOT);
+		BitSet candidates = (BitSet) live.clone();
+		for (int i = 0; i + 3 <= normalized.length() && !candidates.isEmpty(); i++) {
+			BitSet documentsWithTrigram = postings.get(trigram(normalized, i));
+			if (documentsWithTrigram == null) {
+				return new long[0];
+			}
+			candidates.and(documentsWithTrigram);
+		}
+
+		long[] found = new long[candidates.cardinality()];
+		int count = 0;
+		for (int document = candidates.nextSetBit(0); document >= 0; document = candidates
+				.nextSetBit(document + 1)) {
+			if (texts[document].contains(normalized)) {
+				found[count++] = ids[document];
+			}
+		}
+		found = Arrays.copyOf(found, count);
+		Arrays.sort(found);
+		return found;
+	}
+
+	int size() {
+		return documents.size();
+	}
+
+	private static long trigram(String text, int index) {
+		return (long) text.charAt(index) << 32 | (long) text.charAt(index + 1) << 16 | text.charAt(index + 2);
+	}
+}
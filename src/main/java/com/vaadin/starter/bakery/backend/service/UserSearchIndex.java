@@ -0,0 +1,201 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+
+/**
+ * In-memory search index of the e-mail addresses, names and roles of all users,
+ * replacing a {@code LIKE '%text%'} query on each of the columns.
+ * <p>
+ * The index is loaded on first use and then kept up to date by
+ * {@link UserService}, so users must not be changed by other means while the
+ * application is running.
+ */
+@Service
+public class UserSearchIndex {
+
+	// Keeps a search from matching across the end of one field and the start of the next
+	private static final String FIELD_SEPARATOR = "\n";
+
+	// The indexed fields, in the order of UserRepository.findSearchFields
+	private static final List<String> FIELDS = Arrays.asList("email", "firstName", "lastName", "role");
+
+	private final UserRepository userRepository;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private TrigramIndex index;
+	// The values of the fields by user id, for sorting
+	private Map<Long, String[]> values;
+
+	@Autowired
+	public UserSearchIndex(UserRepository userRepository) {
+		this.userRepository = userRepository;
+	}
+
+	/**
+	 * Finds the users with an e-mail address, first name, last name or role
+	 * containing the given text, ignoring case.
+	 *
+	 * @param filter
+	 *            the text to search for
+	 * @return the ids of the matching users, in ascending order
+	 */
+	public long[] find(String filter) {
+		return read(() -> index.find(filter));
+	}
+
+	/**
+	 * Finds the users with an e-mail address, first name, last name or role
+	 * containing the given text, ignoring case, in the given order.
+	 *
+	 * @param filter
+	 *            the text to search for
+	 * @param sort
+	 *            the order of the users, by {@code id} or any of the searched
+	 *            fields, {@code email}, {@code firstName}, {@code lastName} and
+	 *            {@code role}
+	 * @return the ids of the matching users, in the given order and then in
+	 *         ascending order
+	 * @throws IllegalArgumentException
+	 *             if the users are sorted by another property
+	 */
+	public long[] find(String filter, Sort sort) {
+		Comparator<Long> comparator = comparator(sort);
+		return read(() -> Arrays.stream(index.find(filter)).boxed().sorted(comparator).mapToLong(Long::longValue)
+				.toArray());
+	}
+
+	/**
+	 * Adds or updates a saved user, once the current transaction, if any, has
+	 * been committed.
+	 */
+	public void update(User user) {
+		long id = user.getId();
+		String[] fields = { user.getEmail(), user.getFirstName(), user.getLastName(), user.getRole() };
+		afterCommit(() -> change(() -> {
+			index.put(id, text(fields));
+			values.put(id, fields);
+		}));
+	}
+
+	/**
+	 * Removes a deleted user, once the current transaction, if any, has been
+	 * committed.
+	 */
+	public void remove(User user) {
+		long id = user.getId();
+		afterCommit(() -> change(() -> {
+			index.remove(id);
+			values.remove(id);
+		}));
+	}
+
+	private <T> T read(Supplier<T> reader) {
+		lock.readLock().lock();
+		try {
+			if (index != null) {
+				return reader.get();
+			}
+		} finally {
+			lock.readLock().unlock();
+		}
+		lock.writeLock().lock();
+		try {
+			if (index == null) {
+				load();
+			}
+			return reader.get();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void load() {
+		TrigramIndex loadedIndex = new TrigramIndex();
+		Map<Long, String[]> loadedValues = new HashMap<>();
+		for (Object[] row : userRepository.findSearchFields()) {
+			String[] fields = { (String) row[1], (String) row[2], (String) row[3], (String) row[4] };
+			loadedIndex.put((Long) row[0], text(fields));
+			loadedValues.put((Long) row[0], fields);
+		}
+		values = loadedValues;
+		index = loadedIndex;
+	}
+
+	private void change(Runnable change) {
+		lock.writeLock().lock();
+		try {
+			// Not loaded yet, the change is read from the database when it is
+			if (index != null) {
+				change.run();
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	// Only used while holding the lock, as it reads the values
+	private Comparator<Long> comparator(Sort sort) {
+		Comparator<Long> comparator = null;
+		for (Sort.Order order : sort) {
+			Comparator<Long> next;
+			if ("id".equals(order.getProperty())) {
+				next = Comparator.naturalOrder();
+			} else {
+				int field = FIELDS.indexOf(order.getProperty());
+				if (field < 0) {
+					throw new IllegalArgumentException("Users cannot be sorted by " + order.getProperty());
+				}
+				Comparator<String> byValue = Comparator.nullsFirst(
+						order.isIgnoreCase() ? String.CASE_INSENSITIVE_ORDER : Comparator.<String>naturalOrder());
+				next = Comparator.comparing(id -> values.get(id)[field], byValue);
+			}
+			if (order.isDescending()) {
+				next = next.reversed();
+			}
+			comparator = comparator == null ? next : comparator.thenComparing(next);
+		}
+		return comparator == null ? Comparator.naturalOrder() : comparator.thenComparing(Comparator.naturalOrder());
+	}
+
+	private static void afterCommit(Runnable runnable) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					runnable.run();
+				}
+			});
+		} else {
+			runnable.run();
+		}
+	}
+
+	private static String text(String... fields) {
+		StringBuilder text = new StringBuilder();
+		for (String field : fields) {
+			if (text.length() > 0) {
+				text.append(FIELD_SEPARATOR);
+			}
+			if (field != null) {
+				text.append(field);
+			}
+		}
+		return text.toString();
+	}
+}
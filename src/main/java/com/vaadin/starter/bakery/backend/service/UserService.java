@@ -1,13 +1,18 @@
 package com.vaadin.starter.bakery.backend.service;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.vaadin.starter.bakery.app.security.CurrentUserCache;
 import com.vaadin.starter.bakery.backend.data.entity.User;
 import com.vaadin.starter.bakery.backend.repositories.UserRepository;
 
@@ -17,18 +22,22 @@ public class UserService implements FilterableCrudService<User> {
 	public static final String MODIFY_LOCKED_USER_NOT_PERMITTED = "User has been locked and cannot be modified or deleted";
 	private static final String DELETING_SELF_NOT_PERMITTED = "You cannot delete your own account";
 	private final UserRepository userRepository;
+	private final CacheService cacheService;
+	private final CurrentUserCache currentUserCache;
+	private final UserSearchIndex searchIndex;
 
 	@Autowired
-	public UserService(UserRepository userRepository) {
+	public UserService(UserRepository userRepository, CacheService cacheService,
+			CurrentUserCache currentUserCache, UserSearchIndex searchIndex) {
 		this.userRepository = userRepository;
+		this.cacheService = cacheService;
+		this.currentUserCache = currentUserCache;
+		this.searchIndex = searchIndex;
 	}
 
 	public Page<User> findAnyMatching(Optional<String> filter, Pageable pageable) {
 		if (filter.isPresent()) {
-			String repositoryFilter = "%" + filter.get() + "%";
-			return getRepository()
-					.findByEmailLikeIgnoreCaseOrFirstNameLikeIgnoreCaseOrLastNameLikeIgnoreCaseOrRoleLikeIgnoreCase(
-							repositoryFilter, repositoryFilter, repositoryFilter, repositoryFilter, pageable);
+			return findByIds(searchIndex.find(filter.get(), pageable.getSort()), pageable);
 		} else {
 			return find(pageable);
 		}
@@ -37,14 +46,29 @@ public class UserService implements FilterableCrudService<User> {
 	@Override
 	public long countAnyMatching(Optional<String> filter) {
 		if (filter.isPresent()) {
-			String repositoryFilter = "%" + filter.get() + "%";
-			return userRepository.countByEmailLikeIgnoreCaseOrFirstNameLikeIgnoreCaseOrLastNameLikeIgnoreCaseOrRoleLikeIgnoreCase(
-					repositoryFilter, repositoryFilter, repositoryFilter, repositoryFilter);
+			return searchIndex.find(filter.get()).length;
 		} else {
 			return count();
 		}
 	}
 
+	/**
+	 * Loads a page of the users with the given ids, which are already in the
+	 * order of the page, so only the users of the page are loaded.
+	 */
+	private Page<User> findByIds(long[] ids, Pageable pageable) {
+		int from = pageable.isPaged() ? (int) Math.min(pageable.getOffset(), ids.length) : 0;
+		int to = pageable.isPaged() ? Math.min(from + pageable.getPageSize(), ids.length) : ids.length;
+		List<Long> pageIds = new ArrayList<>(to - from);
+		for (int i = from; i < to; i++) {
+			pageIds.add(ids[i]);
+		}
+
+		List<User> users = new ArrayList<>(getRepository().findAllById(pageIds));
+		users.sort(Comparator.comparing(user -> pageIds.indexOf(user.getId())));
+		return new PageImpl<>(users, pageable, ids.length);
+	}
+
 	@Override
 	public UserRepository getRepository() {
 		return userRepository;
@@ -57,7 +81,11 @@ public class UserService implements FilterableCrudService<User> {
 	@Override
 	public User save(User currentUser, User entity) {
 		throwIfUserLocked(entity);
-		return getRepository().saveAndFlush(entity);
+		User user = getRepository().saveAndFlush(entity);
+		cacheService.evict(user, UserRepository.QUERY_REGION);
+		currentUserCache.invalidate(user);
+		searchIndex.update(user);
+		return user;
 	}
 
 	@Override
@@ -66,6 +94,30 @@ public class UserService implements FilterableCrudService<User> {
 		throwIfDeletingSelf(currentUser, userToDelete);
 		throwIfUserLocked(userToDelete);
 		FilterableCrudService.super.delete(currentUser, userToDelete);
+		cacheService.evict(userToDelete, UserRepository.QUERY_REGION);
+		currentUserCache.invalidate(userToDelete);
+		searchIndex.remove(userToDelete);
+	}
+
+	/**
+	 * Replaces the password hash of a user, e.g. when the password has been
+	 * hashed again with a different cost. Unlike {@link #save(User, User)} this
+	 * is also done for locked users, as the password itself is unchanged.
+	 *
+	 * @param email
+	 *            the e-mail address of the user
+	 * @param passwordHash
+	 *            the new hash of the same password
+	 */
+	@Transactional
+	public void updatePasswordHash(String email, String passwordHash) {
+		User user = getRepository().findByEmailIgnoreCase(email);
+		if (user != null) {
+			user.setPasswordHash(passwordHash);
+			getRepository().saveAndFlush(user);
+			cacheService.evict(user, UserRepository.QUERY_REGION);
+			currentUserCache.invalidate(user);
+		}
 	}
 
 	private void throwIfDeletingSelf(User currentUser, User user) {
@@ -1,8 +1,13 @@
 package com.vaadin.starter.bakery.ui;
 
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_DASHBOARD;
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_IMPORT;
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_LOGOUT;
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_ORDER_EXPORT;
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_ORDER_STATES;
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_PRODUCTS;
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_SESSION_LOCKS;
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_SLOW_QUERIES;
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_STOREFRONT;
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.TITLE_USERS;
 
@@ -30,7 +35,12 @@ import com.vaadin.flow.server.VaadinServletRequest;
 import com.vaadin.flow.server.auth.AccessAnnotationChecker;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 import com.vaadin.starter.bakery.ui.views.HasConfirmation;
+import com.vaadin.starter.bakery.ui.views.admin.imports.CsvImportView;
+import com.vaadin.starter.bakery.ui.views.admin.orders.OrderExportView;
+import com.vaadin.starter.bakery.ui.views.admin.orders.OrderStatesView;
 import com.vaadin.starter.bakery.ui.views.admin.products.ProductsView;
+import com.vaadin.starter.bakery.ui.views.admin.queries.SlowQueriesView;
+import com.vaadin.starter.bakery.ui.views.admin.sessions.SessionLocksView;
 import com.vaadin.starter.bakery.ui.views.admin.users.UsersView;
 import com.vaadin.starter.bakery.ui.views.dashboard.DashboardView;
 import com.vaadin.starter.bakery.ui.views.storefront.StorefrontView;
@@ -116,7 +126,7 @@ public class MainView extends AppLayout {
 	}
 
 	private Tab[] getAvailableTabs() {
-		final List<Tab> tabs = new ArrayList<>(4);
+		final List<Tab> tabs = new ArrayList<>(10);
 		tabs.add(createTab(VaadinIcon.EDIT, TITLE_STOREFRONT, StorefrontView.class));
 		tabs.add(createTab(VaadinIcon.CLOCK, TITLE_DASHBOARD, DashboardView.class));
 		if (accessChecker.hasAccess(UsersView.class,
@@ -127,6 +137,26 @@ public class MainView extends AppLayout {
 				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
 			tabs.add(createTab(VaadinIcon.CALENDAR, TITLE_PRODUCTS, ProductsView.class));
 		}
+		if (accessChecker.hasAccess(OrderStatesView.class,
+				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
+			tabs.add(createTab(VaadinIcon.TASKS, TITLE_ORDER_STATES, OrderStatesView.class));
+		}
+		if (accessChecker.hasAccess(OrderExportView.class,
+				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
+			tabs.add(createTab(VaadinIcon.DOWNLOAD, TITLE_ORDER_EXPORT, OrderExportView.class));
+		}
+		if (accessChecker.hasAccess(CsvImportView.class,
+				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
+			tabs.add(createTab(VaadinIcon.UPLOAD, TITLE_IMPORT, CsvImportView.class));
+		}
+		if (accessChecker.hasAccess(SlowQueriesView.class,
+				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
+			tabs.add(createTab(VaadinIcon.DATABASE, TITLE_SLOW_QUERIES, SlowQueriesView.class));
+		}
+		if (accessChecker.hasAccess(SessionLocksView.class,
+				VaadinServletRequest.getCurrent().getHttpServletRequest())) {
+			tabs.add(createTab(VaadinIcon.LOCK, TITLE_SESSION_LOCKS, SessionLocksView.class));
+		}
 		final String contextPath = VaadinServlet.getCurrent().getServletContext().getContextPath();
 		final Tab logoutTab = createTab(createLogoutLink(contextPath));
 		logoutTab.setId("logout-tab");
@@ -3,6 +3,7 @@ package com.vaadin.starter.bakery.ui.crud;
 import com.vaadin.flow.component.crud.Crud;
 import com.vaadin.flow.component.crud.CrudEditor;
 import com.vaadin.flow.component.crud.CrudI18n;
+import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.html.Div;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
@@ -19,6 +20,7 @@ import com.vaadin.starter.bakery.ui.views.HasNotifications;
 
 import java.util.function.Consumer;
 
+@JsModule("./src/page-load-beacon.js")
 public abstract class AbstractBakeryCrudView<E extends AbstractEntity> extends VerticalLayout
         implements HasUrlParameter<Long>, HasNotifications {
 
@@ -76,6 +78,9 @@ public abstract class AbstractBakeryCrudView<E extends AbstractEntity> extends V
         setupCrudEventListeners(entityPresenter);
 
         add(searchBar, crud);
+
+        // Reports the page load to the server, which aggregates it with PageLoadMetrics
+        getElement().executeJs("window.Vaadin.Bakery.measurePageLoad(this, $0)", grid.getElement());
     }
 
     private void setupCrudEventListeners(CrudEntityPresenter<E> entityPresenter) {
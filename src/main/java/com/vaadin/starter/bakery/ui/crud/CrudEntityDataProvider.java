@@ -2,10 +2,12 @@ package com.vaadin.starter.bakery.ui.crud;
 
 import java.util.List;
 
+import com.vaadin.starter.bakery.app.metrics.OperationEvent;
 import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
 import com.vaadin.starter.bakery.backend.service.FilterableCrudService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.util.ClassUtils;
 import org.vaadin.artur.spring.dataprovider.FilterablePageableDataProvider;
 
 import com.vaadin.flow.data.provider.Query;
@@ -16,10 +18,16 @@ public class CrudEntityDataProvider<T extends AbstractEntity> extends Filterable
 
 	private final FilterableCrudService<T> crudService;
 	private List<QuerySortOrder> defaultSortOrders;
+	// E.g. CrudEntityDataProvider(ProductService).fetchFromBackEnd
+	private final String fetchOperation;
+	private final String sizeOperation;
 
 	public CrudEntityDataProvider(FilterableCrudService<T> crudService) {
 		this.crudService = crudService;
 		setSortOrders();
+		String name = "CrudEntityDataProvider(" + ClassUtils.getUserClass(crudService).getSimpleName() + ")";
+		fetchOperation = name + ".fetchFromBackEnd";
+		sizeOperation = name + ".sizeInBackEnd";
 	}
 
 	private void setSortOrders() {
@@ -30,7 +38,9 @@ public class CrudEntityDataProvider<T extends AbstractEntity> extends Filterable
 
 	@Override
 	protected Page<T> fetchFromBackEnd(Query<T, String> query, Pageable pageable) {
-		return crudService.findAnyMatching(query.getFilter(), pageable);
+		return OperationEvent.record(fetchOperation, () -> describe(query),
+				() -> crudService.findAnyMatching(query.getFilter(), pageable),
+				(event, page) -> event.succeeded(page.getNumberOfElements()));
 	}
 
 	@Override
@@ -40,7 +50,12 @@ public class CrudEntityDataProvider<T extends AbstractEntity> extends Filterable
 
 	@Override
 	protected int sizeInBackEnd(Query<T, String> query) {
-		return (int) crudService.countAnyMatching(query.getFilter());
+		return OperationEvent.record(sizeOperation, () -> describe(query),
+				() -> (int) crudService.countAnyMatching(query.getFilter()), (event, size) -> event.succeeded(size));
+	}
+
+	private static String describe(Query<?, String> query) {
+		return query.getFilter().filter(filter -> !filter.isEmpty()).isPresent() ? "name" : "none";
 	}
 
 }
@@ -17,6 +17,7 @@ import com.vaadin.flow.data.provider.QuerySortOrder;
 import com.vaadin.flow.data.provider.QuerySortOrderBuilder;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.flow.spring.annotation.UIScope;
+import com.vaadin.starter.bakery.app.metrics.OperationEvent;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
@@ -31,6 +32,8 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 	public static class OrderFilter implements Serializable {
 		private String filter;
 		private boolean showPrevious;
+		private Integer minTotal;
+		private Integer maxTotal;
 
 		public String getFilter() {
 			return filter;
@@ -40,9 +43,23 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 			return showPrevious;
 		}
 
+		public Integer getMinTotal() {
+			return minTotal;
+		}
+
+		public Integer getMaxTotal() {
+			return maxTotal;
+		}
+
 		public OrderFilter(String filter, boolean showPrevious) {
+			this(filter, showPrevious, null, null);
+		}
+
+		public OrderFilter(String filter, boolean showPrevious, Integer minTotal, Integer maxTotal) {
 			this.filter = filter;
 			this.showPrevious = showPrevious;
+			this.minTotal = minTotal;
+			this.maxTotal = maxTotal;
 		}
 
 		public static OrderFilter getEmptyFilter() {
@@ -50,6 +67,30 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 		}
 	}
 
+	/**
+	 * The orderings offered in the storefront. Only {@link #DUE_DATE} keeps the
+	 * orders grouped by the date headers.
+	 */
+	public enum OrderSort {
+		DUE_DATE("Due date", BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS),
+		TOTAL_ASCENDING("Total, lowest first", Sort.Direction.ASC, BakeryConst.ORDER_TOTAL_SORT_FIELDS),
+		TOTAL_DESCENDING("Total, highest first", Sort.Direction.DESC, BakeryConst.ORDER_TOTAL_SORT_FIELDS);
+
+		private final String displayName;
+		private final Sort.Direction direction;
+		private final String[] properties;
+
+		OrderSort(String displayName, Sort.Direction direction, String[] properties) {
+			this.displayName = displayName;
+			this.direction = direction;
+			this.properties = properties;
+		}
+
+		public String getDisplayName() {
+			return displayName;
+		}
+	}
+
 	private final OrderService orderService;
 	private List<QuerySortOrder> defaultSortOrders;
 	private Consumer<Page<Order>> pageObserver;
@@ -60,6 +101,11 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 		setSortOrders(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
 	}
 
+	public void setSort(OrderSort sort) {
+		setSortOrders(sort.direction, sort.properties);
+		refreshAll();
+	}
+
 	private void setSortOrders(Sort.Direction direction, String[] properties) {
 		QuerySortOrderBuilder builder = new QuerySortOrderBuilder();
 		for (String property : properties) {
@@ -75,12 +121,16 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 	@Override
 	protected Page<Order> fetchFromBackEnd(Query<Order, OrderFilter> query, Pageable pageable) {
 		OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
-		Page<Order> page = orderService.findAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()),
-				getFilterDate(filter.isShowPrevious()), pageable);
-		if (pageObserver != null) {
-			pageObserver.accept(page);
-		}
-		return page;
+		// The filter is recorded by the event of the order service
+		return OperationEvent.record("OrdersGridDataProvider.fetchFromBackEnd", () -> {
+			Page<Order> page = orderService.findAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()),
+					getFilterDate(filter.isShowPrevious()), Optional.ofNullable(filter.getMinTotal()),
+					Optional.ofNullable(filter.getMaxTotal()), pageable);
+			if (pageObserver != null) {
+				pageObserver.accept(page);
+			}
+			return page;
+		}, Page::getNumberOfElements);
 	}
 
 	@Override
@@ -91,8 +141,11 @@ public class OrdersGridDataProvider extends FilterablePageableDataProvider<Order
 	@Override
 	protected int sizeInBackEnd(Query<Order, OrderFilter> query) {
 		OrderFilter filter = query.getFilter().orElse(OrderFilter.getEmptyFilter());
-		return (int) orderService
-				.countAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()), getFilterDate(filter.isShowPrevious()));
+		return OperationEvent.record("OrdersGridDataProvider.sizeInBackEnd",
+				() -> (int) orderService.countAnyMatchingAfterDueDate(Optional.ofNullable(filter.getFilter()),
+						getFilterDate(filter.isShowPrevious()), Optional.ofNullable(filter.getMinTotal()),
+						Optional.ofNullable(filter.getMaxTotal())),
+				size -> size);
 	}
 
 	private Optional<LocalDate> getFilterDate(boolean showPrevious) {
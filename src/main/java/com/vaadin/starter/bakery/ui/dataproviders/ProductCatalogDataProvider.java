@@ -0,0 +1,50 @@
+package com.vaadin.starter.bakery.ui.dataproviders;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import com.vaadin.flow.data.provider.AbstractBackEndDataProvider;
+import com.vaadin.flow.data.provider.Query;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.service.ProductCatalog;
+
+/**
+ * Product data provider for the order item combo boxes, filtering the in-memory
+ * {@link ProductCatalog} instead of querying the database.
+ */
+public class ProductCatalogDataProvider extends AbstractBackEndDataProvider<Product, String> {
+
+	private final ProductCatalog productCatalog;
+
+	// The size and the items of the same filter are fetched one after the
+	// other, so the last result is kept for as long as the catalog is unchanged
+	private long version;
+	private String filter;
+	private List<Product> products;
+
+	public ProductCatalogDataProvider(ProductCatalog productCatalog) {
+		this.productCatalog = productCatalog;
+	}
+
+	@Override
+	protected Stream<Product> fetchFromBackEnd(Query<Product, String> query) {
+		return find(query).stream().skip(query.getOffset()).limit(query.getLimit());
+	}
+
+	@Override
+	protected int sizeInBackEnd(Query<Product, String> query) {
+		return find(query).size();
+	}
+
+	private List<Product> find(Query<Product, String> query) {
+		ProductCatalog.Snapshot snapshot = productCatalog.getSnapshot();
+		String queryFilter = query.getFilter().orElse(null);
+		if (products == null || version != snapshot.getVersion() || !Objects.equals(filter, queryFilter)) {
+			products = snapshot.find(queryFilter);
+			version = snapshot.getVersion();
+			filter = queryFilter;
+		}
+		return products;
+	}
+}
@@ -22,15 +22,26 @@ public class BakeryConst {
 	public static final String PAGE_DASHBOARD = "dashboard";
 	public static final String PAGE_USERS = "users";
 	public static final String PAGE_PRODUCTS = "products";
+	public static final String PAGE_ORDER_STATES = "order-states";
+	public static final String PAGE_ORDER_EXPORT = "order-export";
+	public static final String PAGE_IMPORT = "import";
+	public static final String PAGE_SLOW_QUERIES = "slow-queries";
+	public static final String PAGE_SESSION_LOCKS = "session-locks";
 
 	public static final String TITLE_STOREFRONT = "Storefront";
 	public static final String TITLE_DASHBOARD = "Dashboard";
 	public static final String TITLE_USERS = "Users";
 	public static final String TITLE_PRODUCTS = "Products";
+	public static final String TITLE_ORDER_STATES = "Order states";
+	public static final String TITLE_ORDER_EXPORT = "Order export";
+	public static final String TITLE_IMPORT = "Import";
+	public static final String TITLE_SLOW_QUERIES = "Slow queries";
+	public static final String TITLE_SESSION_LOCKS = "Session locks";
 	public static final String TITLE_LOGOUT = "Logout";
 	public static final String TITLE_NOT_FOUND = "Page was not found";
 
 	public static final String[] ORDER_SORT_FIELDS = {"dueDate", "dueTime", "id"};
+	public static final String[] ORDER_TOTAL_SORT_FIELDS = {"totalPrice", "id"};
 	public static final Sort.Direction DEFAULT_SORT_DIRECTION = Sort.Direction.ASC;
 
 	public static final String VIEWPORT = "width=device-width, minimum-scale=1, initial-scale=1, user-scalable=yes, viewport-fit=cover";
@@ -0,0 +1,153 @@
+package com.vaadin.starter.bakery.ui.views.admin.imports;
+
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_IMPORT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.component.upload.Upload;
+import com.vaadin.flow.component.upload.receivers.FileBuffer;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.Command;
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.app.security.CurrentUser;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.service.CsvImportService;
+import com.vaadin.starter.bakery.backend.service.CsvImportService.Result;
+import com.vaadin.starter.bakery.backend.service.CsvImportService.RowError;
+import com.vaadin.starter.bakery.backend.service.CsvImportService.Type;
+import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+import com.vaadin.starter.bakery.ui.views.HasNotifications;
+
+/**
+ * Imports new products or orders from a CSV file, e.g. one saved from a
+ * spreadsheet, and lists the rows that could not be imported. The file is
+ * imported in the background, without holding the session lock.
+ */
+@Route(value = PAGE_IMPORT, layout = MainView.class)
+@PageTitle(BakeryConst.TITLE_IMPORT)
+@RolesAllowed(Role.ADMIN)
+public class CsvImportView extends VerticalLayout implements HasNotifications, HasLogger {
+
+	private static final int POLL_INTERVAL = 500;
+
+	private final ComboBox<Type> type = new ComboBox<>("Import");
+	private final Span columns = new Span();
+	private final FileBuffer buffer = new FileBuffer();
+	private final Upload upload = new Upload(buffer);
+	private final ProgressBar progressBar = new ProgressBar();
+	private final Span summary = new Span();
+	private final Grid<RowError> errors = new Grid<>();
+
+	private final CsvImportService csvImportService;
+	private final CurrentUser currentUser;
+	private final TaskExecutor taskExecutor;
+
+	@Autowired
+	public CsvImportView(CsvImportService csvImportService, CurrentUser currentUser,
+			@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor) {
+		this.csvImportService = csvImportService;
+		this.currentUser = currentUser;
+		this.taskExecutor = taskExecutor;
+
+		type.setItems(Type.values());
+		type.setItemLabelGenerator(t -> t == Type.PRODUCTS ? "Products" : "Orders, one line per item");
+		type.setValue(Type.ORDERS);
+		type.setAllowCustomValue(false);
+		type.addValueChangeListener(e -> updateColumns());
+
+		upload.setAcceptedFileTypes("text/csv", ".csv");
+		upload.addSucceededListener(e -> importFile(buffer.getFileData().getFile(), e.getFileName()));
+		progressBar.setIndeterminate(true);
+		progressBar.setVisible(false);
+
+		errors.addColumn(RowError::getLine).setHeader("Line").setFlexGrow(0).setWidth("6em");
+		errors.addColumn(RowError::getMessage).setHeader("Error");
+		errors.setVisible(false);
+
+		add(new FormLayout(type, columns), upload, progressBar, summary, errors);
+		updateColumns();
+	}
+
+	private void updateColumns() {
+		columns.setText(type.getValue() == null ? ""
+				: "Required columns: " + String.join(", ", type.getValue().getRequiredColumns()));
+		upload.setVisible(type.getValue() != null);
+	}
+
+	private void importFile(File file, String fileName) {
+		UI ui = UI.getCurrent();
+		User user = currentUser.getUser();
+		Type selectedType = type.getValue();
+
+		setRunning(ui, true);
+		taskExecutor.execute(() -> {
+			try (InputStream in = Files.newInputStream(file.toPath())) {
+				Result result = csvImportService.importCsv(user, selectedType, in);
+				access(ui, () -> showResult(fileName, result));
+			} catch (IOException | RuntimeException e) {
+				getLogger().warn("Unable to import {}", fileName, e);
+				access(ui, () -> showNotification("Unable to import " + fileName + ": " + e.getMessage(), true));
+			} finally {
+				file.delete();
+				access(ui, () -> setRunning(ui, false));
+			}
+		});
+	}
+
+	private void showResult(String fileName, Result result) {
+		String what = type.getValue() == Type.PRODUCTS ? "products" : "orders";
+		String text = "Imported " + result.getImported() + " " + what + " from " + fileName;
+		if (result.getRejected() > 0) {
+			text += ", " + result.getRejected() + " rejected";
+		}
+		if (!result.isComplete()) {
+			text += ". Not all lines could be imported, see the errors";
+		}
+		if (result.getErrorCount() > result.getErrors().size()) {
+			text += ". Showing the first " + result.getErrors().size() + " of " + result.getErrorCount() + " errors";
+		}
+		summary.setText(text);
+		errors.setItems(result.getErrors());
+		errors.setVisible(!result.getErrors().isEmpty());
+	}
+
+	private void setRunning(UI ui, boolean running) {
+		progressBar.setVisible(running);
+		type.setReadOnly(running);
+		upload.setVisible(!running && type.getValue() != null);
+		if (running) {
+			summary.setText("");
+			errors.setVisible(false);
+		}
+		ui.setPollInterval(running ? POLL_INTERVAL : -1);
+	}
+
+	private static void access(UI ui, Command command) {
+		try {
+			ui.access(command);
+		} catch (UIDetachedException e) {
+			// The user has left, the imported rows are visible in the other views
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package com.vaadin.starter.bakery.ui.views.admin.orders;
+
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_ORDER_EXPORT;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.datepicker.DatePicker;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.StreamResource;
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.service.OrderExportService;
+import com.vaadin.starter.bakery.backend.service.OrderExportService.Format;
+import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+
+/**
+ * Downloads the orders of a date range, e.g. for accounting. The file is
+ * written while it is downloaded, without holding the session lock.
+ */
+@Route(value = PAGE_ORDER_EXPORT, layout = MainView.class)
+@PageTitle(BakeryConst.TITLE_ORDER_EXPORT)
+@RolesAllowed(Role.ADMIN)
+public class OrderExportView extends VerticalLayout implements HasLogger {
+
+	private final DatePicker from = new DatePicker("From due date");
+	private final DatePicker to = new DatePicker("To due date");
+	private final ComboBox<Format> format = new ComboBox<>("Format");
+	private final Anchor download = new Anchor();
+	private final Button downloadButton = new Button("Export orders");
+
+	private final OrderExportService orderExportService;
+
+	@Autowired
+	public OrderExportView(OrderExportService orderExportService) {
+		this.orderExportService = orderExportService;
+
+		LocalDate lastMonth = LocalDate.now().minusMonths(1);
+		from.setValue(lastMonth.withDayOfMonth(1));
+		to.setValue(lastMonth.withDayOfMonth(lastMonth.lengthOfMonth()));
+		format.setItems(Format.values());
+		format.setItemLabelGenerator(f -> f == Format.CSV ? "CSV, one line per item" : "JSON Lines, one line per order");
+		format.setValue(Format.CSV);
+		format.setAllowCustomValue(false);
+
+		from.addValueChangeListener(e -> updateDownload());
+		to.addValueChangeListener(e -> updateDownload());
+		format.addValueChangeListener(e -> updateDownload());
+
+		downloadButton.getElement().setAttribute("theme", "primary");
+		download.getElement().setAttribute("download", true);
+		download.add(downloadButton);
+
+		add(new FormLayout(from, to, format), download);
+		updateDownload();
+	}
+
+	private void updateDownload() {
+		LocalDate fromDate = from.getValue();
+		LocalDate toDate = to.getValue();
+		Format selectedFormat = format.getValue();
+		boolean valid = fromDate != null && toDate != null && selectedFormat != null && !toDate.isBefore(fromDate);
+		downloadButton.setEnabled(valid);
+		if (!valid) {
+			download.removeHref();
+			return;
+		}
+
+		String fileName = "orders-" + fromDate + "-" + toDate + "." + selectedFormat.getExtension();
+		StreamResource resource = new StreamResource(fileName, (out, session) -> {
+			try {
+				orderExportService.export(fromDate, toDate, selectedFormat, out);
+			} catch (IOException e) {
+				getLogger().info("Order export {} aborted: {}", fileName, e.getMessage());
+				throw new UncheckedIOException(e);
+			}
+		});
+		resource.setContentType(selectedFormat.getContentType());
+		resource.setCacheTime(0);
+		download.setHref(resource);
+	}
+}
@@ -0,0 +1,166 @@
+package com.vaadin.starter.bakery.ui.views.admin.orders;
+
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_ORDER_STATES;
+
+import java.time.LocalDate;
+import java.util.EnumSet;
+import java.util.Set;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.checkbox.CheckboxGroup;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
+import com.vaadin.flow.component.datepicker.DatePicker;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.progressbar.ProgressBar;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.flow.server.Command;
+import com.vaadin.starter.bakery.app.HasLogger;
+import com.vaadin.starter.bakery.app.security.CurrentUser;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+import com.vaadin.starter.bakery.ui.utils.messages.CrudErrorMessage;
+import com.vaadin.starter.bakery.ui.views.HasNotifications;
+
+/**
+ * Changes the state of all orders due on a given day at once, e.g. to mark all
+ * of today's ready orders delivered at the end of the day.
+ */
+@Route(value = PAGE_ORDER_STATES, layout = MainView.class)
+@PageTitle(BakeryConst.TITLE_ORDER_STATES)
+@RolesAllowed(Role.ADMIN)
+public class OrderStatesView extends VerticalLayout implements HasNotifications, HasLogger {
+
+	private static final int POLL_INTERVAL = 500;
+
+	private final DatePicker dueDate = new DatePicker("Due date");
+	private final CheckboxGroup<OrderState> fromStates = new CheckboxGroup<>();
+	private final ComboBox<OrderState> toState = new ComboBox<>("Change to");
+	private final Span matching = new Span();
+	private final Button apply = new Button("Change states");
+	private final ProgressBar progressBar = new ProgressBar();
+
+	private final OrderService orderService;
+	private final CurrentUser currentUser;
+	private final TaskExecutor taskExecutor;
+
+	@Autowired
+	public OrderStatesView(OrderService orderService, CurrentUser currentUser,
+			@Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor) {
+		this.orderService = orderService;
+		this.currentUser = currentUser;
+		this.taskExecutor = taskExecutor;
+
+		dueDate.setValue(LocalDate.now());
+		fromStates.setLabel("Orders in state");
+		fromStates.setItems(OrderState.values());
+		fromStates.setItemLabelGenerator(OrderState::getDisplayName);
+		fromStates.setValue(EnumSet.of(OrderState.READY));
+		toState.setItems(OrderState.values());
+		toState.setItemLabelGenerator(OrderState::getDisplayName);
+		toState.setValue(OrderState.DELIVERED);
+		toState.setAllowCustomValue(false);
+
+		dueDate.addValueChangeListener(e -> updateMatching());
+		fromStates.addValueChangeListener(e -> updateMatching());
+		toState.addValueChangeListener(e -> updateMatching());
+
+		apply.getElement().setAttribute("theme", "primary");
+		apply.addClickListener(e -> confirm());
+		progressBar.setVisible(false);
+
+		add(new FormLayout(dueDate, toState, fromStates), matching, apply, progressBar);
+		updateMatching();
+	}
+
+	private void updateMatching() {
+		long count = getMatchingCount();
+		matching.setText(count == 1 ? "1 order will be changed" : count + " orders will be changed");
+		apply.setEnabled(count > 0);
+	}
+
+	private long getMatchingCount() {
+		if (dueDate.getValue() == null || toState.getValue() == null) {
+			return 0;
+		}
+		return orderService.countByDueDateAndStates(dueDate.getValue(), getFromStates());
+	}
+
+	private Set<OrderState> getFromStates() {
+		Set<OrderState> states = EnumSet.noneOf(OrderState.class);
+		states.addAll(fromStates.getValue());
+		states.remove(toState.getValue());
+		return states;
+	}
+
+	private void confirm() {
+		ConfirmDialog dialog = new ConfirmDialog("Change order states",
+				matching.getText() + " to " + toState.getValue().getDisplayName() + ".", "Change",
+				e -> changeStates());
+		dialog.setCancelable(true);
+		dialog.open();
+	}
+
+	private void changeStates() {
+		UI ui = UI.getCurrent();
+		User user = currentUser.getUser();
+		LocalDate date = dueDate.getValue();
+		Set<OrderState> states = getFromStates();
+		OrderState state = toState.getValue();
+
+		setRunning(ui, true);
+		taskExecutor.execute(() -> {
+			try {
+				int changed = orderService.changeStates(user, date, states, state,
+						(done, total) -> access(ui, () -> progressBar.setValue((double) done / total)));
+				access(ui, () -> showNotification(
+						(changed == 1 ? "1 order" : changed + " orders") + " changed to " + state.getDisplayName()));
+			} catch (OptimisticLockingFailureException e) {
+				access(ui, () -> showNotification(CrudErrorMessage.CONCURRENT_UPDATE, true));
+			} catch (RuntimeException e) {
+				getLogger().error("Unable to change order states", e);
+				access(ui, () -> showNotification("Unable to change order states", true));
+			} finally {
+				access(ui, () -> {
+					setRunning(ui, false);
+					updateMatching();
+				});
+			}
+		});
+	}
+
+	private void setRunning(UI ui, boolean running) {
+		progressBar.setValue(0);
+		progressBar.setVisible(running);
+		apply.setEnabled(!running);
+		dueDate.setReadOnly(running);
+		fromStates.setReadOnly(running);
+		toState.setReadOnly(running);
+		ui.setPollInterval(running ? POLL_INTERVAL : -1);
+	}
+
+	private static void access(UI ui, Command command) {
+		try {
+			ui.access(command);
+		} catch (UIDetachedException e) {
+			// The user has left, the result is visible next time the view is opened
+		}
+	}
+}
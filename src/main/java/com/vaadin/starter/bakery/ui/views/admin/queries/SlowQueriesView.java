@@ -0,0 +1,82 @@
+package com.vaadin.starter.bakery.ui.views.admin.queries;
+
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_SLOW_QUERIES;
+
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.html.Pre;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.data.renderer.ComponentRenderer;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.starter.bakery.app.metrics.SlowQuery;
+import com.vaadin.starter.bakery.app.metrics.SlowQueryLog;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+
+/**
+ * Lists the latest slow JDBC statements of the {@link SlowQueryLog}. Clicking
+ * a statement shows its SQL and execution plan.
+ */
+@Route(value = PAGE_SLOW_QUERIES, layout = MainView.class)
+@PageTitle(BakeryConst.TITLE_SLOW_QUERIES)
+@RolesAllowed(Role.ADMIN)
+public class SlowQueriesView extends VerticalLayout {
+
+	private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+			.withZone(ZoneId.systemDefault());
+
+	private final Span summary = new Span();
+	private final Grid<SlowQuery> queries = new Grid<>();
+
+	private final SlowQueryLog slowQueryLog;
+
+	@Autowired
+	public SlowQueriesView(SlowQueryLog slowQueryLog) {
+		this.slowQueryLog = slowQueryLog;
+
+		queries.addColumn(q -> TIME_FORMATTER.format(q.getTime())).setHeader("Time").setFlexGrow(0).setWidth("12em");
+		queries.addColumn(q -> q.getDuration().toMillis()).setHeader("ms").setFlexGrow(0).setWidth("6em");
+		queries.addColumn(q -> q.getName() != null ? q.getName() : q.getSql()).setHeader("Query").setFlexGrow(3);
+		queries.addColumn(SlowQuery::getCaller).setHeader("Caller").setFlexGrow(1);
+		queries.addColumn(SlowQuery::getParameters).setHeader("Parameters").setFlexGrow(1);
+		queries.setItemDetailsRenderer(new ComponentRenderer<>(SlowQueriesView::createDetails));
+
+		Button refresh = new Button("Refresh", VaadinIcon.REFRESH.create(), e -> refresh());
+		add(new HorizontalLayout(summary, refresh), queries);
+		setHeightFull();
+		refresh();
+	}
+
+	private void refresh() {
+		List<SlowQuery> recent = slowQueryLog.getRecent();
+		if (!slowQueryLog.isEnabled()) {
+			summary.setText("The slow query log is turned off");
+		} else {
+			summary.setText(recent.size() + " latest statements that took at least "
+					+ slowQueryLog.getThreshold().toMillis() + " ms");
+		}
+		queries.setItems(recent);
+	}
+
+	private static Div createDetails(SlowQuery query) {
+		Pre sql = new Pre(query.getSql());
+		Pre plan = new Pre(query.getPlan() != null ? query.getPlan() : "No execution plan was captured");
+		sql.getStyle().set("white-space", "pre-wrap");
+		plan.getStyle().set("white-space", "pre-wrap");
+		return new Div(sql, plan);
+	}
+}
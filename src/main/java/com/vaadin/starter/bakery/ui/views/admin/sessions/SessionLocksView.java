@@ -0,0 +1,72 @@
+package com.vaadin.starter.bakery.ui.views.admin.sessions;
+
+import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_SESSION_LOCKS;
+
+import javax.annotation.security.RolesAllowed;
+
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.vaadin.flow.component.button.Button;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.html.Span;
+import com.vaadin.flow.component.icon.VaadinIcon;
+import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.PageTitle;
+import com.vaadin.flow.router.Route;
+import com.vaadin.starter.bakery.app.metrics.SessionLockProfiler;
+import com.vaadin.starter.bakery.app.metrics.SessionLockProfiler.HolderStats;
+import com.vaadin.starter.bakery.app.metrics.SessionLockProfiler.SessionStats;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.ui.MainView;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+
+/**
+ * Shows the UI methods that held Vaadin session locks the longest, and the
+ * lock wait and hold times of the current sessions, from the
+ * {@link SessionLockProfiler}.
+ */
+@Route(value = PAGE_SESSION_LOCKS, layout = MainView.class)
+@PageTitle(BakeryConst.TITLE_SESSION_LOCKS)
+@RolesAllowed(Role.ADMIN)
+public class SessionLocksView extends VerticalLayout {
+
+	private final Span summary = new Span();
+	private final Grid<HolderStats> holders = new Grid<>();
+	private final Grid<SessionStats> sessions = new Grid<>();
+
+	private final SessionLockProfiler profiler;
+
+	@Autowired
+	public SessionLocksView(SessionLockProfiler profiler) {
+		this.profiler = profiler;
+
+		holders.addColumn(HolderStats::getHolder).setHeader("Method holding the lock").setFlexGrow(3);
+		holders.addColumn(HolderStats::getHolds).setHeader("Slow holds");
+		holders.addColumn(h -> h.getHold().toMillis()).setHeader("Total ms");
+		holders.addColumn(h -> h.getMaxHold().toMillis()).setHeader("Max ms");
+
+		sessions.addColumn(s -> s.getUser() != null ? s.getUser() : "Not signed in").setHeader("User")
+				.setFlexGrow(2);
+		sessions.addColumn(SessionStats::getAcquisitions).setHeader("Locked");
+		sessions.addColumn(s -> s.getWait().toMillis()).setHeader("Wait ms");
+		sessions.addColumn(s -> s.getMaxWait().toMillis()).setHeader("Max wait ms");
+		sessions.addColumn(s -> s.getHold().toMillis()).setHeader("Hold ms");
+		sessions.addColumn(s -> s.getMaxHold().toMillis()).setHeader("Max hold ms");
+
+		Button refresh = new Button("Refresh", VaadinIcon.REFRESH.create(), e -> refresh());
+		add(new HorizontalLayout(summary, refresh), new H3("Slow holds"), holders, new H3("Sessions"), sessions);
+		refresh();
+	}
+
+	private void refresh() {
+		if (!profiler.isEnabled()) {
+			summary.setText("Session lock profiling is turned off");
+		} else {
+			summary.setText("Holds of at least " + profiler.getThreshold().toMillis() + " ms");
+		}
+		holders.setItems(profiler.getHolders());
+		sessions.setItems(profiler.getSessions());
+	}
+}
@@ -2,30 +2,87 @@ package com.vaadin.starter.bakery.ui.views.admin.users;
 
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_USERS;
 
-import javax.annotation.PostConstruct;
 import javax.annotation.security.RolesAllowed;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.crypto.password.PasswordEncoder;
 
-import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.combobox.ComboBox;
+import com.vaadin.flow.component.crud.BinderCrudEditor;
+import com.vaadin.flow.component.formlayout.FormLayout;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.textfield.EmailField;
+import com.vaadin.flow.component.textfield.PasswordField;
+import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.data.binder.BeanValidationBinder;
 import com.vaadin.flow.router.PageTitle;
 import com.vaadin.flow.router.Route;
+import com.vaadin.starter.bakery.app.security.CurrentUser;
 import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.service.UserService;
 import com.vaadin.starter.bakery.ui.MainView;
-import com.vaadin.starter.bakery.ui.components.GridComponent;
+import com.vaadin.starter.bakery.ui.crud.AbstractBakeryCrudView;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 
 @Route(value = PAGE_USERS, layout = MainView.class)
 @PageTitle(BakeryConst.TITLE_USERS)
-@RolesAllowed({Role.ADMIN, Role.BARISTA})
-//@AnyOfficeRoleAllowed
-public class UsersView extends VerticalLayout {
+@RolesAllowed(Role.ADMIN)
+public class UsersView extends AbstractBakeryCrudView<User> {
 
 	@Autowired
-	private GridComponent grid;
+	public UsersView(UserService service, CurrentUser currentUser, PasswordEncoder passwordEncoder) {
+		super(User.class, service, new Grid<>(), createForm(passwordEncoder), currentUser);
+	}
+
+	@Override
+	protected User createItem() {
+		return new User();
+	}
+
+	@Override
+	protected void setupGrid(Grid<User> grid) {
+		grid.addColumn(User::getEmail).setHeader("Email").setWidth("270px").setFlexGrow(5);
+		grid.addColumn(u -> u.getFirstName() + " " + u.getLastName()).setHeader("Name").setWidth("200px")
+				.setFlexGrow(5);
+		grid.addColumn(User::getRole).setHeader("Role").setWidth("150px");
+	}
+
+	@Override
+	protected String getBasePage() {
+		return PAGE_USERS;
+	}
+
+	private static BinderCrudEditor<User> createForm(PasswordEncoder passwordEncoder) {
+		EmailField email = new EmailField("Email (login)");
+		email.getElement().setAttribute("colspan", "2");
+		TextField first = new TextField("First name");
+		TextField last = new TextField("Last name");
+		PasswordField password = new PasswordField("Password");
+		password.getElement().setAttribute("colspan", "2");
+		ComboBox<String> role = new ComboBox<>("Role");
+		role.getElement().setAttribute("colspan", "2");
+		role.setItems(Role.getAllRoles());
+
+		FormLayout form = new FormLayout(email, first, last, password, role);
+
+		BeanValidationBinder<User> binder = new BeanValidationBinder<>(User.class);
+
+		binder.bind(first, "firstName");
+		binder.bind(last, "lastName");
+		binder.bind(email, "email");
+		binder.bind(role, "role");
+
+		// The password is only changed when a new one is entered
+		binder.forField(password)
+				.withValidator(pass -> pass.matches("^(|(?=.*\\d)(?=.*[a-z])(?=.*[A-Z]).{6,})$"),
+						"need 6 or more chars, mixing digits, lowercase and uppercase letters")
+				.bind(user -> password.getEmptyValue(), (user, pass) -> {
+					if (!password.getEmptyValue().equals(pass)) {
+						user.setPasswordHash(passwordEncoder.encode(pass));
+					}
+				});
 
-	@PostConstruct
-	public void init() {
-		add(grid);
+		return new BinderCrudEditor<>(binder, form);
 	}
 }
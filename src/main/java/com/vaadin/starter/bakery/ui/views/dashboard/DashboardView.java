@@ -5,7 +5,6 @@ import java.time.MonthDay;
 import java.time.Year;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -13,11 +12,9 @@ import javax.annotation.security.PermitAll;
 
 import org.springframework.beans.factory.annotation.Autowired;
 
-import com.vaadin.flow.component.ComponentEventListener;
 import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.charts.Chart;
-import com.vaadin.flow.component.charts.events.ChartLoadEvent;
 import com.vaadin.flow.component.charts.model.Background;
 import com.vaadin.flow.component.charts.model.BackgroundShape;
 import com.vaadin.flow.component.charts.model.ChartType;
@@ -107,27 +104,6 @@ public class DashboardView extends LitTemplate {
 		populateDeliveriesCharts(data);
 		populateOrdersCounts(data.getDeliveryStats());
 		initProductSplitMonthlyGraph(data.getProductDeliveries());
-
-		measurePageLoadPerformance();
-	}
-
-	// This method is overridden to measure the page load performance and can be safely removed
-	// if there is no need for that.
-	private void measurePageLoadPerformance() {
-		final int nTotal = 5; // the total number of charts on the page
-		AtomicInteger nLoaded = new AtomicInteger();
-		ComponentEventListener<ChartLoadEvent> chartLoadListener = (event) -> {
-			nLoaded.addAndGet(1);
-			if (nLoaded.get() == nTotal) {
-				UI.getCurrent().getPage().executeJs("$0._chartsLoadedResolve()", this);
-			}
-		};
-
-		todayCountChart.addChartLoadListener(chartLoadListener);
-		deliveriesThisMonthChart.addChartLoadListener(chartLoadListener);
-		deliveriesThisYearChart.addChartLoadListener(chartLoadListener);
-		yearlySalesGraph.addChartLoadListener(chartLoadListener);
-		monthlyProductSplit.addChartLoadListener(chartLoadListener);
 	}
 
 	private void initProductSplitMonthlyGraph(Map<Product, Integer> productDeliveries) {
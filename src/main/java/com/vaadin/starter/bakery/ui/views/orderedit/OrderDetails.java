@@ -17,9 +17,10 @@ import com.vaadin.flow.component.template.Id;
 import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.dom.Element;
 import com.vaadin.flow.shared.Registration;
+import com.vaadin.starter.bakery.backend.data.OrderState;
 import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
-import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.OrderItem;
 import com.vaadin.starter.bakery.ui.events.CancelEvent;
 import com.vaadin.starter.bakery.ui.events.SaveEvent;
 import com.vaadin.starter.bakery.ui.utils.converters.CurrencyFormatter;
@@ -84,10 +85,19 @@ public class OrderDetails extends LitTemplate {
 	}
 
 	public void display(Order order, boolean review) {
+		display(order, order.getState(), review);
+	}
+
+	/**
+	 * Displays an order with a new state that is not yet applied to it, to
+	 * review a change of only the state.
+	 */
+	public void display(Order order, OrderState state, boolean review) {
 		getElement().setProperty("review", review);
 		this.order = order;
 
 		JsonObject item = beanToJson(order);
+		item.put("state", state.name());
 
 		// Include formatted values to the JsonObject
 		item.put("formattedDueDate", beanToJson(new StorefrontLocalDateConverter().encode(order.getDueDate())));
@@ -97,8 +107,10 @@ public class OrderDetails extends LitTemplate {
 		JsonArray orderItems = item.getArray("items");
 		for (int i = 0; i < orderItems.length(); i++) {
 			JsonObject itemProduct = orderItems.getObject(i).getObject("product");
-			Product product = order.getItems().get(i).getProduct();
-			itemProduct.put("formattedPrice", new CurrencyFormatter().encode(product.getPrice()));
+			OrderItem orderItem = order.getItems().get(i);
+			Integer unitPrice = orderItem.getUnitPrice() != null ? orderItem.getUnitPrice()
+					: orderItem.getProduct().getPrice();
+			itemProduct.put("formattedPrice", new CurrencyFormatter().encode(unitPrice));
 		}
 
 		JsonArray orderHistory = item.getArray("history");
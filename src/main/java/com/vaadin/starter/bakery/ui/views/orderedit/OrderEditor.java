@@ -3,6 +3,9 @@ package com.vaadin.starter.bakery.ui.views.orderedit;
 import static com.vaadin.starter.bakery.ui.dataproviders.DataProviderUtil.createItemLabelGenerator;
 
 import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -40,9 +43,10 @@ import com.vaadin.starter.bakery.backend.data.entity.PickupLocation;
 import com.vaadin.starter.bakery.backend.data.entity.Product;
 import com.vaadin.starter.bakery.backend.data.entity.User;
 import com.vaadin.starter.bakery.backend.service.PickupLocationService;
-import com.vaadin.starter.bakery.backend.service.ProductService;
+import com.vaadin.starter.bakery.backend.service.ProductCatalog;
 import com.vaadin.starter.bakery.ui.crud.CrudEntityDataProvider;
 import com.vaadin.starter.bakery.ui.dataproviders.DataProviderUtil;
+import com.vaadin.starter.bakery.ui.dataproviders.ProductCatalogDataProvider;
 import com.vaadin.starter.bakery.ui.events.CancelEvent;
 import com.vaadin.starter.bakery.ui.utils.FormattingUtils;
 import com.vaadin.starter.bakery.ui.utils.converters.LocalTimeConverter;
@@ -100,12 +104,15 @@ public class OrderEditor extends LitTemplate {
 
 	private BeanValidationBinder<Order> binder = new BeanValidationBinder<>(Order.class);
 
+	// The fields changed since the order was read
+	private final Set<HasValue<?, ?>> changedFields = new HashSet<>();
+
 	private final LocalTimeConverter localTimeConverter = new LocalTimeConverter();
 
 	@Autowired
-	public OrderEditor(PickupLocationService locationService, ProductService productService) {
+	public OrderEditor(PickupLocationService locationService, ProductCatalog productCatalog) {
 		DataProvider<PickupLocation, String> locationDataProvider = new CrudEntityDataProvider<>(locationService);
-		DataProvider<Product, String> productDataProvider = new CrudEntityDataProvider<>(productService);
+		DataProvider<Product, String> productDataProvider = new ProductCatalogDataProvider(productCatalog);
 		itemsEditor = new OrderItemsEditor(productDataProvider);
 
 		itemsContainer.add(itemsEditor);
@@ -154,6 +161,7 @@ public class OrderEditor extends LitTemplate {
 
 		ComponentUtil.addListener(itemsEditor, ValueChangeEvent.class, e -> review.setEnabled(hasChanges()));
 		binder.addValueChangeListener(e -> {
+			changedFields.add(e.getHasValue());
 			if (e.getOldValue() != null) {
 				review.setEnabled(hasChanges());
 			}
@@ -164,6 +172,18 @@ public class OrderEditor extends LitTemplate {
 		return binder.hasChanges() || itemsEditor.hasChanges();
 	}
 
+	/**
+	 * Tells whether the state is the only change, which is then saved without
+	 * writing the rest of the order.
+	 */
+	public boolean hasOnlyStateChange() {
+		return !itemsEditor.hasChanges() && changedFields.equals(Collections.singleton(status));
+	}
+
+	public OrderState getState() {
+		return status.getValue();
+	}
+
 	public void clear() {
 		binder.readBean(null);
 		itemsEditor.setValue(null);
@@ -179,6 +199,7 @@ public class OrderEditor extends LitTemplate {
 
 	public void read(Order order, boolean isNew) {
 		binder.readBean(order);
+		changedFields.clear();
 
 		this.orderNumber.setText(isNew ? "" : order.getId().toString());
 		title.setVisible(isNew);
@@ -80,7 +80,7 @@ public class OrderItemEditor extends LitTemplate implements HasValueAndElement<C
 		Product product = products.getValue();
 		totalPrice = 0;
 		if (selectedAmount != null && product != null) {
-			totalPrice = selectedAmount * product.getPrice();
+			totalPrice = selectedAmount * getUnitPrice(product);
 		}
 		price.setText(FormattingUtils.formatAsCurrency(totalPrice));
 		if (oldValue != totalPrice) {
@@ -88,6 +88,15 @@ public class OrderItemEditor extends LitTemplate implements HasValueAndElement<C
 		}
 	}
 
+	private int getUnitPrice(Product product) {
+		// Keep the price the item was ordered at unless the product is changed
+		OrderItem item = getValue();
+		if (item != null && item.getUnitPrice() != null && product.equals(item.getProduct())) {
+			return item.getUnitPrice();
+		}
+		return product.getPrice();
+	}
+
 	@Override
 	public void setValue(OrderItem value) {
 		fieldSupport.setValue(value);
@@ -12,11 +12,14 @@ import com.vaadin.flow.component.HasValue;
 import com.vaadin.flow.component.UI;
 import com.vaadin.flow.spring.annotation.SpringComponent;
 import com.vaadin.starter.bakery.app.security.CurrentUser;
+import com.vaadin.starter.bakery.backend.data.OrderState;
 import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.service.OrderService;
 import com.vaadin.starter.bakery.ui.crud.EntityPresenter;
 import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider;
 import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider.OrderFilter;
+import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider.OrderSort;
+import com.vaadin.starter.bakery.ui.views.orderedit.OrderEditor;
 import com.vaadin.starter.bakery.ui.views.storefront.beans.OrderCardHeader;
 
 import static com.vaadin.starter.bakery.ui.utils.BakeryConst.PAGE_STOREFRONT_ORDER_EDIT;
@@ -27,6 +30,10 @@ public class OrderPresenter {
 
 	private OrderCardHeaderGenerator headersGenerator;
 	private StorefrontView view;
+	private OrderSort sort = OrderSort.DUE_DATE;
+	private boolean showPrevious;
+	// The new state when it is the only change of the reviewed order
+	private OrderState stateChange;
 
 	private final EntityPresenter<Order, StorefrontView> entityPresenter;
 	private final OrdersGridDataProvider dataProvider;
@@ -42,7 +49,12 @@ public class OrderPresenter {
 		this.currentUser = currentUser;
 		headersGenerator = new OrderCardHeaderGenerator();
 		headersGenerator.resetHeaderChain(false);
-		dataProvider.setPageObserver(p -> headersGenerator.ordersRead(p.getContent()));
+		dataProvider.setPageObserver(p -> {
+			// Date headers only make sense when the orders are listed by date
+			if (sort == OrderSort.DUE_DATE) {
+				headersGenerator.ordersRead(p.getContent());
+			}
+		});
 	}
 
 	void init(StorefrontView view) {
@@ -64,12 +76,24 @@ public class OrderPresenter {
 	}
 
 	public void filterChanged(String filter, boolean showPrevious) {
+		filterChanged(filter, showPrevious, null, null);
+	}
+
+	public void filterChanged(String filter, boolean showPrevious, Integer minTotal, Integer maxTotal) {
+		this.showPrevious = showPrevious;
 		headersGenerator.resetHeaderChain(showPrevious);
-		dataProvider.setFilter(new OrderFilter(filter, showPrevious));
+		dataProvider.setFilter(new OrderFilter(filter, showPrevious, minTotal, maxTotal));
+	}
+
+	public void sortChanged(OrderSort sort) {
+		this.sort = sort;
+		headersGenerator.resetHeaderChain(showPrevious);
+		dataProvider.setSort(sort);
 	}
 
 	void onNavigation(Long id, boolean edit) {
-		entityPresenter.loadEntity(id, e -> open(e, edit));
+		// Archived orders are read-only, so they are always opened for viewing
+		entityPresenter.loadEntity(id, e -> open(e, edit && !e.isArchived()));
 	}
 
 	void createNewOrder() {
@@ -100,7 +124,14 @@ public class OrderPresenter {
 		// traversed, and every validation updates its view
 		List<HasValue<?, ?>> fields = view.validate().collect(Collectors.toList());
 		if (fields.isEmpty()) {
-			if (entityPresenter.writeEntity()) {
+			OrderEditor editor = view.getOpenedOrderEditor();
+			if (!entityPresenter.isNew() && editor.hasOnlyStateChange()) {
+				// Saved by itself, so the order is not changed before
+				stateChange = editor.getState();
+				view.setDialogElementsVisibility(false);
+				view.getOpenedOrderDetails().display(entityPresenter.getEntity(), stateChange, true);
+			} else if (entityPresenter.writeEntity()) {
+				stateChange = null;
 				view.setDialogElementsVisibility(false);
 				view.getOpenedOrderDetails().display(entityPresenter.getEntity(), true);
 			}
@@ -110,6 +141,14 @@ public class OrderPresenter {
 	}
 
 	void save() {
+		if (stateChange != null) {
+			if (entityPresenter.executeUpdate(e -> orderService.changeState(currentUser.getUser(), e, stateChange))) {
+				view.showUpdatedNotification();
+				dataProvider.refreshItem(entityPresenter.getEntity());
+				close();
+			}
+			return;
+		}
 		entityPresenter.save(e -> {
 			if (entityPresenter.isNew()) {
 				view.showCreatedNotification();
@@ -142,6 +181,7 @@ public class OrderPresenter {
 	}
 
 	private void close() {
+		stateChange = null;
 		view.getOpenedOrderEditor().close();
 		view.setOpened(false);
 		view.navigateToMainView();
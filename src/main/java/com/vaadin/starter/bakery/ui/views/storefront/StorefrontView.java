@@ -11,12 +11,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import com.vaadin.flow.component.HasValue;
 import com.vaadin.flow.component.Tag;
 import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.combobox.ComboBox;
 import com.vaadin.flow.component.confirmdialog.ConfirmDialog;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.littemplate.LitTemplate;
 import com.vaadin.flow.component.template.Id;
+import com.vaadin.flow.component.textfield.NumberField;
 import com.vaadin.flow.data.binder.ValidationException;
 import com.vaadin.flow.router.BeforeEnterEvent;
 import com.vaadin.flow.router.BeforeEnterObserver;
@@ -28,6 +30,7 @@ import com.vaadin.starter.bakery.backend.data.entity.Order;
 import com.vaadin.starter.bakery.backend.data.entity.util.EntityUtil;
 import com.vaadin.starter.bakery.ui.MainView;
 import com.vaadin.starter.bakery.ui.components.SearchBar;
+import com.vaadin.starter.bakery.ui.dataproviders.OrdersGridDataProvider.OrderSort;
 import com.vaadin.starter.bakery.ui.utils.BakeryConst;
 import com.vaadin.starter.bakery.ui.views.EntityView;
 import com.vaadin.starter.bakery.ui.views.orderedit.OrderDetails;
@@ -46,9 +49,21 @@ import static com.vaadin.starter.bakery.ui.utils.BakeryConst.ORDER_ID;
 public class StorefrontView extends LitTemplate
 		implements HasLogger, BeforeEnterObserver, EntityView<Order> {
 
+	// The largest total in dollars whose cents fit in an int
+	private static final double MAX_TOTAL = Integer.MAX_VALUE / 100;
+
 	@Id("search")
 	private SearchBar searchBar;
 
+	@Id("minTotal")
+	private NumberField minTotal;
+
+	@Id("maxTotal")
+	private NumberField maxTotal;
+
+	@Id("sort")
+	private ComboBox<OrderSort> sort;
+
 	@Id("grid")
 	private Grid<Order> grid;
 
@@ -80,8 +95,19 @@ public class StorefrontView extends LitTemplate
 				.withFunction("cardClick",
 						order -> UI.getCurrent().navigate(BakeryConst.PAGE_STOREFRONT + "/" + order.getId())));
 
-		getSearchBar().addFilterChangeListener(
-				e -> presenter.filterChanged(getSearchBar().getFilter(), getSearchBar().isCheckboxChecked()));
+		minTotal.setMin(0);
+		minTotal.setMax(MAX_TOTAL);
+		maxTotal.setMin(0);
+		maxTotal.setMax(MAX_TOTAL);
+		sort.setItems(OrderSort.values());
+		sort.setItemLabelGenerator(OrderSort::getDisplayName);
+		sort.setValue(OrderSort.DUE_DATE);
+		sort.setAllowCustomValue(false);
+
+		getSearchBar().addFilterChangeListener(e -> filterChanged());
+		minTotal.addValueChangeListener(e -> filterChanged());
+		maxTotal.addValueChangeListener(e -> filterChanged());
+		sort.addValueChangeListener(e -> presenter.sortChanged(e.getValue() == null ? OrderSort.DUE_DATE : e.getValue()));
 		getSearchBar().addActionClickListener(e -> presenter.createNewOrder());
 
 		presenter.init(this);
@@ -89,6 +115,16 @@ public class StorefrontView extends LitTemplate
 		dialog.addDialogCloseActionListener(e -> presenter.cancel());
 	}
 
+	private void filterChanged() {
+		presenter.filterChanged(getSearchBar().getFilter(), getSearchBar().isCheckboxChecked(),
+				toCents(minTotal.getValue()), toCents(maxTotal.getValue()));
+	}
+
+	// The bounds of the fields are only checked in the browser
+	private static Integer toCents(Double value) {
+		return value == null ? null : (int) Math.round(Math.min(Math.max(value, 0), MAX_TOTAL) * 100);
+	}
+
 	@Override
 	public ConfirmDialog getConfirmDialog() {
 		return confirmation;
@@ -0,0 +1,122 @@
+package com.vaadin.starter.bakery;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.app.metrics.QueryBudgets;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+import com.vaadin.starter.bakery.backend.service.ProductService;
+import com.vaadin.starter.bakery.ui.utils.BakeryConst;
+import com.vaadin.starter.bakery.ui.views.storefront.OrderCard;
+
+/**
+ * Pins the number of JDBC statements of loading the main views and of the
+ * services they use, so that lazy loading in loops (N+1) and unneeded eager
+ * fetches are noticed before they reach production.
+ * <p>
+ * The views are loaded as their data providers and renderers do it, in one
+ * transaction like the open session of a request. The budgets are the counts
+ * with an empty second-level cache; lower them when the queries get better.
+ */
+public class QueryBudgetTest {
+
+	private static final int GRID_PAGE_SIZE = 50;
+	private static final Sort ORDER_SORT = Sort.by(BakeryConst.DEFAULT_SORT_DIRECTION, BakeryConst.ORDER_SORT_FIELDS);
+
+	private static ConfigurableApplicationContext context;
+	private static OrderService orderService;
+	private static ProductService productService;
+	private static TransactionTemplate transaction;
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+		orderService = context.getBean(OrderService.class);
+		productService = context.getBean(ProductService.class);
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		transaction.setReadOnly(true);
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void storefrontFirstLoad() {
+		QueryBudgets.assertAtMost(6, "StorefrontView first load", () -> inTransaction(() -> {
+			countOrders();
+			render(fetchOrders(0));
+		}));
+	}
+
+	@Test
+	public void dashboardLoad() {
+		LocalDate today = LocalDate.now();
+		QueryBudgets.assertAtMost(15, "DashboardView load", () -> inTransaction(() -> {
+			orderService.getDashboardData(today.getMonthValue(), today.getYear());
+			countOrders();
+			render(fetchOrders(0));
+		}));
+	}
+
+	@Test
+	public void orderGridPage() {
+		QueryBudgets.assertAtMost(5, "Orders grid page", () -> inTransaction(() -> render(fetchOrders(1))));
+	}
+
+	@Test
+	public void productGridPage() {
+		QueryBudgets.assertAtMost(1, "Products grid page", () -> inTransaction(
+				() -> productService.findAnyMatching(Optional.of(""), PageRequest.of(0, GRID_PAGE_SIZE))));
+	}
+
+	@Test
+	public void loadOrder() {
+		long id = fetchOrders(0).getContent().get(0).getId();
+		// With everything the order editor shows
+		QueryBudgets.assertAtMost(1, "OrderService.load", () -> inTransaction(() -> {
+			Order order = orderService.load(id);
+			order.getItems().forEach(item -> item.getProduct().getName());
+			order.getHistory().forEach(item -> item.getCreatedBy().getFirstName());
+		}));
+	}
+
+	private static void inTransaction(Runnable action) {
+		transaction.executeWithoutResult(status -> action.run());
+	}
+
+	// As OrdersGridDataProvider does it
+	private static Page<Order> fetchOrders(int page) {
+		Pageable pageable = PageRequest.of(page, GRID_PAGE_SIZE, ORDER_SORT);
+		return orderService.findAnyMatchingAfterDueDate(Optional.of(""), Optional.of(LocalDate.now().minusDays(1)),
+				Optional.empty(), Optional.empty(), pageable);
+	}
+
+	private static void countOrders() {
+		orderService.countAnyMatchingAfterDueDate(Optional.of(""), Optional.of(LocalDate.now().minusDays(1)),
+				Optional.empty(), Optional.empty());
+	}
+
+	// What the order cards of the grids show
+	private static void render(Page<Order> orders) {
+		for (Order order : orders) {
+			OrderCard card = OrderCard.create(order);
+			card.getPlace();
+			card.getFullName();
+			card.getItems().forEach(item -> item.getProduct().getName());
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package com.vaadin.starter.bakery;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.security.crypto.password.NoOpPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.vaadin.flow.spring.SpringBootAutoConfiguration;
+import com.vaadin.flow.spring.SpringSecurityAutoConfiguration;
+import com.vaadin.starter.bakery.app.DataGenerator;
+import com.vaadin.starter.bakery.app.DataSnapshot;
+import com.vaadin.starter.bakery.app.metrics.RepositoryMetrics;
+import com.vaadin.starter.bakery.app.metrics.SlowQueryLog;
+import com.vaadin.starter.bakery.app.security.CurrentUserCache;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.UserService;
+
+/**
+ * Starts the services, repositories and demo data of the app without Vaadin
+ * and the web server, on its own in-memory database, for the tests of the
+ * backend. The demo data only has the orders of the current year.
+ */
+public final class TestBackend {
+
+	@SpringBootApplication(scanBasePackageClasses = UserService.class, exclude = {
+			SpringBootAutoConfiguration.class, SpringSecurityAutoConfiguration.class })
+	@EnableJpaRepositories(basePackageClasses = UserRepository.class)
+	@EntityScan(basePackageClasses = User.class)
+	@Import({ DataGenerator.class, DataSnapshot.class, CurrentUserCache.class, SlowQueryLog.class,
+			RepositoryMetrics.class })
+	static class Backend {
+
+		@Bean
+		@SuppressWarnings("deprecation")
+		PasswordEncoder passwordEncoder() {
+			return NoOpPasswordEncoder.getInstance();
+		}
+	}
+
+	private static final String[] DEFAULT_ARGS = { "--bakery.data.years=0", "--bakery.data.snapshot-dir=",
+			"--spring.main.banner-mode=off" };
+
+	private TestBackend() {
+	}
+
+	/**
+	 * Starts a backend, with the given arguments overriding the defaults, e.g.
+	 * {@code --bakery.archive.age=P7D}.
+	 */
+	public static ConfigurableApplicationContext start(String... args) {
+		SpringApplication application = new SpringApplication(Backend.class);
+		application.setWebApplicationType(WebApplicationType.NONE);
+		// Repeated arguments would be joined, so the defaults are replaced instead
+		Map<String, String> allArgs = new LinkedHashMap<>();
+		for (String arg : DEFAULT_ARGS) {
+			allArgs.put(arg.substring(0, arg.indexOf('=')), arg);
+		}
+		for (String arg : args) {
+			allArgs.put(arg.contains("=") ? arg.substring(0, arg.indexOf('=')) : arg, arg);
+		}
+		return application.run(allArgs.values().toArray(new String[0]));
+	}
+}
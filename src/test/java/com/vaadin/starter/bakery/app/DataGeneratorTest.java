@@ -0,0 +1,82 @@
+package com.vaadin.starter.bakery.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.entity.AbstractEntity;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+
+public class DataGeneratorTest {
+
+	// The orders without their ids, which depend on the threads
+	private static final String ORDERS = "SELECT o.due_date, o.due_time, o.state, o.total_price, c.full_name, "
+			+ "(SELECT count(*) FROM order_item i WHERE i.items_id = o.id) AS items, "
+			+ "(SELECT count(*) FROM history_item h WHERE h.history_id = o.id) AS history "
+			+ "FROM order_info o JOIN customer c ON c.id = o.customer_id "
+			+ "ORDER BY o.due_date, o.due_time, o.state, o.total_price, c.full_name";
+
+	@Test
+	public void generatedDataDoesNotDependOnThreads() {
+		List<String> oneThread = generate("--bakery.data.threads=1");
+		List<String> fourThreads = generate("--bakery.data.threads=4");
+		assertTrue(oneThread.size() > 0);
+		assertEquals(oneThread, fourThreads);
+	}
+
+	@Test
+	public void legacySequenceKeepsWorking() {
+		String[] args = { "--spring.datasource.url=jdbc:h2:mem:legacy-sequence;DB_CLOSE_DELAY=-1",
+				"--spring.jpa.hibernate.ddl-auto=update", "--bakery.data.orders-per-day=2" };
+		long maxId;
+		try (ConfigurableApplicationContext context = TestBackend.start(args)) {
+			JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+			maxId = jdbc.queryForObject("SELECT max(id) FROM (SELECT id FROM order_info UNION ALL "
+					+ "SELECT id FROM order_item UNION ALL SELECT id FROM history_item UNION ALL "
+					+ "SELECT id FROM customer UNION ALL SELECT id FROM product) ids", Long.class);
+			// As created before the ids were allocated in blocks
+			jdbc.execute("ALTER SEQUENCE " + AbstractEntity.ID_SEQUENCE + " RESTART WITH " + (maxId + 1)
+					+ " INCREMENT BY 1");
+		}
+		try (ConfigurableApplicationContext context = TestBackend.start(args)) {
+			maxId = saveProducts(context, "Legacy", maxId);
+			// The migration described in application.properties
+			context.getBean(JdbcTemplate.class).execute("ALTER SEQUENCE " + AbstractEntity.ID_SEQUENCE
+					+ " RESTART WITH " + (maxId + 50) + " INCREMENT BY 50");
+		}
+		try (ConfigurableApplicationContext context = TestBackend.start(args)) {
+			saveProducts(context, "Migrated", maxId);
+		}
+	}
+
+	// Saves products with new names, checking that their ids are new
+	private static long saveProducts(ConfigurableApplicationContext context, String name, long maxId) {
+		ProductRepository products = context.getBean(ProductRepository.class);
+		long newMaxId = maxId;
+		for (int i = 0; i < 3; i++) {
+			Product product = new Product();
+			product.setName(name + " " + i);
+			product.setPrice(100);
+			long id = products.saveAndFlush(product).getId();
+			assertTrue(id > maxId);
+			newMaxId = Math.max(newMaxId, id);
+		}
+		return newMaxId;
+	}
+
+	private static List<String> generate(String threads) {
+		try (ConfigurableApplicationContext context = TestBackend.start(threads, "--bakery.data.orders-per-day=3",
+				"--bakery.data.customers=20")) {
+			return context.getBean(JdbcTemplate.class).query(ORDERS, (row, i) -> row.getString(1) + " "
+					+ row.getString(2) + " " + row.getInt(3) + " " + row.getInt(4) + " " + row.getString(5) + " "
+					+ row.getInt(6) + " " + row.getInt(7));
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package com.vaadin.starter.bakery.app;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+public class DataSnapshotTest {
+
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void restoreSnapshot() throws IOException {
+		Path directory = privateDirectory();
+		save(directory, "settings");
+
+		DataSource dataSource = emptyDatabase();
+		assertTrue(new DataSnapshot(dataSource, directory.toString()).restore("settings"));
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		assertEquals(Arrays.asList("First", "Second"),
+				jdbc.queryForList("SELECT name FROM order_info ORDER BY id", String.class));
+		assertEquals(0, (int) jdbc.queryForObject(
+				"SELECT count(*) FROM information_schema.tables WHERE lower(table_name) = 'data_snapshot'",
+				Integer.class));
+	}
+
+	@Test
+	public void otherSettingsOrSchemaAreNotRestored() throws IOException {
+		Path directory = privateDirectory();
+		save(directory, "settings");
+
+		DataSource dataSource = emptyDatabase();
+		assertFalse(new DataSnapshot(dataSource, directory.toString()).restore("other settings"));
+		assertEquals(0, count(dataSource));
+
+		dataSource = emptyDatabase();
+		new JdbcTemplate(dataSource).execute("ALTER TABLE order_info ADD COLUMN notes VARCHAR(255)");
+		assertFalse(new DataSnapshot(dataSource, directory.toString()).restore("settings"));
+		assertEquals(0, count(dataSource));
+	}
+
+	@Test
+	public void directoryWritableByOthersIsNotUsed() throws IOException {
+		Path directory = privateDirectory();
+		save(directory, "settings");
+		Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwxrwxrwx"));
+
+		DataSource dataSource = emptyDatabase();
+		DataSnapshot snapshot = new DataSnapshot(dataSource, directory.toString());
+		assertFalse(snapshot.restore("settings"));
+		assertEquals(0, count(dataSource));
+
+		// Nor is anything written to it
+		File[] before = directory.toFile().listFiles();
+		snapshot.save();
+		assertEquals(before.length, directory.toFile().listFiles().length);
+	}
+
+	@Test
+	public void snapshotWritableByOthersIsNotRestored() throws IOException {
+		Path directory = privateDirectory();
+		save(directory, "settings");
+		File[] files = directory.toFile().listFiles();
+		assertEquals(1, files.length);
+		Files.setPosixFilePermissions(files[0].toPath(), PosixFilePermissions.fromString("rw-rw-rw-"));
+
+		DataSource dataSource = emptyDatabase();
+		assertFalse(new DataSnapshot(dataSource, directory.toString()).restore("settings"));
+		assertEquals(0, count(dataSource));
+	}
+
+	@Test
+	public void missingDirectoryIsCreatedPrivate() throws IOException {
+		Path directory = folder.getRoot().toPath().resolve("new").resolve("snapshots");
+		save(directory, "settings");
+		assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)));
+		assertTrue(DataSnapshot.isPrivate(directory));
+	}
+
+	private Path privateDirectory() throws IOException {
+		Path directory = folder.newFolder().toPath();
+		Files.setPosixFilePermissions(directory, PosixFilePermissions.fromString("rwx------"));
+		return directory;
+	}
+
+	// Saves a snapshot of a database with two orders
+	private static void save(Path directory, String settings) {
+		DataSource dataSource = emptyDatabase();
+		DataSnapshot snapshot = new DataSnapshot(dataSource, directory.toString());
+		assertFalse(snapshot.restore(settings));
+		JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+		jdbc.update("INSERT INTO order_info (id, name, due_date) VALUES (1, 'First', CURRENT_DATE)");
+		jdbc.update("INSERT INTO order_info (id, name, due_date) VALUES (2, 'Second', CURRENT_DATE)");
+		snapshot.save();
+	}
+
+	private static DataSource emptyDatabase() {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:snapshot-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1");
+		new JdbcTemplate(dataSource)
+				.execute("CREATE TABLE order_info (id BIGINT PRIMARY KEY, name VARCHAR(255), due_date DATE)");
+		return dataSource;
+	}
+
+	private static int count(DataSource dataSource) {
+		return new JdbcTemplate(dataSource).queryForObject("SELECT count(*) FROM order_info", Integer.class);
+	}
+}
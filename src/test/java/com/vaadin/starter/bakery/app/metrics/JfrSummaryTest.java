@@ -0,0 +1,58 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+
+public class JfrSummaryTest {
+
+	@Test
+	public void summarizesOperations() throws IOException {
+		Path file = Files.createTempFile("bakery", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable(OperationEvent.NAME);
+				recording.start();
+				for (int i = 0; i < 3; i++) {
+					OperationEvent event = OperationEvent.begin("OrderService.findAnyMatchingAfterDueDate");
+					event.setFilter(i == 0 ? "none" : "name");
+					event.succeeded(10 * (i + 1));
+					event.finish();
+				}
+				OperationEvent failed = OperationEvent.begin("login");
+				failed.setRole("baker");
+				failed.finish();
+				recording.stop();
+				recording.dump(file);
+			}
+
+			String table = summarize(file, null);
+			Assert.assertTrue(table, table.startsWith("Operation"));
+			Assert.assertTrue(table, table.matches("(?s).*OrderService\\.findAnyMatchingAfterDueDate +3 +0 .* 20\\.0\n.*"));
+			Assert.assertTrue(table, table.matches("(?s).*login +1 +1 .* -\n.*"));
+
+			String byFilter = summarize(file, "filter");
+			Assert.assertTrue(byFilter, byFilter.contains("Filter"));
+			Assert.assertTrue(byFilter, byFilter.matches("(?s).*findAnyMatchingAfterDueDate +name +2 +0 .* 25\\.0\n.*"));
+			Assert.assertTrue(byFilter, byFilter.matches("(?s).*findAnyMatchingAfterDueDate +none +1 +0 .* 10\\.0\n.*"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+
+	private static String summarize(Path file, String by) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+			JfrSummary.summarize(file, by, out);
+		}
+		return new String(bytes.toByteArray(), StandardCharsets.UTF_8).replace(System.lineSeparator(), "\n");
+	}
+}
@@ -0,0 +1,54 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class OperationEventTest {
+
+	@Test
+	public void recordsResultAndFailure() throws IOException {
+		Path file = Files.createTempFile("bakery", ".jfr");
+		try {
+			try (Recording recording = new Recording()) {
+				recording.enable(OperationEvent.NAME);
+				recording.start();
+				String result = OperationEvent.record("found", () -> "name", () -> "abc",
+						(event, value) -> event.succeeded(value.length()));
+				Assert.assertEquals("abc", result);
+				try {
+					OperationEvent.record("broken", () -> {
+						throw new IllegalStateException();
+					}, value -> 1);
+					Assert.fail();
+				} catch (IllegalStateException expected) {
+					// Recorded as failed
+				}
+				recording.stop();
+				recording.dump(file);
+			}
+
+			List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+			Assert.assertEquals(2, events.size());
+			RecordedEvent found = events.get(0).getString("operation").equals("found") ? events.get(0)
+					: events.get(1);
+			RecordedEvent broken = found == events.get(0) ? events.get(1) : events.get(0);
+			Assert.assertEquals("name", found.getString("filter"));
+			Assert.assertEquals(3, found.getLong("rows"));
+			Assert.assertFalse(found.getBoolean("failed"));
+			Assert.assertNull(broken.getString("filter"));
+			Assert.assertEquals(-1, broken.getLong("rows"));
+			Assert.assertTrue(broken.getBoolean("failed"));
+		} finally {
+			Files.delete(file);
+		}
+	}
+}
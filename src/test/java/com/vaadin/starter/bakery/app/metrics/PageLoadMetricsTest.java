@@ -0,0 +1,114 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.flow.component.Text;
+import com.vaadin.flow.router.RouteConfiguration;
+import com.vaadin.flow.server.RouteRegistry;
+import com.vaadin.flow.server.VaadinContext;
+import com.vaadin.flow.server.startup.ApplicationRouteRegistry;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class PageLoadMetricsTest {
+
+	private final PageLoadMetrics metrics = new PageLoadMetrics();
+
+	@Test
+	public void recordsKnownMilestonesInRange() {
+		JsonObject milestones = Json.createObject();
+		milestones.put("firstRender", 250);
+		milestones.put("gridData", 1200.5);
+		milestones.put("chartsLoaded", -1);
+		milestones.put("unknown", 100);
+		metrics.record("StorefrontView", milestones);
+		JsonObject tooLate = Json.createObject();
+		tooLate.put("firstRender", 3_600_000);
+		tooLate.put("gridData", "1000");
+		metrics.record("StorefrontView", tooLate);
+
+		String text = write();
+		Assert.assertTrue(text,
+				text.contains("bakery_page_load_seconds_count{route=\"StorefrontView\",milestone=\"first_render\"} 1\n"));
+		Assert.assertTrue(text,
+				text.contains("bakery_page_load_seconds_count{route=\"StorefrontView\",milestone=\"grid_data\"} 1\n"));
+		Assert.assertFalse(text, text.contains("milestone=\"charts_loaded\""));
+		Assert.assertFalse(text, text.contains("unknown"));
+	}
+
+	@Test
+	public void ignoresMissingDetail() {
+		metrics.record("StorefrontView", (JsonObject) null);
+		Assert.assertFalse(write().contains("StorefrontView"));
+	}
+
+	@Test
+	public void routeIsTheViewOfThePath() {
+		RouteRegistry registry = ApplicationRouteRegistry.getInstance(new TestContext());
+		RouteConfiguration routes = RouteConfiguration.forRegistry(registry);
+		routes.setRoute("", RootView.class);
+		routes.setRoute("orders/:id", OrderView.class);
+
+		Assert.assertEquals("RootView", PageLoadMetrics.getRoute(registry, ""));
+		Assert.assertEquals("OrderView", PageLoadMetrics.getRoute(registry, "orders/42"));
+		Assert.assertNull(PageLoadMetrics.getRoute(registry, "unknown"));
+	}
+
+	private String write() {
+		StringWriter out = new StringWriter();
+		metrics.writeMetrics(new PrometheusWriter(out));
+		return out.toString();
+	}
+
+	public static class RootView extends Text {
+		public RootView() {
+			super("");
+		}
+	}
+
+	public static class OrderView extends Text {
+		public OrderView() {
+			super("");
+		}
+	}
+
+	private static class TestContext implements VaadinContext {
+
+		private final Map<Class<?>, Object> attributes = new HashMap<>();
+
+		@Override
+		public <T> T getAttribute(Class<T> type, Supplier<T> defaultValueSupplier) {
+			return type.cast(attributes.computeIfAbsent(type,
+					key -> defaultValueSupplier == null ? null : defaultValueSupplier.get()));
+		}
+
+		@Override
+		public <T> void setAttribute(Class<T> clazz, T value) {
+			attributes.put(clazz, value);
+		}
+
+		@Override
+		public void removeAttribute(Class<?> clazz) {
+			attributes.remove(clazz);
+		}
+
+		@Override
+		public Enumeration<String> getContextParameterNames() {
+			return Collections.emptyEnumeration();
+		}
+
+		@Override
+		public String getContextParameter(String name) {
+			return null;
+		}
+	}
+}
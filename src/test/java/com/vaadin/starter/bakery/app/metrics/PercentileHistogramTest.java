@@ -0,0 +1,42 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PercentileHistogramTest {
+
+	@Test
+	public void bucketsAreContiguousAndNarrow() {
+		int previous = -1;
+		for (long micros = 0; micros < 1_000_000; micros++) {
+			int bucket = PercentileHistogram.bucket(micros);
+			Assert.assertTrue(bucket == previous || bucket == previous + 1);
+			Assert.assertEquals(micros, PercentileHistogram.middleMicros(bucket), Math.max(0.5, micros / 16.0));
+			previous = bucket;
+		}
+	}
+
+	@Test
+	public void tellsPercentiles() {
+		PercentileHistogram histogram = new PercentileHistogram();
+		Assert.assertTrue(Double.isNaN(histogram.getValueAtQuantile(0.5)));
+		for (int i = 1; i <= 100; i++) {
+			histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+		}
+		Assert.assertEquals(100, histogram.getCount());
+		Assert.assertEquals(5.05, histogram.getSum(), 1e-9);
+		Assert.assertEquals(0.050, histogram.getValueAtQuantile(0.5), 0.050 / 16);
+		Assert.assertEquals(0.099, histogram.getValueAtQuantile(0.99), 0.099 / 16);
+		Assert.assertEquals(0.001, histogram.getValueAtQuantile(0), 0.001 / 16);
+	}
+
+	@Test
+	public void countsLongValuesAsTheLargest() {
+		PercentileHistogram histogram = new PercentileHistogram();
+		histogram.record(TimeUnit.HOURS.toNanos(1));
+		Assert.assertEquals(134, histogram.getValueAtQuantile(1), 134 / 16.0);
+		Assert.assertEquals(3600, histogram.getSum(), 1e-9);
+	}
+}
@@ -0,0 +1,37 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrometheusWriterTest {
+
+	private final StringWriter out = new StringWriter();
+	private final PrometheusWriter writer = new PrometheusWriter(out);
+
+	@Test
+	public void writesHistogramBucketsCumulatively() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		histogram.record(TimeUnit.MICROSECONDS.toNanos(300));
+		histogram.record(TimeUnit.MILLISECONDS.toNanos(3));
+		histogram.record(TimeUnit.SECONDS.toNanos(20));
+
+		writer.histogram("d", histogram, "method", "find");
+		String text = out.toString();
+		Assert.assertTrue(text, text.contains("d_bucket{method=\"find\",le=\"0.0005\"} 1\n"));
+		Assert.assertTrue(text, text.contains("d_bucket{method=\"find\",le=\"0.005\"} 2\n"));
+		Assert.assertTrue(text, text.contains("d_bucket{method=\"find\",le=\"10\"} 2\n"));
+		Assert.assertTrue(text, text.contains("d_bucket{method=\"find\",le=\"+Inf\"} 3\n"));
+		Assert.assertTrue(text, text.contains("d_count{method=\"find\"} 3\n"));
+		Assert.assertTrue(text, text.contains("d_sum{method=\"find\"} 20.0033\n"));
+	}
+
+	@Test
+	public void escapesLabelValues() {
+		writer.metric("m", "counter", "Help");
+		writer.sample("m", 2, "name", "a\"b\\c\nd");
+		Assert.assertEquals("# HELP m Help\n# TYPE m counter\nm{name=\"a\\\"b\\\\c\\nd\"} 2\n", out.toString());
+	}
+}
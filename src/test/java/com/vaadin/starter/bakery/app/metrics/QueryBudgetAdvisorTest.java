@@ -0,0 +1,36 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.aop.support.AopUtils;
+
+import com.vaadin.starter.bakery.backend.service.UserSearchIndex;
+
+public class QueryBudgetAdvisorTest {
+
+	private final UserSearchIndex service = new UserSearchIndex(null);
+
+	@Test
+	public void servicesAreProxiedInDevelopmentMode() {
+		Object bean = new QueryBudget(30, 15, false).postProcessAfterInitialization(service, "userSearchIndex");
+		Assert.assertTrue(AopUtils.isCglibProxy(bean));
+	}
+
+	@Test
+	public void servicesAreNotProxiedInProductionMode() {
+		Assert.assertSame(service,
+				new QueryBudget(30, 15, true).postProcessAfterInitialization(service, "userSearchIndex"));
+	}
+
+	@Test
+	public void servicesAreNotProxiedWithoutServiceCallBudget() {
+		Assert.assertSame(service,
+				new QueryBudget(30, 0, false).postProcessAfterInitialization(service, "userSearchIndex"));
+	}
+
+	@Test
+	public void otherBeansAreNotProxied() {
+		Object bean = new StringBuilder();
+		Assert.assertSame(bean, new QueryBudget(30, 15, false).postProcessAfterInitialization(bean, "other"));
+	}
+}
@@ -0,0 +1,43 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.util.function.Supplier;
+
+import org.junit.Assert;
+
+/**
+ * Assertions on the number of JDBC statements executed by a piece of code, to
+ * pin the statements of views and services in tests. The statements are
+ * counted with the {@link QueryCounter}, which needs the data source to be
+ * wrapped by the {@link SlowQueryLog}.
+ */
+public final class QueryBudgets {
+
+	private static final int LISTED_STATEMENTS = 10;
+
+	private QueryBudgets() {
+	}
+
+	/**
+	 * Runs the action and fails if it executes more statements than the
+	 * budget, listing the executed statements.
+	 *
+	 * @return the result of the action
+	 */
+	public static <T> T assertAtMost(int budget, String name, Supplier<T> action) {
+		try (QueryCounter.Scope statements = QueryCounter.open()) {
+			T result = action.get();
+			if (statements.getCount() > budget) {
+				Assert.fail(name + " executed " + statements.getCount() + " JDBC statements, more than its budget of "
+						+ budget + ":\n" + statements.describe(LISTED_STATEMENTS));
+			}
+			return result;
+		}
+	}
+
+	public static void assertAtMost(int budget, String name, Runnable action) {
+		assertAtMost(budget, name, () -> {
+			action.run();
+			return null;
+		});
+	}
+}
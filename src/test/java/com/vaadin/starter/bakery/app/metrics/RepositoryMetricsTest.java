@@ -0,0 +1,46 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.io.StringWriter;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+
+public class RepositoryMetricsTest {
+
+	private static ConfigurableApplicationContext context;
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void recordsOverloadsSeparately() {
+		PickupLocationRepository repository = context.getBean(PickupLocationRepository.class);
+		int locations = repository.findAll().size();
+		repository.findAll(Sort.by("name"));
+		repository.findAll(Sort.by("name"));
+
+		StringWriter out = new StringWriter();
+		context.getBean(RepositoryMetrics.class).writeMetrics(new PrometheusWriter(out));
+		String text = out.toString();
+		String labels = "{repository=\"PickupLocationRepository\",method=\"findAll";
+		Assert.assertTrue(text, text.contains("bakery_repository_rows_total" + labels + "()\",query=\"base\"} "));
+		Assert.assertTrue(text, text.contains("bakery_repository_rows_total" + labels + "(Sort)\",query=\"base\"} "
+				+ 2 * locations + "\n"));
+		Assert.assertTrue(text, text.contains("bakery_repository_duration_seconds_count" + labels
+				+ "(Sort)\",query=\"base\"} 2\n"));
+	}
+}
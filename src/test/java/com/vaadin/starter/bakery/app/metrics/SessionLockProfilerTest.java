@@ -0,0 +1,76 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.app.metrics.SessionLockProfiler.HolderStats;
+
+public class SessionLockProfilerTest {
+
+	private final SessionLockProfiler profiler = new SessionLockProfiler(Duration.ofMillis(50));
+
+	@After
+	public void tearDown() {
+		profiler.destroy();
+	}
+
+	@Test
+	public void attributesHoldsToTheInnermostUiMethod() {
+		StackTraceElement[] stack = {
+				new StackTraceElement("com.vaadin.starter.bakery.backend.service.OrderService", "getDashboardData",
+						null, 1),
+				new StackTraceElement("com.vaadin.starter.bakery.ui.views.dashboard.DashboardView", "<init>", null, 2),
+				new StackTraceElement("com.vaadin.starter.bakery.ui.MainView", "afterNavigation", null, 3) };
+		Assert.assertEquals("DashboardView.<init>", SessionLockProfiler.getHolder(stack));
+		Assert.assertEquals("OrderService.getDashboardData",
+				SessionLockProfiler.getHolder(new StackTraceElement[] { stack[0] }));
+		Assert.assertEquals("unknown", SessionLockProfiler.getHolder(new StackTraceElement[0]));
+	}
+
+	@Test
+	public void measuresWaitsAndHolds() throws Exception {
+		ProfiledSessionLock lock = new ProfiledSessionLock(profiler, session());
+		CountDownLatch locked = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {
+			lock.lock();
+			try {
+				locked.countDown();
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		locked.await();
+
+		lock.lock();
+		// Reentrant locking is not counted again
+		lock.lock();
+		lock.unlock();
+		lock.unlock();
+		holder.join();
+
+		Assert.assertEquals(2, lock.acquisitions);
+		Assert.assertTrue(lock.maxWaitNanos >= Duration.ofMillis(100).toNanos());
+		Assert.assertTrue(lock.maxHoldNanos >= Duration.ofMillis(200).toNanos());
+		List<HolderStats> holders = profiler.getHolders();
+		Assert.assertEquals(1, holders.size());
+		Assert.assertEquals(1, holders.get(0).getHolds());
+	}
+
+	private static HttpSession session() {
+		return (HttpSession) Proxy.newProxyInstance(SessionLockProfilerTest.class.getClassLoader(),
+				new Class<?>[] { HttpSession.class }, (proxy, method, args) -> method.getName().equals("getId") ? "id"
+						: null);
+	}
+}
@@ -0,0 +1,94 @@
+package com.vaadin.starter.bakery.app.metrics;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.service.ProductService;
+
+public class SlowQueryLogTest {
+
+	private static final int LOG_SIZE = 5;
+
+	private static ConfigurableApplicationContext context;
+	private static SlowQueryLog slowQueryLog;
+	private static ProductService productService;
+
+	// Every statement is slow with the shortest threshold, as zero turns the log off
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start("--bakery.slow-query.threshold=PT0.000000001S",
+				"--bakery.slow-query.log-size=" + LOG_SIZE,
+				"--logging.level.com.vaadin.starter.bakery.app.metrics.SlowQueryLog=error");
+		slowQueryLog = context.getBean(SlowQueryLog.class);
+		productService = context.getBean(ProductService.class);
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void describesParametersWithoutValues() {
+		Object[] parameters = { "%cake%", 42, SlowQueryDataSource.NULL, LocalDate.now(), "Jones%" };
+		Assert.assertEquals("1: String(6, %...%), 2: Integer, 3: null, 4: LocalDate, 5: String(6, ...%)",
+				SlowQueryLog.describeParameters(parameters, parameters.length, 0));
+		Assert.assertEquals("batch of 50, last: 1: String(6, %...%)",
+				SlowQueryLog.describeParameters(parameters, 1, 50));
+	}
+
+	@Test
+	public void recordsStatementsOverTheThreshold() {
+		Assert.assertTrue(slowQueryLog.isEnabled());
+		productService.countAnyMatching(Optional.of("recorded"));
+
+		SlowQuery query = slowQueryLog.getRecent().get(0);
+		Assert.assertEquals(ProductRepository.NAME_SEARCH, query.getName());
+		Assert.assertEquals("1: String(10, %...%), 2: String(1)", query.getParameters());
+		Assert.assertTrue(query.getCaller(), query.getCaller().startsWith("ProductService.countAnyMatching:"));
+		Assert.assertTrue(query.getDuration().toNanos() > 0);
+	}
+
+	@Test
+	public void keepsTheLatestStatementsFirst() {
+		for (int length = 1; length <= LOG_SIZE + 2; length++) {
+			productService.countAnyMatching(Optional.of("k".repeat(length)));
+		}
+
+		List<SlowQuery> recent = slowQueryLog.getRecent();
+		Assert.assertEquals(LOG_SIZE, recent.size());
+		for (int i = 0; i < LOG_SIZE; i++) {
+			// The LIKE pattern is two characters longer than the filter, then comes its escape character
+			Assert.assertEquals("1: String(" + (LOG_SIZE + 4 - i) + ", %...%), 2: String(1)",
+					recent.get(i).getParameters());
+		}
+	}
+
+	@Test
+	public void explainsEachStatementOnce() {
+		productService.countAnyMatching(Optional.of("explained"));
+		productService.countAnyMatching(Optional.of("explained again"));
+		productService.findAnyMatching(Optional.of("explained"), PageRequest.of(0, 10));
+
+		List<SlowQuery> recent = slowQueryLog.getRecent();
+		SlowQuery find = recent.get(0);
+		SlowQuery count = recent.get(1);
+		Assert.assertEquals(ProductRepository.NAME_SEARCH, find.getName());
+		Assert.assertEquals(count.getSql(), recent.get(2).getSql());
+		Assert.assertNotNull(count.getPlan());
+		Assert.assertNotNull(find.getPlan());
+		// Kept from the first time the statement was slow
+		Assert.assertSame(count.getPlan(), recent.get(2).getPlan());
+		Assert.assertNotEquals(count.getPlan(), find.getPlan());
+	}
+}
@@ -0,0 +1,156 @@
+package com.vaadin.starter.bakery.app.security;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.flow.server.VaadinSession;
+import com.vaadin.flow.server.WrappedHttpSession;
+import com.vaadin.flow.server.WrappedSession;
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.UserService;
+
+public class CurrentUserCacheTest {
+
+	private static ConfigurableApplicationContext context;
+	private static CurrentUserCache currentUserCache;
+	private static UserService userService;
+	private static UserRepository userRepository;
+	private static JdbcTemplate jdbc;
+	private static User admin;
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+		currentUserCache = context.getBean(CurrentUserCache.class);
+		userService = context.getBean(UserService.class);
+		userRepository = context.getBean(UserRepository.class);
+		jdbc = context.getBean(JdbcTemplate.class);
+		admin = userRepository.findByEmailIgnoreCase("admin@vaadin.com");
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	// The current session is only weakly referenced by VaadinSession
+	private VaadinSession vaadinSession;
+
+	@Before
+	public void openSession() {
+		WrappedSession session = new WrappedHttpSession(httpSession());
+		vaadinSession = new VaadinSession(null) {
+			@Override
+			public WrappedSession getSession() {
+				return session;
+			}
+		};
+		VaadinSession.setCurrent(vaadinSession);
+	}
+
+	@After
+	public void closeSession() {
+		VaadinSession.setCurrent(null);
+	}
+
+	@Test
+	public void userIsLoadedOncePerSession() {
+		User user = currentUserCache.find("baker@vaadin.com");
+		jdbc.update("UPDATE user_info SET first_name = 'Changed' WHERE id = ?", user.getId());
+		try {
+			assertSame(user, currentUserCache.find("BAKER@vaadin.com"));
+			assertNotSame(user, currentUserCache.find("peter@vaadin.com"));
+		} finally {
+			jdbc.update("UPDATE user_info SET first_name = ? WHERE id = ?", user.getFirstName(), user.getId());
+		}
+	}
+
+	@Test
+	public void editedUserIsReloaded() {
+		User user = currentUserCache.find("baker@vaadin.com");
+
+		User edited = userRepository.findByEmailIgnoreCase("baker@vaadin.com");
+		edited.setLastName("Edited");
+		userService.save(admin, edited);
+
+		User reloaded = currentUserCache.find("baker@vaadin.com");
+		assertNotSame(user, reloaded);
+		assertEquals("Edited", reloaded.getLastName());
+		assertSame(reloaded, currentUserCache.find("baker@vaadin.com"));
+	}
+
+	@Test
+	public void editedUserIsReloadedAfterCommit() {
+		User user = currentUserCache.find("baker@vaadin.com");
+
+		new TransactionTemplate(context.getBean(PlatformTransactionManager.class)).executeWithoutResult(status -> {
+			User edited = userRepository.findByEmailIgnoreCase("baker@vaadin.com");
+			edited.setFirstName("Committed");
+			userService.save(admin, edited);
+			assertSame(user, currentUserCache.find("baker@vaadin.com"));
+		});
+
+		assertEquals("Committed", currentUserCache.find("baker@vaadin.com").getFirstName());
+	}
+
+	@Test
+	public void deletedUserIsNotFound() {
+		User user = new User();
+		user.setEmail("deleted@vaadin.com");
+		user.setFirstName("Deleted");
+		user.setLastName("User");
+		user.setPasswordHash("deleted");
+		user.setRole(Role.BAKER);
+		userService.save(admin, user);
+		User cached = currentUserCache.find("deleted@vaadin.com");
+
+		userService.delete(admin, cached);
+
+		assertNull(currentUserCache.find("deleted@vaadin.com"));
+	}
+
+	// A session of a servlet container, only with its attributes
+	private static HttpSession httpSession() {
+		Map<String, Object> attributes = new HashMap<>();
+		return (HttpSession) Proxy.newProxyInstance(HttpSession.class.getClassLoader(),
+				new Class<?>[] { HttpSession.class }, (proxy, method, args) -> {
+					switch (method.getName()) {
+					case "getAttribute":
+						return attributes.get(args[0]);
+					case "setAttribute":
+						if (args[1] == null) {
+							attributes.remove(args[0]);
+						} else {
+							attributes.put((String) args[0], args[1]);
+						}
+						return null;
+					case "removeAttribute":
+						attributes.remove(args[0]);
+						return null;
+					default:
+						throw new UnsupportedOperationException(method.getName());
+					}
+				});
+	}
+}
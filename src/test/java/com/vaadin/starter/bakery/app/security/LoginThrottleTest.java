@@ -0,0 +1,49 @@
+package com.vaadin.starter.bakery.app.security;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LoginThrottleTest {
+
+	private final AtomicLong now = new AtomicLong();
+	private final LoginThrottle throttle = new LoginThrottle(3, Duration.ofSeconds(1), 2, Duration.ofMinutes(1),
+			now::get);
+
+	@Test
+	public void limitsAttemptsPerAddress() {
+		for (int i = 0; i < 3; i++) {
+			Assert.assertTrue(throttle.tryAttempt("user" + i + "@vaadin.com", "10.0.0.1"));
+		}
+		Assert.assertFalse(throttle.tryAttempt("other@vaadin.com", "10.0.0.1"));
+		Assert.assertTrue(throttle.tryAttempt("other@vaadin.com", "10.0.0.2"));
+
+		now.addAndGet(Duration.ofSeconds(1).toNanos());
+		Assert.assertTrue(throttle.tryAttempt("other@vaadin.com", "10.0.0.1"));
+		Assert.assertFalse(throttle.tryAttempt("other@vaadin.com", "10.0.0.1"));
+	}
+
+	@Test
+	public void onlyFailedAttemptsCountForTheAccount() {
+		for (int i = 0; i < 10; i++) {
+			Assert.assertTrue(throttle.tryAttempt("baker@vaadin.com", "10.0.0." + i));
+		}
+
+		throttle.failed("baker@vaadin.com");
+		throttle.failed("BAKER@vaadin.com");
+		Assert.assertFalse(throttle.tryAttempt("baker@vaadin.com", "10.0.0.100"));
+		Assert.assertTrue(throttle.tryAttempt("barista@vaadin.com", "10.0.0.100"));
+
+		now.addAndGet(Duration.ofMinutes(1).toNanos());
+		Assert.assertTrue(throttle.tryAttempt("baker@vaadin.com", "10.0.0.100"));
+	}
+
+	@Test
+	public void unknownAddress() {
+		for (int i = 0; i < 10; i++) {
+			Assert.assertTrue(throttle.tryAttempt("baker@vaadin.com", null));
+		}
+	}
+}
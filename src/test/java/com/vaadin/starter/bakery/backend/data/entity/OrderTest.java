@@ -0,0 +1,44 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OrderTest {
+
+	@Test
+	public void totalPriceFollowsItems() {
+		Order order = new Order(new User());
+		Assert.assertEquals(Integer.valueOf(0), order.getTotalPrice());
+
+		OrderItem first = createItem(250, 2);
+		OrderItem second = createItem(1000, 1);
+		order.setItems(Arrays.asList(first, second));
+		Assert.assertEquals(Integer.valueOf(1500), order.getTotalPrice());
+
+		second.setQuantity(3);
+		order.updateTotalPrice();
+		Assert.assertEquals(Integer.valueOf(3500), order.getTotalPrice());
+	}
+
+	@Test
+	public void totalPriceUsesPriceAtOrderTime() {
+		OrderItem item = createItem(250, 2);
+		item.getProduct().setPrice(300);
+		Assert.assertEquals(500, item.getTotalPrice());
+
+		Order order = new Order(new User());
+		order.setItems(Arrays.asList(item));
+		Assert.assertEquals(Integer.valueOf(500), order.getTotalPrice());
+	}
+
+	private OrderItem createItem(int price, int quantity) {
+		Product product = new Product();
+		product.setPrice(price);
+		OrderItem item = new OrderItem();
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		return item;
+	}
+}
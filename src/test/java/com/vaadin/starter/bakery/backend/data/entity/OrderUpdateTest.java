@@ -0,0 +1,169 @@
+package com.vaadin.starter.bakery.backend.data.entity;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.model.naming.CamelCaseToUnderscoresNamingStrategy;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.OrderState;
+
+/**
+ * Checks which statements are flushed when an edited, detached order is merged
+ * back, the same way {@code CrudService.save} does it.
+ */
+public class OrderUpdateTest {
+
+	private static final List<String> statements = new ArrayList<>();
+
+	private SessionFactory sessionFactory;
+	private User user;
+	private Long orderId;
+
+	@Before
+	public void setUp() {
+		StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+				.applySetting(AvailableSettings.URL, "jdbc:h2:mem:order-update-test")
+				.applySetting(AvailableSettings.HBM2DDL_AUTO, "create-drop")
+				.applySetting(AvailableSettings.JPA_VALIDATION_MODE, "none")
+				.applySetting(AvailableSettings.PHYSICAL_NAMING_STRATEGY, CamelCaseToUnderscoresNamingStrategy.class)
+				.applySetting(AvailableSettings.STATEMENT_INSPECTOR, (StatementInspector) sql -> {
+					statements.add(sql);
+					return sql;
+				}).build();
+		sessionFactory = new MetadataSources(registry).addAnnotatedClass(User.class)
+				.addAnnotatedClass(Product.class).addAnnotatedClass(PickupLocation.class)
+				.addAnnotatedClass(Customer.class).addAnnotatedClass(OrderItem.class)
+				.addAnnotatedClass(HistoryItem.class).addAnnotatedClass(Order.class).buildMetadata()
+				.buildSessionFactory();
+
+		inTransaction(session -> {
+			user = new User();
+			user.setEmail("baker@vaadin.com");
+			user.setFirstName("Heidi");
+			user.setLastName("Carter");
+			user.setPasswordHash("hash");
+			user.setRole("baker");
+			session.persist(user);
+
+			PickupLocation store = new PickupLocation();
+			store.setName("Store");
+			session.persist(store);
+
+			Order order = new Order(user);
+			order.setDueDate(LocalDate.of(2030, 1, 1));
+			order.setDueTime(LocalTime.of(8, 0));
+			order.setPickupLocation(store);
+			order.getCustomer().setFullName("Jane Doe");
+			order.getCustomer().setPhoneNumber("+1-555-1234");
+			order.setItems(Arrays.asList(createItem(session, "Strawberry Bun", 1), createItem(session, "Vanilla Cracker", 2)));
+			session.persist(order);
+			orderId = order.getId();
+		});
+	}
+
+	@After
+	public void tearDown() {
+		sessionFactory.close();
+	}
+
+	@Test
+	public void changingStateOnlyUpdatesState() {
+		Order order = loadOrder();
+		order.changeState(user, OrderState.READY);
+
+		// Besides the new history item, only the state column of the order is written
+		List<String> updates = save(order);
+		Assert.assertEquals(Arrays.asList(
+				"insert into history_item (version, created_by_id, message, new_state, timestamp, id) values (?, ?, ?, ?, ?, ?)",
+				"update order_info set version=?, state=? where id=? and version=?",
+				"update history_item set history_id=?, history_order=? where id=?"), updates);
+	}
+
+	@Test
+	public void changingCustomerOnlyUpdatesChangedColumn() {
+		Order order = loadOrder();
+		order.getCustomer().setFullName("Jane Smith");
+
+		List<String> updates = save(order);
+		Assert.assertEquals(Arrays.asList("update customer set version=?, full_name=? where id=? and version=?"),
+				updates);
+	}
+
+	@Test
+	public void changingQuantityOnlyUpdatesChangedItem() {
+		Order order = loadOrder();
+		order.getItems().get(1).setQuantity(5);
+		order.updateTotalPrice();
+
+		List<String> updates = save(order);
+		Assert.assertEquals(Arrays.asList("update order_info set version=?, total_price=? where id=? and version=?",
+				"update order_item set version=?, quantity=? where id=? and version=?"), updates);
+	}
+
+	@Test
+	public void savingUnchangedOrderWritesNothing() {
+		Assert.assertEquals(Arrays.asList(), save(loadOrder()));
+	}
+
+	private OrderItem createItem(Session session, String name, int quantity) {
+		Product product = new Product();
+		product.setName(name);
+		product.setPrice(100);
+		session.persist(product);
+		OrderItem item = new OrderItem();
+		item.setProduct(product);
+		item.setQuantity(quantity);
+		return item;
+	}
+
+	private Order loadOrder() {
+		return inTransaction(session -> {
+			Order order = session.get(Order.class, orderId);
+			order.getItems().size();
+			order.getHistory().size();
+			return order;
+		});
+	}
+
+	private List<String> save(Order order) {
+		statements.clear();
+		inTransaction(session -> {
+			session.merge(order);
+		});
+		return statements.stream().filter(sql -> sql.startsWith("insert") || sql.startsWith("update"))
+				.collect(Collectors.toList());
+	}
+
+	private void inTransaction(Consumer<Session> work) {
+		inTransaction(session -> {
+			work.accept(session);
+			return null;
+		});
+	}
+
+	private <T> T inTransaction(Function<Session, T> work) {
+		try (Session session = sessionFactory.openSession()) {
+			session.beginTransaction();
+			T result = work.apply(session);
+			session.getTransaction().commit();
+			return result;
+		}
+	}
+}
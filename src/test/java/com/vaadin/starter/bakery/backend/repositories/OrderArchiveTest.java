@@ -0,0 +1,167 @@
+package com.vaadin.starter.bakery.backend.repositories;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.service.OrderArchiveService;
+import com.vaadin.starter.bakery.backend.service.OrderService;
+
+public class OrderArchiveTest {
+
+	private static ConfigurableApplicationContext context;
+	private static OrderRepository orderRepository;
+	private static OrderService orderService;
+	private static OrderArchiveService archiveService;
+	private static JdbcTemplate jdbc;
+	private static TransactionTemplate transaction;
+
+	private static LocalDate dueBefore;
+	private static long orders;
+	private static long orderItems;
+	private static long historyItems;
+	private static int archived;
+
+	@BeforeClass
+	public static void archive() {
+		// With the last year, so that there are orders old enough in January too
+		context = TestBackend.start("--bakery.data.years=1", "--bakery.archive.age=P28D");
+		orderRepository = context.getBean(OrderRepository.class);
+		orderService = context.getBean(OrderService.class);
+		archiveService = context.getBean(OrderArchiveService.class);
+		jdbc = context.getBean(JdbcTemplate.class);
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+		dueBefore = LocalDate.now().minusDays(28);
+		orders = count("order_info");
+		orderItems = count("order_item");
+		historyItems = count("history_item");
+		archived = archiveService.archive();
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void archiveMovesOldDeliveredAndCancelledOrders() {
+		assertTrue(archived > 0);
+		assertTrue(count("archived_order_info") >= archived);
+		assertEquals(orders, count("order_info") + count("archived_order_info"));
+		assertEquals(orderItems, count("order_item") + count("archived_order_item"));
+		assertEquals(historyItems, count("history_item") + count("archived_history_item"));
+		assertEquals(Long.valueOf(0), jdbc.queryForObject(
+				"SELECT count(*) FROM order_info WHERE due_date < ? AND state IN (?, ?)", Long.class, dueBefore,
+				OrderState.DELIVERED.ordinal(), OrderState.CANCELLED.ordinal()));
+		assertEquals(Long.valueOf(0), jdbc.queryForObject(
+				"SELECT count(*) FROM archived_order_info WHERE due_date >= ?", Long.class, dueBefore));
+		assertEquals(0, archiveService.archive());
+	}
+
+	@Test
+	public void loadArchivedOrder() {
+		long id = jdbc.queryForObject("SELECT min(id) FROM archived_order_info", Long.class);
+		Order order = transaction.execute(status -> {
+			Order loaded = orderService.load(id);
+			loaded.getItems().forEach(item -> item.getProduct().getName());
+			loaded.getHistory().forEach(item -> item.getCreatedBy().getFirstName());
+			return loaded;
+		});
+
+		assertTrue(order.isArchived());
+		assertEquals(jdbc.queryForObject("SELECT count(*) FROM archived_order_item WHERE items_id = ?", Integer.class,
+				id).intValue(), order.getItems().size());
+		assertEquals(jdbc.queryForObject("SELECT count(*) FROM archived_history_item WHERE "
+				+ Order.HISTORY_JOIN_COLUMN + " = ?", Integer.class, id).intValue(), order.getHistory().size());
+		assertEquals(jdbc.queryForObject("SELECT total_price FROM archived_order_info WHERE id = ?", Integer.class,
+				id), order.getTotalPrice());
+		assertFalse(order.getCustomer().getFullName().isEmpty());
+	}
+
+	@Test
+	public void findAllIncludingArchive() {
+		LocalDate dueAfter = dueBefore.minusDays(14);
+		Sort sort = Sort.by("dueDate", "id");
+		long total = orderRepository.countIncludingArchive(null, dueAfter, null, null);
+		assertEquals(jdbc.queryForObject("SELECT count(*) FROM order_info WHERE due_date > ?", Long.class, dueAfter)
+				+ jdbc.queryForObject("SELECT count(*) FROM archived_order_info WHERE due_date > ?", Long.class,
+						dueAfter), total);
+
+		List<Order> all = new ArrayList<>();
+		int archivedOrders = 0;
+		for (int page = 0; page * 50 < total; page++) {
+			PageRequest pageable = PageRequest.of(page, 50, sort);
+			Page<Order> orders = transaction.execute(
+					status -> orderRepository.findAllIncludingArchive(null, dueAfter, null, null, pageable));
+			assertEquals(total, orders.getTotalElements());
+			for (Order order : orders) {
+				assertEquals(order.getDueDate().isBefore(dueBefore) && isArchivedState(order.getState()),
+						order.isArchived());
+				archivedOrders += order.isArchived() ? 1 : 0;
+				all.add(order);
+			}
+		}
+		assertEquals(total, all.size());
+		assertTrue(archivedOrders > 0);
+		for (int i = 1; i < all.size(); i++) {
+			assertFalse(all.get(i).getDueDate().isBefore(all.get(i - 1).getDueDate()));
+		}
+
+		String name = all.get(0).getCustomer().getFullName();
+		Page<Order> filtered = transaction.execute(status -> orderRepository.findAllIncludingArchive(
+				name.toUpperCase(), dueAfter, null, null, PageRequest.of(0, 1000, sort)));
+		assertTrue(filtered.getTotalElements() > 0);
+		filtered.forEach(order -> assertEquals(name, order.getCustomer().getFullName()));
+	}
+
+	@Test
+	public void archiveColumnsFollowTheOrderTables() {
+		// A column added to an existing database, e.g. by schema updates
+		jdbc.execute("ALTER TABLE order_info ADD COLUMN archive_test_note VARCHAR(20) DEFAULT 'kept'");
+		try {
+			context.getBean(OrderRepositoryImpl.class).createTables();
+			long id = jdbc.queryForObject("SELECT min(id) FROM order_info WHERE state = ?", Long.class,
+					OrderState.NEW.ordinal());
+			jdbc.update("UPDATE order_info SET due_date = ?, state = ? WHERE id = ?", dueBefore.minusDays(1),
+					OrderState.DELIVERED.ordinal(), id);
+
+			assertEquals(1, orderRepository.archive(dueBefore, EnumSet.of(OrderState.DELIVERED), 10));
+			assertEquals("kept", jdbc.queryForObject(
+					"SELECT archive_test_note FROM archived_order_info WHERE id = ?", String.class, id));
+			assertTrue(orderRepository.findArchivedById(id).isPresent());
+		} finally {
+			jdbc.execute("ALTER TABLE order_info DROP COLUMN archive_test_note");
+		}
+		assertEquals(Optional.of(jdbc.queryForObject("SELECT max(due_date) FROM archived_order_info",
+				LocalDate.class)), orderRepository.findLatestArchivedDueDate());
+	}
+
+	private static boolean isArchivedState(OrderState state) {
+		return state == OrderState.DELIVERED || state == OrderState.CANCELLED;
+	}
+
+	private static long count(String table) {
+		return jdbc.queryForObject("SELECT count(*) FROM " + table, Long.class);
+	}
+}
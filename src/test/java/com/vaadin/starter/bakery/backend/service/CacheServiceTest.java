@@ -0,0 +1,179 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+
+public class CacheServiceTest {
+
+	private static ConfigurableApplicationContext context;
+	private static ProductService productService;
+	private static ProductCatalog productCatalog;
+	private static OrderService orderService;
+	private static UserService userService;
+	private static UserRepository userRepository;
+	private static JdbcTemplate jdbc;
+	private static TransactionTemplate transaction;
+	private static SessionFactory sessionFactory;
+	private static Cache cache;
+	private static User admin;
+
+	private static final String POPULARITY_QUERY = "SELECT i.product.id, count(i) FROM OrderItem i GROUP BY i.product.id";
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+		productService = context.getBean(ProductService.class);
+		productCatalog = context.getBean(ProductCatalog.class);
+		userService = context.getBean(UserService.class);
+		userRepository = context.getBean(UserRepository.class);
+		jdbc = context.getBean(JdbcTemplate.class);
+		orderService = context.getBean(OrderService.class);
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		sessionFactory = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class);
+		cache = sessionFactory.getCache();
+		admin = userRepository.findByEmailIgnoreCase("admin@vaadin.com");
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void savedProductIsEvicted() {
+		Product product = productService.find(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+		assertTrue(cache.containsEntity(Product.class, product.getId()));
+		assertEquals(0, productService.countAnyMatching(Optional.of("Renamed")));
+
+		product.setName("Renamed " + product.getName());
+		productService.save(admin, product);
+
+		// Loaded again with the new name
+		assertEquals(product.getName(), productService.load(product.getId()).getName());
+		assertEquals(1, productService.countAnyMatching(Optional.of("Renamed")));
+		assertEquals(product.getName(), productService.findAnyMatching(Optional.of("Renamed"), PageRequest.of(0, 10))
+				.getContent().get(0).getName());
+	}
+
+	@Test
+	public void savedProductIsUpdatedInTheCatalog() {
+		ProductCatalog.Snapshot snapshot = productCatalog.getSnapshot();
+		Product product = productService.load(snapshot.find(null).get(0).getId());
+		Statistics statistics = sessionFactory.getStatistics();
+		long popularityCounts = statistics.getQueryStatistics(POPULARITY_QUERY).getExecutionCount();
+
+		product.setPrice(product.getPrice() + 1);
+		productService.save(admin, product);
+
+		ProductCatalog.Snapshot saved = productCatalog.getSnapshot();
+		assertEquals(snapshot.getVersion() + 1, saved.getVersion());
+		assertEquals(product.getId(), saved.find(null).get(0).getId());
+		assertEquals(product.getPrice(), saved.find(null).get(0).getPrice());
+		assertEquals(snapshot.find(null).size(), saved.find(null).size());
+		assertEquals(popularityCounts, statistics.getQueryStatistics(POPULARITY_QUERY).getExecutionCount());
+	}
+
+	@Test
+	public void deletedProductIsRemovedFromTheCatalog() {
+		Product product = new Product();
+		product.setName("Catalog Cake");
+		product.setPrice(100);
+		product = productService.save(admin, product);
+		assertEquals(product.getId(), productCatalog.getSnapshot().find("catalog cake").get(0).getId());
+
+		productService.delete(admin, product);
+
+		assertTrue(productCatalog.getSnapshot().find("catalog cake").isEmpty());
+	}
+
+	@Test
+	public void savedUserIsEvicted() {
+		User user = userRepository.findByEmailIgnoreCase("peter@vaadin.com");
+		assertTrue(cache.containsEntity(User.class, user.getId()));
+		// Only seen once the cached user is evicted
+		jdbc.update("UPDATE user_info SET last_name = 'Changed' WHERE id = ?", user.getId());
+		assertEquals("Bush", userRepository.findByEmailIgnoreCase("peter@vaadin.com").getLastName());
+
+		User changed = userRepository.findByEmailIgnoreCase("peter@vaadin.com");
+		changed.setFirstName("Pete");
+		changed.setLastName("Changed");
+		userService.save(admin, changed);
+
+		assertFalse(cache.containsEntity(User.class, user.getId()));
+		User loaded = userRepository.findByEmailIgnoreCase("peter@vaadin.com");
+		assertEquals("Pete", loaded.getFirstName());
+		assertEquals("Changed", loaded.getLastName());
+	}
+
+	@Test
+	public void deletedUserIsEvicted() {
+		User user = new User();
+		user.setEmail("deleted@vaadin.com");
+		user.setFirstName("Deleted");
+		user.setLastName("User");
+		user.setPasswordHash("deleted");
+		user.setRole(Role.BAKER);
+		user = userService.save(admin, user);
+		assertEquals(user.getId(), userRepository.findByEmailIgnoreCase("deleted@vaadin.com").getId());
+
+		userService.delete(admin, user);
+
+		assertFalse(cache.containsEntity(User.class, user.getId()));
+		assertNull(userRepository.findByEmailIgnoreCase("deleted@vaadin.com"));
+	}
+
+	@Test
+	public void commentKeepsOtherCachedEntities() {
+		Product product = productService.find(PageRequest.of(0, 1, Sort.by("id"))).getContent().get(0);
+		productService.countAnyMatching(Optional.of("Bun"));
+		assertTrue(cache.containsEntity(Product.class, product.getId()));
+		assertTrue(cache.containsEntity(User.class, admin.getId()));
+
+		Order order = loadUpcomingOrder();
+		orderService.addComment(admin, order, "Cached");
+
+		assertTrue(cache.containsEntity(Product.class, product.getId()));
+		assertTrue(cache.containsEntity(User.class, admin.getId()));
+		Statistics statistics = sessionFactory.getStatistics();
+		long hits = statistics.getQueryCacheHitCount();
+		productService.countAnyMatching(Optional.of("Bun"));
+		assertEquals(hits + 1, statistics.getQueryCacheHitCount());
+	}
+
+	// Detached with its history, as the order editor has it
+	private static Order loadUpcomingOrder() {
+		return transaction.execute(status -> {
+			Order order = orderService.load(orderService.findAnyMatchingAfterDueDate(Optional.empty(),
+					Optional.of(LocalDate.now()), PageRequest.of(0, 1)).getContent().get(0).getId());
+			order.getHistory().size();
+			return order;
+		});
+	}
+}
@@ -0,0 +1,179 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.PickupLocationRepository;
+import com.vaadin.starter.bakery.backend.repositories.ProductRepository;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+import com.vaadin.starter.bakery.backend.service.CsvImportService.Result;
+import com.vaadin.starter.bakery.backend.service.CsvImportService.Type;
+import com.vaadin.starter.bakery.backend.service.OrderExportService.Format;
+
+public class CsvImportServiceTest {
+
+	private static ConfigurableApplicationContext context;
+	private static CsvImportService importService;
+	private static JdbcTemplate jdbc;
+	private static User admin;
+	private static String product;
+	private static String pickupLocation;
+
+	@BeforeClass
+	public static void startBackend() {
+		// Small chunks, so that the files below have several of them
+		context = TestBackend.start("--bakery.import.chunk-size=3", "--bakery.import.threads=2");
+		importService = context.getBean(CsvImportService.class);
+		jdbc = context.getBean(JdbcTemplate.class);
+		admin = context.getBean(UserRepository.class).findByEmailIgnoreCase("admin@vaadin.com");
+		product = context.getBean(ProductRepository.class).findAll().get(0).getName();
+		pickupLocation = context.getBean(PickupLocationRepository.class).findAll().get(0).getName();
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void importsProductsInChunks() {
+		StringBuilder csv = new StringBuilder("Price,Name\n");
+		for (int i = 0; i < 10; i++) {
+			csv.append(i).append(".50,Chunked ").append(i).append('\n');
+		}
+
+		Result result = importCsv(Type.PRODUCTS, csv.toString());
+
+		assertTrue(result.isComplete());
+		assertEquals(10, result.getImported());
+		assertEquals(0, result.getRejected());
+		assertEquals(Arrays.asList(50, 150, 250, 350, 450, 550, 650, 750, 850, 950), jdbc.queryForList(
+				"SELECT price FROM product WHERE name LIKE 'Chunked %' ORDER BY price", Integer.class));
+	}
+
+	@Test
+	public void reportsInvalidRowsByLine() {
+		Result result = importCsv(Type.PRODUCTS,
+				"name,price\nValid 1,1.00\nInvalid price,abc\n,2.00\nValid 2,3.00\nToo expensive,2000.00\n");
+
+		assertEquals(2, result.getImported());
+		assertEquals(3, result.getRejected());
+		assertEquals(Arrays.asList("3: price: 'abc' is not a price like 12.50", "4: name: name is required",
+				"6: price: price must be between 0 and 1000"), errors(result));
+	}
+
+	@Test
+	public void reportsInvalidOrderItemsOnTheirLine() {
+		String due = LocalDate.now().plusDays(5).toString();
+		String order = due + ",10:00,Imported customer,+358401234567," + pickupLocation + "," + product + ",";
+		Result result = importCsv(Type.ORDERS,
+				"order_id,due_date,due_time,customer_name,customer_phone,pickup_location,product,quantity\n"
+						+ "1," + order + "1\n1," + order + "0\n1," + order + "2\n"
+						+ "2," + order + "3\n"
+						+ "3," + due + ",10:00,Imported customer,not a phone," + pickupLocation + "," + product
+						+ ",1\n");
+
+		assertEquals(1, result.getImported());
+		assertEquals(2, result.getRejected());
+		assertEquals(Arrays.asList("3: quantity: must be greater than or equal to 1",
+				"6: customer_phone: phone format +NN NNNN..."), errors(result));
+	}
+
+	@Test
+	public void duplicateNamesAreRejectedOneByOne() {
+		Result result = importCsv(Type.PRODUCTS,
+				"name,price\nFirst new,1.00\n" + product + ",2.00\nSecond new,3.00\nThird new,4.00\n");
+
+		assertEquals(3, result.getImported());
+		assertEquals(1, result.getRejected());
+		assertEquals(Arrays.asList(
+				"3: There is already a product with that name. Please select a unique name for the product."),
+				errors(result));
+		assertEquals(3, (int) jdbc.queryForObject(
+				"SELECT count(*) FROM product WHERE name IN ('First new', 'Second new', 'Third new')",
+				Integer.class));
+	}
+
+	@Test
+	public void readFailureKeepsTheImportedRows() {
+		Result result = importCsv(Type.PRODUCTS,
+				"name,price\nRead 1,1.00\nRead 2,1.00\nRead 3,1.00\nRead 4,1.00\nRead 5,1.00\n\"Unterminated,1.00\n");
+
+		assertFalse(result.isComplete());
+		assertEquals(5, result.getImported());
+		assertEquals(Arrays.asList("7: Unable to read the file from this line on: "
+				+ "Unterminated quoted field starting on line 7"), errors(result));
+	}
+
+	@Test
+	public void readFailureSkipsThePartlyReadOrder() {
+		String order = LocalDate.now().plusDays(5) + ",11:00,Partly read,+358401234567," + pickupLocation + ","
+				+ product + ",1\n";
+		InputStream failing = new InputStream() {
+			@Override
+			public int read() throws IOException {
+				throw new IOException("Connection reset");
+			}
+		};
+		InputStream in = new SequenceInputStream(new ByteArrayInputStream(
+				("order_id,due_date,due_time,customer_name,customer_phone,pickup_location,product,quantity\n"
+						+ "1," + order + "2," + order + "2," + order).getBytes(StandardCharsets.UTF_8)),
+				failing);
+
+		Result result = importService.importCsv(admin, Type.ORDERS, in);
+
+		assertFalse(result.isComplete());
+		assertEquals(1, result.getImported());
+		assertEquals(Arrays.asList("3: Unable to read the file from this line on: Connection reset"),
+				errors(result));
+		assertEquals(1, (int) jdbc.queryForObject(
+				"SELECT count(*) FROM order_info o JOIN customer c ON c.id = o.customer_id "
+						+ "WHERE c.full_name = 'Partly read'", Integer.class));
+	}
+
+	@Test
+	public void importsTheOrderExport() throws IOException {
+		LocalDate day = LocalDate.now().plusDays(4);
+		int orders = jdbc.queryForObject("SELECT count(*) FROM order_info WHERE due_date = ?", Integer.class, day);
+		ByteArrayOutputStream export = new ByteArrayOutputStream();
+		context.getBean(OrderExportService.class).export(day, day, Format.CSV, export);
+		// Generated phone numbers start with +, so they are escaped
+		assertTrue(export.toString("UTF-8").contains(",'+"));
+
+		Result result = importService.importCsv(admin, Type.ORDERS, new ByteArrayInputStream(export.toByteArray()));
+
+		assertEquals(errors(result).toString(), orders, result.getImported());
+		assertEquals(0, result.getRejected());
+		assertEquals(0, (int) jdbc.queryForObject(
+				"SELECT count(*) FROM customer WHERE phone_number LIKE '''%'", Integer.class));
+	}
+
+	private static Result importCsv(Type type, String csv) {
+		return importService.importCsv(admin, type, new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private static List<String> errors(Result result) {
+		return result.getErrors().stream().map(error -> error.getLine() + ": " + error.getMessage())
+				.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,38 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CsvReaderTest {
+
+	@Test
+	public void readsPlainAndQuotedFields() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("name,price\r\n\"Pie, apple\",4.50\r\n\"Say \"\"hi\"\"\",\n"));
+		Assert.assertArrayEquals(new String[] { "name", "price" }, reader.next());
+		Assert.assertEquals(1, reader.getLine());
+		Assert.assertArrayEquals(new String[] { "Pie, apple", "4.50" }, reader.next());
+		Assert.assertEquals(2, reader.getLine());
+		Assert.assertArrayEquals(new String[] { "Say \"hi\"", "" }, reader.next());
+		Assert.assertNull(reader.next());
+	}
+
+	@Test
+	public void countsLinesOfMultiLineFieldsAndSkipsEmptyLines() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("\uFEFFa,b\n\"one\ntwo\",c\n\n\nd,e"));
+		Assert.assertArrayEquals(new String[] { "a", "b" }, reader.next());
+		Assert.assertArrayEquals(new String[] { "one\ntwo", "c" }, reader.next());
+		Assert.assertEquals(2, reader.getLine());
+		Assert.assertArrayEquals(new String[] { "d", "e" }, reader.next());
+		Assert.assertEquals(6, reader.getLine());
+		Assert.assertNull(reader.next());
+	}
+
+	@Test(expected = IOException.class)
+	public void unterminatedQuoteFails() throws IOException {
+		CsvReader reader = new CsvReader(new StringReader("a,\"b\nc"));
+		reader.next();
+	}
+}
@@ -0,0 +1,158 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.service.OrderExportService.Format;
+
+public class OrderExportServiceTest {
+
+	private static final LocalDate DAY = LocalDate.now().plusDays(3);
+
+	private static ConfigurableApplicationContext context;
+	private static OrderExportService exportService;
+	private static JdbcTemplate jdbc;
+
+	@BeforeClass
+	public static void startBackend() {
+		// Enough rows for the export to be flushed many times
+		context = TestBackend.start("--bakery.data.orders-per-day=40");
+		exportService = context.getBean(OrderExportService.class);
+		jdbc = context.getBean(JdbcTemplate.class);
+
+		long customerId = jdbc.queryForObject(
+				"SELECT customer_id FROM order_info WHERE due_date = ? ORDER BY id LIMIT 1", Long.class, DAY);
+		jdbc.update("UPDATE customer SET full_name = ?, phone_number = ?, details = ? WHERE id = ?",
+				"=HYPERLINK(\"http://example.com\",\"Open\")", "+1 555 0100", "Ring twice, \"back\" door\nthanks",
+				customerId);
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void csvHasOneLinePerItem() throws IOException {
+		String csv = export(DAY, DAY, Format.CSV);
+
+		assertTrue(csv.startsWith("order_id,due_date,due_time,state,total,customer_name,customer_phone,"
+				+ "customer_details,pickup_location,product,quantity,unit_price,comment\r\n"));
+		// Quoted line breaks in the values are only \n
+		assertEquals(items(DAY, DAY) + 1, csv.split("\r\n", -1).length - 1);
+	}
+
+	@Test
+	public void csvEscapesFormulasAndSeparators() throws IOException {
+		String csv = export(DAY, DAY, Format.CSV);
+
+		assertTrue(csv.contains(",\"'=HYPERLINK(\"\"http://example.com\"\",\"\"Open\"\")\","));
+		assertTrue(csv.contains(",'+1 555 0100,"));
+		assertTrue(csv.contains(",\"Ring twice, \"\"back\"\" door\nthanks\","));
+		assertFalse(csv.contains(",=HYPERLINK"));
+	}
+
+	@Test
+	public void jsonLinesHaveOneOrderPerLine() throws IOException {
+		String json = export(DAY, DAY, Format.JSON_LINES);
+
+		ObjectMapper mapper = new ObjectMapper();
+		String[] lines = json.split("\n");
+		assertEquals(orders(DAY, DAY), lines.length);
+		int items = 0;
+		boolean escapedCustomer = false;
+		for (String line : lines) {
+			JsonNode order = mapper.readTree(line);
+			assertEquals(DAY.toString(), order.get("dueDate").asText());
+			assertTrue(order.get("items").size() > 0);
+			items += order.get("items").size();
+			if (order.get("customer").get("details").asText().equals("Ring twice, \"back\" door\nthanks")) {
+				// Only CSV values are changed for spreadsheets
+				assertEquals("=HYPERLINK(\"http://example.com\",\"Open\")",
+						order.get("customer").get("name").asText());
+				escapedCustomer = true;
+			}
+		}
+		assertEquals(items(DAY, DAY), items);
+		assertTrue(escapedCustomer);
+	}
+
+	@Test
+	public void exportsArchivedAndCurrentOrders() throws IOException {
+		LocalDate from = LocalDate.now().minusYears(1);
+		LocalDate to = LocalDate.now().plusYears(1);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		assertEquals(orders(from, to), exportService.export(from, to, Format.JSON_LINES, out));
+	}
+
+	@Test
+	public void memoryDoesNotGrowWithTheExport() throws IOException {
+		Runtime runtime = Runtime.getRuntime();
+		List<Long> used = new ArrayList<>();
+		long[] written = new long[1];
+		// Measures the heap still in use each time the export flushes
+		OutputStream out = new OutputStream() {
+			@Override
+			public void write(int b) {
+				written[0]++;
+			}
+
+			@Override
+			public void write(byte[] b, int off, int len) {
+				written[0] += len;
+			}
+
+			@Override
+			public void flush() {
+				System.gc();
+				used.add(runtime.totalMemory() - runtime.freeMemory());
+			}
+		};
+
+		exportService.export(LocalDate.now().minusYears(1), LocalDate.now().plusYears(1), Format.CSV, out);
+
+		assertTrue(used.size() > 10);
+		assertTrue(written[0] > 1024 * 1024);
+		// The database may hold the sorted rows until the first flush, after that
+		// only the output grows
+		List<Long> afterFirstQuarter = used.subList(used.size() / 4, used.size());
+		long growth = Collections.max(afterFirstQuarter) - afterFirstQuarter.get(0);
+		assertTrue("Grew by " + growth + " bytes", growth < 1024 * 1024);
+	}
+
+	private static String export(LocalDate from, LocalDate to, Format format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		exportService.export(from, to, format, out);
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+	private static long orders(LocalDate from, LocalDate to) {
+		return jdbc.queryForObject("SELECT (SELECT count(*) FROM order_info WHERE due_date BETWEEN ?1 AND ?2) + "
+				+ "(SELECT count(*) FROM archived_order_info WHERE due_date BETWEEN ?1 AND ?2)", Long.class, from,
+				to);
+	}
+
+	private static long items(LocalDate from, LocalDate to) {
+		return jdbc.queryForObject("SELECT count(*) FROM order_item i JOIN order_info o ON o.id = i.items_id "
+				+ "WHERE o.due_date BETWEEN ? AND ?", Long.class, from, to);
+	}
+}
@@ -0,0 +1,193 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.OrderState;
+import com.vaadin.starter.bakery.backend.data.entity.HistoryItem;
+import com.vaadin.starter.bakery.backend.data.entity.Order;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+
+public class OrderServiceTest {
+
+	private static ConfigurableApplicationContext context;
+	private static OrderService orderService;
+	private static TransactionTemplate transaction;
+	private static JdbcTemplate jdbc;
+	private static User baker;
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+		orderService = context.getBean(OrderService.class);
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+		jdbc = context.getBean(JdbcTemplate.class);
+		baker = context.getBean(UserRepository.class).findByEmailIgnoreCase("baker@vaadin.com");
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void countMatchesFoundOrders() {
+		for (Optional<String> name : Arrays.asList(Optional.<String>empty(), Optional.of(""), Optional.of("an"))) {
+			for (Optional<LocalDate> dueDate : Arrays.asList(Optional.<LocalDate>empty(),
+					Optional.of(LocalDate.now().minusDays(1)))) {
+				for (Optional<Integer> minTotal : Arrays.asList(Optional.<Integer>empty(), Optional.of(5000))) {
+					long found = orderService.findAnyMatchingAfterDueDate(name, dueDate, minTotal, Optional.empty(),
+							PageRequest.of(0, 1)).getTotalElements();
+					assertEquals(name + " " + dueDate + " " + minTotal, found,
+							orderService.countAnyMatchingAfterDueDate(name, dueDate, minTotal, Optional.empty()));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void changeStateAppendsHistoryItem() {
+		Order order = load(upcomingOrderId(0));
+		int historySize = order.getHistory().size();
+		int version = order.getVersion();
+		OrderState state = order.getState() == OrderState.CONFIRMED ? OrderState.READY : OrderState.CONFIRMED;
+
+		orderService.changeState(baker, order, state);
+
+		assertEquals(version + 1, order.getVersion());
+		List<Integer> positions = jdbc.queryForList("SELECT " + Order.HISTORY_ORDER_COLUMN
+				+ " FROM history_item WHERE " + Order.HISTORY_JOIN_COLUMN + " = ? ORDER BY "
+				+ Order.HISTORY_ORDER_COLUMN, Integer.class, order.getId());
+		assertEquals(historySize + 1, positions.size());
+		for (int i = 0; i < positions.size(); i++) {
+			assertEquals(Integer.valueOf(i), positions.get(i));
+		}
+		Order reloaded = load(order.getId());
+		assertEquals(state, reloaded.getState());
+		assertEquals(version + 1, reloaded.getVersion());
+		assertEquals("Order " + state, reloaded.getHistory().get(historySize).getMessage());
+		assertEquals(state, reloaded.getHistory().get(historySize).getNewState());
+
+		// The detached order is up to date, so it can be saved as a whole
+		order.setDueTime(order.getDueTime().plusHours(1));
+		Order saved = orderService.saveOrder(order);
+		assertEquals(historySize + 1, load(saved.getId()).getHistory().size());
+	}
+
+	@Test
+	public void appendToChangedOrderFails() {
+		Order order = load(upcomingOrderId(1));
+		Order stale = load(order.getId());
+		int historySize = order.getHistory().size();
+		orderService.addComment(baker, order, "First");
+
+		try {
+			orderService.addComment(baker, stale, "Second");
+			fail("The comment was added to an order changed concurrently");
+		} catch (OptimisticLockingFailureException expected) {
+			// expected
+		}
+
+		Order reloaded = load(order.getId());
+		assertEquals(historySize + 1, reloaded.getHistory().size());
+		assertEquals("First", reloaded.getHistory().get(historySize).getMessage());
+	}
+
+	@Test
+	public void changeStatesOfDay() {
+		LocalDate dueDate = LocalDate.now().plusDays(10);
+		List<Map<String, Object>> before = jdbc.queryForList(
+				"SELECT id, version FROM order_info WHERE due_date = ? AND state = ? ORDER BY id", dueDate,
+				OrderState.NEW.ordinal());
+		List<Integer> progress = new ArrayList<>();
+
+		int changed = orderService.changeStates(baker, dueDate, EnumSet.of(OrderState.NEW, OrderState.CONFIRMED),
+				OrderState.CONFIRMED, (done, total) -> {
+					assertEquals(before.size(), total.intValue());
+					progress.add(done);
+				});
+
+		assertEquals(before.size(), changed);
+		assertEquals(Integer.valueOf(0), progress.get(0));
+		assertEquals(Integer.valueOf(changed), progress.get(progress.size() - 1));
+		for (Map<String, Object> row : before) {
+			Order order = load(((Number) row.get("id")).longValue());
+			assertEquals(OrderState.CONFIRMED, order.getState());
+			assertEquals(((Number) row.get("version")).intValue() + 1, order.getVersion());
+			HistoryItem last = order.getHistory().get(order.getHistory().size() - 1);
+			assertEquals("Order " + OrderState.CONFIRMED, last.getMessage());
+			assertEquals(OrderState.CONFIRMED, last.getNewState());
+			assertEquals(baker.getId(), last.getCreatedBy().getId());
+		}
+		assertEquals(0, orderService.countByDueDateAndStates(dueDate, EnumSet.of(OrderState.NEW)));
+	}
+
+	@Test
+	public void changeStatesFailsOnConcurrentChange() {
+		LocalDate dueDate = LocalDate.now().plusDays(11);
+		List<Long> ids = jdbc.queryForList("SELECT id FROM order_info WHERE due_date = ? AND state = ? ORDER BY id",
+				Long.class, dueDate, OrderState.NEW.ordinal());
+		long confirmed = orderService.countByDueDateAndStates(dueDate, EnumSet.of(OrderState.CONFIRMED));
+		long historyItems = countHistoryItems(dueDate);
+
+		try {
+			orderService.changeStates(baker, dueDate, EnumSet.of(OrderState.NEW), OrderState.CONFIRMED,
+					(done, total) -> {
+						if (done == 0) {
+							// Another user cancels an order after the ids are read
+							CompletableFuture.runAsync(() -> jdbc.update(
+									"UPDATE order_info SET state = ?, version = version + 1 WHERE id = ?",
+									OrderState.CANCELLED.ordinal(), ids.get(0))).join();
+						}
+					});
+			fail("The states were changed although an order was changed concurrently");
+		} catch (OptimisticLockingFailureException expected) {
+			// expected
+		}
+
+		assertEquals(ids.size() - 1, orderService.countByDueDateAndStates(dueDate, EnumSet.of(OrderState.NEW)));
+		assertEquals(confirmed, orderService.countByDueDateAndStates(dueDate, EnumSet.of(OrderState.CONFIRMED)));
+		assertEquals(historyItems, countHistoryItems(dueDate));
+	}
+
+	private static long countHistoryItems(LocalDate dueDate) {
+		return jdbc.queryForObject("SELECT count(*) FROM history_item h JOIN order_info o ON h."
+				+ Order.HISTORY_JOIN_COLUMN + " = o.id WHERE o.due_date = ?", Long.class, dueDate);
+	}
+
+	private static long upcomingOrderId(int index) {
+		return orderService.findAnyMatchingAfterDueDate(Optional.empty(), Optional.of(LocalDate.now()),
+				PageRequest.of(index, 1)).getContent().get(0).getId();
+	}
+
+	// Detached with everything the order editor shows, as the UI has it
+	private static Order load(long id) {
+		return transaction.execute(status -> {
+			Order order = orderService.load(id);
+			order.getItems().forEach(item -> item.getProduct().getName());
+			order.getHistory().forEach(item -> item.getCreatedBy().getFirstName());
+			return order;
+		});
+	}
+}
@@ -0,0 +1,49 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.starter.bakery.backend.data.entity.Product;
+
+public class ProductCatalogTest {
+
+	private final ProductCatalog.Snapshot snapshot = new ProductCatalog.Snapshot(1,
+			Arrays.asList(product("Vanilla Cake"), product("Strawberry Bun"), product("Blueberry Vanilla Tart"),
+					product("Chocolate Bagel"), product("Lamington")),
+			p -> p.getName().startsWith("Blueberry") ? 10 : p.getName().startsWith("Chocolate") ? 5 : 0);
+
+	@Test
+	public void allProductsByPopularity() {
+		Assert.assertEquals(Arrays.asList("Blueberry Vanilla Tart", "Chocolate Bagel", "Lamington", "Strawberry Bun",
+				"Vanilla Cake"), names(snapshot.find(null)));
+		Assert.assertEquals(names(snapshot.find(null)), names(snapshot.find("")));
+	}
+
+	@Test
+	public void wordMatchesFirst() {
+		Assert.assertEquals(Arrays.asList("Blueberry Vanilla Tart", "Strawberry Bun"), names(snapshot.find("BERRY")));
+		Assert.assertEquals(Arrays.asList("Blueberry Vanilla Tart", "Vanilla Cake"), names(snapshot.find("van")));
+		Assert.assertEquals(Arrays.asList("Lamington", "Blueberry Vanilla Tart", "Chocolate Bagel", "Vanilla Cake"),
+				names(snapshot.find("la")));
+	}
+
+	@Test
+	public void noMatches() {
+		Assert.assertEquals(Arrays.asList(), names(snapshot.find("muffin")));
+	}
+
+	private static Product product(String name) {
+		Product product = new Product();
+		product.setName(name);
+		product.setPrice(100);
+		return product;
+	}
+
+	private static List<String> names(List<Product> products) {
+		return products.stream().map(Product::getName).collect(Collectors.toList());
+	}
+}
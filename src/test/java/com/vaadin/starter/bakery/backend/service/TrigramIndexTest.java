@@ -0,0 +1,58 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TrigramIndexTest {
+
+	private final TrigramIndex index = new TrigramIndex();
+
+	@Before
+	public void setUp() {
+		index.put(3, "baker@vaadin.com\nHeidi\nCarter\nbaker");
+		index.put(1, "admin@vaadin.com\nGöran\nRich\nadmin");
+		index.put(2, "barista@vaadin.com\nMalin\nCastro\nbarista");
+	}
+
+	@Test
+	public void findsSubstringsIgnoringCase() {
+		Assert.assertArrayEquals(new long[] { 1, 2, 3 }, index.find("VAADIN"));
+		Assert.assertArrayEquals(new long[] { 2, 3 }, index.find("CA"));
+		Assert.assertArrayEquals(new long[] { 3 }, index.find("car"));
+		Assert.assertArrayEquals(new long[] { 1 }, index.find("göran"));
+		Assert.assertArrayEquals(new long[] { 3 }, index.find("heidi"));
+	}
+
+	@Test
+	public void shortTextsMatchWithoutTrigrams() {
+		Assert.assertArrayEquals(new long[] { 1, 2, 3 }, index.find(""));
+		Assert.assertArrayEquals(new long[] { 1, 2 }, index.find("ri"));
+	}
+
+	@Test
+	public void allTrigramsPresentIsNotEnough() {
+		// Contains both trigrams of "admin", but not in sequence
+		index.put(4, "dmin\nadmi");
+		Assert.assertArrayEquals(new long[] { 1 }, index.find("admin"));
+	}
+
+	@Test
+	public void doesNotMatchAcrossFields() {
+		Assert.assertArrayEquals(new long[0], index.find("heidicarter"));
+	}
+
+	@Test
+	public void updateAndRemove() {
+		index.put(3, "baker@vaadin.com\nHeidi\nJones\nbaker");
+		Assert.assertArrayEquals(new long[0], index.find("car"));
+		Assert.assertArrayEquals(new long[] { 3 }, index.find("jones"));
+
+		index.remove(2);
+		index.put(5, "new@vaadin.com\nNew\nCarson\nbaker");
+		Assert.assertArrayEquals(new long[0], index.find("castro"));
+		Assert.assertArrayEquals(new long[] { 5 }, index.find("car"));
+		Assert.assertArrayEquals(new long[] { 3, 5 }, index.find("baker"));
+		Assert.assertEquals(3, index.size());
+	}
+}
@@ -0,0 +1,85 @@
+package com.vaadin.starter.bakery.backend.service;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+
+import com.vaadin.starter.bakery.TestBackend;
+import com.vaadin.starter.bakery.backend.data.Role;
+import com.vaadin.starter.bakery.backend.data.entity.User;
+import com.vaadin.starter.bakery.backend.repositories.UserRepository;
+
+public class UserServiceTest {
+
+	private static final String[] LAST_NAMES = { "Smith", "jones", "Brown", "Adams", "Carter" };
+
+	private static ConfigurableApplicationContext context;
+	private static UserService userService;
+	private static List<User> searchedUsers;
+
+	@BeforeClass
+	public static void startBackend() {
+		context = TestBackend.start();
+		userService = context.getBean(UserService.class);
+		UserRepository userRepository = context.getBean(UserRepository.class);
+		User admin = userRepository.findByEmailIgnoreCase("admin@vaadin.com");
+		for (int i = 0; i < 23; i++) {
+			User user = new User();
+			user.setEmail("searched" + i + "@vaadin.com");
+			user.setFirstName("Searched");
+			user.setLastName(LAST_NAMES[i % LAST_NAMES.length]);
+			user.setPasswordHash("searched");
+			user.setRole(i % 2 == 0 ? Role.BAKER : Role.BARISTA);
+			userService.save(admin, user);
+		}
+		searchedUsers = userRepository.findAll().stream().filter(u -> u.getEmail().startsWith("searched"))
+				.collect(Collectors.toList());
+	}
+
+	@AfterClass
+	public static void stopBackend() {
+		context.close();
+	}
+
+	@Test
+	public void pagesFollowTheSort() {
+		Sort sort = Sort.by(Sort.Order.desc("lastName").ignoreCase(), Sort.Order.asc("role"));
+		Comparator<User> comparator = Comparator.comparing(User::getLastName, String.CASE_INSENSITIVE_ORDER)
+				.reversed().thenComparing(User::getRole).thenComparing(User::getId);
+		List<Long> expected = searchedUsers.stream().sorted(comparator).map(User::getId)
+				.collect(Collectors.toList());
+
+		for (int page = 0; page < 5; page++) {
+			Page<User> users = userService.findAnyMatching(Optional.of("SEARCHED"), PageRequest.of(page, 5, sort));
+			assertEquals(23, users.getTotalElements());
+			assertEquals(expected.subList(page * 5, Math.min(page * 5 + 5, 23)),
+					users.getContent().stream().map(User::getId).collect(Collectors.toList()));
+		}
+	}
+
+	@Test
+	public void pagesSortedByIdDescending() {
+		List<Long> expected = searchedUsers.stream().map(User::getId).sorted(Comparator.reverseOrder())
+				.collect(Collectors.toList());
+		Page<User> users = userService.findAnyMatching(Optional.of("searched"),
+				PageRequest.of(1, 10, Sort.by("id").descending()));
+		assertEquals(expected.subList(10, 20), users.getContent().stream().map(User::getId)
+				.collect(Collectors.toList()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownSortProperty() {
+		userService.findAnyMatching(Optional.of("searched"), PageRequest.of(0, 10, Sort.by("passwordHash")));
+	}
+}
@@ -0,0 +1,16 @@
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+
+import Bakery._
+import BakeryScenarios._
+
+/**
+ * Admins editing products and users and searching their grids.
+ */
+class AdminFlow extends Simulation {
+
+  setUp(admin.inject(rampUsers(sessionCount) during (sessionStartInterval seconds)))
+    .protocols(httpProtocol)
+    .assertions(objectivesFor("Login", "Products", "Users"): _*)
+}
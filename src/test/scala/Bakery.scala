@@ -0,0 +1,176 @@
+import scala.concurrent.duration._
+import scala.util.Random
+
+import io.gatling.commons.stats.assertion.Assertion
+import io.gatling.core.Predef._
+import io.gatling.core.structure.ChainBuilder
+import io.gatling.http.Predef._
+import io.gatling.http.check.HttpCheck
+import io.gatling.http.request.builder.HttpRequestBuilder
+
+/**
+ * The settings, requests, feeders and response time objectives shared by the
+ * simulations of the views. Each view is opened with a full page load, as when
+ * following a link, so that the ids of its nodes can be read from the initial
+ * response instead of being hard coded.
+ */
+object Bakery {
+
+  def intProperty(name: String, default: Int): Int =
+    sys.props.get(name).filter(_.nonEmpty).map(_.toInt).getOrElse(default)
+
+  // The URL of the system under test
+  val baseUrl: String = System.getProperty("gatling.baseUrl", "http://localhost:8080")
+
+  // The total number of simulated user sessions
+  val sessionCount: Int = intProperty("gatling.sessionCount", 100)
+
+  // The time (in seconds) over which the sessions are started
+  val sessionStartInterval: Int = intProperty("gatling.sessionStartInterval", 100)
+
+  // The repeat count of the scenarios, by default executed only once
+  val sessionRepeats: Int = intProperty("gatling.sessionRepeats", 1)
+
+  val httpProtocol = http
+    .baseUrl(baseUrl)
+    .acceptHeader("*/*")
+    .acceptEncodingHeader("gzip, deflate")
+    .acceptLanguageHeader("en-US,en;q=0.5")
+    .userAgentHeader("Mozilla/5.0 (Macintosh; Intel Mac OS X 10.13; rv:57.0) Gecko/20100101 Firefox/57.0")
+
+  val pageHeaders = Map(
+    "Accept" -> "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8",
+    "Upgrade-Insecure-Requests" -> "1")
+
+  val uidlHeaders = Map("Content-type" -> "application/json; charset=UTF-8")
+
+  val uidlUrl = "/?v-r=uidl&v-uiId=${uiId}"
+
+  val uIdExtract = regex(""""v-uiId":(\d+)""").saveAs("uiId")
+  val syncIdExtract = regex("""syncId":([0-9]*)""").saveAs("syncId")
+  val clientIdExtract = regex("""clientId":([0-9]*)""").saveAs("clientId")
+  val xsrfTokenExtract = regex("""Vaadin-Security-Key":\s?"([^"]*)""").saveAs("seckey")
+  val operationFailed = regex("""could not be performed""").notExists
+
+  // The node of a template child mapped with @Id
+  def idNode(id: String, saveAs: String): HttpCheck =
+    regex(raw"""node":(\d+),+"type":"put",+"key":"payload",+"feat":[0-9]*,+"value":\{+"type":"@id",+"payload":"$id"""").saveAs(saveAs)
+
+  // The first node of an element with the given tag
+  def tagNode(tag: String, saveAs: String): HttpCheck =
+    regex(raw"""node":(\d+),+"type":"put",+"key":"tag",+"feat":[0-9]*,+"value":"$tag"""").saveAs(saveAs)
+
+  val initSyncAndClientIds = exec(session => session.setAll("syncId" -> 0, "clientId" -> 0))
+
+  def createRpc(rpc: String): String =
+    """{"csrfToken":"${seckey}","rpc":[""" + rpc + """],"syncId":${syncId},"clientId":${clientId}}"""
+
+  // A round trip of the current UI
+  def uidl(name: String, rpc: String): HttpRequestBuilder =
+    http(name)
+      .post(uidlUrl)
+      .headers(uidlHeaders)
+      .body(StringBody(createRpc(rpc))).asJson
+      .check(syncIdExtract).check(clientIdExtract)
+
+  // A click on a button, with the event data a ClickEvent reads
+  def click(name: String, node: String): HttpRequestBuilder =
+    uidl(name, s"""{"type":"event","node":$${$node},"event":"click","data":{"event.shiftKey":false,"event.metaKey":false,"event.detail":1,"event.ctrlKey":false,"event.clientX":0,"event.clientY":0,"event.altKey":false,"event.button":0,"event.screenY":0,"event.screenX":0}}""")
+
+  // Fetches the first page of a grid, as it does after it is attached or filtered
+  def gridPage(name: String, gridNode: String): HttpRequestBuilder =
+    uidl(name, s"""{"type":"publishedEventHandler","node":$${$gridNode},"templateEventMethodName":"setRequestedRange","templateEventMethodArgs":[0,50]},{"type":"publishedEventHandler","node":$${$gridNode},"templateEventMethodName":"confirmUpdate","templateEventMethodArgs":[1]}""")
+
+  // The checks read the nodes of the view shown after the login
+  def login(username: String, password: String, checks: HttpCheck*): ChainBuilder =
+    group("Login") {
+      exec(http("Login page")
+        .get("/")
+        .headers(pageHeaders)
+        .check(uIdExtract)
+        .check(xsrfTokenExtract))
+        .pause(2, 5)
+        .exec(http("Login")
+          .post("/login")
+          .headers(pageHeaders)
+          .formParam("username", username)
+          .formParam("password", password)
+          .check(uIdExtract)
+          // A new token is issued after the login
+          .check(xsrfTokenExtract)
+          .check(checks: _*))
+        .exec(initSyncAndClientIds)
+    }
+
+  // Loads a view in a new UI, as when following a link or reloading the page
+  def open(name: String, route: String, checks: HttpCheck*): ChainBuilder =
+    exec(http(name)
+      .get("/" + route)
+      .headers(pageHeaders)
+      .check(uIdExtract)
+      .check(xsrfTokenExtract)
+      .check(checks: _*))
+      .exec(initSyncAndClientIds)
+
+  /**
+   * Types the search term of the session into a search bar a key at a time,
+   * syncing the value eagerly, and then sends the filter event the search bar
+   * debounces for 300 ms, which filters the grid and fetches its first page.
+   */
+  def typeSearch(group: String, fieldNode: String, gridNode: String): ChainBuilder =
+    exec(session => {
+      val term = session("searchTerm").as[String]
+      session.set("searchPrefixes", (1 to term.length).map(term.substring(0, _)))
+    })
+      .foreach("${searchPrefixes}", "typed") {
+        exec(uidl(s"$group keystroke",
+          s"""{"type":"mSync","node":$${$fieldNode},"feature":1,"property":"value","value":"$${typed}"}"""))
+          .pause(100 milliseconds, 300 milliseconds)
+      }
+      .pause(300 milliseconds)
+      .exec(uidl(s"$group filter",
+        s"""{"type":"event","node":$${$fieldNode},"event":"value-changed","data":{}}""")
+        .check(responseTimeInMillis.saveAs("searchTime")))
+      .exec(gridPage(s"$group grid page", gridNode))
+
+  // Customer names and product names, and parts of them, as users search
+  val searchTerms = csv("gatling/search-terms.csv").random
+
+  // Random order ids in the range of the generated data, e.g. -Dgatling.orderIds=1000-5000
+  val orderIdFeeder = {
+    val Array(first, last) = System.getProperty("gatling.orderIds", "100-3000").split("-").map(_.trim.toInt)
+    Iterator.continually(Map("orderId" -> (first + Random.nextInt(last - first + 1))))
+  }
+
+  // The rows of the first grid page an admin picks to edit, by their key
+  val rowKeyFeeder = Iterator.continually(Map("rowKey" -> (1 + Random.nextInt(8))))
+
+  /**
+   * The response time objectives by request group in milliseconds, the 95th
+   * and 99th percentile, e.g. -Dgatling.slo.Search=300,1000. Group times are
+   * the total time of the requests in the group, without pauses.
+   */
+  val objectives: Map[String, (Int, Int)] = Map(
+    "Login" -> (1000, 2500),
+    "Storefront" -> (800, 2000),
+    "Search" -> (500, 1500),
+    "Order details" -> (800, 2000),
+    "New order" -> (2000, 5000),
+    "Dashboard" -> (1500, 3000),
+    "Products" -> (800, 2000),
+    "Users" -> (800, 2000)
+  ).map { case (group, default) =>
+    group -> sys.props.get("gatling.slo." + group).map(_.split(",").map(_.trim.toInt)).map(p => (p(0), p(1)))
+      .getOrElse(default)
+  }
+
+  // Failed requests allowed in percent
+  val maxFailedPercent: Int = intProperty("gatling.slo.failedPercent", 1)
+
+  // Fail the run if a group misses its objectives; the percentiles 3 and 4 are 95 and 99 by default
+  def objectivesFor(groups: String*): Seq[Assertion] =
+    groups.flatMap { group =>
+      val (p95, p99) = objectives(group)
+      Seq(details(group).responseTime.percentile3.lt(p95), details(group).responseTime.percentile4.lt(p99))
+    } :+ global.failedRequests.percent.lt(maxFailedPercent)
+}
@@ -0,0 +1,211 @@
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+import io.gatling.core.structure.{ChainBuilder, ScenarioBuilder}
+import io.gatling.http.Predef._
+import io.gatling.http.check.HttpCheck
+import io.gatling.http.request.builder.HttpRequestBuilder
+
+import Bakery._
+
+/**
+ * The scenarios of the roles, made of the steps the simulations share. Each
+ * step is a request group with its own response time objective.
+ */
+object BakeryScenarios {
+
+  // The times a baker reloads the dashboard in a session, like a wall screen
+  val dashboardRefreshes: Int = intProperty("gatling.dashboardRefreshes", 3)
+
+  val storefront: ChainBuilder =
+    group("Storefront") {
+      open("Storefront", "storefront", idNode("field", "searchField"), idNode("grid", "gridId"))
+        .exec(gridPage("Storefront grid page", "gridId"))
+    }.pause(2, 5)
+
+  val search: ChainBuilder =
+    feed(searchTerms)
+      .group("Search") {
+        typeSearch("Search", "searchField", "gridId")
+      }.pause(3, 8)
+
+  val orderDetails: ChainBuilder =
+    feed(orderIdFeeder)
+      .group("Order details") {
+        open("Order details", "storefront/${orderId}")
+      }.pause(5, 10)
+
+  // The nodes of the storefront read from the response of the login
+  val storefrontNodes: Seq[HttpCheck] = Seq(idNode("grid", "gridId"), idNode("action", "newButtonId"),
+    idNode("dialog", "dialogId"), tagNode("vaadin-confirm-dialog", "confirmId"),
+    tagNode("vaadin-app-layout", "appLayoutId"), tagNode("vaadin-tabs", "tabsId"))
+
+  // The node of a combo box that shows the given item after a selection
+  def selectedItemNode(label: String, saveAs: String): HttpCheck =
+    regex(raw"""node":(\d+),"type":"put","key":"selectedItem","feat":[0-9],"value":\{"key":"[0-9]","label":"$label""").saveAs(saveAs)
+
+  // The node of the n-th products combo box of the order editor, counting from 0
+  def productsNode(n: Int, saveAs: String): HttpCheck =
+    regex("""payload":"products.{2000,4000}""" * n +
+      """node":(\d+),"type":"put","key":"payload","feat":[0-9]*,"value":\{"type":"@id","payload":"products"""").saveAs(saveAs)
+
+  def valueChanged(node: String): String =
+    s"""{"type":"event","node":$${$node},"event":"value-changed","data":{}}"""
+
+  // Syncs a property of an element, the value in JSON
+  def syncProperty(node: String, property: String, value: String): String =
+    s"""{"type":"mSync","node":$${$node},"feature":1,"property":"$property","value":$value}"""
+
+  // Clears the filter of a combo box and closes it
+  def closed(node: String): Seq[String] =
+    Seq(syncProperty(node, "filter", "\"\""), syncProperty(node, "opened", "false"))
+
+  // Opens a combo box and fetches its items, as when the user clicks it
+  def openComboBox(name: String, node: String): ChainBuilder =
+    exec(uidl(s"$name opened", Seq(
+      s"""{"type":"publishedEventHandler","node":$${$node},"templateEventMethodName":"setRequestedRange","templateEventMethodArgs":[0,50,""]}""",
+      syncProperty(node, "opened", "true")).mkString(",")))
+      .pause(1)
+      .exec(uidl(s"$name opened 2",
+        s"""{"type":"publishedEventHandler","node":$${$node},"templateEventMethodName":"confirmUpdate","templateEventMethodArgs":[1]}"""))
+
+  // Selects an item of an opened combo box and closes it
+  def selectInComboBox(name: String, node: String, key: String, label: String): HttpRequestBuilder =
+    uidl(name, Seq(syncProperty(node, "opened", "false"), syncProperty(node, "value", s""""$key""""),
+      valueChanged(node), syncProperty(node, "selectedItem", s"""{"key":"$key","label":"$label"}""")).mkString(","))
+
+  /**
+   * Creates an order in the editor of the storefront, which the login opens:
+   * fills in the customer, picks two products and the pickup location, and
+   * reviews and places the order.
+   */
+  val newOrder: ChainBuilder =
+    pause(2)
+      .group("New order") {
+        exec(uidl("First xhr, init grid", Seq(
+          """{"type":"event","node":${confirmId},"event":"opened-changed"}""",
+          syncProperty("appLayoutId", "primarySection", "\"navbar\""),
+          """{"type":"publishedEventHandler","node":${gridId},"templateEventMethodName":"setDetailsVisible","templateEventMethodArgs":[null]}""",
+          """{"type":"publishedEventHandler","node":${gridId},"templateEventMethodName":"sortersChanged","templateEventMethodArgs":[[]]}""",
+          """{"type":"publishedEventHandler","node":${gridId},"templateEventMethodName":"confirmUpdate","templateEventMethodArgs":[0]}""")
+          .mkString(",")))
+          .pause(4, 10)
+          .exec(uidl("Update selected tab",
+            """{"type":"publishedEventHandler","node":${tabsId},"templateEventMethodName":"updateSelectedTab","templateEventMethodArgs":[true]}"""))
+          .pause(200 milliseconds)
+          .exec(uidl("App layout overlay", syncProperty("appLayoutId", "overlay", "true")))
+          .pause(200 milliseconds)
+          .exec(click("Click new order", "newButtonId")
+            .check(idNode("amount", "amountId"), idNode("products", "productsId"),
+              idNode("customerName", "customerId"), idNode("customerNumber", "phoneId"), idNode("review", "reviewId"),
+              idNode("pickupLocation", "storeId"), idNode("status", "statusId"), idNode("dueTime", "dueTimeId"),
+              idNode("dueDate", "dueDateId")))
+          .pause(5)
+          .exec(uidl("Selection changes", (Seq(valueChanged("statusId"), valueChanged("statusId")) ++
+            closed("statusId") ++ closed("productsId") ++
+            Seq(valueChanged("dueTimeId"), valueChanged("dueTimeId")) ++ closed("dueTimeId") ++ closed("storeId") ++
+            Seq(valueChanged("dueDateId"), syncProperty("dueDateId", "opened", "false"),
+              """{"type":"event","node":${dialogId},"event":"opened-changed"}""")).mkString(",")))
+          .pause(2)
+          .exec(uidl("Customer name", Seq(syncProperty("customerId", "value", "\"dasdasdXX asdasdasXX\""),
+            """{"type":"event","node":${customerId},"event":"change","data":{}}""").mkString(",")))
+          .pause(5, 6)
+          .exec(uidl("Phone number", Seq(syncProperty("phoneId", "value", "\"+358 123456\""),
+            """{"type":"event","node":${phoneId},"event":"change","data":{}}""").mkString(",")))
+          .pause(5, 6)
+          // Selecting a product adds a row with another products combo box
+          .exec(openComboBox("Product CB1", "productsId"))
+          .pause(3, 5)
+          .exec(selectInComboBox("Select product", "productsId", "1", "Strawberry Bun")
+            .check(selectedItemNode("Strawberry Bun", "products1Id2"), productsNode(1, "products2Id")))
+          .pause(2)
+          .exec(uidl("Product CB1 closed", (Seq(valueChanged("products1Id2"), valueChanged("products1Id2")) ++
+            closed("products1Id2") ++ closed("products2Id")).mkString(",")))
+          .pause(2)
+          .exec(openComboBox("Product CB2", "products2Id"))
+          .pause(3, 5)
+          .exec(selectInComboBox("Select product 2", "products2Id", "2", "Vanilla Cracker")
+            .check(selectedItemNode("Strawberry Bun", "products1Id3"),
+              selectedItemNode("Vanilla Cracker", "products2Id2"), productsNode(2, "products3Id")))
+          .pause(2)
+          .exec(uidl("Product CB2 closed", (Seq("products1Id3", "products1Id3", "products2Id2", "products2Id2")
+            .map(valueChanged) ++ closed("products1Id3") ++ Seq(syncProperty("products2Id2", "filter", "\"\"")) ++
+            closed("products3Id")).mkString(",")))
+          .pause(2)
+          .exec(openComboBox("Select Store", "storeId"))
+          .pause(1)
+          .exec(selectInComboBox("Select Store selected and closed", "storeId", "1", "Store"))
+          .pause(2)
+          .exec(click("Click review order", "reviewId")
+            .check(regex("Order placed"), idNode("save", "saveId")))
+          .pause(2)
+          .exec(click("Click place order", "saveId")
+            .check(regex("Order was created")))
+          .pause(0, 1)
+          .exec(uidl("Dialog closed", Seq(
+            """{"type":"event","node":${dialogId},"event":"opened-changed"}""",
+            """{"type":"publishedEventHandler","node":${gridId},"templateEventMethodName":"setRequestedRange","templateEventMethodArgs":[0,50]}""",
+            """{"type":"publishedEventHandler","node":${gridId},"templateEventMethodName":"confirmUpdate","templateEventMethodArgs":[1]}""")
+            .mkString(",")))
+      }.pause(2, 5)
+
+  val dashboard: ChainBuilder =
+    group("Dashboard") {
+      open("Dashboard", "dashboard", idNode("ordersGrid", "ordersGridId"))
+        .exec(gridPage("Dashboard grid page", "ordersGridId"))
+    }.pause(20, 40)
+
+  /**
+   * Opens a CRUD view, edits a row of the first page, saves or cancels the
+   * edit and then searches the grid. The row is picked before searching, as
+   * the keys of the rows are only known for the first page.
+   */
+  def crud(name: String, route: String, finishEvent: String): ChainBuilder =
+    group(name) {
+      open(name, route, tagNode("vaadin-crud", "crudId"), tagNode("vaadin-grid", "gridId"),
+        idNode("field", "searchField"))
+        .exec(gridPage(s"$name grid page", "gridId"))
+    }.pause(2, 5)
+      .feed(rowKeyFeeder)
+      .group(name) {
+        exec(uidl(s"$name edit",
+          """{"type":"event","node":${crudId},"event":"edit","data":{"event.detail.item":{"key":"${rowKey}"}}}""")
+          .check(operationFailed))
+      }.pause(5, 10)
+      .group(name) {
+        exec(uidl(s"$name $finishEvent", s"""{"type":"event","node":$${crudId},"event":"$finishEvent","data":{}}""")
+          .check(operationFailed))
+      }.pause(2, 4)
+      .feed(searchTerms)
+      .group(name) {
+        typeSearch(name, "searchField", "gridId")
+      }.pause(3, 6)
+
+  val barista: ScenarioBuilder = scenario("Barista")
+    .exec(login("barista@vaadin.com", "barista"))
+    .repeat(sessionRepeats) {
+      exec(storefront).exec(search).exec(orderDetails)
+    }
+
+  // Logs in once per session, so that the repeats do not count against the login throttle
+  val orderEntry: ScenarioBuilder = scenario("BaristaFlow")
+    .exec(login("barista@vaadin.com", "barista", storefrontNodes: _*))
+    .repeat(sessionRepeats) {
+      exec(newOrder)
+    }
+
+  val baker: ScenarioBuilder = scenario("Baker")
+    .exec(login("baker@vaadin.com", "baker"))
+    .repeat(sessionRepeats) {
+      repeat(dashboardRefreshes) {
+        exec(dashboard)
+      }
+    }
+
+  // Saves products, but only cancels the edits of users, which would need a new password
+  val admin: ScenarioBuilder = scenario("Admin")
+    .exec(login("admin@vaadin.com", "admin"))
+    .repeat(sessionRepeats) {
+      exec(crud("Products", "products", "save")).exec(crud("Users", "users", "cancel"))
+    }
+}
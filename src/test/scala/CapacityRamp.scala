@@ -0,0 +1,111 @@
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.{AtomicInteger, AtomicLongArray}
+
+import scala.collection.JavaConverters._
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+import io.gatling.core.structure.ChainBuilder
+
+import Bakery._
+import BakeryScenarios._
+
+/**
+ * Finds the number of concurrent barista sessions the app handles within the
+ * Search objective. The concurrent sessions are increased in levels, and at
+ * the end the 95th percentile and the throughput of the searches of each level
+ * are printed together with the knee: the last level before the percentile
+ * misses the objective or the throughput grows by less than 10%.
+ *
+ * The levels are set with gatling.capacity.startingFrom (10 sessions),
+ * gatling.capacity.step (10), gatling.capacity.levels (10) and
+ * gatling.capacity.levelDuration (60 s) and with gatling.capacity.rampDuration
+ * (10 s) between the levels. With gatling.nodes set to the number of app
+ * nodes behind gatling.baseUrl the knee is also given in sessions per node.
+ */
+class CapacityRamp extends Simulation {
+
+  val startingFrom: Int = intProperty("gatling.capacity.startingFrom", 10)
+  val step: Int = intProperty("gatling.capacity.step", 10)
+  val levels: Int = intProperty("gatling.capacity.levels", 10)
+  val levelDuration: Int = intProperty("gatling.capacity.levelDuration", 60)
+  val rampDuration: Int = intProperty("gatling.capacity.rampDuration", 10)
+  val nodes: Int = intProperty("gatling.nodes", 1)
+
+  // The searches of a session, after which a new session takes its place
+  val searchesPerSession: Int = intProperty("gatling.capacity.searches", 5)
+
+  val minThroughputGrowth = 0.1
+
+  def sessionsAt(level: Int): Int = startingFrom + level * step
+
+  case class Sample(time: Long, millis: Int)
+
+  val activeSessions = new AtomicInteger
+  // The time each level was first reached, as the sessions end at random times
+  val levelReached = new AtomicLongArray(levels)
+  val samples = new ConcurrentLinkedQueue[Sample]
+
+  val sessionStarted: ChainBuilder = exec(session => {
+    val active = activeSessions.incrementAndGet()
+    (0 until levels).filter(sessionsAt(_) <= active)
+      .foreach(levelReached.compareAndSet(_, 0, System.currentTimeMillis))
+    session
+  })
+
+  val sessionEnded: ChainBuilder = exec(session => {
+    activeSessions.decrementAndGet()
+    session
+  })
+
+  // A failed search keeps no time, so that the time of the previous one is not counted twice
+  val searchRecorded: ChainBuilder = exec(session => {
+    session("searchTime").asOption[Int].foreach(millis => samples.add(Sample(System.currentTimeMillis, millis)))
+    session.remove("searchTime")
+  })
+
+  val scn = scenario("Capacity")
+    .exec(sessionStarted)
+    .exec(login("barista@vaadin.com", "barista"))
+    .exec(storefront)
+    .repeat(searchesPerSession) {
+      exec(search).exec(searchRecorded)
+    }
+    .exec(sessionEnded)
+
+  setUp(scn.inject(incrementConcurrentUsers(step)
+    .times(levels)
+    .eachLevelLasting(levelDuration seconds)
+    .separatedByRampsLasting(rampDuration seconds)
+    .startingFrom(startingFrom)))
+    .protocols(httpProtocol)
+
+  case class Level(sessions: Int, searches: Int, p95: Int, throughput: Double)
+
+  after {
+    val all = samples.asScala.toSeq
+    val measured = (0 until levels).filter(levelReached.get(_) > 0).map { level =>
+      val start = levelReached.get(level)
+      val times = all.filter(s => s.time >= start && s.time < start + levelDuration * 1000L).map(_.millis).sorted
+      val p95 = if (times.isEmpty) 0 else times(math.ceil(times.size * 0.95).toInt - 1)
+      Level(sessionsAt(level), times.size, p95, times.size.toDouble / levelDuration)
+    }.filter(_.searches > 0)
+
+    val (p95Objective, _) = objectives("Search")
+    val knee = measured.zip(None +: measured.map(Some(_))).takeWhile { case (level, previous) =>
+      level.p95 < p95Objective && previous.forall(p => level.throughput >= p.throughput * (1 + minThroughputGrowth))
+    }.lastOption.map(_._1)
+
+    println()
+    println("Sessions  Searches  Search p95 (ms)  Searches/s")
+    measured.foreach(l => println(f"${l.sessions}%8d  ${l.searches}%8d  ${l.p95}%15d  ${l.throughput}%10.2f"))
+    knee match {
+      case Some(l) if l == measured.last => println(s"Knee: not reached with ${l.sessions} sessions," +
+        " add levels with gatling.capacity.levels or gatling.capacity.step")
+      case Some(l) => println(s"Knee: ${l.sessions} sessions, ${l.sessions / nodes} sessions per node" +
+        s" on $nodes node(s), Search p95 objective $p95Objective ms")
+      case None => println(s"Knee: not found, the first level already misses the Search p95 objective $p95Objective ms" +
+        " or no searches completed")
+    }
+  }
+}
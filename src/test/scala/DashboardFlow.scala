@@ -0,0 +1,17 @@
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+
+import Bakery._
+import BakeryScenarios._
+
+/**
+ * Bakers watching the dashboard, which counts and charts the orders of the
+ * month and lists the orders of today on each load.
+ */
+class DashboardFlow extends Simulation {
+
+  setUp(baker.inject(rampUsers(sessionCount) during (sessionStartInterval seconds)))
+    .protocols(httpProtocol)
+    .assertions(objectivesFor("Login", "Dashboard"): _*)
+}
@@ -0,0 +1,39 @@
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+import io.gatling.core.structure.ScenarioBuilder
+
+import Bakery._
+import BakeryScenarios._
+
+/**
+ * Baristas, bakers and admins at the same time. The sessions are split between
+ * the roles by the given shares, e.g. -Dgatling.mix=barista:80,baker:20,admin:0
+ * and all of them are started within the same interval.
+ */
+class MixedFlow extends Simulation {
+
+  val roles: Map[String, ScenarioBuilder] = Map("barista" -> barista, "baker" -> baker, "admin" -> admin)
+
+  // Only the groups of the roles that run can be asserted
+  val groupsByRole: Map[String, Seq[String]] = Map(
+    "barista" -> Seq("Storefront", "Search", "Order details"),
+    "baker" -> Seq("Dashboard"),
+    "admin" -> Seq("Products", "Users"))
+
+  val mix: Seq[(String, Int)] = System.getProperty("gatling.mix", "barista:60,baker:25,admin:15")
+    .split(",").toSeq.map(_.split(":")).map(share => share(0).trim -> share(1).trim.toInt)
+
+  require(mix.forall { case (role, _) => roles.contains(role) },
+    s"Unknown role in gatling.mix, expected some of ${roles.keys.mkString(", ")}")
+
+  val sessionsByRole: Seq[(String, Int)] = mix.map { case (role, share) =>
+    role -> math.round(sessionCount.toDouble * share / mix.map(_._2).sum).toInt
+  }.filter(_._2 > 0)
+
+  setUp(sessionsByRole.map { case (role, sessions) =>
+    roles(role).inject(rampUsers(sessions) during (sessionStartInterval seconds))
+  }: _*)
+    .protocols(httpProtocol)
+    .assertions(objectivesFor("Login" +: sessionsByRole.flatMap { case (role, _) => groupsByRole(role) }: _*): _*)
+}
@@ -0,0 +1,18 @@
+import scala.concurrent.duration._
+
+import io.gatling.core.Predef._
+
+import Bakery._
+import BakeryScenarios._
+
+/**
+ * Baristas searching the storefront for varied terms and opening the details
+ * of random orders, the read side of the storefront that BaristaFlow does not
+ * cover.
+ */
+class StorefrontSearchFlow extends Simulation {
+
+  setUp(barista.inject(rampUsers(sessionCount) during (sessionStartInterval seconds)))
+    .protocols(httpProtocol)
+    .assertions(objectivesFor("Login", "Storefront", "Search", "Order details"): _*)
+}